@@ -0,0 +1,43 @@
+package frc.robot.Drivers.Visions;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks the parsing of the results sent by the jetson, which happens every time the jetson sends a line
+ * the line is parsed right inside the bytes received, into pre-allocated arrays, just like the client does
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class JetsonDetectionAppClientBenchmark {
+    /** the amount of notes seen by the camera */
+    @Param({"1", "5"})
+    public int targetsCount;
+
+    private byte[] results;
+    private final double[] cameraResolution = new double[] {640, 480};
+    private final int[] ids = new int[JetsonDetectionAppClient.maxTargetsCount];
+    private final double[] x = new double[JetsonDetectionAppClient.maxTargetsCount],
+            y = new double[JetsonDetectionAppClient.maxTargetsCount],
+            areas = new double[JetsonDetectionAppClient.maxTargetsCount];
+
+    @Setup
+    public void setUp() {
+        final StringBuilder resultsBuilder = new StringBuilder();
+        for (int i = 0; i < targetsCount; i++)
+            resultsBuilder.append(i).append(' ')
+                    .append(120.5 + 60 * i).append(' ')
+                    .append(300.25 - 20 * i).append(' ')
+                    .append(0.0135 * (i + 1)).append('/');
+        results = resultsBuilder.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public double parseTargets() {
+        final int count = JetsonDetectionAppClient.parseTargets(results, 0, results.length, cameraResolution, ids, x, y, areas);
+        return count + x[0];
+    }
+}
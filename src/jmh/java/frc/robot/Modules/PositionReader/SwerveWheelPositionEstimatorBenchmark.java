@@ -0,0 +1,126 @@
+package frc.robot.Modules.PositionReader;
+
+import edu.wpi.first.hal.HAL;
+import frc.robot.Drivers.Encoders.Encoder;
+import frc.robot.Drivers.IMUs.RawGyro;
+import frc.robot.Drivers.IMUs.SimpleGyro;
+import frc.robot.Drivers.Motors.Motor;
+import frc.robot.Modules.Chassis.SwerveWheel;
+import frc.robot.Modules.RobotModuleBase;
+import frc.robot.Utils.MathUtils.Vector2D;
+import frc.robot.Utils.RobotConfigReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks the curve-optimized position estimator, with four swerve wheels running on fake hardware
+ * the fake encoders and gyro move a little bit each invocation, as if the robot is driving along a curve
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class SwerveWheelPositionEstimatorBenchmark {
+    private static final double dt = 0.01;
+    private SwerveWheelPositionEstimatorCurveOptimized estimator;
+    private FakeEncoder[] drivingEncoders, steerEncoders;
+    private FakeGyro gyro;
+
+    @Setup
+    public void setUp() {
+        /* the swerve wheels uses wpilib timers, which needs the hal */
+        HAL.initialize(500, 0);
+
+        final RobotConfigReader robotConfig = new RobotConfigReader("5516-2024");
+        final Vector2D[] wheelsPositions = new Vector2D[] {
+                new Vector2D(new double[] {-0.3, 0.3}),
+                new Vector2D(new double[] {0.3, 0.3}),
+                new Vector2D(new double[] {-0.3, -0.3}),
+                new Vector2D(new double[] {0.3, -0.3})
+        };
+        final SwerveWheel[] swerveWheels = new SwerveWheel[wheelsPositions.length];
+        drivingEncoders = new FakeEncoder[wheelsPositions.length];
+        steerEncoders = new FakeEncoder[wheelsPositions.length];
+        for (int i = 0; i < swerveWheels.length; i++) {
+            drivingEncoders[i] = new FakeEncoder(2 * i);
+            steerEncoders[i] = new FakeEncoder(2 * i + 1);
+            swerveWheels[i] = new SwerveWheel(
+                    new FakeMotor(2 * i), new FakeMotor(2 * i + 1),
+                    drivingEncoders[i], steerEncoders[i],
+                    wheelsPositions[i], robotConfig, i, 0
+            );
+            swerveWheels[i].updateConfigs();
+        }
+
+        gyro = new FakeGyro();
+        estimator = new SwerveWheelPositionEstimatorCurveOptimized(swerveWheels, new SimpleGyro(0, false, gyro));
+        estimator.init();
+    }
+
+    @Benchmark
+    public SwerveWheelPositionEstimatorCurveOptimized periodic() {
+        for (int i = 0; i < drivingEncoders.length; i++) {
+            drivingEncoders[i].move(2000 * dt, 2000);
+            steerEncoders[i].move(0.5 * dt, 0.5);
+        }
+        gyro.yaw += 0.3 * dt;
+        estimator.periodic(dt);
+        return estimator;
+    }
+
+    private static final class FakeEncoder implements Encoder {
+        private final int portID;
+        private double position = 0, velocity = 0;
+
+        FakeEncoder(int portID) {
+            this.portID = portID;
+        }
+
+        void move(double displacement, double velocity) {
+            this.position += displacement;
+            this.velocity = velocity;
+        }
+
+        @Override public void setZeroPosition(double zeroPosition) {}
+        @Override public int getPortID() { return portID; }
+        @Override public double getEncoderPosition() { return position; }
+        @Override public double getEncoderVelocity() { return velocity; }
+        @Override public double getRawEncoderReading() { return position; }
+    }
+
+    private static final class FakeMotor implements Motor {
+        private final int portID;
+        private double power = 0;
+
+        FakeMotor(int portID) {
+            this.portID = portID;
+        }
+
+        @Override public int getPortID() { return portID; }
+        @Override public void setPower(double power, RobotModuleBase operatorModule) { this.power = power; }
+        @Override public double getCurrentPower() { return power; }
+        @Override public void gainOwnerShip(RobotModuleBase ownerModule) {}
+        @Override public void onDestroy() {}
+        @Override public void setMotorZeroPowerBehavior(ZeroPowerBehavior behavior, RobotModuleBase operatorModule) {}
+        @Override public void disableMotor(RobotModuleBase operatorModule) { this.power = 0; }
+        @Override public void lockMotor(RobotModuleBase operatorModule) { this.power = 0; }
+    }
+
+    private static final class FakeGyro implements RawGyro {
+        private double yaw = 0;
+        private final double[] yawPitchRoll = new double[3], yawPitchRollVelocity = new double[3];
+
+        @Override public void update() {}
+
+        @Override
+        public double[] getRawYawPitchRollAngle() {
+            yawPitchRoll[0] = yaw;
+            return yawPitchRoll;
+        }
+
+        @Override
+        public double[] getYawYawPitchRollVelocity() {
+            return yawPitchRollVelocity;
+        }
+    }
+}
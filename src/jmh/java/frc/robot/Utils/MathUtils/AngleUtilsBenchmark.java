@@ -0,0 +1,50 @@
+package frc.robot.Utils.MathUtils;
+
+import frc.robot.Utils.MechanismControllers.EnhancedPIDController;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks the angle wrapping, which runs for every steer, the gyro and the rotation controller every cycle
+ * the time should stay the same no matter how many turns the angle has
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class AngleUtilsBenchmark {
+    /** how big the angles are, in radian */
+    @Param({"1", "1000", "10000000"})
+    public double magnitude;
+
+    private double[] angles;
+    private int angleIndex;
+
+    @Setup
+    public void setUp() {
+        angles = new double[1024];
+        final java.util.Random random = new java.util.Random(0);
+        for (int i = 0; i < angles.length; i++)
+            angles[i] = (random.nextDouble() - 0.5) * 2 * magnitude;
+        angleIndex = 0;
+    }
+
+    @Benchmark
+    public double simplifyAngle() {
+        angleIndex = (angleIndex + 1) & (angles.length - 1);
+        return AngleUtils.simplifyAngle(angles[angleIndex]);
+    }
+
+    @Benchmark
+    public double getActualDifference() {
+        angleIndex = (angleIndex + 1) & (angles.length - 1);
+        return AngleUtils.getActualDifference(angles[angleIndex], angles[(angleIndex + 7) & (angles.length - 1)]);
+    }
+
+    /** used to loop thousands of times with big positions */
+    @Benchmark
+    public double pidControllerActualDifference() {
+        angleIndex = (angleIndex + 1) & (angles.length - 1);
+        return EnhancedPIDController.getActualDifference(angles[angleIndex], angles[(angleIndex + 7) & (angles.length - 1)], Math.PI * 2);
+    }
+}
@@ -0,0 +1,52 @@
+package frc.robot.Utils.MathUtils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks the bezier curves, which are sampled every cycle when the chassis follows a path during auto stage
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class BezierCurveBenchmark {
+    private BezierCurve curve;
+    private BezierCurveSchedule schedule;
+    private double t;
+
+    @Setup
+    public void setUp() {
+        curve = new BezierCurve(
+                new Vector2D(new double[] {0, 0}),
+                new Vector2D(new double[] {0, 1.5}),
+                new Vector2D(new double[] {2, 1.5}),
+                new Vector2D(new double[] {2, 3})
+        );
+        schedule = new BezierCurveSchedule(8, 4, curve);
+        t = 0.37;
+    }
+
+    @Benchmark
+    public Vector2D position() {
+        return curve.getPositionWithLERP(t);
+    }
+
+    @Benchmark
+    public Vector2D velocity() {
+        return curve.getVelocityWithLERP(t);
+    }
+
+    @Benchmark
+    public double length() {
+        return curve.getLength(100);
+    }
+
+    /** the schedule is restarted when it finishes, which happens once every few hundred invocations */
+    @Benchmark
+    public double scheduleNextCheckPoint() {
+        if (schedule.isCurrentPathFinished())
+            schedule = new BezierCurveSchedule(8, 4, curve);
+        return schedule.nextCheckPoint(0.02);
+    }
+}
@@ -0,0 +1,53 @@
+package frc.robot.Utils.MathUtils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks the look-up tables, the shooter uses them every cycle to find the rpm and arm angle to the target
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class LookUpTableBenchmark {
+    /** the amount of points in the table, the shooter has around 10 */
+    @Param({"8", "64"})
+    public int tableSize;
+    @Param({"LINEAR", "MONOTONE_CUBIC"})
+    public LookUpTable.InterpolationMode interpolationMode;
+
+    private LookUpTable lookUpTable;
+    private double[] xToLookUp;
+    private int xToLookUpIndex;
+    private double[] predictions;
+
+    @Setup
+    public void setUp() {
+        final double[] xValues = new double[tableSize], yValues = new double[tableSize];
+        for (int i = 0; i < tableSize; i++) {
+            xValues[i] = 1.2 + i * 0.4;
+            yValues[i] = 3000 + 250 * Math.sqrt(i);
+        }
+        lookUpTable = new LookUpTable(xValues, yValues, interpolationMode);
+
+        /* spread the queries over the whole table in increasing order, including both ends */
+        xToLookUp = new double[1024];
+        for (int i = 0; i < xToLookUp.length; i++)
+            xToLookUp[i] = 1 + (tableSize * 0.4 + 0.4) * i / xToLookUp.length;
+        xToLookUpIndex = 0;
+        predictions = new double[xToLookUp.length];
+    }
+
+    @Benchmark
+    public double getYPrediction() {
+        xToLookUpIndex = (xToLookUpIndex + 1) & (xToLookUp.length - 1);
+        return lookUpTable.getYPrediction(xToLookUp[xToLookUpIndex]);
+    }
+
+    /** all the 1024 queries at once, in increasing order */
+    @Benchmark
+    public double[] getYPredictions() {
+        return lookUpTable.getYPredictions(xToLookUp, predictions);
+    }
+}
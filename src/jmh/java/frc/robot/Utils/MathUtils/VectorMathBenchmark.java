@@ -0,0 +1,68 @@
+package frc.robot.Utils.MathUtils;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks the vector operations used by the chassis and the position estimators every cycle
+ * the immutable versions allocate a new vector for every operation, the mutable ones should not allocate at all
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class VectorMathBenchmark {
+    private Vector2D vector, anotherVector;
+    private MutableVector2D mutableVector;
+    private Rotation2D rotation;
+    private double radian;
+
+    @Setup
+    public void setUp() {
+        vector = new Vector2D(new double[] {0.3, -1.2});
+        anotherVector = new Vector2D(new double[] {2.5, 0.7});
+        mutableVector = new MutableVector2D();
+        rotation = new Rotation2D(Math.toRadians(37));
+        radian = Math.toRadians(37);
+    }
+
+    @Benchmark
+    public Vector2D vectorAddAndScale() {
+        return vector.addBy(anotherVector.multiplyBy(0.01));
+    }
+
+    @Benchmark
+    public MutableVector2D mutableVectorAddAndScale() {
+        return mutableVector.set(vector).addBy(anotherVector, 0.01);
+    }
+
+    @Benchmark
+    public Vector2D vectorRotate() {
+        return vector.multiplyBy(rotation);
+    }
+
+    @Benchmark
+    public Vector2D vectorRotateWithNewRotation() {
+        return vector.multiplyBy(new Rotation2D(radian));
+    }
+
+    @Benchmark
+    public MutableVector2D mutableVectorRotate() {
+        return mutableVector.set(vector).rotateBy(radian);
+    }
+
+    @Benchmark
+    public double vectorHeading() {
+        return vector.getHeading();
+    }
+
+    @Benchmark
+    public double vectorMagnitude() {
+        return vector.getMagnitude();
+    }
+
+    @Benchmark
+    public Rotation2D rotationAdd() {
+        return rotation.add(rotation);
+    }
+}
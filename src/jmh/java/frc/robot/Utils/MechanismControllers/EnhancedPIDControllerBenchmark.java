@@ -0,0 +1,83 @@
+package frc.robot.Utils.MechanismControllers;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * benchmarks the pid controllers, the steer of each swerve wheel runs one every cycle
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+public class EnhancedPIDControllerBenchmark {
+    private static final double dt = 0.01;
+    private EnhancedPIDController staticGoToPositionController, staticSetToSpeedController,
+            dynamicGoToPositionController, dynamicSetToSpeedController,
+            staticStreamingController, dynamicStreamingController;
+    private double position, velocity, streamingTarget;
+
+    @Setup
+    public void setUp() {
+        /* similar to the steer of the swerve wheels */
+        final EnhancedPIDController.StaticPIDProfile staticProfile = new EnhancedPIDController.StaticPIDProfile(
+                Math.PI * 2, 0.6, 0.04, Math.toRadians(60), Math.toRadians(2), 0.02, 0, 0
+        );
+        /* similar to the arm */
+        final EnhancedPIDController.DynamicalPIDProfile dynamicalProfile = new EnhancedPIDController.DynamicalPIDProfile(
+                Double.POSITIVE_INFINITY, 0.8, 0.05, 0.02, 0.1, 0.1, 12, 3
+        );
+
+        staticGoToPositionController = new EnhancedPIDController(staticProfile);
+        staticGoToPositionController.startNewTask(new EnhancedPIDController.Task(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, Math.toRadians(170)));
+        staticSetToSpeedController = new EnhancedPIDController(staticProfile);
+        staticSetToSpeedController.startNewTask(new EnhancedPIDController.Task(EnhancedPIDController.Task.TaskType.SET_TO_SPEED, 2));
+
+        dynamicGoToPositionController = new EnhancedPIDController(dynamicalProfile);
+        dynamicGoToPositionController.startNewTaskKeepIntegration(new EnhancedPIDController.Task(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, 1.5), 0);
+        dynamicSetToSpeedController = new EnhancedPIDController(dynamicalProfile);
+        dynamicSetToSpeedController.startNewTask(new EnhancedPIDController.Task(EnhancedPIDController.Task.TaskType.SET_TO_SPEED, 2));
+
+        /* the target changes a little bit every cycle, like the heading of a steer */
+        staticStreamingController = new EnhancedPIDController(staticProfile);
+        dynamicStreamingController = new EnhancedPIDController(dynamicalProfile);
+        streamingTarget = 1.5;
+
+        position = Math.toRadians(350);
+        velocity = 1.2;
+    }
+
+    @Benchmark
+    public double staticGoToPosition() {
+        return staticGoToPositionController.getMotorPower(position, velocity, dt);
+    }
+
+    @Benchmark
+    public double staticSetToSpeed() {
+        return staticSetToSpeedController.getMotorPower(position, velocity, dt);
+    }
+
+    @Benchmark
+    public double dynamicGoToPosition() {
+        return dynamicGoToPositionController.getMotorPower(position, velocity, dt);
+    }
+
+    @Benchmark
+    public double dynamicSetToSpeed() {
+        return dynamicSetToSpeedController.getMotorPower(position, velocity, dt);
+    }
+
+    @Benchmark
+    public double staticStreamingGoToPosition() {
+        streamingTarget = streamingTarget > 2 ? 1.5 : streamingTarget + 0.001;
+        staticStreamingController.updateTask(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, streamingTarget);
+        return staticStreamingController.getMotorPower(position, velocity, dt);
+    }
+
+    @Benchmark
+    public double dynamicStreamingGoToPosition() {
+        streamingTarget = streamingTarget > 2 ? 1.5 : streamingTarget + 0.001;
+        dynamicStreamingController.updateTask(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, streamingTarget);
+        return dynamicStreamingController.getMotorPower(position, velocity, dt);
+    }
+}
@@ -1,7 +1,7 @@
 package frc.robot.Drivers.Encoders;
 
-import com.ctre.phoenix6.StatusSignal;
 import com.ctre.phoenix6.hardware.CANcoder;
+import frc.robot.Drivers.PhoenixSignalsRegistry;
 import frc.robot.Drivers.RobotDriverBase;
 import frc.robot.Utils.MathUtils.AngleUtils;
 
@@ -9,6 +9,8 @@ public class CanCoder extends RobotDriverBase implements Encoder {
     private final CANcoder encoderInstance;
     private final double encoderScaleFactor;
     private double encoderZeroPosition;
+    /** the readings, refreshed together with the other devices on the same bus */
+    private final PhoenixSignalsRegistry.Signal absolutePosition, velocity;
 
     public CanCoder(CANcoder encoderInstance) {
         this(encoderInstance, false);
@@ -18,6 +20,8 @@ public class CanCoder extends RobotDriverBase implements Encoder {
         this.encoderInstance = encoderInstance;
         this.encoderZeroPosition = 0;
         this.encoderScaleFactor = reversed ? -1 : 1;
+        this.absolutePosition = PhoenixSignalsRegistry.register(encoderInstance, encoderInstance.getAbsolutePosition());
+        this.velocity = PhoenixSignalsRegistry.register(encoderInstance, encoderInstance.getVelocity());
     }
 
     @Override
@@ -37,18 +41,48 @@ public class CanCoder extends RobotDriverBase implements Encoder {
      */
     @Override
     public double getEncoderPosition() {
-        final double differenceFromZeroPosition = AngleUtils.getActualDifference(encoderZeroPosition, getRawEncoderReading());
+        return getPositionFromRawReading(getRawEncoderReading());
+    }
+
+    private double getPositionFromRawReading(double rawReading) {
+        final double differenceFromZeroPosition = AngleUtils.getActualDifference(encoderZeroPosition, rawReading);
         return AngleUtils.simplifyAngle(differenceFromZeroPosition * encoderScaleFactor);
     }
 
     /** the raw sensor reading, converted to radian */
     @Override
     public double getRawEncoderReading() {
-        return encoderInstance.getAbsolutePosition().getValueAsDouble() * Math.PI * 2;
+        return absolutePosition.getValue() * Math.PI * 2;
+    }
+
+    @Override
+    public double getEncoderReadingTimestamp() {
+        return absolutePosition.getTimestamp();
+    }
+
+    @Override
+    public void setHighFrequencyReading(double frequencyHZ) {
+        absolutePosition.setHighFrequency(frequencyHZ);
+        velocity.setHighFrequency(frequencyHZ);
     }
 
     @Override
     public double getEncoderVelocity() {
-        return encoderInstance.getVelocity().getValueAsDouble() * encoderScaleFactor * Math.PI * 2;
+        return velocity.getValue() * encoderScaleFactor * Math.PI * 2;
+    }
+
+    @Override
+    public double getHighFrequencyEncoderPosition() {
+        return getPositionFromRawReading(absolutePosition.getHighFrequencyValue() * Math.PI * 2);
+    }
+
+    @Override
+    public double getHighFrequencyEncoderVelocity() {
+        return velocity.getHighFrequencyValue() * encoderScaleFactor * Math.PI * 2;
+    }
+
+    @Override
+    public double getHighFrequencyEncoderReadingTimestamp() {
+        return absolutePosition.getHighFrequencyTimestamp();
     }
 }
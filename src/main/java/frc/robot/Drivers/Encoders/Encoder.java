@@ -1,5 +1,6 @@
 package frc.robot.Drivers.Encoders;
 
+import edu.wpi.first.wpilibj.Timer;
 import frc.robot.Modules.RobotModuleBase;
 
 public interface Encoder {
@@ -33,4 +34,37 @@ public interface Encoder {
     double getRawEncoderReading();
 
     default boolean isEncoderAvailable() {return true;}
+
+    /**
+     * get the time when the current reading is measured
+     * @return the timestamp, in seconds and in the same time base as the fpga timestamp, now by default
+     * */
+    default double getEncoderReadingTimestamp() {
+        return Timer.getFPGATimestamp();
+    }
+
+    /**
+     * makes the encoder readings update faster, for the odometry thread
+     * does nothing if the encoder does not support it
+     * @param frequencyHZ the rate that the readings should update at
+     * */
+    default void setHighFrequencyReading(double frequencyHZ) {}
+
+    /**
+     * the readings for the odometry thread, refreshed by it at the high frequency, so the readings of the main loop are left alone
+     * the same as the normal readings by default
+     * */
+    default double getHighFrequencyEncoderPosition() {
+        return getEncoderPosition();
+    }
+
+    /** @see #getHighFrequencyEncoderPosition() */
+    default double getHighFrequencyEncoderVelocity() {
+        return getEncoderVelocity();
+    }
+
+    /** @see #getHighFrequencyEncoderPosition() */
+    default double getHighFrequencyEncoderReadingTimestamp() {
+        return getEncoderReadingTimestamp();
+    }
 }
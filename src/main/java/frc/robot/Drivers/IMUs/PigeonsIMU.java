@@ -1,16 +1,22 @@
 package frc.robot.Drivers.IMUs;
 
 import com.ctre.phoenix6.hardware.Pigeon2;
+import frc.robot.Drivers.PhoenixSignalsRegistry;
 import edu.wpi.first.wpilibj.Timer;
 
 public class PigeonsIMU implements RawGyro {
     private Pigeon2 pigeonInstance;
+    /** the angles, in degrees, refreshed together with the other devices on the same bus */
+    private final PhoenixSignalsRegistry.Signal yaw, pitch, roll;
     private double lastYaw;
     private Timer dt;
     /** in degrees per second */
     private double yawVelocity;
     public PigeonsIMU(int portID) {
         this.pigeonInstance = new Pigeon2(portID);
+        this.yaw = PhoenixSignalsRegistry.register(pigeonInstance, pigeonInstance.getYaw());
+        this.pitch = PhoenixSignalsRegistry.register(pigeonInstance, pigeonInstance.getPitch());
+        this.roll = PhoenixSignalsRegistry.register(pigeonInstance, pigeonInstance.getRoll());
         this.dt = new Timer();
         dt.start();
         yawVelocity = 0;
@@ -18,7 +24,7 @@ public class PigeonsIMU implements RawGyro {
 
     @Override
     public void update() {
-        double currentYaw = getRawYawPitchRollAngle()[0];
+        double currentYaw = getRawAngle(0);
         this.yawVelocity = (currentYaw - lastYaw) / dt.get(); // the yaw value does not reset when going around 0, zero we can measure velocity as in linear motions
 
         lastYaw = currentYaw;
@@ -28,12 +34,47 @@ public class PigeonsIMU implements RawGyro {
     @Override
     public double[] getRawYawPitchRollAngle() {
         return new double[] {
-                Math.toRadians(pigeonInstance.getYaw().getValueAsDouble()),
-                Math.toRadians(pigeonInstance.getPitch().getValueAsDouble()),
-                Math.toRadians(pigeonInstance.getRoll().getValueAsDouble())
+                Math.toRadians(yaw.getValue()),
+                Math.toRadians(pitch.getValue()),
+                Math.toRadians(roll.getValue())
         };
     }
 
+    @Override
+    public double getRawAngle(int axis) {
+        return Math.toRadians(switch (axis) {
+            case 0 -> yaw.getValue();
+            case 1 -> pitch.getValue();
+            case 2 -> roll.getValue();
+            default -> throw new IllegalArgumentException("Invalid axis: " + axis);
+        });
+    }
+
+    @Override
+    public double getYawTimestamp() {
+        return yaw.getTimestamp();
+    }
+
+    @Override
+    public void setHighFrequencyReading(double frequencyHZ) {
+        yaw.setHighFrequency(frequencyHZ);
+    }
+
+    @Override
+    public double getHighFrequencyRawAngle(int axis) {
+        return Math.toRadians(switch (axis) {
+            case 0 -> yaw.getHighFrequencyValue();
+            case 1 -> pitch.getValue(); // only the yaw is high-frequency
+            case 2 -> roll.getValue();
+            default -> throw new IllegalArgumentException("Invalid axis: " + axis);
+        });
+    }
+
+    @Override
+    public double getRawAngularVelocity(int axis) {
+        return axis == 0 ? Math.toRadians(yawVelocity) : 0;
+    }
+
     @Override
     public double[] getYawYawPitchRollVelocity() {
         return new double[] {
@@ -1,5 +1,7 @@
 package frc.robot.Drivers.IMUs;
 
+import edu.wpi.first.wpilibj.Timer;
+
 public interface RawGyro {
     /** update the readings */
     void update();
@@ -9,4 +11,39 @@ public interface RawGyro {
 
     /** in radian per second */
     double[] getYawYawPitchRollVelocity();
+
+    /** the time when the current angles are measured, in seconds and in the same time base as the fpga timestamp, now by default */
+    default double getYawTimestamp() {
+        return Timer.getFPGATimestamp();
+    }
+
+    /**
+     * one of the angles, without the array, for the callers that read it every cycle
+     * @param axis 0 for yaw, 1 for pitch and 2 for roll
+     * @return the angle in radian, the same as getRawYawPitchRollAngle() by default
+     * */
+    default double getRawAngle(int axis) {
+        return getRawYawPitchRollAngle()[axis];
+    }
+
+    /**
+     * one of the angular velocities, without the array
+     * @param axis 0 for yaw, 1 for pitch and 2 for roll
+     * @return the velocity in radian per second, the same as getYawYawPitchRollVelocity() by default
+     * */
+    default double getRawAngularVelocity(int axis) {
+        return getYawYawPitchRollVelocity()[axis];
+    }
+
+    /** makes the angles update faster, for the odometry thread, does nothing if not supported */
+    default void setHighFrequencyReading(double frequencyHZ) {}
+
+    /**
+     * the angle for the odometry thread, refreshed by it at the high frequency, so the readings of the main loop are left alone
+     * @param axis 0 for yaw, 1 for pitch and 2 for roll
+     * @return the angle in radian, the same as getRawYawPitchRollAngle() by default
+     * */
+    default double getHighFrequencyRawAngle(int axis) {
+        return getRawYawPitchRollAngle()[axis];
+    }
 }
@@ -6,7 +6,8 @@ import frc.robot.Utils.MathUtils.AngleUtils;
  * simple gyro that can be used in 2d navigation only all the imu must be installed straightly
  * */
 public class SimpleGyro {
-    private double calibratedYawAngle = 0;
+    /* calibrated by the main thread, read by the odometry thread */
+    private volatile double calibratedYawAngle = 0;
     /** to use which axis as yaw */
     private final int yawAxis;
     private final double yawRate;
@@ -37,13 +38,33 @@ public class SimpleGyro {
      * @return the yaw angle. in radian, counter-clockwise is positive
      *  */
     public double getYaw() {
-        return AngleUtils.simplifyAngle(AngleUtils.getActualDifference(calibratedYawAngle,getRawYawValue()));
+        return AngleUtils.simplifyAngle(getRawYawValue() - calibratedYawAngle);
     }
 
     public double getRawYawValue() {
         return AngleUtils.simplifyAngle(gyroInstance.getRawYawPitchRollAngle()[yawAxis] * yawRate);
     }
 
+    /**
+     * the yaw for the odometry thread, from the high-frequency readings of the gyro (see setHighFrequencyReading())
+     * it shares the calibration with getYaw(), the two only differ by how recent the readings are
+     * */
+    public double getHighFrequencyYaw() {
+        return AngleUtils.simplifyAngle(getHighFrequencyRawYawValue() - calibratedYawAngle);
+    }
+
+    public double getHighFrequencyRawYawValue() {
+        return AngleUtils.simplifyAngle(gyroInstance.getHighFrequencyRawAngle(yawAxis) * yawRate);
+    }
+
+    /**
+     * same as calibrate(), but against the high-frequency reading, so that getHighFrequencyYaw() is exactly the given angle right after
+     * @param yawValue the given current yaw angle, in radians
+     * */
+    public void calibrateHighFrequency(double yawValue) {
+        calibratedYawAngle = AngleUtils.getActualDifference(yawValue, getHighFrequencyRawYawValue());
+    }
+
 
     /**
      *  gets the yaw angular velocity
@@ -53,6 +74,16 @@ public class SimpleGyro {
         return gyroInstance.getYawYawPitchRollVelocity()[yawAxis] * yawRate;
     }
 
+    /** the time when the current yaw is measured, in seconds and in the same time base as the fpga timestamp */
+    public double getYawTimestamp() {
+        return gyroInstance.getYawTimestamp();
+    }
+
+    /** makes the yaw update faster, for the odometry thread */
+    public void setHighFrequencyReading(double frequencyHZ) {
+        gyroInstance.setHighFrequencyReading(frequencyHZ);
+    }
+
     /**
      * updates the sensor reading and inertial navigation
      */
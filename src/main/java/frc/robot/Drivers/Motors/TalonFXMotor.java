@@ -4,6 +4,7 @@ import com.ctre.phoenix6.hardware.TalonFX;
 import com.ctre.phoenix6.signals.NeutralModeValue;
 
 import frc.robot.Drivers.Encoders.Encoder;
+import frc.robot.Drivers.PhoenixSignalsRegistry;
 import frc.robot.Drivers.RobotDriverBase;
 import frc.robot.Modules.RobotModuleBase;
 import frc.robot.Utils.MechanismControllers.EncoderMotorMechanism;
@@ -11,6 +12,8 @@ import frc.robot.Utils.MechanismControllers.EncoderMotorMechanism;
 public class TalonFXMotor extends RobotDriverBase implements Motor, Encoder {
     private final TalonFX talonFXInstance;
     private final int portID;
+    /** the encoder readings, refreshed together with the other devices on the same bus */
+    private final PhoenixSignalsRegistry.Signal rotorPosition, rotorVelocity;
     /** encoder is built-in, so they reverse together */
     private double powerAndEncoderScaleFactor;
     private double currentPower = 0, zeroPosition = 0;
@@ -26,6 +29,8 @@ public class TalonFXMotor extends RobotDriverBase implements Motor, Encoder {
         this.talonFXInstance = talonFXInstance;
         talonFXInstance.getRotorPosition().setUpdateFrequency(100);
         talonFXInstance.getRotorVelocity().setUpdateFrequency(100);
+        this.rotorPosition = PhoenixSignalsRegistry.register(talonFXInstance, talonFXInstance.getRotorPosition());
+        this.rotorVelocity = PhoenixSignalsRegistry.register(talonFXInstance, talonFXInstance.getRotorVelocity());
         this.portID = talonFXInstance.getDeviceID();
         enabled = true;
     }
@@ -115,12 +120,38 @@ public class TalonFXMotor extends RobotDriverBase implements Motor, Encoder {
     /** gets the current velocity, not in radian, but in per second */
     @Override
     public double getEncoderVelocity() {
-        return talonFXInstance.getRotorVelocity().getValueAsDouble() * 2048 * powerAndEncoderScaleFactor;
+        return rotorVelocity.getValue() * 2048 * powerAndEncoderScaleFactor;
     }
 
     @Override
     public double getRawEncoderReading() {
-        return talonFXInstance.getRotorPosition().getValueAsDouble() * powerAndEncoderScaleFactor * 2048;
+        return rotorPosition.getValue() * powerAndEncoderScaleFactor * 2048;
+    }
+
+    @Override
+    public double getEncoderReadingTimestamp() {
+        return rotorPosition.getTimestamp();
+    }
+
+    @Override
+    public void setHighFrequencyReading(double frequencyHZ) {
+        rotorPosition.setHighFrequency(frequencyHZ);
+        rotorVelocity.setHighFrequency(frequencyHZ);
+    }
+
+    @Override
+    public double getHighFrequencyEncoderPosition() {
+        return rotorPosition.getHighFrequencyValue() * powerAndEncoderScaleFactor * 2048 - zeroPosition;
+    }
+
+    @Override
+    public double getHighFrequencyEncoderVelocity() {
+        return rotorVelocity.getHighFrequencyValue() * 2048 * powerAndEncoderScaleFactor;
+    }
+
+    @Override
+    public double getHighFrequencyEncoderReadingTimestamp() {
+        return rotorPosition.getHighFrequencyTimestamp();
     }
 
     public EncoderMotorMechanism toEncoderAndMotorMechanism() {
@@ -0,0 +1,372 @@
+package frc.robot.Drivers;
+
+import com.ctre.phoenix6.BaseStatusSignal;
+import com.ctre.phoenix6.StatusCode;
+import com.ctre.phoenix6.StatusSignal;
+import com.ctre.phoenix6.hardware.ParentDevice;
+import edu.wpi.first.wpilibj.Timer;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * refreshes the status signals of all the phoenix 6 devices (talon fx, cancoder, pigeon) together, once per cycle
+ *
+ * the drivers register their signals when they are created, and read the cached values afterward
+ * at the start of each cycle, the robot core calls refreshAll(), which refreshes the signals of each CAN bus (rio or canivore) with a single call
+ * so reading the same encoder many times in a cycle (by the wheel and two position estimators) costs nothing, and all the readings of a cycle are from the same moment
+ *
+ * if refreshAll() is not called (for example, in the tests that don't have a robot core), the signals are refreshed one by one when they are read
+ *
+ * some signals (the ones used by the odometry) can be made high-frequency
+ * the dedicated thread, that calls waitForHighFrequencySignals() in a loop, then refreshes a copy of them and reads it with getHighFrequencyValue()
+ * the values of the main loop are still refreshed by refreshAll() only, so they never change in the middle of a cycle
+ *
+ * each value is published together with its timestamp under a sequence lock, so a reader on another thread never sees a half-written pair
+ * getValueAndTimestamp() and getHighFrequencyValueAndTimestamp() read the two together, from the same refresh
+ * */
+public final class PhoenixSignalsRegistry {
+    /**
+     * if refreshAll() is not called for this long, the signals refresh themselves when read
+     * if waitForHighFrequencySignals() is not called for this long, the high-frequency readings fall back to the ones of the main loop
+     * */
+    private static final long maxRefreshIntervalNano = 100_000_000;
+
+    /** the signals of each can bus, in the form of bus name -> signals */
+    private static final Map<String, CanBusSignals> canBuses = new HashMap<>();
+    /** all the signals registered, in the form of "bus/device/id/signal" -> signal, so the same signal of the same device is only refreshed once */
+    private static final Map<String, Signal> signals = new HashMap<>();
+    private static volatile long previousRefreshTimeNano = 0;
+    private static volatile boolean refreshedOnce = false;
+
+    /** the high-frequency signals of each can bus */
+    private static final Map<String, HighFrequencyCanBusSignals> highFrequencyCanBuses = new HashMap<>();
+    /** the same buses as above, the one with the most signals first, replaced as a whole when a signal is added */
+    private static volatile HighFrequencyCanBusSignals[] highFrequencyCanBusesArray = new HighFrequencyCanBusSignals[0];
+    private static volatile long previousHighFrequencyRefreshTimeNano = 0;
+    private static volatile boolean highFrequencyRefreshedOnce = false;
+
+    private PhoenixSignalsRegistry() {}
+
+    /**
+     * a status signal registered, with its value and timestamp cached at the last refresh
+     * both pairs (value and timestamp, high-frequency value and timestamp) are published with a sequence lock, each by one writer at a time
+     * */
+    public static final class Signal {
+        private final StatusSignal<Double> statusSignal;
+        private final String canBusName;
+        /** a copy of the status signal, used by the high-frequency thread only, null if the signal is not high-frequency */
+        private volatile StatusSignal<Double> highFrequencyStatusSignal = null;
+        /* written in updateCachedValue() (synchronized on the signal), read by the modules' threads, the sequence is odd while they are being written */
+        private volatile int sequence = 0;
+        private double value, timestamp;
+        /* written by the high-frequency thread only (and once when the signal is made high-frequency), read by the odometry */
+        private volatile int highFrequencySequence = 0;
+        private double highFrequencyValue, highFrequencyTimestamp;
+
+        private Signal(StatusSignal<Double> statusSignal, String canBusName) {
+            this.statusSignal = statusSignal;
+            this.canBusName = canBusName;
+            updateCachedValue();
+        }
+
+        /** @return the value of the signal, at the last refresh */
+        public double getValue() {
+            refreshIfInactive();
+            double value;
+            int sequence;
+            do {
+                sequence = beginReading();
+                value = this.value;
+            } while (!finishReading(sequence));
+            return value;
+        }
+
+        /** @return the time when the device measured the value, in seconds, in the same time base as the fpga timestamp */
+        public double getTimestamp() {
+            refreshIfInactive();
+            double timestamp;
+            int sequence;
+            do {
+                sequence = beginReading();
+                timestamp = this.timestamp;
+            } while (!finishReading(sequence));
+            return timestamp;
+        }
+
+        /**
+         * reads the value and the timestamp of the same refresh, without creating any object
+         * @param valueAndTimestampOutput an array of length 2, to put the value and the timestamp in
+         * */
+        public void getValueAndTimestamp(double[] valueAndTimestampOutput) {
+            refreshIfInactive();
+            int sequence;
+            do {
+                sequence = beginReading();
+                valueAndTimestampOutput[0] = value;
+                valueAndTimestampOutput[1] = timestamp;
+            } while (!finishReading(sequence));
+        }
+
+        /**
+         * @return the value of the signal, at the last refresh of the high-frequency thread
+         * the same as getValue() if the signal is not high-frequency or the thread is not running
+         * */
+        public double getHighFrequencyValue() {
+            if (!isRefreshedByHighFrequencyThread())
+                return getValue();
+            double value;
+            int sequence;
+            do {
+                sequence = beginReadingHighFrequency();
+                value = highFrequencyValue;
+            } while (!finishReadingHighFrequency(sequence));
+            return value;
+        }
+
+        /** @return the timestamp of getHighFrequencyValue(), in the same time base as the fpga timestamp */
+        public double getHighFrequencyTimestamp() {
+            if (!isRefreshedByHighFrequencyThread())
+                return getTimestamp();
+            double timestamp;
+            int sequence;
+            do {
+                sequence = beginReadingHighFrequency();
+                timestamp = highFrequencyTimestamp;
+            } while (!finishReadingHighFrequency(sequence));
+            return timestamp;
+        }
+
+        /** the same as getValueAndTimestamp(), for the high-frequency readings */
+        public void getHighFrequencyValueAndTimestamp(double[] valueAndTimestampOutput) {
+            if (!isRefreshedByHighFrequencyThread()) {
+                getValueAndTimestamp(valueAndTimestampOutput);
+                return;
+            }
+            int sequence;
+            do {
+                sequence = beginReadingHighFrequency();
+                valueAndTimestampOutput[0] = highFrequencyValue;
+                valueAndTimestampOutput[1] = highFrequencyTimestamp;
+            } while (!finishReadingHighFrequency(sequence));
+        }
+
+        /**
+         * makes the device send this signal faster, and adds a copy of it to be refreshed by the high-frequency thread
+         * @param frequencyHZ the rate that the device should send this signal at
+         * */
+        public void setHighFrequency(double frequencyHZ) {
+            addHighFrequencySignal(this, frequencyHZ);
+        }
+
+        private boolean isRefreshedByHighFrequencyThread() {
+            return highFrequencyStatusSignal != null && isHighFrequencyActive();
+        }
+
+        private void refreshIfInactive() {
+            if (isActive()) return;
+            synchronized (this) {
+                statusSignal.refresh();
+                updateCachedValue();
+            }
+        }
+
+        /* refreshAll() and refreshIfInactive() may both write, so the writers are kept one at a time by the lock of the signal */
+        private synchronized void updateCachedValue() {
+            final double value = statusSignal.getValueAsDouble(),
+                    timestamp = getTimestampInFPGATime(statusSignal);
+            final int sequence = this.sequence;
+            this.sequence = sequence + 1;
+            VarHandle.storeStoreFence(); // the pair must not be written before the sequence becomes odd
+            this.value = value;
+            this.timestamp = timestamp;
+            this.sequence = sequence + 2;
+        }
+
+        private void updateHighFrequencyCachedValue() {
+            publishHighFrequencyValue(highFrequencyStatusSignal.getValueAsDouble(), getTimestampInFPGATime(highFrequencyStatusSignal));
+        }
+
+        private void publishHighFrequencyValue(double value, double timestamp) {
+            final int sequence = highFrequencySequence;
+            highFrequencySequence = sequence + 1;
+            VarHandle.storeStoreFence(); // the pair must not be written before the sequence becomes odd
+            this.highFrequencyValue = value;
+            this.highFrequencyTimestamp = timestamp;
+            highFrequencySequence = sequence + 2;
+        }
+
+        /** @return the sequence number to read the pair with, once it is not being written */
+        private int beginReading() {
+            int sequence;
+            while (((sequence = this.sequence) & 1) != 0)
+                Thread.onSpinWait(); // being written
+            return sequence;
+        }
+
+        /** @return whether the pair read since beginReading() is complete, if not, read it again */
+        private boolean finishReading(int sequence) {
+            VarHandle.loadLoadFence(); // the pair must be read before checking the sequence again
+            return this.sequence == sequence;
+        }
+
+        private int beginReadingHighFrequency() {
+            int sequence;
+            while (((sequence = highFrequencySequence) & 1) != 0)
+                Thread.onSpinWait();
+            return sequence;
+        }
+
+        private boolean finishReadingHighFrequency(int sequence) {
+            VarHandle.loadLoadFence();
+            return highFrequencySequence == sequence;
+        }
+
+        private static double getTimestampInFPGATime(StatusSignal<Double> source) {
+            /* the latency tells how long ago the value was measured, so the timestamp can be put in the fpga time base */
+            return Timer.getFPGATimestamp() - source.getTimestamp().getLatency();
+        }
+    }
+
+    /** the signals on the same can bus, which can be refreshed with a single call */
+    private static final class CanBusSignals {
+        private final String canBusName;
+        private final List<Signal> signals = new ArrayList<>();
+        private BaseStatusSignal[] statusSignals = new BaseStatusSignal[0];
+        private StatusCode previousStatus = StatusCode.OK;
+
+        private CanBusSignals(String canBusName) {
+            this.canBusName = canBusName;
+        }
+
+        private void add(Signal signal) {
+            signals.add(signal);
+            statusSignals = Arrays.copyOf(statusSignals, statusSignals.length + 1);
+            statusSignals[statusSignals.length - 1] = signal.statusSignal;
+        }
+
+        private void refresh() {
+            final StatusCode status = BaseStatusSignal.refreshAll(statusSignals);
+            previousStatus = printIfFailed(status, previousStatus, canBusName);
+            for (int i = 0; i < signals.size(); i++)
+                signals.get(i).updateCachedValue();
+        }
+    }
+
+    /** the high-frequency signals on the same can bus, used by the high-frequency thread only */
+    private static final class HighFrequencyCanBusSignals {
+        private final String canBusName;
+        /* replaced as a whole when a signal is added, so the high-frequency thread always sees a complete list */
+        private volatile Signal[] signals = new Signal[0];
+        private volatile BaseStatusSignal[] statusSignals = new BaseStatusSignal[0];
+        private StatusCode previousStatus = StatusCode.OK;
+
+        private HighFrequencyCanBusSignals(String canBusName) {
+            this.canBusName = canBusName;
+        }
+
+        private void add(Signal signal) {
+            final Signal[] newSignals = Arrays.copyOf(signals, signals.length + 1);
+            final BaseStatusSignal[] newStatusSignals = Arrays.copyOf(statusSignals, statusSignals.length + 1);
+            newSignals[newSignals.length - 1] = signal;
+            newStatusSignals[newStatusSignals.length - 1] = signal.highFrequencyStatusSignal;
+            statusSignals = newStatusSignals;
+            signals = newSignals;
+        }
+
+        /** @param timeoutSeconds the time to wait for new values, or 0 to just take the latest ones */
+        private boolean refresh(double timeoutSeconds) {
+            final Signal[] signals = this.signals;
+            final StatusCode status = BaseStatusSignal.waitForAll(timeoutSeconds, statusSignals);
+            previousStatus = printIfFailed(status, previousStatus, canBusName);
+            for (Signal signal:signals)
+                signal.updateHighFrequencyCachedValue();
+            return status.isOK();
+        }
+    }
+
+    private static StatusCode printIfFailed(StatusCode status, StatusCode previousStatus, String canBusName) {
+        if (!status.isOK() && status != previousStatus)
+            System.out.println("<-- Phoenix Signals Registry | error while refreshing signals on bus \"" + canBusName + "\": " + status + " -->");
+        return status;
+    }
+
+    /**
+     * registers a signal of a device, to be refreshed together with the others on the same bus
+     * if the same signal of the same device is already registered (by another instance of the device), the registered one is returned
+     * @param device the device that the signal belongs to
+     * @param statusSignal the signal
+     * @return the registered signal, read the values from it
+     * */
+    public static synchronized Signal register(ParentDevice device, StatusSignal<Double> statusSignal) {
+        final String canBusName = device.getNetwork(),
+                signalKey = canBusName + "/" + device.getClass().getSimpleName() + "/" + device.getDeviceID() + "/" + statusSignal.getName();
+        Signal signal = signals.get(signalKey);
+        if (signal != null)
+            return signal;
+
+        signal = new Signal(statusSignal, canBusName);
+        signals.put(signalKey, signal);
+        canBuses.computeIfAbsent(canBusName, CanBusSignals::new).add(signal);
+        return signal;
+    }
+
+    private static synchronized void addHighFrequencySignal(Signal signal, double frequencyHZ) {
+        if (signal.highFrequencyStatusSignal != null) return;
+        signal.statusSignal.setUpdateFrequency(frequencyHZ);
+        /* the main loop keeps refreshing the original, so the high-frequency thread must wait on a copy of its own */
+        /* start from the values of the main loop, before the signal is given to the high-frequency thread (so that thread is not writing yet) */
+        signal.publishHighFrequencyValue(signal.getValue(), signal.getTimestamp());
+        signal.highFrequencyStatusSignal = signal.statusSignal.clone();
+
+        final HighFrequencyCanBusSignals canBusSignals = highFrequencyCanBuses.computeIfAbsent(signal.canBusName, HighFrequencyCanBusSignals::new);
+        canBusSignals.add(signal);
+        final HighFrequencyCanBusSignals[] newArray = highFrequencyCanBuses.values().toArray(new HighFrequencyCanBusSignals[0]);
+        /* the thread waits on the bus with the most signals (the chassis), and just takes the latest values on the others */
+        Arrays.sort(newArray, (a, b) -> Integer.compare(b.signals.length, a.signals.length));
+        highFrequencyCanBusesArray = newArray;
+    }
+
+    /**
+     * refreshes all the signals registered, with one call for each can bus
+     * called by the robot core at the start of each cycle
+     * */
+    public static synchronized void refreshAll() {
+        for (CanBusSignals canBusSignals:canBuses.values())
+            canBusSignals.refresh();
+        previousRefreshTimeNano = System.nanoTime();
+        refreshedOnce = true;
+    }
+
+    /**
+     * waits until the high-frequency signals are sent again, and refreshes them
+     * called in a loop by the high-frequency thread (the odometry), the device update frequency sets the pace of the loop
+     * @param timeoutSeconds the maximum time to wait
+     * @return whether all the signals are received in time, false if there are no high-frequency signals
+     * */
+    public static boolean waitForHighFrequencySignals(double timeoutSeconds) {
+        final HighFrequencyCanBusSignals[] canBuses = highFrequencyCanBusesArray;
+        if (canBuses.length == 0)
+            return false;
+        boolean allReceived = canBuses[0].refresh(timeoutSeconds);
+        for (int i = 1; i < canBuses.length; i++)
+            allReceived &= canBuses[i].refresh(0);
+        previousHighFrequencyRefreshTimeNano = System.nanoTime();
+        highFrequencyRefreshedOnce = true;
+        return allReceived;
+    }
+
+    /** @return whether the signals are being refreshed by refreshAll() */
+    public static boolean isActive() {
+        return refreshedOnce && System.nanoTime() - previousRefreshTimeNano < maxRefreshIntervalNano;
+    }
+
+    /** @return whether the high-frequency signals are being refreshed by waitForHighFrequencySignals() */
+    public static boolean isHighFrequencyActive() {
+        return highFrequencyRefreshedOnce && System.nanoTime() - previousHighFrequencyRefreshTimeNano < maxRefreshIntervalNano;
+    }
+}
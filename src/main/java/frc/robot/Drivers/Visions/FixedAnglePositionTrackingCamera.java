@@ -1,19 +1,57 @@
 package frc.robot.Drivers.Visions;
 
+import frc.robot.Modules.PositionReader.PositionEstimator;
 import frc.robot.Utils.ComputerVisionUtils.FixedAngleCameraProfile;
 import frc.robot.Utils.MathUtils.Rotation2D;
 import frc.robot.Utils.MathUtils.Vector2D;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * tracks the field positions of the targets seen by a fixed-angle camera
+ * the targets are kept in an array indexed by their ids, so looking up a target takes no search
+ * each set of results from the camera is a new generation, a target is visible if it was seen in the latest generation
+ * after each update, a read-only snapshot of the targets is published, so the other threads can read them without copying
+ * */
 public class FixedAnglePositionTrackingCamera implements TargetFieldPositionTracker {
-    private final List<TargetOnField> targets;
-    private List<TargetOnField> visibleTargets;
     private final RawObjectDetectionCamera camera;
     private final FixedAngleCameraProfile cameraProfile;
     private final double[] targetHeights;
     private final Rotation2D cameraFacing;
+    /** the pose of the robot when the frame of the targets is captured, in the form of {x, y, rotation} */
+    private final double[] robotPoseAtCapture = new double[3];
+
+    /* <-- used by the updating thread only --> */
+    /** the latest target seen of each id, null for the ids never seen, grown when a larger id is seen */
+    private TargetOnField[] targetsByID = new TargetOnField[16];
+    private long generation = 0;
+    /** the results of the last update, the camera gives the same list until there are new results */
+    private List<RawObjectDetectionCamera.ObjectTargetRaw> previousRawTargets = null;
+
+    /** what the users read, replaced as a whole after each update */
+    private volatile TargetsSnapshot targetsSnapshot = new TargetsSnapshot(new TargetOnField[0], 0, List.of(), List.of());
+
+    /** the targets after an update, never modified */
+    private static final class TargetsSnapshot {
+        private final TargetOnField[] targetsByID;
+        private final long generation;
+        private final List<TargetOnField> allTargets, visibleTargets;
+
+        private TargetsSnapshot(TargetOnField[] targetsByID, long generation, List<TargetOnField> allTargets, List<TargetOnField> visibleTargets) {
+            this.targetsByID = targetsByID;
+            this.generation = generation;
+            this.allTargets = allTargets;
+            this.visibleTargets = visibleTargets;
+        }
+
+        private TargetOnField getTargetByID(int id) {
+            return id >= 0 && id < targetsByID.length ? targetsByID[id] : null;
+        }
+    }
+
     public FixedAnglePositionTrackingCamera(RawObjectDetectionCamera camera, FixedAngleCameraProfile cameraProfile, double[] targetHeights) {
         this(camera, cameraProfile, targetHeights, new Rotation2D(0)); // by default, the camera faces front
     }
@@ -22,17 +60,41 @@ public class FixedAnglePositionTrackingCamera implements TargetFieldPositionTrac
         this.cameraProfile = cameraProfile;
         this.targetHeights = targetHeights;
         this.cameraFacing = cameraFacing;
-
-        targets = new ArrayList<>();
-        visibleTargets = new ArrayList<>();
     }
 
     @Override
     public void update(Vector2D robotPositionInField2D, Rotation2D robotRotation) {
         if (camera.getRawTargets()==null) return;
         camera.update();
-        visibleTargets = new ArrayList<>();
-        for (RawObjectDetectionCamera.ObjectTargetRaw targetRaw: camera.getRawTargets()) {
+        updateTargets(camera.getRawTargets(), robotPositionInField2D, robotRotation);
+    }
+
+    /**
+     * updates the targets, with the pose of the robot when the frame is captured
+     * so that the targets stay in place while the robot is moving, despite the latency of the camera
+     * */
+    @Override
+    public void update(PositionEstimator positionEstimator) {
+        camera.update();
+        final List<RawObjectDetectionCamera.ObjectTargetRaw> rawTargets = camera.getRawTargets();
+        if (rawTargets == null || rawTargets == previousRawTargets) return;
+        positionEstimator.getPoseAt(camera.getResultsTimestamp(), robotPoseAtCapture);
+        updateTargets(
+                rawTargets,
+                new Vector2D(new double[] {robotPoseAtCapture[0], robotPoseAtCapture[1]}),
+                new Rotation2D(robotPoseAtCapture[2])
+        );
+    }
+
+    private void updateTargets(List<RawObjectDetectionCamera.ObjectTargetRaw> rawTargets, Vector2D robotPositionInField2D, Rotation2D robotRotation) {
+        if (rawTargets == previousRawTargets)
+            return; // no new results since the last update
+        previousRawTargets = rawTargets;
+        generation++;
+
+        final List<TargetOnField> visibleTargets = new ArrayList<>(rawTargets.size());
+        for (RawObjectDetectionCamera.ObjectTargetRaw targetRaw: rawTargets) {
+            if (targetRaw.id < 0) continue;
             // System.out.println("<-- Fixed Angle Camera | working on target " + targetRaw.id +  " -->");
             double targetHeight = targetRaw.id < targetHeights.length ? targetHeights[targetRaw.id] : targetHeights[0];
             final double targetDistance = cameraProfile.getDistanceFromYPixel(targetRaw.y, targetHeight) / 100.0f,
@@ -44,35 +106,54 @@ public class FixedAnglePositionTrackingCamera implements TargetFieldPositionTrac
             final Vector2D relativePositionToCamera = new Vector2D(targetDirection ,targetDistance).multiplyBy(cameraFacing),
                     fieldPositionDifferenceFromCamera = relativePositionToCamera.multiplyBy(robotRotation),
                     targetFieldPosition2D =  robotPositionInField2D.addBy(fieldPositionDifferenceFromCamera);
-            final TargetOnField target = new TargetOnField(targetRaw.id, targetFieldPosition2D);
-            deleteTargetFromTargets(targetRaw.id);
-            targets.add(target);
+            final TargetOnField target = new TargetOnField(targetRaw.id, targetFieldPosition2D, generation, robotPositionInField2D, camera.getResultsTimestamp());
+
+            if (targetRaw.id >= targetsByID.length)
+                targetsByID = Arrays.copyOf(targetsByID, Math.max(targetRaw.id + 1, targetsByID.length * 2));
+            final TargetOnField previousTarget = targetsByID[targetRaw.id];
+            if (previousTarget != null && previousTarget.generation == generation)
+                visibleTargets.remove(previousTarget); // the same id twice in one frame, keep the later one
+            targetsByID[targetRaw.id] = target;
             visibleTargets.add(target);
         }
-    }
 
-    private void deleteTargetFromTargets(int targetID) {
-        boolean flag = true;
-        while (flag) {
-            flag = false;
-            int index = -1;
-            for (int i = 0; i < targets.size(); i++)
-                if (targets.get(i).id == targetID) {
-                    flag = true;
-                    index = i;
-                }
-            if (flag) targets.remove(index);
-        }
+        final List<TargetOnField> allTargets = new ArrayList<>();
+        for (TargetOnField target:targetsByID)
+            if (target != null) allTargets.add(target);
+        targetsSnapshot = new TargetsSnapshot(
+                targetsByID.clone(),
+                generation,
+                Collections.unmodifiableList(allTargets),
+                Collections.unmodifiableList(visibleTargets)
+        );
     }
 
-
+    /** @return all the targets ever seen, the latest one of each id, the list can not be modified */
     @Override
     public List<TargetOnField> getAllTargets() {
-        return new ArrayList<>(targets); // avoid concurrent modification error
+        return targetsSnapshot.allTargets;
     }
 
+    /** @return the targets seen in the latest results, the list can not be modified */
     @Override
     public List<TargetOnField> getVisibleTargets() {
-        return new ArrayList<>(visibleTargets);
+        return targetsSnapshot.visibleTargets;
+    }
+
+    @Override
+    public TargetOnField getTargetByID(int id) {
+        return targetsSnapshot.getTargetByID(id);
+    }
+
+    @Override
+    public TargetOnField getVisibleTargetByID(int id) {
+        final TargetsSnapshot targetsSnapshot = this.targetsSnapshot;
+        final TargetOnField target = targetsSnapshot.getTargetByID(id);
+        return target != null && target.generation == targetsSnapshot.generation ? target : null;
+    }
+
+    @Override
+    public long getGeneration() {
+        return targetsSnapshot.generation;
     }
 }
@@ -1,22 +1,72 @@
 package frc.robot.Drivers.Visions;
 
-import java.io.BufferedReader;
+import edu.wpi.first.wpilibj.Timer;
+
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.net.*;
+import java.lang.invoke.VarHandle;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * the client of the detection app running on the jetson
+ *
+ * the client keeps one connection with the server: it sends "GET /results" once, and then reads the results line by line as the server streams them
+ * HTTP/1.0 is used, so that the server sends the lines as they are, without chunked encoding
+ * if the connection breaks, or the server stops sending, the client connects again after a few milliseconds (doubled after each failure)
+ *
+ * the lines are parsed right inside the receiving buffer, into pre-allocated arrays, without creating any strings
+ * the results are then published with a sequence lock, the communication thread is the only writer and it is never blocked by the readers
+ * so the thread also clears the results itself when it stops, and a new thread is only started after the old one has ended
+ * */
 public class JetsonDetectionAppClient implements RawObjectDetectionCamera {
+    /** the maximum amount of targets in one line of results, the rest are ignored */
+    public static final int maxTargetsCount = 32;
+    /** the time between the camera capturing a frame and the results of the frame arriving, an estimation until measured with setProcessingLatency() */
+    public static final double defaultProcessingLatencySeconds = 0.04;
+    private static final int receivingBufferSize = 16 * 1024;
+    private static final long connectTimeoutMillis = 500, readTimeoutMillis = 1000,
+            minReconnectDelayMillis = 5, maxReconnectDelayMillis = 500;
+
     public final String name, jetsonIP;
     public final int port;
-    private final String serverURL;
     private Thread communicationThread;
-    private boolean activated;
-    private String results;
-    private List<ObjectTargetRaw> targetsList;
+    private volatile boolean activated;
+    /** startRecognizing() is called while the previous thread is still stopping, it is started in update() once that thread ends */
+    private boolean startPending = false;
+    private volatile double processingLatencySeconds = defaultProcessingLatencySeconds;
 
     private final double[] cameraResolution;
+    private final ByteBuffer request;
+
+    /* <-- used by the communication thread only --> */
+    private final ByteBuffer receivingBuffer = ByteBuffer.allocate(receivingBufferSize);
+    private final int[] parsedIDs = new int[maxTargetsCount];
+    private final double[] parsedX = new double[maxTargetsCount], parsedY = new double[maxTargetsCount], parsedAreas = new double[maxTargetsCount];
+
+    /* <-- the published results, written by the communication thread only --> */
+    /** increased before and after each publish, it's odd while the results are being written */
+    private volatile int resultsSequence = 0;
+    /** -1 if there is no results */
+    private int resultsCount = -1;
+    /** when the frame of the results is captured, in the fpga time base */
+    private double resultsTimestamp = 0;
+    private final int[] resultsIDs = new int[maxTargetsCount];
+    private final double[] resultsX = new double[maxTargetsCount], resultsY = new double[maxTargetsCount], resultsAreas = new double[maxTargetsCount];
+
+    /* <-- the results in the form of a list, made only when the results change --> */
+    private final Object targetsListLock = new Object();
+    private int targetsListSequence = -1;
+    private double targetsListTimestamp = 0;
+    private List<ObjectTargetRaw> targetsList = null;
+    private final int[] targetsListIDs = new int[maxTargetsCount];
+    private final double[] targetsListX = new double[maxTargetsCount], targetsListY = new double[maxTargetsCount], targetsListAreas = new double[maxTargetsCount];
 
 
     public JetsonDetectionAppClient(String name, String jetsonIpAddress, int port) {
@@ -26,100 +76,354 @@ public class JetsonDetectionAppClient implements RawObjectDetectionCamera {
         this.name = name;
         this.jetsonIP = jetsonIpAddress;
         this.port = port;
-        this.serverURL = "http://" + jetsonIpAddress + ":" + port;
         this.cameraResolution = cameraResolution;
         this.activated = false;
-        this.results = "no-rst";
+        this.request = ByteBuffer.wrap(("GET /results HTTP/1.0\r\nHost: " + jetsonIpAddress + ":" + port + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
     }
 
     private void communicateAndUpdateContinuously() {
+        long reconnectDelayMillis = minReconnectDelayMillis;
+        try (Selector selector = Selector.open()) {
+            while (activated) {
+                boolean resultsReceived = false;
+                try (SocketChannel channel = SocketChannel.open()) {
+                    resultsReceived = pullResultsFromServer(selector, channel);
+                } catch (IOException e) {
+                    // System.out.println("<-- Jetson Client | Connection failed. Waiting for the server to start... -->");
+                }
+                selector.selectNow(); // clears the cancelled key of the closed channel
+
+                if (resultsReceived)
+                    reconnectDelayMillis = minReconnectDelayMillis;
+                if (!activated) break;
+                try {Thread.sleep(reconnectDelayMillis);} catch (InterruptedException ignored) {}
+                reconnectDelayMillis = Math.min(reconnectDelayMillis * 2, maxReconnectDelayMillis);
+            }
+        } catch (IOException e) {
+            System.out.println("<-- Jetson Client | cannot open selector, communication stopped: " + e + " -->");
+        } finally {
+            /* the last thing the thread does, so the results are still written by one thread only */
+            publishResults(0);
+            System.out.println("<-- Jetson Client | communication thread stopped -->");
+        }
+    }
+
+    /**
+     * connects to the server, and keeps reading results until the connection breaks
+     * @return whether any results are received
+     * */
+    private boolean pullResultsFromServer(Selector selector, SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        final SelectionKey key = channel.register(selector, SelectionKey.OP_CONNECT);
+        if (!channel.connect(new InetSocketAddress(jetsonIP, port))) {
+            if (selector.select(connectTimeoutMillis) == 0)
+                return false; // connection timeout
+            selector.selectedKeys().clear();
+            channel.finishConnect();
+        }
+
+        request.rewind();
+        key.interestOps(SelectionKey.OP_WRITE);
+        while (request.hasRemaining()) {
+            if (channel.write(request) == 0 && selector.select(connectTimeoutMillis) == 0)
+                return false;
+            selector.selectedKeys().clear();
+        }
+
+        key.interestOps(SelectionKey.OP_READ);
+        receivingBuffer.clear();
+        final byte[] buffer = receivingBuffer.array();
+        boolean statusLineReceived = false, headersReceived = false, resultsReceived = false;
+        int scannedPosition = 0;
         while (activated) {
-            // System.out.println("jetson client activated: " + activated);
-            try {
-                tryToEstablishConnectionWithServer();
-            } catch (Exception e) {
-                // System.out.println("<-- Jetson Client | Connection failed. Waiting for the server to start... -->");
-                try {Thread.sleep(50);} catch (InterruptedException ignored) {}
+            if (selector.select(readTimeoutMillis) == 0)
+                return resultsReceived; // the server stopped sending
+            selector.selectedKeys().clear();
+            if (channel.read(receivingBuffer) == -1)
+                return resultsReceived; // closed by the server
+
+            final int receivedPosition = receivingBuffer.position();
+            int lineStart = 0;
+            for (int i = scannedPosition; i < receivedPosition; i++) {
+                if (buffer[i] != '\n')
+                    continue;
+                final int lineEnd = (i > lineStart && buffer[i-1] == '\r') ? i-1 : i;
+                if (!statusLineReceived) {
+                    final int responseCode = getResponseCode(buffer, lineStart, lineEnd);
+                    if (responseCode != 200) {
+                        System.out.println("<-- Jetson Client | Server Response Error Code: " + responseCode + " -->");
+                        return false;
+                    }
+                    statusLineReceived = true;
+                } else if (!headersReceived)
+                    headersReceived = lineEnd == lineStart; // the headers end with an empty line
+                else {
+                    // System.out.println("<-- Jetson Client | Received Line: " + new String(buffer, lineStart, lineEnd - lineStart) + " -->");
+                    publishResults(parseTargets(buffer, lineStart, lineEnd, cameraResolution, parsedIDs, parsedX, parsedY, parsedAreas));
+                    resultsReceived = true;
+                }
+                lineStart = i+1;
             }
+
+            /* move the unfinished line to the start of the buffer */
+            if (lineStart == 0 && receivedPosition == buffer.length) {
+                System.out.println("<-- Jetson Client | line too long, reconnecting... -->");
+                return resultsReceived;
+            }
+            System.arraycopy(buffer, lineStart, buffer, 0, receivedPosition - lineStart);
+            receivingBuffer.position(receivedPosition - lineStart);
+            scannedPosition = receivedPosition - lineStart;
         }
+        return resultsReceived;
     }
 
-    private void tryToEstablishConnectionWithServer() throws InterruptedException, IOException {
-        URL resultsURL = new URL(serverURL + "/results");
-        HttpURLConnection connection = (HttpURLConnection) resultsURL.openConnection();
-        connection.setConnectTimeout(500);
-        connection.setRequestMethod("GET");
-        try {
-            pullResultsFromServer(connection);
-        } catch (SocketTimeoutException e) {
-            // System.out.println("<-- Jetson Client | Connection timeout. Waiting for the server to start... -->");
-        } catch (ConnectException e) {
-            // System.out.println("<-- Jetson Client | Connection error. Waiting for the server to start... -->");
+    /** gets the response code from a status line like "HTTP/1.0 200 OK", or -1 if the line is not valid */
+    private static int getResponseCode(byte[] line, int start, int end) {
+        int i = start;
+        while (i < end && line[i] != ' ') i++;
+        if (end - i < 4) return -1;
+        int responseCode = 0;
+        for (int digit = i+1; digit < i+4; digit++) {
+            if (line[digit] < '0' || line[digit] > '9') return -1;
+            responseCode = responseCode * 10 + (line[digit] - '0');
         }
+        return responseCode;
+    }
 
-        connection.disconnect();
-        Thread.sleep(500); // wait for the server to start
+    /** publishes the parsed results, called by the communication thread only */
+    private void publishResults(int targetsCount) {
+        final double timestamp = Timer.getFPGATimestamp() - processingLatencySeconds;
+        final int sequence = resultsSequence;
+        resultsSequence = sequence + 1;
+        VarHandle.storeStoreFence(); // the results must not be written before the sequence becomes odd
+        if (targetsCount > 0) {
+            System.arraycopy(parsedIDs, 0, resultsIDs, 0, targetsCount);
+            System.arraycopy(parsedX, 0, resultsX, 0, targetsCount);
+            System.arraycopy(parsedY, 0, resultsY, 0, targetsCount);
+            System.arraycopy(parsedAreas, 0, resultsAreas, 0, targetsCount);
+        }
+        resultsCount = targetsCount;
+        resultsTimestamp = timestamp;
+        resultsSequence = sequence + 2;
     }
 
-    private void pullResultsFromServer(HttpURLConnection connectionWithServer) throws IOException {
-        int responseCode = connectionWithServer.getResponseCode();
+    /**
+     * parses a line of results, in the form of "id x y area/id x y area/...", right inside the buffer
+     * targets that are not made of exactly four numbers are skipped
+     * @param line the buffer that contains the line
+     * @param start the start of the line in the buffer
+     * @param end the end of the line in the buffer, exclusive
+     * @param cameraResolution the resolution of the camera, in pixels
+     * @param ids, x, y, areas the arrays to store the targets in, the pixel positions are relative to the center of the camera
+     * @return the amount of targets parsed
+     * */
+    static int parseTargets(byte[] line, int start, int end, double[] cameraResolution, int[] ids, double[] x, double[] y, double[] areas) {
+        int targetsCount = 0;
+        int targetStart = start;
+        while (targetStart < end && targetsCount < ids.length) {
+            int targetEnd = targetStart;
+            while (targetEnd < end && line[targetEnd] != '/') targetEnd++;
+            final int nextTargetStart = targetEnd + 1;
+            while (targetEnd > targetStart && line[targetEnd-1] == ' ') targetEnd--; // trailing spaces are ignored
 
-        if (responseCode == HttpURLConnection.HTTP_OK) {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(connectionWithServer.getInputStream()));
-            String line;
-            while (activated && (line = reader.readLine()) != null) {
-                // System.out.println("<-- Jetson Client | Received Line: " + line + " -->");
-                results = line;
-                updateResultsFromServerReturnString();
+            /* find the three spaces between the four numbers */
+            final int space1 = indexOfSpace(line, targetStart, targetEnd),
+                    space2 = indexOfSpace(line, space1 + 1, targetEnd),
+                    space3 = indexOfSpace(line, space2 + 1, targetEnd);
+            if (space3 < targetEnd && indexOfSpace(line, space3 + 1, targetEnd) == targetEnd) {
+                final long id = parseInteger(line, targetStart, space1);
+                final double targetX = parseNumber(line, space1 + 1, space2),
+                        targetY = parseNumber(line, space2 + 1, space3),
+                        area = parseNumber(line, space3 + 1, targetEnd);
+                if (id != Long.MIN_VALUE && !Double.isNaN(targetX) && !Double.isNaN(targetY) && !Double.isNaN(area)) {
+                    // System.out.println(""<-- Jetson Client | updated target" + id + "at pixel (" +x + ", " + y  + ") -->");
+                    ids[targetsCount] = (int) id;
+                    x[targetsCount] = targetX - cameraResolution[0]/2;
+                    y[targetsCount] = targetY - cameraResolution[0]/2;
+                    areas[targetsCount] = area;
+                    targetsCount++;
+                }
             }
-            reader.close();
+            targetStart = nextTargetStart;
+        }
+        return targetsCount;
+    }
+
+    /** @return the index of the first space in the range, or end if there is none */
+    private static int indexOfSpace(byte[] line, int start, int end) {
+        if (start > end) return end;
+        int i = start;
+        while (i < end && line[i] != ' ') i++;
+        return i;
+    }
+
+    /** @return the integer, or Long.MIN_VALUE if it's not a valid int */
+    private static long parseInteger(byte[] line, int start, int end) {
+        if (start >= end) return Long.MIN_VALUE;
+        final boolean negative = line[start] == '-';
+        int i = (negative || line[start] == '+') ? start + 1 : start;
+        if (i == end || end - i > 10) return Long.MIN_VALUE;
+        long value = 0;
+        for (; i < end; i++) {
+            if (line[i] < '0' || line[i] > '9') return Long.MIN_VALUE;
+            value = value * 10 + (line[i] - '0');
+        }
+        value = negative ? -value : value;
+        return (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) ? Long.MIN_VALUE : value;
+    }
+
+    private static final double[] powersOfTen = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    /**
+     * parses a decimal number like "-12.5" or "1e-05", the result is exactly the same as Double.parseDouble()
+     * numbers are calculated directly if they have no more than 15 digits and a small exponent, which is always the case for the jetson
+     * otherwise Double.parseDouble() is used
+     * @return the number, or NaN if it's not a number
+     * */
+    static double parseNumber(byte[] line, int start, int end) {
+        if (start >= end) return Double.NaN;
+        final boolean negative = line[start] == '-';
+        int i = (negative || line[start] == '+') ? start + 1 : start;
+        long mantissa = 0;
+        int digits = 0, exponent = 0;
+        boolean fastPathAvailable = true;
+        for (; i < end && line[i] >= '0' && line[i] <= '9'; i++, digits++)
+            if (mantissa < 100_000_000_000_000L) mantissa = mantissa * 10 + (line[i] - '0');
+            else { fastPathAvailable = false; break; }
+        if (fastPathAvailable && i < end && line[i] == '.')
+            for (i++; i < end && line[i] >= '0' && line[i] <= '9'; i++, digits++, exponent--)
+                if (mantissa < 100_000_000_000_000L) mantissa = mantissa * 10 + (line[i] - '0');
+                else { fastPathAvailable = false; break; }
+        if (fastPathAvailable && digits > 0 && i < end && (line[i] == 'e' || line[i] == 'E')) {
+            final long explicitExponent = parseInteger(line, i+1, end);
+            if (explicitExponent == Long.MIN_VALUE || Math.abs(explicitExponent) > 1000)
+                fastPathAvailable = false;
+            else exponent += (int) explicitExponent;
+            i = end;
+        }
+
+        if (fastPathAvailable && digits > 0 && i == end && Math.abs(exponent) < powersOfTen.length) {
+            /* both the mantissa and the power of ten are exact doubles, so a single multiplication or division is correctly rounded */
+            final double value = exponent >= 0 ? mantissa * powersOfTen[exponent] : mantissa / powersOfTen[-exponent];
+            return negative ? -value : value;
+        }
+        try {
+            return Double.parseDouble(new String(line, start, end - start, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
         }
-        else System.out.println("<-- Jetson Client | Server Response Error Code: " + responseCode + " -->");
     }
 
     @Override
     public void startRecognizing() {
         if (activated) return;
+        if (communicationThread != null && communicationThread.isAlive()) {
+            /* the two threads would share the receiving buffer and both publish results, so wait for the old one to end */
+            System.out.println("<-- Jetson Client | previous communication thread still stopping, starting after it ends... -->");
+            startPending = true;
+            return;
+        }
+        startPending = false;
         this.activated = true;
         communicationThread = new Thread(this::communicateAndUpdateContinuously, name+"-CommunicationThread");
+        communicationThread.setDaemon(true);
         communicationThread.start();
     }
 
+    /**
+     * stops the communication, without waiting for it
+     * the thread is interrupted, so it leaves the blocking select() or sleep() right away, and clears the results as its last step
+     * */
     @Override
     public void stopRecognizing() {
+        startPending = false;
         if (!activated) return;
         System.out.println("<-- Jetson Client | stopping communication thread... -->");
         this.activated = false;
-        targetsList = new ArrayList<>();
-        try {
-            communicationThread.join(500);
-        } catch (InterruptedException ignored) {}
-        System.out.println("<-- Jetson Client | communication thread stopped -->");
+        communicationThread.interrupt();
     }
 
     @Override
     public void update() {
-        // updateResultsFromServerReturnString();
-    }
-
-    private void updateResultsFromServerReturnString() {
-        this.targetsList = new ArrayList<>();
-        if (!activated || results.equals("no-rst")) return;
-        for (String target:results.split("/")) {
-            String[] s = target.split(" ");
-            if (s.length != 4) continue;
-            final int id = Integer.parseInt(s[0]);
-            final double x = Double.parseDouble(s[1]),
-                    y = Double.parseDouble(s[2]),
-                    area = Double.parseDouble(s[3]);
-            // System.out.println(""<-- Jetson Client | updated target" + id + "at pixel (" +x + ", " + y  + ") -->");
-            targetsList.add(new ObjectTargetRaw(id, x - cameraResolution[0]/2, y - cameraResolution[0]/2, area));
+        if (startPending)
+            startRecognizing();
+    }
+
+    /**
+     * copies the latest results into the given arrays, without creating any object
+     * the arrays should have a length of maxTargetsCount, targets that do not fit are ignored
+     * @return the amount of targets, or -1 if no results had been received
+     * */
+    public int getRawTargets(int[] ids, double[] x, double[] y, double[] areas) {
+        return readResults(ids, x, y, areas, null, null);
+    }
+
+    private int readResults(int[] ids, double[] x, double[] y, double[] areas, int[] sequenceOutput, double[] timestampOutput) {
+        while (true) {
+            final int sequence = resultsSequence;
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait(); // being written
+                continue;
+            }
+            final int targetsCount = Math.min(resultsCount, ids.length);
+            final double timestamp = resultsTimestamp;
+            if (targetsCount > 0) {
+                System.arraycopy(resultsIDs, 0, ids, 0, targetsCount);
+                System.arraycopy(resultsX, 0, x, 0, targetsCount);
+                System.arraycopy(resultsY, 0, y, 0, targetsCount);
+                System.arraycopy(resultsAreas, 0, areas, 0, targetsCount);
+            }
+            VarHandle.loadLoadFence(); // the results must be read before checking the sequence again
+            if (resultsSequence != sequence)
+                continue; // changed while reading, try again
+            if (sequenceOutput != null)
+                sequenceOutput[0] = sequence;
+            if (timestampOutput != null)
+                timestampOutput[0] = timestamp;
+            return targetsCount;
         }
     }
 
+    private final int[] targetsListSequenceRead = new int[1];
+    private final double[] targetsListTimestampRead = new double[1];
+    /**
+     * @return the latest targets seen, or null if no results had been received
+     * the list is only made again when the results change, it can not be modified
+     * */
     @Override
     public List<ObjectTargetRaw> getRawTargets() {
-        return targetsList == null ? null : new ArrayList<>(targetsList);
+        synchronized (targetsListLock) {
+            if (resultsSequence == targetsListSequence)
+                return targetsList;
+            final int targetsCount = readResults(targetsListIDs, targetsListX, targetsListY, targetsListAreas, targetsListSequenceRead, targetsListTimestampRead);
+            if (targetsCount < 0)
+                targetsList = null;
+            else {
+                final List<ObjectTargetRaw> newTargetsList = new ArrayList<>(targetsCount);
+                for (int i = 0; i < targetsCount; i++)
+                    newTargetsList.add(new ObjectTargetRaw(targetsListIDs[i], targetsListX[i], targetsListY[i], targetsListAreas[i]));
+                targetsList = Collections.unmodifiableList(newTargetsList);
+            }
+            targetsListSequence = targetsListSequenceRead[0];
+            targetsListTimestamp = targetsListTimestampRead[0];
+            return targetsList;
+        }
+    }
+
+    /** @return the time when the frame of the targets (returned by the last getRawTargets()) is captured */
+    @Override
+    public double getResultsTimestamp() {
+        synchronized (targetsListLock) {
+            return targetsListTimestamp;
+        }
+    }
+
+    /**
+     * sets the time between the camera capturing a frame and its results arriving at the robot
+     * @param processingLatencySeconds the latency, in seconds, measured on the jetson
+     * */
+    public void setProcessingLatency(double processingLatencySeconds) {
+        this.processingLatencySeconds = processingLatencySeconds;
     }
 
     public Thread.State getCommunicationThreadState() {
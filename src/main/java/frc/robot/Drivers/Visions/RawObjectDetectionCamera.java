@@ -1,5 +1,7 @@
 package frc.robot.Drivers.Visions;
 
+import edu.wpi.first.wpilibj.Timer;
+
 import java.util.List;
 
 public interface RawObjectDetectionCamera {
@@ -8,6 +10,14 @@ public interface RawObjectDetectionCamera {
     void update();
     List<ObjectTargetRaw> getRawTargets();
 
+    /**
+     * gets the time when the frame of the targets is captured, so that the targets can be matched with the pose of the robot at that moment
+     * @return the timestamp, in seconds and in the same time base as the fpga timestamp, now by default
+     * */
+    default double getResultsTimestamp() {
+        return Timer.getFPGATimestamp();
+    }
+
     /**
      * gets an april tag target by its id
      * @param id the id of the desired april tag
@@ -1,14 +1,29 @@
 package frc.robot.Drivers.Visions;
 
+import frc.robot.Modules.PositionReader.PositionEstimator;
 import frc.robot.Utils.MathUtils.Rotation2D;
 import frc.robot.Utils.MathUtils.Vector2D;
 
 import java.util.List;
 
 public interface TargetFieldPositionTracker {
+    /** @return all the targets ever seen, the list should not be modified */
     List<TargetOnField> getAllTargets();
+    /** @return the targets seen in the latest results, the list should not be modified */
     List<TargetOnField> getVisibleTargets();
     void update(Vector2D robotPositionInField2D, Rotation2D robotRotation);
+
+    /**
+     * updates the targets, with the pose of the robot from the position estimator
+     * by default, the current pose is used; trackers that know when their results are captured use the pose at that moment
+     * */
+    default void update(PositionEstimator positionEstimator) {
+        update(positionEstimator.getRobotPosition2D(), positionEstimator.getRobotRotation2D());
+    }
+
+    /** @return a number that increases every time the targets change, so that the users can tell whether there are new results */
+    long getGeneration();
+
     /**
      * whether the target is visible
      * @param id the id of the target
@@ -45,13 +60,25 @@ public interface TargetFieldPositionTracker {
     final class TargetOnField {
         public final int id;
         public final Vector2D fieldPosition;
+        /** the generation of the tracker when the target is seen */
+        public final long generation;
+        /** the position of the robot that the field position is calculated from, null if not known */
+        public final Vector2D robotPositionAtCapture;
+        /** when the frame is captured, in seconds and in the same time base as the fpga timestamp, NaN if not known */
+        public final double captureTimestamp;
         private final long timeLastSeenMillis;
         public long timeMillisSinceLastContact() {
             return (System.currentTimeMillis() - timeLastSeenMillis);
         }
-        public TargetOnField(int id, Vector2D fieldPosition) {
+        public TargetOnField(int id, Vector2D fieldPosition, long generation) {
+            this(id, fieldPosition, generation, null, Double.NaN);
+        }
+        public TargetOnField(int id, Vector2D fieldPosition, long generation, Vector2D robotPositionAtCapture, double captureTimestamp) {
             this.id = id;
             this.fieldPosition = fieldPosition;
+            this.generation = generation;
+            this.robotPositionAtCapture = robotPositionAtCapture;
+            this.captureTimestamp = captureTimestamp;
             this.timeLastSeenMillis = System.currentTimeMillis();
         }
     }
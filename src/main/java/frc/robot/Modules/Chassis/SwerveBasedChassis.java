@@ -7,6 +7,7 @@ import frc.robot.Modules.PositionReader.PositionEstimator;
 import frc.robot.Modules.RobotModuleBase;
 import frc.robot.Utils.*;
 import frc.robot.Utils.MathUtils.AngleUtils;
+import frc.robot.Utils.MathUtils.MutableVector2D;
 import frc.robot.Utils.MathUtils.Rotation2D;
 import frc.robot.Utils.MathUtils.Vector2D;
 import frc.robot.Utils.MechanismControllers.EnhancedPIDController;
@@ -59,12 +60,67 @@ public class SwerveBasedChassis extends RobotModuleBase {
     public final PositionEstimator positionEstimator;
     private final SimpleGyro gyro;
     private final RobotConfigReader robotConfig;
+    private final RobotConfigReader.ConfigHandle translationalTaskUpdatableRangeConfig, robotMaximumSpeedConfig, timeNeededToFullyAccelerateConfig,
+            robotSpeedActivateSpeedControlConfig, wheelsPowerConstrainConfig, wheelsPowerConstrainAtLowSpeedModeConfig,
+            rotationalSpeedMaxSacrificeConfig, ignoredAccelerateTimeConfig, robotRotationalErrorToleranceConfig,
+            rotationalErrorAsCommandFinishedConfig, robotRotationalErrorStartDecelerateConfig, robotRotationMaximumCorrectionPowerConfig,
+            robotRotationMinimumCorrectionPowerConfig, robotRotationFeedForwardTimeConfig, robotPositionErrorToleranceConfig,
+            translationalErrorAsCommandFinishedConfig, robotPositionErrorStartDecelerateConfig, robotPositionMaximumCorrectionPowerConfig,
+            robotPositionMinimumCorrectionPowerConfig, robotPositionFeedForwardTimeConfig;
+
+    /* <-- the motion of the wheels is calculated with these arrays, before any command is sent to the wheels --> */
+    /** the rotation direction vector of each wheel, see SwerveWheel.getRotationDirectionVector() */
+    private final double[] wheelsRotationDirectionX, wheelsRotationDirectionY;
+    private final MutableVector2D wheelMotion = new MutableVector2D();
+    /** the translational and rotational speed decided for this cycle, after slowing down the wheels that are too fast */
+    private double decidedTranslationalSpeedX, decidedTranslationalSpeedY, decidedRotationalSpeed;
+    private final TelemetryPublisher.NumberSlot taskXTelemetry = TelemetryPublisher.register("chassis", "chassis task (x)"),
+            taskYTelemetry = TelemetryPublisher.register("chassis", "chassis task (y)"),
+            highestWheelSpeedTelemetry = TelemetryPublisher.register("chassis", "highest wheel speed:"),
+            rotationScaleTelemetry = TelemetryPublisher.register("chassis", "sacrificing rotational part by scale: "),
+            translationScaleTelemetry = TelemetryPublisher.register("chassis", "scaling down translational speed by factor:"),
+            decidedVelocityTelemetry = TelemetryPublisher.register("chassis", "vel ctrl decided");
+
     public SwerveBasedChassis(SwerveWheel[] swerveWheels, SimpleGyro gyro, RobotConfigReader robotConfig, PositionEstimator positionEstimator) {
         super("SwerveBasedChassis");
         this.swerveWheels = swerveWheels;
         this.positionEstimator = positionEstimator;
         this.gyro = gyro;
         this.robotConfig = robotConfig;
+        this.wheelsRotationDirectionX = new double[swerveWheels.length];
+        this.wheelsRotationDirectionY = new double[swerveWheels.length];
+        for (int i = 0; i < swerveWheels.length; i++) {
+            wheelsRotationDirectionX[i] = swerveWheels[i].getRotationDirectionVector().getX();
+            wheelsRotationDirectionY[i] = swerveWheels[i].getRotationDirectionVector().getY();
+        }
+
+        super.declareReading(positionEstimator);
+        super.declareWriting((Object[]) swerveWheels);
+
+        this.translationalTaskUpdatableRangeConfig = useConfig(robotConfig, "chassis/translationalTaskUpdatableRange");
+        this.robotMaximumSpeedConfig = useConfig(robotConfig, "chassis/robotMaximumSpeed");
+        this.timeNeededToFullyAccelerateConfig = useConfig(robotConfig, "chassis/timeNeededToFullyAccelerate");
+        this.robotSpeedActivateSpeedControlConfig = useConfig(robotConfig, "chassis/robotSpeedActivateSpeedControl");
+        this.wheelsPowerConstrainConfig = useConfig(robotConfig, "chassis/wheelsPowerConstrain");
+        this.wheelsPowerConstrainAtLowSpeedModeConfig = useConfig(robotConfig, "chassis/wheelsPowerConstrainAtLowSpeedMode");
+        this.rotationalSpeedMaxSacrificeConfig = useConfig(robotConfig, "chassis/rotationalSpeedMaxSacrifice");
+        this.ignoredAccelerateTimeConfig = useConfig(robotConfig, "chassis/ignoredAccelerateTime");
+        this.robotRotationalErrorToleranceConfig = useConfig(robotConfig, "chassis/robotRotationalErrorTolerance");
+        this.rotationalErrorAsCommandFinishedConfig = useConfig(robotConfig, "chassis/rotationalErrorAsCommandFinished");
+        this.robotRotationalErrorStartDecelerateConfig = useConfig(robotConfig, "chassis/robotRotationalErrorStartDecelerate");
+        this.robotRotationMaximumCorrectionPowerConfig = useConfig(robotConfig, "chassis/robotRotationMaximumCorrectionPower");
+        this.robotRotationMinimumCorrectionPowerConfig = useConfig(robotConfig, "chassis/robotRotationMinimumCorrectionPower");
+        this.robotRotationFeedForwardTimeConfig = useConfig(robotConfig, "chassis/robotRotationFeedForwardTime");
+        this.robotPositionErrorToleranceConfig = useConfig(robotConfig, "chassis/robotPositionErrorTolerance");
+        this.translationalErrorAsCommandFinishedConfig = useConfig(robotConfig, "chassis/translationalErrorAsCommandFinished");
+        this.robotPositionErrorStartDecelerateConfig = useConfig(robotConfig, "chassis/robotPositionErrorStartDecelerate");
+        this.robotPositionMaximumCorrectionPowerConfig = useConfig(robotConfig, "chassis/robotPositionMaximumCorrectionPower");
+        this.robotPositionMinimumCorrectionPowerConfig = useConfig(robotConfig, "chassis/robotPositionMinimumCorrectionPower");
+        this.robotPositionFeedForwardTimeConfig = useConfig(robotConfig, "chassis/robotPositionFeedForwardTime");
+
+        /* reading the gyro refreshes its sensor values */
+        super.declareWriting(gyro);
+        super.declareDependenciesComplete();
     }
 
     @Override
@@ -74,8 +130,8 @@ public class SwerveBasedChassis extends RobotModuleBase {
 
     @Override
     protected void periodic(double dt) {
-        EasyShuffleBoard.putNumber("chassis", "chassis task (x)", translationalTask.translationValue.getX());
-        EasyShuffleBoard.putNumber("chassis", "chassis task (y)", translationalTask.translationValue.getY());
+        taskXTelemetry.set(translationalTask.translationValue.getX());
+        taskYTelemetry.set(translationalTask.translationValue.getY());
         Vector2D processedTranslationalSpeed = processTranslationalMotion(dt);
         // SmartDashboard.putNumber("decided vel(x)", processedTranslationalSpeed.getValue()[0]);
         double rotationalSpeed = processRotationalMotion(dt);
@@ -84,7 +140,20 @@ public class SwerveBasedChassis extends RobotModuleBase {
         SmartDashboard.putNumber("imu yaw:", Math.toDegrees(gyro.getYaw()));
 
         final double wheelsPowerConstrain = lowSpeedModeEnabled ? this.wheelsPowerConstrainAtLowSpeedMode : this.wheelsPowerConstrain;
-        double highestWheelSpeed = driveWheels(processedTranslationalSpeed, rotationalSpeed);
+        decideWheelsMotion(processedTranslationalSpeed.getX(), processedTranslationalSpeed.getY(), rotationalSpeed, wheelsPowerConstrain);
+        driveWheels(decidedTranslationalSpeedX, decidedTranslationalSpeedY, decidedRotationalSpeed);
+    }
+
+    /**
+     * decides the motion of the chassis, so that no wheel is asked to run higher than the power constrain
+     * the speeds of the wheels are calculated without sending any command to the wheels
+     * the results are stored in decidedTranslationalSpeedX, decidedTranslationalSpeedY and decidedRotationalSpeed
+     * */
+    private void decideWheelsMotion(double translationalSpeedX, double translationalSpeedY, double rotationalSpeed, double wheelsPowerConstrain) {
+        decidedTranslationalSpeedX = translationalSpeedX;
+        decidedTranslationalSpeedY = translationalSpeedY;
+        decidedRotationalSpeed = rotationalSpeed;
+        double highestWheelSpeed = getHighestWheelSpeed(translationalSpeedX, translationalSpeedY, rotationalSpeed);
         // System.out.println("highest wheel speed:" + highestWheelSpeed);
         if (highestWheelSpeed <= wheelsPowerConstrain) return;
         /* if a wheel is asked to run higher than max power, we need to slow everything down to avoid tearing the robot apart */
@@ -93,39 +162,55 @@ public class SwerveBasedChassis extends RobotModuleBase {
         final double rotationMinScale = (1-rotationalSpeedMaxSacrifice);
 
         // System.out.println("sacrificing rotational part by scale: " + Math.sqrt(rotationMinScale));
-        rotationalSpeed *= Math.sqrt(rotationMinScale);
-        highestWheelSpeed = driveWheels(processedTranslationalSpeed, rotationalSpeed);
+        decidedRotationalSpeed *= Math.sqrt(rotationMinScale);
+        highestWheelSpeed = getHighestWheelSpeed(translationalSpeedX, translationalSpeedY, decidedRotationalSpeed);
         if (highestWheelSpeed <= wheelsPowerConstrain) {
             return;
         }
 
         /* then we slow it down to max rotationalSpeedMaxSacrifice */
-        EasyShuffleBoard.putNumber("chassis", "highest wheel speed:", highestWheelSpeed);
-        EasyShuffleBoard.putNumber("chassis", "sacrificing rotational part by scale: ", rotationMinScale);
-        rotationalSpeed *= Math.sqrt(rotationMinScale);
-        highestWheelSpeed = driveWheels(processedTranslationalSpeed, rotationalSpeed);
+        highestWheelSpeedTelemetry.set(highestWheelSpeed);
+        rotationScaleTelemetry.set(rotationMinScale);
+        decidedRotationalSpeed *= Math.sqrt(rotationMinScale);
+        highestWheelSpeed = getHighestWheelSpeed(translationalSpeedX, translationalSpeedY, decidedRotationalSpeed);
         if (highestWheelSpeed <= wheelsPowerConstrain) return;
 
-        /* finally, we start scaling down the translational part */
-        EasyShuffleBoard.putNumber("chassis", "highest wheel speed:", highestWheelSpeed);
-        EasyShuffleBoard.putNumber("chassis", "scaling down translational speed by factor:", wheelsPowerConstrain/highestWheelSpeed);
-        processedTranslationalSpeed = processedTranslationalSpeed.multiplyBy(wheelsPowerConstrain/highestWheelSpeed);
-        rotationalSpeed *= wheelsPowerConstrain/highestWheelSpeed;
-        driveWheels(processedTranslationalSpeed, rotationalSpeed);
+        /* finally, we start scaling down the translational part, all the wheel speeds scale with it so the highest one is at the constrain */
+        final double translationalScale = wheelsPowerConstrain/highestWheelSpeed;
+        highestWheelSpeedTelemetry.set(highestWheelSpeed);
+        translationScaleTelemetry.set(translationalScale);
+        decidedTranslationalSpeedX *= translationalScale;
+        decidedTranslationalSpeedY *= translationalScale;
+        decidedRotationalSpeed *= translationalScale;
     }
 
     /**
-     * pass the robot motion params to each wheels
+     * calculates the speed of each wheel, without sending them to the wheels
+     * the same as the speed returned by SwerveWheel.drive(translationalSpeed, rotationalSpeed, operator)
      * @return the highest drive speed among the four wheels
      * */
-    private double driveWheels(Vector2D translationalSpeed, double rotationalSpeed) {
+    private double getHighestWheelSpeed(double translationalSpeedX, double translationalSpeedY, double rotationalSpeed) {
         double highestWheelSpeed = 0;
-        for (SwerveWheel wheel : swerveWheels)
-            highestWheelSpeed = Math.max(highestWheelSpeed,
-                    wheel.drive(translationalSpeed, rotationalSpeed, this));
+        for (int i = 0; i < swerveWheels.length; i++) {
+            final double wheelMotionX = translationalSpeedX + wheelsRotationDirectionX[i] * rotationalSpeed,
+                    wheelMotionY = translationalSpeedY + wheelsRotationDirectionY[i] * rotationalSpeed;
+            highestWheelSpeed = Math.max(highestWheelSpeed, Math.sqrt(wheelMotionX * wheelMotionX + wheelMotionY * wheelMotionY));
+        }
         return highestWheelSpeed;
     }
 
+    /**
+     * pass the robot motion params to each wheels
+     * */
+    private void driveWheels(double translationalSpeedX, double translationalSpeedY, double rotationalSpeed) {
+        for (int i = 0; i < swerveWheels.length; i++) {
+            wheelMotion.set(
+                    translationalSpeedX + wheelsRotationDirectionX[i] * rotationalSpeed,
+                    translationalSpeedY + wheelsRotationDirectionY[i] * rotationalSpeed);
+            swerveWheels[i].drive(wheelMotion.getHeading(), wheelMotion.getMagnitude(), this);
+        }
+    }
+
     public void setLowSpeedModeEnabled(boolean enabled, RobotModuleOperatorMarker operator) {
         if (isOwner(operator))
             this.lowSpeedModeEnabled = enabled;
@@ -133,28 +218,28 @@ public class SwerveBasedChassis extends RobotModuleBase {
 
     @Override
     public void updateConfigs() {
-        this.translationalTaskUpdatableRange = robotConfig.getConfig("chassis/translationalTaskUpdatableRange");
-        this.robotMaximumSpeed = robotConfig.getConfig("chassis/robotMaximumSpeed");
-        this.timeNeededToFullyAccelerate = robotConfig.getConfig("chassis/timeNeededToFullyAccelerate");
-        this.robotSpeedActivateSpeedControl = robotConfig.getConfig("chassis/robotSpeedActivateSpeedControl");
-        this.wheelsPowerConstrain = robotConfig.getConfig("chassis/wheelsPowerConstrain");
-        this.wheelsPowerConstrainAtLowSpeedMode = robotConfig.getConfig("chassis/wheelsPowerConstrainAtLowSpeedMode");
-        this.rotationalSpeedMaxSacrifice = robotConfig.getConfig("chassis/rotationalSpeedMaxSacrifice");
-        this.ignoredAccelerateTime = robotConfig.getConfig("chassis/ignoredAccelerateTime");
-
-        double robotRotationalErrorTolerance = Math.toRadians(robotConfig.getConfig("chassis/robotRotationalErrorTolerance"));
-        this.rotationDifferenceAsTaskFinished = Math.toRadians(robotConfig.getConfig("chassis/rotationalErrorAsCommandFinished"));
-        double robotRotationalErrorStartDecelerate = Math.toRadians(robotConfig.getConfig("chassis/robotRotationalErrorStartDecelerate"));
-        double robotRotationMaximumCorrectionPower = robotConfig.getConfig("chassis/robotRotationMaximumCorrectionPower");
-        double robotRotationMinimumCorrectionPower = robotConfig.getConfig("chassis/robotRotationMinimumCorrectionPower");
-        double robotRotationFeedForwardTime = robotConfig.getConfig("chassis/robotRotationFeedForwardTime");
-
-        double robotPositionErrorTolerance = robotConfig.getConfig("chassis/robotPositionErrorTolerance");
-        this.positionDifferenceAsTaskFinished = robotConfig.getConfig("chassis/translationalErrorAsCommandFinished");
-        double robotPositionErrorStartDecelerate = robotConfig.getConfig("chassis/robotPositionErrorStartDecelerate");
-        double robotPositionMaximumCorrectionPower = robotConfig.getConfig("chassis/robotPositionMaximumCorrectionPower");
-        double robotPositionMinimumCorrectionPower = robotConfig.getConfig("chassis/robotPositionMinimumCorrectionPower");
-        double robotPositionFeedForwardTime = robotConfig.getConfig("chassis/robotPositionFeedForwardTime");
+        this.translationalTaskUpdatableRange = translationalTaskUpdatableRangeConfig.get();
+        this.robotMaximumSpeed = robotMaximumSpeedConfig.get();
+        this.timeNeededToFullyAccelerate = timeNeededToFullyAccelerateConfig.get();
+        this.robotSpeedActivateSpeedControl = robotSpeedActivateSpeedControlConfig.get();
+        this.wheelsPowerConstrain = wheelsPowerConstrainConfig.get();
+        this.wheelsPowerConstrainAtLowSpeedMode = wheelsPowerConstrainAtLowSpeedModeConfig.get();
+        this.rotationalSpeedMaxSacrifice = rotationalSpeedMaxSacrificeConfig.get();
+        this.ignoredAccelerateTime = ignoredAccelerateTimeConfig.get();
+
+        double robotRotationalErrorTolerance = Math.toRadians(robotRotationalErrorToleranceConfig.get());
+        this.rotationDifferenceAsTaskFinished = Math.toRadians(rotationalErrorAsCommandFinishedConfig.get());
+        double robotRotationalErrorStartDecelerate = Math.toRadians(robotRotationalErrorStartDecelerateConfig.get());
+        double robotRotationMaximumCorrectionPower = robotRotationMaximumCorrectionPowerConfig.get();
+        double robotRotationMinimumCorrectionPower = robotRotationMinimumCorrectionPowerConfig.get();
+        double robotRotationFeedForwardTime = robotRotationFeedForwardTimeConfig.get();
+
+        double robotPositionErrorTolerance = robotPositionErrorToleranceConfig.get();
+        this.positionDifferenceAsTaskFinished = translationalErrorAsCommandFinishedConfig.get();
+        double robotPositionErrorStartDecelerate = robotPositionErrorStartDecelerateConfig.get();
+        double robotPositionMaximumCorrectionPower = robotPositionMaximumCorrectionPowerConfig.get();
+        double robotPositionMinimumCorrectionPower = robotPositionMinimumCorrectionPowerConfig.get();
+        double robotPositionFeedForwardTime = robotPositionFeedForwardTimeConfig.get();
 
         this.goToRotationController = new EnhancedPIDController(new EnhancedPIDController.StaticPIDProfile(
                 Math.PI * 2,
@@ -186,9 +271,7 @@ public class SwerveBasedChassis extends RobotModuleBase {
             swerveWheel.reset();
             swerveWheel.gainOwnerShip(this);
         }
-        /* reset the imu module */
-        gyro.reset();
-        /* reset the position calculator */
+        /* reset the position calculator, which also resets the imu module (it is the only one that calibrates the imu) */
         positionEstimator.reset();
         this.translationalTask = new ChassisTaskTranslation(ChassisTaskTranslation.TaskType.SET_VELOCITY, new Vector2D());
         this.rotationalTask = new ChassisTaskRotation(ChassisTaskRotation.TaskType.SET_VELOCITY, 0);
@@ -230,7 +313,7 @@ public class SwerveBasedChassis extends RobotModuleBase {
                 decidedVelocity.multiplyBy(-1)
         );
 
-        EasyShuffleBoard.putNumber("chassis", "vel ctrl decided", decidedVelocity.getMagnitude());
+        decidedVelocityTelemetry.set(decidedVelocity.getMagnitude());
         Vector2D step = new Vector2D(velocityDifference.getHeading(),
                 Math.min(dt * maxAcceleration, velocityDifference.getMagnitude())
         );
@@ -278,10 +361,7 @@ public class SwerveBasedChassis extends RobotModuleBase {
      * @return
      */
     private double getRotationalCorrectionSpeed(double desiredRotation, double dt) {
-        goToRotationController.startNewTask(new EnhancedPIDController.Task(
-                EnhancedPIDController.Task.TaskType.GO_TO_POSITION,
-                desiredRotation
-        ));
+        goToRotationController.updateTask(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, desiredRotation);
         return goToRotationController.getMotorPower(AngleUtils.simplifyAngle(gyro.getYaw()), gyro.getYawVelocity(), dt);
     }
 
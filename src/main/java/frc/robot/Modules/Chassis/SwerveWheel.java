@@ -11,6 +11,7 @@ import frc.robot.Drivers.Motors.Motor;
 import frc.robot.Utils.MathUtils.AngleUtils;
 import frc.robot.Utils.MathUtils.Rotation2D;
 import frc.robot.Utils.MathUtils.Transformation2D;
+import frc.robot.Utils.MathUtils.MutableVector2D;
 import frc.robot.Utils.MathUtils.Vector2D;
 import frc.robot.Utils.MechanismControllers.EnhancedPIDController;
 import frc.robot.Utils.MechanismControllers.SimpleFeedForwardSpeedController;
@@ -44,6 +45,13 @@ public class SwerveWheel extends RobotModuleBase {
 
     private EnhancedPIDController steerPIDController;
     private final double motorEncoderBias;
+    private final TelemetryPublisher.NumberSlot steerPositionTelemetry, steerVelocityTelemetry, steerTargetTelemetry;
+    private final RobotConfigReader.ConfigHandle maxUnusedTimeConfig, defaultPositionConfig, minUsageSpeedConfig, steerWheelErrorToleranceConfig,
+            steerWheelErrorStartDecelerateConfig, steerWheelMaximumPowerConfig, steerWheelMinimumPowerConfig, steerWheelFeedForwardTimeConfig,
+            steerCorrectionPowerRateAtZeroWheelSpeedConfig, steerCorrectionPowerFullWheelSpeedConfig, maxDrivingEncoderVelocityConfig,
+            driveWheelProportionGainConfig, driveWheelFeedForwardRateConfig, driveWheelFrictionDefaultValueConfig,
+            driveWheelFrictionIntegrationWeightConfig, driveWheelFeedForwardDelayConfig, driveWheelVelocityToleranceConfig, wheelDiameterConfig,
+            wheelGearRatioConfig, encoderValuePerMotorRevolutionConfig;
 
     /* <-- configurations --> */
     /**
@@ -107,6 +115,9 @@ public class SwerveWheel extends RobotModuleBase {
         this.steerEncoder = steerEncoder;
         this.robotConfig = robotConfig;
         this.motorEncoderBias = AngleUtils.simplifyAngle(motorEncoderBias); // critical, the motor encoder bias provided in the config is to the front, this actual motor encoder bias needs to be to the left
+        this.steerPositionTelemetry = TelemetryPublisher.register("chassis", "steer " + swerveWheelID + " position");
+        this.steerVelocityTelemetry = TelemetryPublisher.register("chassis", "steer " + swerveWheelID + " velocity");
+        this.steerTargetTelemetry = TelemetryPublisher.register("chassis", "steer " + swerveWheelID + "target");
 
         /*
          * calculate the direction of rotation motion of the robot in reference to the
@@ -116,6 +127,30 @@ public class SwerveWheel extends RobotModuleBase {
         final Vector2D rotationDirectionVectorRaw = wheelPositionVector.multiplyBy(rotate90DegCounterWiseTransformation);
         this.rotationDirectionVector = new Vector2D(rotationDirectionVectorRaw.getHeading(), 0.8); // the rotation vector always have magnitude 1
 
+        this.maxUnusedTimeConfig = useConfig(robotConfig, "chassis/maxUnusedTime");
+        this.defaultPositionConfig = useConfig(robotConfig, "chassis/defaultPosition");
+        this.minUsageSpeedConfig = useConfig(robotConfig, "chassis/minUsageSpeed");
+        this.steerWheelErrorToleranceConfig = useConfig(robotConfig, "chassis/steerWheelErrorTolerance");
+        this.steerWheelErrorStartDecelerateConfig = useConfig(robotConfig, "chassis/steerWheelErrorStartDecelerate");
+        this.steerWheelMaximumPowerConfig = useConfig(robotConfig, "chassis/steerWheelMaximumPower");
+        this.steerWheelMinimumPowerConfig = useConfig(robotConfig, "chassis/steerWheelMinimumPower");
+        this.steerWheelFeedForwardTimeConfig = useConfig(robotConfig, "chassis/steerWheelFeedForwardTime");
+        this.steerCorrectionPowerRateAtZeroWheelSpeedConfig = useConfig(robotConfig, "chassis/steerCorrectionPowerRateAtZeroWheelSpeed");
+        this.steerCorrectionPowerFullWheelSpeedConfig = useConfig(robotConfig, "chassis/steerCorrectionPowerFullWheelSpeed");
+        this.maxDrivingEncoderVelocityConfig = useConfig(robotConfig, "chassis/maxDrivingEncoderVelocity");
+        this.driveWheelProportionGainConfig = useConfig(robotConfig, "chassis/driveWheelProportionGain");
+        this.driveWheelFeedForwardRateConfig = useConfig(robotConfig, "chassis/driveWheelFeedForwardRate");
+        this.driveWheelFrictionDefaultValueConfig = useConfig(robotConfig, "chassis/driveWheelFrictionDefaultValue");
+        this.driveWheelFrictionIntegrationWeightConfig = useConfig(robotConfig, "chassis/driveWheelFrictionIntegrationWeight");
+        this.driveWheelFeedForwardDelayConfig = useConfig(robotConfig, "chassis/driveWheelFeedForwardDelay");
+        this.driveWheelVelocityToleranceConfig = useConfig(robotConfig, "chassis/driveWheelVelocityTolerance");
+        this.wheelDiameterConfig = useConfig(robotConfig, "chassis/wheelDiameter");
+        this.wheelGearRatioConfig = useConfig(robotConfig, "chassis/wheelGearRatio");
+        this.encoderValuePerMotorRevolutionConfig = useConfig(robotConfig, "chassis/encoderValuePerMotorRevolution");
+
+        /* the wheel only touches its own motors and encoders, and the dashboard through the telemetry publisher */
+        super.declareWriting(drivingMotor, steerMotor, drivingEncoder, steerEncoder);
+        super.declareDependenciesComplete();
     }
 
     @Override
@@ -167,14 +202,14 @@ public class SwerveWheel extends RobotModuleBase {
         }
 
         /* pass the desired position to pid controller */
-        this.steerPIDController.startNewTask(new EnhancedPIDController.Task(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, finalTargetedHeading));
+        this.steerPIDController.updateTask(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, finalTargetedHeading);
 
         /** the correction speed obtained from pid controller */
         double correctionMotorSpeed = steerPIDController.getMotorPower(steerEncoderCurrentReading, steerEncoderCurrentVelocity, dt);
 
-        EasyShuffleBoard.putNumber("chassis", "steer " + swerveWheelID + " position", steerEncoderCurrentReading);
-        EasyShuffleBoard.putNumber("chassis", "steer " + swerveWheelID + " velocity", steerEncoderCurrentVelocity);
-        EasyShuffleBoard.putNumber("chassis", "steer " + swerveWheelID + "target", finalTargetedHeading);
+        steerPositionTelemetry.set(steerEncoderCurrentReading);
+        steerVelocityTelemetry.set(steerEncoderCurrentVelocity);
+        steerTargetTelemetry.set(finalTargetedHeading);
 
         /* given the power ratio of the steer, pass the PID feedback to the motor */
         final double steerPowerRate = locked ? 1: getSteerPowerRate(targetedSpeed);
@@ -205,18 +240,22 @@ public class SwerveWheel extends RobotModuleBase {
                 , 1); // do not let it get over 1
     }
 
+    /**
+     * reads the configs of the chassis
+     * this happens only when the configs used by the wheel are changed, and the controllers are updated in place, so their states are kept
+     * */
     @Override
     public void updateConfigs() {
-        this.maxUnusedTime = robotConfig.getConfig("chassis/maxUnusedTime");
-        this.defaultPosition = Math.toRadians(robotConfig.getConfig("chassis/defaultPosition"));
-        this.lowestUsageSpeed = robotConfig.getConfig("chassis/minUsageSpeed");
-        this.steerWheelErrorTolerance = Math.toRadians(robotConfig.getConfig("chassis/steerWheelErrorTolerance"));
-        this.steerWheelErrorStartDecelerate = Math.toRadians(robotConfig.getConfig("chassis/steerWheelErrorStartDecelerate"));
-        this.steerWheelMaximumPower = robotConfig.getConfig("chassis/steerWheelMaximumPower");
-        this.steerWheelMinimumPower = robotConfig.getConfig("chassis/steerWheelMinimumPower");
-        this.steerWheelFeedForwardTime = robotConfig.getConfig("chassis/steerWheelFeedForwardTime");
-
-        this.steerPIDController = new EnhancedPIDController(new EnhancedPIDController.StaticPIDProfile(
+        this.maxUnusedTime = maxUnusedTimeConfig.get();
+        this.defaultPosition = Math.toRadians(defaultPositionConfig.get());
+        this.lowestUsageSpeed = minUsageSpeedConfig.get();
+        this.steerWheelErrorTolerance = Math.toRadians(steerWheelErrorToleranceConfig.get());
+        this.steerWheelErrorStartDecelerate = Math.toRadians(steerWheelErrorStartDecelerateConfig.get());
+        this.steerWheelMaximumPower = steerWheelMaximumPowerConfig.get();
+        this.steerWheelMinimumPower = steerWheelMinimumPowerConfig.get();
+        this.steerWheelFeedForwardTime = steerWheelFeedForwardTimeConfig.get();
+
+        final EnhancedPIDController.PIDProfile steerPIDProfile = new EnhancedPIDController.StaticPIDProfile(
                 Math.PI * 2,
                 steerWheelMaximumPower,
                 steerWheelMinimumPower,
@@ -225,31 +264,45 @@ public class SwerveWheel extends RobotModuleBase {
                 steerWheelFeedForwardTime,
                 0,
                 0
-        ));
-        this.steerCorrectionPowerRateAtZeroWheelSpeed = robotConfig.getConfig("chassis/steerCorrectionPowerRateAtZeroWheelSpeed");
-        this.steerCorrectionPowerFullWheelSpeed = robotConfig.getConfig("chassis/steerCorrectionPowerFullWheelSpeed");
-
-        this.maxDrivingEncoderVelocity = robotConfig.getConfig("chassis/maxDrivingEncoderVelocity");
-        final double driveWheelProportionGain = robotConfig.getConfig("chassis/driveWheelProportionGain"),
-                driveWheelFeedForwardRate = robotConfig.getConfig("chassis/driveWheelFeedForwardRate"),
-                driveWheelFrictionDefaultValue = robotConfig.getConfig("chassis/driveWheelFrictionDefaultValue"),
-                driveWheelFrictionIntegrationWeight = robotConfig.getConfig("chassis/driveWheelFrictionIntegrationWeight"),
-                driveWheelFeedForwardDelay = robotConfig.getConfig("chassis/driveWheelFeedForwardDelay") / 1000,
-                driveWheelVelocityTolerance = robotConfig.getConfig("chassis/driveWheelVelocityTolerance");
-
-        this.wheelSpeedController = new SimpleFeedForwardSpeedController(
-                new SimpleFeedForwardSpeedController.SimpleFeedForwardControllerProfile(
-                        driveWheelProportionGain, driveWheelFeedForwardRate, driveWheelFrictionDefaultValue, driveWheelFeedForwardDelay
-                ));
-
-        final double wheelDiameter = robotConfig.getConfig("chassis/wheelDiameter"),
+        );
+        if (this.steerPIDController == null)
+            this.steerPIDController = new EnhancedPIDController(steerPIDProfile);
+        else
+            this.steerPIDController.setPidProfile(steerPIDProfile);
+        this.steerCorrectionPowerRateAtZeroWheelSpeed = steerCorrectionPowerRateAtZeroWheelSpeedConfig.get();
+        this.steerCorrectionPowerFullWheelSpeed = steerCorrectionPowerFullWheelSpeedConfig.get();
+
+        this.maxDrivingEncoderVelocity = maxDrivingEncoderVelocityConfig.get();
+        final double driveWheelProportionGain = driveWheelProportionGainConfig.get(),
+                driveWheelFeedForwardRate = driveWheelFeedForwardRateConfig.get(),
+                driveWheelFrictionDefaultValue = driveWheelFrictionDefaultValueConfig.get(),
+                driveWheelFrictionIntegrationWeight = driveWheelFrictionIntegrationWeightConfig.get(),
+                driveWheelFeedForwardDelay = driveWheelFeedForwardDelayConfig.get() / 1000,
+                driveWheelVelocityTolerance = driveWheelVelocityToleranceConfig.get();
+
+        final SimpleFeedForwardSpeedController.SimpleFeedForwardControllerProfile wheelSpeedControllerProfile = new SimpleFeedForwardSpeedController.SimpleFeedForwardControllerProfile(
+                driveWheelProportionGain, driveWheelFeedForwardRate, driveWheelFrictionDefaultValue, driveWheelFeedForwardDelay
+        );
+        if (this.wheelSpeedController == null)
+            this.wheelSpeedController = new SimpleFeedForwardSpeedController(wheelSpeedControllerProfile);
+        else
+            this.wheelSpeedController.setProfile(wheelSpeedControllerProfile);
+
+        final double wheelDiameter = wheelDiameterConfig.get(),
                 meterPerWheelRevolution = wheelDiameter * Math.PI,
-                wheelGearRatio = robotConfig.getConfig("chassis/wheelGearRatio"),
-                encoderValuePerMotorRevolution  = robotConfig.getConfig("chassis/encoderValuePerMotorRevolution"),
+                wheelGearRatio = wheelGearRatioConfig.get(),
+                encoderValuePerMotorRevolution  = encoderValuePerMotorRevolutionConfig.get(),
                 encoderValuePerWheelRevolution = encoderValuePerMotorRevolution * wheelGearRatio;
         this.wheelEncoderValuePerMeter = encoderValuePerWheelRevolution / meterPerWheelRevolution;
     }
 
+    @Override
+    public void registerFlightDataChannels(FlightDataRecorder recorder) {
+        super.registerFlightDataChannels(recorder);
+        recorder.registerEncoder(moduleName + "/driving encoder", drivingEncoder);
+        recorder.registerEncoder(moduleName + "/steer encoder", steerEncoder);
+    }
+
     @Override
     public void onReset() {
         lastOperationTimer.start();
@@ -261,6 +314,8 @@ public class SwerveWheel extends RobotModuleBase {
         steerMotor.gainOwnerShip(this);
 
         updateConfigs();
+        steerPIDController.reset(0);
+        wheelSpeedController.reset();
     }
 
     /**
@@ -415,6 +470,37 @@ public class SwerveWheel extends RobotModuleBase {
         return drivingEncoder.getEncoderPosition() * scaleToUnit(unit);
     }
 
+    /** @return the time when the driving encoder value is measured, in seconds and in the same time base as the fpga timestamp */
+    public double getWheelDrivingEncoderTimestamp() {
+        return drivingEncoder.getEncoderReadingTimestamp();
+    }
+
+    /** makes the driving and steer encoders update faster, for the odometry thread */
+    public void setHighFrequencyEncoderReading(double frequencyHZ) {
+        drivingEncoder.setHighFrequencyReading(frequencyHZ);
+        steerEncoder.setHighFrequencyReading(frequencyHZ);
+    }
+
+    /* the readings for the odometry thread, from the high-frequency readings of the encoders (see setHighFrequencyEncoderReading()) */
+    public double getHighFrequencySteerHeading() {
+        return AngleUtils.simplifyAngle(steerEncoder.getHighFrequencyEncoderPosition());
+    }
+
+    /** @return the driving encoder value, in meters */
+    public double getHighFrequencyWheelDrivingEncoderValue() {
+        return drivingEncoder.getHighFrequencyEncoderPosition() * scaleToUnit(ChassisUnit.METER);
+    }
+
+    public double getHighFrequencyWheelDrivingEncoderTimestamp() {
+        return drivingEncoder.getHighFrequencyEncoderReadingTimestamp();
+    }
+
+    /** @return velocityOutput, with the velocity of the module in meters per second */
+    public MutableVector2D getHighFrequencyModuleVelocity2D(MutableVector2D velocityOutput) {
+        return velocityOutput.setWithHeadingAndMagnitude(getHighFrequencySteerHeading(), drivingEncoder.getHighFrequencyEncoderVelocity())
+                .multiplyBy(scaleToUnit(ChassisUnit.METER));
+    }
+
     public Vector2D getModuleVelocity2D() {
         return getModuleVelocity2D(ChassisUnit.METER); // default value
     }
@@ -423,6 +509,16 @@ public class SwerveWheel extends RobotModuleBase {
                 .multiplyBy(scaleToUnit(unit));
     }
 
+    /**
+     * gets the velocity of the module, in meters per second, without creating new objects
+     * @param velocityOutput the vector to store the velocity in
+     * @return velocityOutput, with the value of getModuleVelocity2D()
+     * */
+    public MutableVector2D getModuleVelocity2D(MutableVector2D velocityOutput) {
+        return velocityOutput.setWithHeadingAndMagnitude(getSteerHeading(), drivingEncoder.getEncoderVelocity())
+                .multiplyBy(scaleToUnit(ChassisUnit.METER));
+    }
+
     /**
      * distance (in unit X) = k * encoderValue
      * @param unit the given unit
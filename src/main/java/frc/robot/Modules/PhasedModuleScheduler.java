@@ -0,0 +1,206 @@
+package frc.robot.Modules;
+
+import frc.robot.Utils.LoopClock;
+import frc.robot.Utils.LoopTimingProfiler;
+import frc.robot.Utils.TimingHistogram;
+
+import java.util.*;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * updates the modules of the robot in phases
+ * the modules are split into phases according to what they read and write (see RobotModuleBase.declareReading())
+ * for example, the wheels are updated before the position estimator, which is updated before the chassis
+ * modules in the same phase are independent and are updated at the same time on a small, fixed pool of worker threads
+ * there is a barrier between two phases, so a phase only starts when the previous one is completely done
+ * a module is only put in the same phase as others if it opts in with RobotModuleBase.declareDependenciesComplete()
+ * the modules that don't (such as the climb and the lights) are updated alone, so a forgotten declaration never becomes a data race
+ *
+ * this replaces the single-thread periodicExecutor that each module used to own (it was not used by any module)
+ *
+ * the result is exactly the same as updating the modules one by one in the order they are added
+ * */
+public class PhasedModuleScheduler {
+    private final RobotModuleBase[][] phases;
+    /** the timing histograms of the modules, in the same order as the phases */
+    private final TimingHistogram[][] modulesTimings;
+    private final Thread[] workers;
+    /** the barrier between the main thread and the workers, all parties arrive twice per phase: once to start and once to finish */
+    private final Phaser phaser;
+    private final AtomicInteger nextModuleInPhase = new AtomicInteger();
+
+    /* written by the main thread before the start barrier, read by the workers after it */
+    private RobotModuleBase[] currentPhase;
+    private TimingHistogram[] currentPhaseTimings;
+    private LoopClock currentLoopClock;
+    private volatile RuntimeException exceptionInWorker;
+    private volatile boolean running = true;
+    /** in degraded mode, the sheddable modules are skipped */
+    private volatile boolean degradedMode = false;
+
+    /**
+     * creates a scheduler
+     * @param modules the modules of the robot, in the order that they should be updated if they were updated one by one
+     * @param workerThreadsCount the amount of worker threads, the main thread also updates modules so 1 or 2 is enough for the roboRIO
+     * @param loopTimingProfiler the profiler to record the time each module takes
+     * */
+    public PhasedModuleScheduler(List<RobotModuleBase> modules, int workerThreadsCount, LoopTimingProfiler loopTimingProfiler) {
+        this.phases = splitIntoPhases(modules);
+        this.modulesTimings = new TimingHistogram[phases.length][];
+        for (int phaseID = 0; phaseID < phases.length; phaseID++) {
+            modulesTimings[phaseID] = new TimingHistogram[phases[phaseID].length];
+            for (int i = 0; i < phases[phaseID].length; i++)
+                modulesTimings[phaseID][i] = loopTimingProfiler.registerComponent("module " + phases[phaseID][i].moduleName);
+        }
+        this.phaser = new Phaser(workerThreadsCount + 1);
+        this.workers = new Thread[workerThreadsCount];
+        for (int i = 0; i < workerThreadsCount; i++) {
+            workers[i] = new Thread(this::workerLoop, "module-update-worker-" + i);
+            workers[i].setDaemon(true);
+            workers[i].start();
+        }
+
+        System.out.println("<-- Phased Module Scheduler | modules split into " + phases.length + " phases -->");
+        for (int phaseID = 0; phaseID < phases.length; phaseID++) {
+            final StringBuilder phaseModules = new StringBuilder();
+            for (RobotModuleBase module:phases[phaseID])
+                phaseModules.append(module.moduleName).append(", ");
+            System.out.println("phase " + phaseID + ": " + phaseModules);
+        }
+    }
+
+    /**
+     * a module goes to the phase right after the last phase that contains a module (added before it) that it conflicts with
+     * two modules conflicts if one of them writes to something that the other one reads from or writes to
+     * or if either of them has not declared all its dependencies
+     * */
+    private static RobotModuleBase[][] splitIntoPhases(List<RobotModuleBase> modules) {
+        final List<Set<Object>> resourcesRead = new ArrayList<>(modules.size());
+        for (RobotModuleBase module:modules)
+            resourcesRead.add(getResourcesReadThroughModules(module));
+
+        final int[] phaseOfModule = new int[modules.size()];
+        int phasesCount = 0;
+        for (int i = 0; i < modules.size(); i++) {
+            phaseOfModule[i] = 0;
+            for (int j = 0; j < i; j++)
+                if (!modules.get(i).areDependenciesDeclared() || !modules.get(j).areDependenciesDeclared()
+                        || conflicts(modules.get(i).getResourcesWritten(), resourcesRead.get(i), modules.get(j).getResourcesWritten(), resourcesRead.get(j)))
+                    phaseOfModule[i] = Math.max(phaseOfModule[i], phaseOfModule[j] + 1);
+            phasesCount = Math.max(phasesCount, phaseOfModule[i] + 1);
+        }
+
+        final List<List<RobotModuleBase>> phasesList = new ArrayList<>(phasesCount);
+        for (int phaseID = 0; phaseID < phasesCount; phaseID++)
+            phasesList.add(new ArrayList<>());
+        for (int i = 0; i < modules.size(); i++)
+            phasesList.get(phaseOfModule[i]).add(modules.get(i));
+
+        final RobotModuleBase[][] phases = new RobotModuleBase[phasesCount][];
+        for (int phaseID = 0; phaseID < phasesCount; phaseID++)
+            phases[phaseID] = phasesList.get(phaseID).toArray(new RobotModuleBase[0]);
+        return phases;
+    }
+
+    /**
+     * reading from a module might touch everything that module reads from or writes to
+     * for example, the shooter reads the position estimator, which reads the gyro
+     * */
+    private static Set<Object> getResourcesReadThroughModules(RobotModuleBase module) {
+        final Set<Object> resourcesRead = new HashSet<>();
+        final Deque<Object> resourcesToVisit = new ArrayDeque<>(module.getResourcesRead());
+        while (!resourcesToVisit.isEmpty()) {
+            final Object resource = resourcesToVisit.pop();
+            if (!resourcesRead.add(resource) || !(resource instanceof RobotModuleBase))
+                continue;
+            final RobotModuleBase moduleRead = (RobotModuleBase) resource;
+            resourcesToVisit.addAll(moduleRead.getResourcesRead());
+            resourcesToVisit.addAll(moduleRead.getResourcesWritten());
+        }
+        return resourcesRead;
+    }
+
+    private static boolean conflicts(Set<Object> resourcesWritten1, Set<Object> resourcesRead1, Set<Object> resourcesWritten2, Set<Object> resourcesRead2) {
+        return !Collections.disjoint(resourcesWritten1, resourcesRead2)
+                || !Collections.disjoint(resourcesWritten1, resourcesWritten2)
+                || !Collections.disjoint(resourcesRead1, resourcesWritten2);
+    }
+
+    /**
+     * updates all the modules, phase by phase
+     * returns when all the modules are updated
+     * @param loopClock the clock of the main loop, already ticked for the current cycle
+     * */
+    public void updateModules(LoopClock loopClock) {
+        for (int phaseID = 0; phaseID < phases.length; phaseID++) {
+            final RobotModuleBase[] phase = phases[phaseID];
+            /* no need to wake up the workers if there is nothing to share */
+            if (phase.length == 1 || workers.length == 0) {
+                for (int i = 0; i < phase.length; i++)
+                    updateModule(phase[i], modulesTimings[phaseID][i], loopClock);
+                continue;
+            }
+
+            currentPhase = phase;
+            currentPhaseTimings = modulesTimings[phaseID];
+            currentLoopClock = loopClock;
+            nextModuleInPhase.set(0);
+            phaser.arriveAndAwaitAdvance(); // start
+            try {
+                updateModulesInCurrentPhase();
+            } finally {
+                phaser.arriveAndAwaitAdvance(); // finish
+            }
+
+            final RuntimeException exception = exceptionInWorker;
+            if (exception != null) {
+                exceptionInWorker = null;
+                throw exception;
+            }
+        }
+    }
+
+    private void workerLoop() {
+        while (running) {
+            phaser.arriveAndAwaitAdvance(); // start
+            try {
+                updateModulesInCurrentPhase();
+            } catch (Throwable e) {
+                /* passed to the main thread, or it would wait for this worker forever */
+                exceptionInWorker = e instanceof RuntimeException ? (RuntimeException) e : new RuntimeException(e);
+            }
+            phaser.arriveAndAwaitAdvance(); // finish
+        }
+    }
+
+    /** the threads take modules from the current phase one by one, until there is none left */
+    private void updateModulesInCurrentPhase() {
+        int moduleID;
+        while ((moduleID = nextModuleInPhase.getAndIncrement()) < currentPhase.length)
+            updateModule(currentPhase[moduleID], currentPhaseTimings[moduleID], currentLoopClock);
+    }
+
+    private void updateModule(RobotModuleBase module, TimingHistogram moduleTiming, LoopClock loopClock) {
+        if (degradedMode && module.isSheddable())
+            return;
+        final long startTimeNano = System.nanoTime();
+        module.periodic(loopClock);
+        moduleTiming.record(System.nanoTime() - startTimeNano);
+    }
+
+    /**
+     * @param degradedMode whether to skip the sheddable modules (see RobotModuleBase.isSheddable()) to save time
+     * */
+    public void setDegradedMode(boolean degradedMode) {
+        this.degradedMode = degradedMode;
+    }
+
+    /** stops the worker threads, the scheduler should not be used after this */
+    public void shutDown() {
+        running = false;
+        for (Thread worker:workers)
+            worker.interrupt();
+        phaser.forceTermination();
+    }
+}
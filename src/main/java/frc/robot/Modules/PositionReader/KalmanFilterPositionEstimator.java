@@ -0,0 +1,310 @@
+package frc.robot.Modules.PositionReader;
+
+import frc.robot.Drivers.Visions.TargetFieldPositionTracker;
+import frc.robot.Modules.RobotModuleBase;
+import frc.robot.Utils.MathUtils.AngleUtils;
+import frc.robot.Utils.MathUtils.PoseKalmanFilter;
+import frc.robot.Utils.MathUtils.Vector2D;
+import frc.robot.Utils.TelemetryPublisher;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * fuses the wheel odometry, the gyro and the vision with a kalman filter (see PoseKalmanFilter)
+ * each cycle, the displacement of the odometry is used to move the pose, and its rotation (from the gyro) to correct the rotation
+ * the vision measurements can be added from any thread, they are applied in the next cycle
+ * the april tags seen by the tracker (if given) are taken as vision measurements too, each new set of results in the cycle that it comes
+ * since the vision results are old when they arrive, they are moved by how much the odometry moved since they were captured
+ * the vision is in the coordinates of the field, but the odometry starts from wherever the robot is when it's reset,
+ * so the vision measurements are only taken after the position is set in the coordinates of the field (by setRobotPosition(), in the auto stage), and until the next reset
+ *
+ * the velocity and acceleration are the ones of the odometry, the filter does not estimate them
+ * */
+public class KalmanFilterPositionEstimator extends RobotModuleBase implements PositionEstimator {
+    /** the odometry spreads by about 0.1 meter every meter, and 0.03 radian every radian */
+    private static final double translationVariancePerMeter = 0.01, rotationVariancePerRadian = 0.001;
+    /** the variance of the gyro, about 0.01 radian */
+    private static final double gyroVariance = 0.0001;
+    /** the variance of the pose when it's set (at the start of the match) */
+    private static final double calibratedPositionVariance = 0.0025, calibratedRotationVariance = 0.0001;
+    /** the result is not reliable if the position is more uncertain than this, in meters */
+    private static final double maxReliablePositionStandardDeviation = 0.5;
+    private static final int maxPendingVisionMeasurements = 8;
+    /** the april tag measurements are about 0.1 meter off up close, and get worse by 0.05 meter every meter away */
+    private static final double aprilTagStandardDeviation = 0.1, aprilTagStandardDeviationPerMeter = 0.05;
+
+    private final PositionEstimator odometry;
+    /** the tracker of the april tags, and where the april tags are on the field, null if there is none */
+    private final TargetFieldPositionTracker aprilTagTracker;
+    private final Supplier<Map<Integer, Vector2D>> aprilTagFieldPositions;
+    /** the generation of the tracker when its results are last taken */
+    private long aprilTagTrackerGenerationUsed = -1;
+    /* the filter and the previous readings of the odometry, used while holding the lock of the filter */
+    private final PoseKalmanFilter filter = new PoseKalmanFilter(translationVariancePerMeter, rotationVariancePerRadian);
+    private double previousOdometryX, previousOdometryY, previousOdometryRotation;
+    private final double[] odometryPoseAtCapture = new double[3];
+    private int visionMeasurementsAccepted = 0, visionMeasurementsRejected = 0;
+    /** whether the position is set in the coordinates of the field since the last reset, the vision is ignored until then */
+    private boolean positionInFieldCoordinates = false;
+    private final TelemetryPublisher.NumberSlot positionXTelemetry = TelemetryPublisher.register("chassis", "kalman filter position estimator (x)"),
+            positionYTelemetry = TelemetryPublisher.register("chassis", "kalman filter position estimator (y)"),
+            positionDeviationTelemetry = TelemetryPublisher.register("chassis", "kalman filter position deviation (m)"),
+            visionAcceptedTelemetry = TelemetryPublisher.register("chassis", "kalman filter vision accepted"),
+            visionRejectedTelemetry = TelemetryPublisher.register("chassis", "kalman filter vision rejected");
+
+    /* the vision measurements not yet applied, added by any thread while holding the lock of the arrays */
+    private final double[] pendingVisionTimestamps = new double[maxPendingVisionMeasurements],
+            pendingVisionX = new double[maxPendingVisionMeasurements],
+            pendingVisionY = new double[maxPendingVisionMeasurements],
+            pendingVisionVariances = new double[maxPendingVisionMeasurements];
+    private int pendingVisionMeasurementsCount = 0;
+    /* copies of the pending measurements, so the filter is updated without holding the lock of the arrays */
+    private final double[] visionTimestamps = new double[maxPendingVisionMeasurements],
+            visionX = new double[maxPendingVisionMeasurements],
+            visionY = new double[maxPendingVisionMeasurements],
+            visionVariances = new double[maxPendingVisionMeasurements];
+
+    /**
+     * @param odometry the wheel odometry, it should keep a pose history (see PositionEstimator.getPoseAt()) for the vision results to be moved to the current time
+     * */
+    public KalmanFilterPositionEstimator(PositionEstimator odometry) {
+        this(odometry, null, null);
+    }
+
+    /**
+     * @param odometry the wheel odometry, it should keep a pose history (see PositionEstimator.getPoseAt()) for the vision results to be moved to the current time
+     * @param aprilTagTracker the tracker of the april tag camera, it should be updated with this estimator (see TargetFieldPositionTracker.update()), null for no vision
+     * @param aprilTagFieldPositions gives the positions of the april tags on the field, by their ids, in the same coordinates as the robot (so it can change with the alliance)
+     * */
+    public KalmanFilterPositionEstimator(PositionEstimator odometry, TargetFieldPositionTracker aprilTagTracker, Supplier<Map<Integer, Vector2D>> aprilTagFieldPositions) {
+        super("Position-Estimator-Kalman-Filter");
+        this.odometry = odometry;
+        this.aprilTagTracker = aprilTagTracker;
+        this.aprilTagFieldPositions = aprilTagFieldPositions;
+        super.declareReading(odometry);
+        if (aprilTagTracker != null)
+            super.declareReading(aprilTagTracker);
+    }
+
+    @Override
+    public void init() {
+        onReset();
+    }
+
+    @Override
+    protected void periodic(double dt) {
+        addAprilTagMeasurements();
+        final int visionMeasurementsCount;
+        synchronized (pendingVisionTimestamps) {
+            visionMeasurementsCount = pendingVisionMeasurementsCount;
+            System.arraycopy(pendingVisionTimestamps, 0, visionTimestamps, 0, visionMeasurementsCount);
+            System.arraycopy(pendingVisionX, 0, visionX, 0, visionMeasurementsCount);
+            System.arraycopy(pendingVisionY, 0, visionY, 0, visionMeasurementsCount);
+            System.arraycopy(pendingVisionVariances, 0, visionVariances, 0, visionMeasurementsCount);
+            pendingVisionMeasurementsCount = 0;
+        }
+
+        final Vector2D odometryPosition = odometry.getRobotPosition2D();
+        final double odometryRotation = odometry.getRobotRotation();
+        synchronized (filter) {
+            /* the displacement of the odometry, turned back into the robot's coordinates */
+            final double dx = odometryPosition.getX() - previousOdometryX, dy = odometryPosition.getY() - previousOdometryY,
+                    cos = Math.cos(previousOdometryRotation), sin = Math.sin(previousOdometryRotation);
+            filter.predict(cos * dx + sin * dy, -sin * dx + cos * dy, AngleUtils.getActualDifference(previousOdometryRotation, odometryRotation));
+            filter.correctRotation(odometryRotation, gyroVariance);
+
+            for (int i = 0; positionInFieldCoordinates && i < visionMeasurementsCount; i++) {
+                /* the robot has moved since the frame is captured, move the measurement with it */
+                odometry.getPoseAt(visionTimestamps[i], odometryPoseAtCapture);
+                final boolean accepted = filter.correctPosition(
+                        visionX[i] + odometryPosition.getX() - odometryPoseAtCapture[0],
+                        visionY[i] + odometryPosition.getY() - odometryPoseAtCapture[1],
+                        visionVariances[i],
+                        PoseKalmanFilter.defaultGateThreshold
+                );
+                if (accepted) visionMeasurementsAccepted++;
+                else visionMeasurementsRejected++;
+            }
+
+            previousOdometryX = odometryPosition.getX();
+            previousOdometryY = odometryPosition.getY();
+            previousOdometryRotation = odometryRotation;
+
+            positionXTelemetry.set(filter.getX());
+            positionYTelemetry.set(filter.getY());
+            positionDeviationTelemetry.set(filter.getPositionStandardDeviation());
+            visionAcceptedTelemetry.set(visionMeasurementsAccepted);
+            visionRejectedTelemetry.set(visionMeasurementsRejected);
+        }
+    }
+
+    /**
+     * takes the known april tags in the new results of the tracker as measurements of the robot position
+     * the displacement from the robot to the tag does not depend on where the robot thought it was, so the robot was at the known position of the tag minus that displacement
+     * */
+    private void addAprilTagMeasurements() {
+        if (aprilTagTracker == null) return;
+        final long trackerGeneration = aprilTagTracker.getGeneration();
+        if (trackerGeneration == aprilTagTrackerGenerationUsed)
+            return; // no new results
+        aprilTagTrackerGenerationUsed = trackerGeneration;
+
+        final Map<Integer, Vector2D> aprilTagFieldPositions = this.aprilTagFieldPositions.get();
+        for (int id:aprilTagFieldPositions.keySet()) {
+            final TargetFieldPositionTracker.TargetOnField aprilTag = aprilTagTracker.getVisibleTargetByID(id);
+            if (aprilTag == null || aprilTag.robotPositionAtCapture == null || !Double.isFinite(aprilTag.captureTimestamp))
+                continue;
+            final Vector2D aprilTagFieldPosition = aprilTagFieldPositions.get(id);
+            final double displacementX = aprilTag.fieldPosition.getX() - aprilTag.robotPositionAtCapture.getX(),
+                    displacementY = aprilTag.fieldPosition.getY() - aprilTag.robotPositionAtCapture.getY();
+            addVisionMeasurement(
+                    aprilTag.captureTimestamp,
+                    aprilTagFieldPosition.getX() - displacementX,
+                    aprilTagFieldPosition.getY() - displacementY,
+                    aprilTagStandardDeviation + aprilTagStandardDeviationPerMeter * Math.hypot(displacementX, displacementY)
+            );
+        }
+    }
+
+    /**
+     * adds a position measured by the vision, to be applied in the next cycle
+     * measurements that are too far away from the estimation are rejected as outliers
+     * @param timestamp the time when the frame is captured, in seconds and in the same time base as the fpga timestamp
+     * @param x the x position measured, in meters
+     * @param y the y position measured, in meters
+     * @param standardDeviation how accurate the measurement is, in meters
+     * */
+    public void addVisionMeasurement(double timestamp, double x, double y, double standardDeviation) {
+        synchronized (pendingVisionTimestamps) {
+            if (pendingVisionMeasurementsCount == maxPendingVisionMeasurements)
+                return; // the module is not updating, drop the measurement
+            final int i = pendingVisionMeasurementsCount++;
+            pendingVisionTimestamps[i] = timestamp;
+            pendingVisionX[i] = x;
+            pendingVisionY[i] = y;
+            pendingVisionVariances[i] = standardDeviation * standardDeviation;
+        }
+    }
+
+    /** resets the odometry too, as the chassis only resets its position estimator */
+    @Override
+    public void onReset() {
+        odometry.reset();
+        synchronized (pendingVisionTimestamps) {
+            pendingVisionMeasurementsCount = 0;
+        }
+        /* the results so far are from before the reset */
+        if (aprilTagTracker != null)
+            aprilTagTrackerGenerationUsed = aprilTagTracker.getGeneration();
+        synchronized (filter) {
+            visionMeasurementsAccepted = visionMeasurementsRejected = 0;
+            positionInFieldCoordinates = false; // the odometry starts over from where the robot is
+            takeOdometryPositionAsStart();
+            takeOdometryRotationAsStart();
+        }
+    }
+
+    /** the position of the odometry is calibrated, so the filter starts over from it */
+    private void takeOdometryPositionAsStart() {
+        final Vector2D odometryPosition = odometry.getRobotPosition2D();
+        previousOdometryX = odometryPosition.getX();
+        previousOdometryY = odometryPosition.getY();
+        filter.setPosition(previousOdometryX, previousOdometryY, calibratedPositionVariance);
+    }
+
+    private void takeOdometryRotationAsStart() {
+        previousOdometryRotation = odometry.getRobotRotation();
+        filter.setRotation(previousOdometryRotation, calibratedRotationVariance);
+    }
+
+    @Override
+    public Vector2D getRobotVelocity2D() {
+        return odometry.getRobotVelocity2D();
+    }
+
+    @Override
+    public double getRobotRotationalVelocity() {
+        return odometry.getRobotRotationalVelocity();
+    }
+
+    @Override
+    public Vector2D getRobotPosition2D() {
+        synchronized (filter) {
+            return new Vector2D(new double[] {filter.getX(), filter.getY()});
+        }
+    }
+
+    @Override
+    public Vector2D getRobotAcceleration2D() {
+        return odometry.getRobotAcceleration2D();
+    }
+
+    @Override
+    public double getRobotRotation() {
+        synchronized (filter) {
+            return filter.getRotation();
+        }
+    }
+
+    /** the pose of the odometry at that moment, moved by how far the filter is from the odometry now */
+    @Override
+    public boolean getPoseAt(double timestamp, double[] poseOutput) {
+        final boolean fromHistory = odometry.getPoseAt(timestamp, poseOutput);
+        synchronized (filter) {
+            poseOutput[0] += filter.getX() - previousOdometryX;
+            poseOutput[1] += filter.getY() - previousOdometryY;
+            poseOutput[2] = AngleUtils.simplifyAngle(poseOutput[2] + AngleUtils.getActualDifference(previousOdometryRotation, filter.getRotation()));
+        }
+        return fromHistory;
+    }
+
+    /** @return the standard deviation of the position, on the most uncertain direction, in meters */
+    public double getPositionStandardDeviation() {
+        synchronized (filter) {
+            return filter.getPositionStandardDeviation();
+        }
+    }
+
+    @Override
+    public void resetRobotPosition() {
+        setRobotPosition(new Vector2D());
+    }
+
+    @Override
+    public void resetRobotRotation() {
+        setRobotRotation(0);
+    }
+
+    /** sets the position in the coordinates of the field, the vision is taken from now on */
+    @Override
+    public void setRobotPosition(Vector2D robotPosition) {
+        odometry.setRobotPosition(robotPosition);
+        synchronized (filter) {
+            takeOdometryPositionAsStart();
+            positionInFieldCoordinates = true;
+        }
+    }
+
+    /** @return whether the position is set in the coordinates of the field since the last reset, so that the vision is taken */
+    public boolean isPositionInFieldCoordinates() {
+        synchronized (filter) {
+            return positionInFieldCoordinates;
+        }
+    }
+
+    @Override
+    public void setRobotRotation(double rotation) {
+        odometry.setRobotRotation(rotation);
+        synchronized (filter) {
+            takeOdometryRotationAsStart();
+        }
+    }
+
+    /** @return whether the position is certain enough, according to the covariance of the filter */
+    @Override
+    public boolean isResultReliable() {
+        final double positionStandardDeviation = getPositionStandardDeviation();
+        return Double.isFinite(positionStandardDeviation) && positionStandardDeviation < maxReliablePositionStandardDeviation;
+    }
+}
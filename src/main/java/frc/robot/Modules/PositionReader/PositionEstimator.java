@@ -46,6 +46,20 @@ public interface PositionEstimator {
         setRobotRotation(rotation);
     }
 
+    /**
+     * gets the pose of the robot at a moment in the recent past, so that a vision result can be matched with the pose when it was captured
+     * @param timestamp the moment, in seconds and in the same time base as the fpga timestamp
+     * @param poseOutput the array of length 3 to store the pose in, in the form of {x, y, rotation}
+     * @return whether the pose is from the history, false if the estimator keeps no history and the current pose is given instead
+     * */
+    default boolean getPoseAt(double timestamp, double[] poseOutput) {
+        final Vector2D position = getRobotPosition2D();
+        poseOutput[0] = position.getX();
+        poseOutput[1] = position.getY();
+        poseOutput[2] = getRobotRotation();
+        return false;
+    }
+
     /** whether the last update is reliable(for some vision-calculator there might situations when the target is lost) */
     boolean isResultReliable();
 
@@ -0,0 +1,350 @@
+package frc.robot.Modules.PositionReader;
+
+import frc.robot.Drivers.IMUs.SimpleGyro;
+import frc.robot.Drivers.PhoenixSignalsRegistry;
+import frc.robot.Modules.Chassis.SwerveWheel;
+import frc.robot.Modules.RobotModuleBase;
+import frc.robot.Utils.MathUtils.AngleUtils;
+import frc.robot.Utils.MathUtils.MutableVector2D;
+import frc.robot.Utils.MathUtils.Vector2D;
+import frc.robot.Utils.PoseHistory;
+import frc.robot.Utils.TelemetryPublisher;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * swerve odometry that runs on a thread of its own, faster than the main loop
+ * the thread waits for the drive and steer encoders and the gyro to send new readings (at odometryFrequencyHZ), and integrates them with the curve model
+ * it reads the high-frequency copies of the readings, so the readings that the main loop sees still only change between cycles
+ * the pose is published with a sequence number, so the getters never block and never see a half-written pose
+ *
+ * this is the position estimator of the chassis, and the only module that calibrates the gyro (see onReset() and setRobotRotation())
+ * */
+public class SwerveWheelHighFrequencyPositionEstimator extends RobotModuleBase implements PositionEstimator {
+    public static final double odometryFrequencyHZ = 250;
+    /** if the encoders do not send new readings in this time, the odometry goes on with the latest readings */
+    private static final double signalsTimeoutSeconds = 2.0 / odometryFrequencyHZ;
+    /** after the first error, only one in this many errors is printed, so a broken sensor does not flood the console */
+    private static final long errorsPerPrint = 250;
+
+    private final SwerveWheel[] swerveWheels;
+    private final SimpleGyro gyro;
+    /** null if the odometry is updated in periodic() instead */
+    private final Thread odometryThread;
+    private volatile boolean running = true;
+
+    /* the states of the odometry, used by the odometry thread and the resets, while holding odometryLock */
+    private final Object odometryLock = new Object();
+    private final MutableVector2D[] wheelPositions;
+    private final double[] wheelDriveEncoderReadings, wheelFieldHeadings;
+    private double previousYaw, previousTimestamp, previousVelocityX, previousVelocityY;
+    private final MutableVector2D wheelDisplacement = new MutableVector2D(), wheelVelocity = new MutableVector2D();
+    /** about a second of poses, for the cameras to look up the pose when their results were captured */
+    private final PoseHistory poseHistory = new PoseHistory(256);
+
+    /* the published pose, the sequence is odd while it is being written */
+    private volatile int poseSequence = 0;
+    private double positionX, positionY, velocityX, velocityY, accelerationX, accelerationY, rotation, rotationalVelocity, poseTimestamp;
+    private volatile long odometryUpdatesCount = 0, odometryErrorsCount = 0;
+    private long previousOdometryUpdatesCount = 0;
+    private final TelemetryPublisher.NumberSlot positionXTelemetry = TelemetryPublisher.register("chassis", "high frequency position estimator (x)"),
+            positionYTelemetry = TelemetryPublisher.register("chassis", "high frequency position estimator (y)"),
+            odometryFrequencyTelemetry = TelemetryPublisher.register("chassis", "odometry frequency"),
+            odometryErrorsTelemetry = TelemetryPublisher.register("chassis", "odometry errors");
+
+    public SwerveWheelHighFrequencyPositionEstimator(SwerveWheel[] swerveWheels, SimpleGyro gyro) {
+        this(swerveWheels, gyro, true);
+    }
+
+    /**
+     * @param runOnOwnThread false to update the odometry once per cycle in periodic(), so that the results only depend on the readings of each cycle (for the log replay)
+     * */
+    public SwerveWheelHighFrequencyPositionEstimator(SwerveWheel[] swerveWheels, SimpleGyro gyro, boolean runOnOwnThread) {
+        super("Position-Estimator-High-Frequency");
+        this.swerveWheels = swerveWheels;
+        this.gyro = gyro;
+        this.wheelPositions = new MutableVector2D[swerveWheels.length];
+        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++)
+            wheelPositions[wheelID] = new MutableVector2D();
+        this.wheelDriveEncoderReadings = new double[swerveWheels.length];
+        this.wheelFieldHeadings = new double[swerveWheels.length];
+
+        if (runOnOwnThread) {
+            this.odometryThread = new Thread(this::updateOdometryContinuously, "odometry-thread");
+            odometryThread.setDaemon(true);
+        } else
+            this.odometryThread = null;
+
+        super.declareReading((Object[]) swerveWheels);
+        super.declareWriting(gyro);
+    }
+
+    @Override
+    public void init() {
+        if (odometryThread != null) {
+            for (SwerveWheel swerveWheel:swerveWheels)
+                swerveWheel.setHighFrequencyEncoderReading(odometryFrequencyHZ);
+            gyro.setHighFrequencyReading(odometryFrequencyHZ);
+        }
+        onReset();
+        if (odometryThread != null && odometryThread.getState() == Thread.State.NEW)
+            odometryThread.start();
+    }
+
+    @Override
+    protected void periodic(double dt) {
+        if (odometryThread == null)
+            updateOdometrySafely();
+        final long updatesCount = odometryUpdatesCount;
+        final Vector2D robotPosition = getRobotPosition2D();
+        positionXTelemetry.set(robotPosition.getX());
+        positionYTelemetry.set(robotPosition.getY());
+        odometryFrequencyTelemetry.set((updatesCount - previousOdometryUpdatesCount) / dt);
+        odometryErrorsTelemetry.set(odometryErrorsCount);
+        previousOdometryUpdatesCount = updatesCount;
+    }
+
+    private void updateOdometryContinuously() {
+        final long periodNano = (long) (1_000_000_000 / odometryFrequencyHZ);
+        System.out.println("<-- Odometry | odometry thread started at " + odometryFrequencyHZ + " hz -->");
+        while (running) {
+            final long startTimeNano = System.nanoTime();
+            /* the encoders send their readings at odometryFrequencyHZ, so waiting for them keeps the pace */
+            final boolean waitedForSignals = PhoenixSignalsRegistry.waitForHighFrequencySignals(signalsTimeoutSeconds);
+            updateOdometrySafely();
+            /* when there are no phoenix 6 encoders (for example, in a simulation), keep the pace by sleeping */
+            if (!waitedForSignals)
+                LockSupport.parkNanos(periodNano - (System.nanoTime() - startTimeNano));
+        }
+    }
+
+    /**
+     * updates the odometry, skipping the sample if a reading is invalid (for example, a NaN angle makes AngleUtils throw)
+     * so that one bad reading does not stop the odometry for the rest of the match
+     * */
+    private void updateOdometrySafely() {
+        try {
+            synchronized (odometryLock) {
+                updateOdometry();
+            }
+            odometryUpdatesCount++;
+        } catch (RuntimeException e) {
+            final long errorsCount = ++odometryErrorsCount;
+            if (errorsCount % errorsPerPrint == 1)
+                System.out.println("<-- Odometry | sample skipped (" + errorsCount + " errors so far): " + e + " -->");
+        }
+    }
+
+    /** integrates the readings since the last update and publishes the new pose, called with odometryLock held */
+    private void updateOdometry() {
+        final double yaw = gyro.getHighFrequencyYaw();
+        double x = 0, y = 0, velocityX = 0, velocityY = 0, timestamp = 0;
+        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++) {
+            final double newDriveEncoderReading = swerveWheels[wheelID].getHighFrequencyWheelDrivingEncoderValue(),
+                    newFieldHeading = swerveWheels[wheelID].getHighFrequencySteerHeading() + yaw;
+            SwerveWheelPositionEstimatorCurveOptimized.calculateDisplacementWithCurve(
+                    wheelFieldHeadings[wheelID],
+                    newFieldHeading,
+                    newDriveEncoderReading - wheelDriveEncoderReadings[wheelID],
+                    wheelDisplacement
+            );
+            /* the readings can be invalid before the configs are loaded, skip them to not ruin the position */
+            if (Double.isFinite(wheelDisplacement.getX()) && Double.isFinite(wheelDisplacement.getY()))
+                wheelPositions[wheelID].addBy(wheelDisplacement);
+            wheelDriveEncoderReadings[wheelID] = newDriveEncoderReading;
+            wheelFieldHeadings[wheelID] = newFieldHeading;
+
+            swerveWheels[wheelID].getHighFrequencyModuleVelocity2D(wheelVelocity).rotateBy(yaw);
+            x += wheelPositions[wheelID].getX();
+            y += wheelPositions[wheelID].getY();
+            velocityX += wheelVelocity.getX();
+            velocityY += wheelVelocity.getY();
+            timestamp += swerveWheels[wheelID].getHighFrequencyWheelDrivingEncoderTimestamp();
+        }
+        final double scaler = 1.0 / swerveWheels.length;
+        x *= scaler; y *= scaler; velocityX *= scaler; velocityY *= scaler; timestamp *= scaler;
+
+        double dt = timestamp - previousTimestamp;
+        if (!(dt > 0)) dt = 1.0 / odometryFrequencyHZ; // the encoders did not send new readings, or the timestamps are not available
+        publishPose(x, y, velocityX, velocityY,
+                (velocityX - previousVelocityX) / dt, (velocityY - previousVelocityY) / dt,
+                yaw, AngleUtils.getActualDifference(previousYaw, yaw) / dt, timestamp);
+        poseHistory.record(timestamp, x, y, yaw);
+
+        previousYaw = yaw;
+        previousTimestamp = timestamp;
+        previousVelocityX = velocityX;
+        previousVelocityY = velocityY;
+    }
+
+    private void publishPose(double positionX, double positionY, double velocityX, double velocityY, double accelerationX, double accelerationY, double rotation, double rotationalVelocity, double timestamp) {
+        final int sequence = poseSequence;
+        poseSequence = sequence + 1;
+        VarHandle.storeStoreFence(); // the pose must not be written before the sequence becomes odd
+        this.positionX = positionX;
+        this.positionY = positionY;
+        this.velocityX = velocityX;
+        this.velocityY = velocityY;
+        this.accelerationX = accelerationX;
+        this.accelerationY = accelerationY;
+        this.rotation = rotation;
+        this.rotationalVelocity = rotationalVelocity;
+        this.poseTimestamp = timestamp;
+        poseSequence = sequence + 2;
+    }
+
+    /** @return the sequence number to read the pose with, once the pose is not being written */
+    private int beginReadingPose() {
+        int sequence;
+        while (((sequence = poseSequence) & 1) != 0)
+            Thread.onSpinWait(); // being written
+        return sequence;
+    }
+
+    /** @return whether the pose read since beginReadingPose() is complete, if not, read it again */
+    private boolean finishReadingPose(int sequence) {
+        VarHandle.loadLoadFence(); // the pose must be read before checking the sequence again
+        return poseSequence == sequence;
+    }
+
+    @Override
+    public Vector2D getRobotVelocity2D() {
+        double x, y;
+        int sequence;
+        do {
+            sequence = beginReadingPose();
+            x = velocityX;
+            y = velocityY;
+        } while (!finishReadingPose(sequence));
+        return new Vector2D(new double[] {x, y});
+    }
+
+    @Override
+    public double getRobotRotationalVelocity() {
+        double rotationalVelocity;
+        int sequence;
+        do {
+            sequence = beginReadingPose();
+            rotationalVelocity = this.rotationalVelocity;
+        } while (!finishReadingPose(sequence));
+        return rotationalVelocity;
+    }
+
+    @Override
+    public Vector2D getRobotPosition2D() {
+        double x, y;
+        int sequence;
+        do {
+            sequence = beginReadingPose();
+            x = positionX;
+            y = positionY;
+        } while (!finishReadingPose(sequence));
+        return new Vector2D(new double[] {x, y});
+    }
+
+    @Override
+    public Vector2D getRobotAcceleration2D() {
+        double x, y;
+        int sequence;
+        do {
+            sequence = beginReadingPose();
+            x = accelerationX;
+            y = accelerationY;
+        } while (!finishReadingPose(sequence));
+        return new Vector2D(new double[] {x, y});
+    }
+
+    @Override
+    public double getRobotRotation() {
+        double rotation;
+        int sequence;
+        do {
+            sequence = beginReadingPose();
+            rotation = this.rotation;
+        } while (!finishReadingPose(sequence));
+        return rotation;
+    }
+
+    /** @return the time when the current pose is measured, in seconds and in the same time base as the fpga timestamp */
+    public double getPoseTimestamp() {
+        double timestamp;
+        int sequence;
+        do {
+            sequence = beginReadingPose();
+            timestamp = this.poseTimestamp;
+        } while (!finishReadingPose(sequence));
+        return timestamp;
+    }
+
+    @Override
+    public boolean getPoseAt(double timestamp, double[] poseOutput) {
+        return poseHistory.getPoseAt(timestamp, poseOutput) || PositionEstimator.super.getPoseAt(timestamp, poseOutput);
+    }
+
+    @Override
+    public void onReset() {
+        synchronized (odometryLock) {
+            gyro.calibrateHighFrequency(0);
+            setWheelPositions(new Vector2D());
+            takeCurrentReadingsAsStart();
+            previousVelocityX = previousVelocityY = 0;
+            updateOdometry();
+        }
+    }
+
+    @Override
+    public void resetRobotPosition() {
+        setRobotPosition(new Vector2D());
+    }
+
+    @Override
+    public void resetRobotRotation() {
+        setRobotRotation(0);
+    }
+
+    @Override
+    public void setRobotPosition(Vector2D robotPosition) {
+        synchronized (odometryLock) {
+            setWheelPositions(robotPosition);
+            updateOdometry();
+        }
+    }
+
+    @Override
+    public void setRobotRotation(double rotation) {
+        synchronized (odometryLock) {
+            /* against the same readings that the odometry uses, so the rotation is exactly the given one right after */
+            gyro.calibrateHighFrequency(rotation);
+            poseHistory.clear();
+            /* the headings of the wheels jump together with the yaw, do not take it as a curve */
+            takeCurrentReadingsAsStart();
+            updateOdometry();
+        }
+    }
+
+    private void setWheelPositions(Vector2D robotPosition) {
+        poseHistory.clear(); // the old poses are in the old coordinates
+        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++)
+            wheelPositions[wheelID].set(robotPosition).addBy(swerveWheels[wheelID].getWheelInstalledLocationVector());
+    }
+
+    private void takeCurrentReadingsAsStart() {
+        final double yaw = gyro.getHighFrequencyYaw();
+        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++) {
+            wheelDriveEncoderReadings[wheelID] = swerveWheels[wheelID].getHighFrequencyWheelDrivingEncoderValue();
+            wheelFieldHeadings[wheelID] = swerveWheels[wheelID].getHighFrequencySteerHeading() + yaw;
+        }
+        previousYaw = yaw;
+    }
+
+    @Override
+    public boolean isResultReliable() {
+        return odometryThread == null || odometryThread.isAlive();
+    }
+
+    @Override
+    public void onDestroy() {
+        running = false;
+    }
+}
@@ -6,18 +6,24 @@ import frc.robot.Drivers.IMUs.SimpleGyro;
 import frc.robot.Modules.RobotModuleBase;
 import frc.robot.Modules.Chassis.SwerveWheel;
 import frc.robot.Utils.ChassisUnit;
-import frc.robot.Utils.EasyShuffleBoard;
-import frc.robot.Utils.MathUtils.Rotation2D;
+import frc.robot.Utils.PoseHistory;
+import frc.robot.Utils.TelemetryPublisher;
+import frc.robot.Utils.MathUtils.MutableVector2D;
 import frc.robot.Utils.MathUtils.Vector2D;
 
 public class SwerveWheelPositionEstimator extends RobotModuleBase implements PositionEstimator {
     protected final SwerveWheel[] swerveWheels;
     protected final SimpleGyro gyro;
 
-    protected final Vector2D[] wheelPositions;
-    protected final Vector2D[] wheelVelocities;
-    protected final Vector2D[] wheelAccelerations;
+    /* updated in-place during periodic(), so that nothing is allocated in the loop */
+    protected final MutableVector2D[] wheelPositions;
+    protected final MutableVector2D[] wheelVelocities;
+    protected final MutableVector2D[] wheelAccelerations;
     private final double[] encodersPreviousReadings;
+    /** about a second of poses, for the cameras to look up the pose when their results were captured */
+    protected final PoseHistory poseHistory = new PoseHistory(128);
+    private final TelemetryPublisher.NumberSlot positionXTelemetry = TelemetryPublisher.register("chassis", "old position estimator (x)"),
+            positionYTelemetry = TelemetryPublisher.register("chassis", "old position estimator (y)");
     protected Timer dt = new Timer();
 
     /**
@@ -27,11 +33,21 @@ public class SwerveWheelPositionEstimator extends RobotModuleBase implements Pos
     public SwerveWheelPositionEstimator(SwerveWheel[] swerveWheels, SimpleGyro gyro) {
         super("Position-Estimator");
         this.swerveWheels = swerveWheels;
-        this.wheelAccelerations = new Vector2D[swerveWheels.length];
-        this.wheelVelocities = new Vector2D[swerveWheels.length];
-        this.wheelPositions = new Vector2D[swerveWheels.length];
+        this.wheelAccelerations = new MutableVector2D[swerveWheels.length];
+        this.wheelVelocities = new MutableVector2D[swerveWheels.length];
+        this.wheelPositions = new MutableVector2D[swerveWheels.length];
+        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++) {
+            wheelAccelerations[wheelID] = new MutableVector2D();
+            wheelVelocities[wheelID] = new MutableVector2D();
+            wheelPositions[wheelID] = new MutableVector2D();
+        }
         this.encodersPreviousReadings = new double[swerveWheels.length];
         this.gyro = gyro;
+
+        super.declareReading((Object[]) swerveWheels);
+        /* reading the gyro refreshes its sensor values */
+        super.declareWriting(gyro);
+        super.declareDependenciesComplete();
     }
 
     @Override
@@ -39,25 +55,47 @@ public class SwerveWheelPositionEstimator extends RobotModuleBase implements Pos
         onReset();
     }
 
+    private final MutableVector2D wheelVelocity = new MutableVector2D(), wheelDisplacement = new MutableVector2D();
     @Override
     protected void periodic(double dt) {
+        final double yaw = gyro.getYaw();
         for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++) {
-            Vector2D wheelVelocity = swerveWheels[wheelID].getModuleVelocity2D(); // gain the velocity of each module, in vector
-            wheelVelocity = wheelVelocity.multiplyBy(new Rotation2D(gyro.getYaw())); // apply rotation according to the imu
+            swerveWheels[wheelID].getModuleVelocity2D(wheelVelocity); // gain the velocity of each module, in vector
+            wheelVelocity.rotateBy(yaw); // apply rotation according to the imu
 
-            wheelPositions[wheelID] = wheelPositions[wheelID].addBy(
-                    new Vector2D(swerveWheels[wheelID].getSteerHeading() + gyro.getYaw(), swerveWheels[wheelID].getWheelDrivingEncoderValue(ChassisUnit.METER) - encodersPreviousReadings[wheelID]));
-            encodersPreviousReadings[wheelID] = swerveWheels[wheelID].getWheelDrivingEncoderValue(ChassisUnit.METER);
+            final double wheelDrivingEncoderValue = swerveWheels[wheelID].getWheelDrivingEncoderValue(ChassisUnit.METER);
+            wheelDisplacement.setWithHeadingAndMagnitude(swerveWheels[wheelID].getSteerHeading() + yaw, wheelDrivingEncoderValue - encodersPreviousReadings[wheelID]);
+            wheelPositions[wheelID].addBy(wheelDisplacement);
+            encodersPreviousReadings[wheelID] = wheelDrivingEncoderValue;
 
-            wheelAccelerations[wheelID] = wheelVelocity
-                    .addBy(wheelVelocities[wheelID].multiplyBy(-1))
-                    .multiplyBy(1.0f/dt); // apply derivative to time
+            wheelAccelerations[wheelID].set(wheelVelocity)
+                    .addBy(wheelVelocities[wheelID], -1)
+                    .multiplyBy(1.0/dt); // apply derivative to time
 
-            wheelVelocities[wheelID] = wheelVelocity; // keep a copy of the velocity
+            wheelVelocities[wheelID].set(wheelVelocity); // keep a copy of the velocity
         }
+        recordPose(yaw);
+
+        final Vector2D robotPosition = getRobotPosition2D();
+        positionXTelemetry.set(robotPosition.getX());
+        positionYTelemetry.set(robotPosition.getY());
+    }
 
-        EasyShuffleBoard.putNumber("chassis", "old position estimator (x)", getRobotPosition2D().getX());
-        EasyShuffleBoard.putNumber("chassis", "old position estimator (y)", getRobotPosition2D().getY());
+    /** records the current pose into the history, with the time that the encoders are read */
+    protected void recordPose(double yaw) {
+        double x = 0, y = 0, timestamp = 0;
+        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++) {
+            x += wheelPositions[wheelID].getX();
+            y += wheelPositions[wheelID].getY();
+            timestamp += swerveWheels[wheelID].getWheelDrivingEncoderTimestamp();
+        }
+        final double scaler = 1.0 / swerveWheels.length;
+        poseHistory.record(timestamp * scaler, x * scaler, y * scaler, yaw);
+    }
+
+    @Override
+    public boolean getPoseAt(double timestamp, double[] poseOutput) {
+        return poseHistory.getPoseAt(timestamp, poseOutput) || PositionEstimator.super.getPoseAt(timestamp, poseOutput);
     }
 
     @Override
@@ -65,8 +103,8 @@ public class SwerveWheelPositionEstimator extends RobotModuleBase implements Pos
         this.resetRobotPosition();
         this.resetRobotRotation();
         for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++) {
-            wheelVelocities[wheelID] = new Vector2D();
-            wheelAccelerations[wheelID] = new Vector2D();
+            wheelVelocities[wheelID].set(0, 0);
+            wheelAccelerations[wheelID].set(0, 0);
             encodersPreviousReadings[wheelID] = swerveWheels[wheelID].getWheelDrivingEncoderValue(ChassisUnit.METER);
         }
         dt.start();
@@ -75,11 +113,21 @@ public class SwerveWheelPositionEstimator extends RobotModuleBase implements Pos
 
     @Override
     public Vector2D getRobotVelocity2D() {
-        Vector2D robotVelocity = new Vector2D();
-        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++)
-            robotVelocity = robotVelocity.addBy(
-                    wheelVelocities[wheelID].multiplyBy(1.0f / swerveWheels.length)); // take the average of the four wheel's velocity
-        return robotVelocity;
+        return getAverage(wheelVelocities); // take the average of the four wheel's velocity
+    }
+
+    /**
+     * the average of the vectors of each wheel
+     * this is called by other threads too, so it accumulates in local variables instead of a shared vector
+     * */
+    private Vector2D getAverage(MutableVector2D[] vectorsOfWheels) {
+        double x = 0, y = 0;
+        final double scaler = 1.0f / swerveWheels.length;
+        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++) {
+            x += vectorsOfWheels[wheelID].getX() * scaler;
+            y += vectorsOfWheels[wheelID].getY() * scaler;
+        }
+        return new Vector2D(new double[] {x, y});
     }
 
     @Override
@@ -89,26 +137,18 @@ public class SwerveWheelPositionEstimator extends RobotModuleBase implements Pos
 
     @Override
     public Vector2D getRobotPosition2D() {
-        Vector2D robotPosition = new Vector2D();
-        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++)
-            robotPosition = robotPosition.addBy(
-                    wheelPositions[wheelID].multiplyBy(1.0f / swerveWheels.length)); // take the average of the four wheel's velocity
-        return robotPosition;
+        return getAverage(wheelPositions); // take the average of the four wheel's position
     }
 
     @Override
     public Vector2D getRobotAcceleration2D() {
-        Vector2D robotAcceleration = new Vector2D();
-        for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++)
-            robotAcceleration = robotAcceleration.addBy(
-                    wheelAccelerations[wheelID].multiplyBy(1.0f / swerveWheels.length)); // take the average of the four wheel's velocity
-        return robotAcceleration;
+        return getAverage(wheelAccelerations); // take the average of the four wheel's acceleration
     }
 
     public double getDeviation() {
         double squaredDeviation = 0;
         for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++) {
-            Vector2D deviation = wheelPositions[wheelID].addBy(
+            final Vector2D deviation = wheelPositions[wheelID].toVector2D().addBy(
                     swerveWheels[wheelID].getWheelInstalledLocationVector().multiplyBy(-1));
             squaredDeviation += deviation.getMagnitude() * deviation.getMagnitude();
         }
@@ -133,12 +173,14 @@ public class SwerveWheelPositionEstimator extends RobotModuleBase implements Pos
 
     @Override
     public void setRobotPosition(Vector2D robotPosition) {
+        poseHistory.clear(); // the old poses are in the old coordinates
         for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++)
-            wheelPositions[wheelID] = robotPosition.addBy(swerveWheels[wheelID].getWheelInstalledLocationVector());
+            wheelPositions[wheelID].set(robotPosition).addBy(swerveWheels[wheelID].getWheelInstalledLocationVector());
     }
 
     @Override
     public void setRobotRotation(double rotation) {
+        poseHistory.clear();
         gyro.calibrate(rotation);
     }
 
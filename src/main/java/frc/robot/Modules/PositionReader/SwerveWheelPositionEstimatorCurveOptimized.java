@@ -2,10 +2,10 @@ package frc.robot.Modules.PositionReader;
 
 import frc.robot.Drivers.IMUs.SimpleGyro;
 import frc.robot.Modules.Chassis.SwerveWheel;
-import frc.robot.Utils.EasyShuffleBoard;
 import frc.robot.Utils.MathUtils.AngleUtils;
-import frc.robot.Utils.MathUtils.Rotation2D;
+import frc.robot.Utils.MathUtils.MutableVector2D;
 import frc.robot.Utils.MathUtils.Vector2D;
+import frc.robot.Utils.TelemetryPublisher;
 
 public class SwerveWheelPositionEstimatorCurveOptimized extends SwerveWheelPositionEstimator {
     /**
@@ -20,6 +20,8 @@ public class SwerveWheelPositionEstimatorCurveOptimized extends SwerveWheelPosit
 
     private final double[] wheelDriveEncoderReadings = new double[swerveWheels.length];
     private final double[] wheelSteerEncoderReadings = new double[swerveWheels.length];
+    private final TelemetryPublisher.NumberSlot positionXTelemetry = TelemetryPublisher.register("chassis", "new position estimator (x)"),
+            positionYTelemetry = TelemetryPublisher.register("chassis", "new position estimator (y)");
 
     @Override
     public void onReset() {
@@ -30,35 +32,40 @@ public class SwerveWheelPositionEstimatorCurveOptimized extends SwerveWheelPosit
         super.onReset();
     }
 
+    private final MutableVector2D wheelVelocity = new MutableVector2D(), wheelDisplacement = new MutableVector2D();
     @Override
     protected void periodic(double dt) {
+        final double yaw = gyro.getYaw();
         for (int wheelID = 0; wheelID < swerveWheels.length; wheelID++) {
             /* calculate velocity */
-            Vector2D wheelVelocity = swerveWheels[wheelID].getModuleVelocity2D(); // gain the velocity of each module, in vector
-            wheelVelocity = wheelVelocity.multiplyBy(new Rotation2D(gyro.getYaw())); // apply rotation according to the imu
+            swerveWheels[wheelID].getModuleVelocity2D(wheelVelocity); // gain the velocity of each module, in vector
+            wheelVelocity.rotateBy(yaw); // apply rotation according to the imu
 
             /* calculate displacement using curve-optimization */
             final double newDriveEncoderReading = swerveWheels[wheelID].getWheelDrivingEncoderValue(),
                     distance = newDriveEncoderReading - wheelDriveEncoderReadings[wheelID],
                     newSteerEncoderReading = swerveWheels[wheelID].getSteerHeading();
-            final Vector2D displacement = calculateDisplacementWithCurve(
+            calculateDisplacementWithCurve(
                     wheelSteerEncoderReadings[wheelID],
                     newSteerEncoderReading,
-                    distance
+                    distance,
+                    wheelDisplacement
             );
-            wheelPositions[wheelID] = wheelPositions[wheelID].addBy(displacement);
+            wheelPositions[wheelID].addBy(wheelDisplacement);
             wheelDriveEncoderReadings[wheelID] = newDriveEncoderReading;
             wheelSteerEncoderReadings[wheelID] = newSteerEncoderReading;
 
-            wheelAccelerations[wheelID] = wheelVelocity
-                    .addBy(wheelVelocities[wheelID].multiplyBy(-1))
-                    .multiplyBy(1.0f/dt); // apply derivative to time
+            wheelAccelerations[wheelID].set(wheelVelocity)
+                    .addBy(wheelVelocities[wheelID], -1)
+                    .multiplyBy(1.0/dt); // apply derivative to time
 
-            wheelVelocities[wheelID] = wheelVelocity; // keep a copy of the velocity
+            wheelVelocities[wheelID].set(wheelVelocity); // keep a copy of the velocity
         }
+        recordPose(yaw);
 
-        EasyShuffleBoard.putNumber("chassis", "new position estimator (x)", getRobotPosition2D().getX());
-        EasyShuffleBoard.putNumber("chassis", "new position estimator (y)", getRobotPosition2D().getY());
+        final Vector2D robotPosition = getRobotPosition2D();
+        positionXTelemetry.set(robotPosition.getX());
+        positionYTelemetry.set(robotPosition.getY());
     }
 
 
@@ -67,14 +74,14 @@ public class SwerveWheelPositionEstimatorCurveOptimized extends SwerveWheelPosit
      * @param startingRotation rotation of the swerve at the beginning of the period, in radian and in reference to the field, 0 is to the right and counter-clockwise is positive
      * @param endingRotation rotation of the swerve at the end of the period, in radian and in reference to the field, 0 is to the right and counter-clockwise is positive
      * @param distance the distance, in any unit X, that the wheel have travelled during the period (or the length of the curve)
-     * @return the displacement during the period, in reference to the field and in the same unit X as param "distance"
+     * @param displacementOutput the vector to store the displacement during the period, in reference to the field and in the same unit X as param "distance"
      * */
-    private static Vector2D calculateDisplacementWithCurve(double startingRotation, double endingRotation, double distance) {
+    static void calculateDisplacementWithCurve(double startingRotation, double endingRotation, double distance, MutableVector2D displacementOutput) {
         final double theta = AngleUtils.getActualDifference(startingRotation, endingRotation),
                 x = getXCoe(theta) * distance,
                 y = getYCoe(theta) * distance;
-        final Vector2D displacementInReferenceToStartingRotation = new Vector2D(new double[] {x, y});
-        return displacementInReferenceToStartingRotation.multiplyBy(new Rotation2D(startingRotation));
+        displacementOutput.set(x, y) // in reference to starting rotation
+                .rotateBy(startingRotation);
     }
 
     /**
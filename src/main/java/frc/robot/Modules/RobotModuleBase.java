@@ -2,14 +2,12 @@ package frc.robot.Modules;
 
 import frc.robot.Drivers.Motors.Motor;
 import frc.robot.RobotShell;
+import frc.robot.Utils.FlightDataRecorder;
+import frc.robot.Utils.LoopClock;
+import frc.robot.Utils.RobotConfigReader;
 import frc.robot.Utils.RobotModuleOperatorMarker;
-import frc.robot.Utils.TimeUtils;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.TimeoutException;
+import java.util.*;
 
 /**
  * The template for the classes that controls the different modules of the
@@ -19,7 +17,6 @@ import java.util.concurrent.TimeoutException;
  * @version 0.1
  */
 public abstract class RobotModuleBase extends RobotModuleOperatorMarker {
-    private final ExecutorService periodicExecutor = Executors.newSingleThreadExecutor();
     /** the name of the module */
     public final String moduleName;
 
@@ -34,7 +31,22 @@ public abstract class RobotModuleBase extends RobotModuleOperatorMarker {
     /** always add motors to this list */
     protected List<Motor> motors = new ArrayList<>();
 
-    private long previousTimeMillis;
+    /**
+     * the objects (modules, sensors, etc.) that this module reads from or writes to during periodic()
+     * used by the scheduler to decide which modules can be updated at the same time
+     * */
+    private final Set<Object> resourcesRead = new HashSet<>(), resourcesWritten = new HashSet<>();
+    /** whether the declarations above are complete, only then can the module be updated at the same time as others */
+    private boolean dependenciesDeclared = false;
+
+    /** the time, in nanoseconds, of the previous update (from System.nanoTime()) */
+    private long previousUpdateTimeNano;
+    /** the configs that this module uses in updateConfigs(), see useConfig() */
+    private final List<RobotConfigReader.ConfigHandle> configsUsed = new ArrayList<>();
+    /** the global version of the configs (see RobotConfigReader) when they were last checked, -1 to check them at the next update */
+    private long checkedGlobalConfigsVersion = -1;
+    /** the sum of the versions of the configs used when updateConfigs() was last called, -1 to load them at the next update */
+    private long loadedConfigsVersion = -1;
 
     /**
      * public RobotModule(HashMap<String, RobotModule> dependenciesModules,
@@ -43,7 +55,8 @@ public abstract class RobotModuleBase extends RobotModuleOperatorMarker {
     protected RobotModuleBase(String moduleName, boolean updateDuringDisabled) {
         this.moduleName = moduleName;
         this.updateDuringDisabled = updateDuringDisabled;
-        previousTimeMillis = System.currentTimeMillis();
+        previousUpdateTimeNano = System.nanoTime();
+        resourcesWritten.add(this);
     }
 
     protected RobotModuleBase(String moduleName) {
@@ -55,20 +68,43 @@ public abstract class RobotModuleBase extends RobotModuleOperatorMarker {
     /** called during every loop */
     protected abstract void periodic(double dt);
 
+    /**
+     * update the module with the time of the robot's main loop
+     * all the modules updated in the same cycle receives the same time stamp, so no sleeping is needed to avoid dt=0
+     * @param loopClock the clock of the robot's main loop, already ticked for the current cycle
+     * */
+    public void periodic(LoopClock loopClock) {
+        update(loopClock.getCycleStartTimeNano());
+    }
+
+    /**
+     * update the module outside the main loop of robot core (for example, by a service)
+     * the module is then skipped by the main loop during this cycle, as it is already updated
+     * */
     public void periodic() {
+        update(System.nanoTime());
+    }
+
+    private void update(long timeNano) {
         // System.out.println("<-- base periodic of " + moduleName + ", enabled: " + enabled + "-->");
         if (!enabled && !updateDuringDisabled)
             return;
-        long newTimeMillis = System.currentTimeMillis();
-        if (newTimeMillis == previousTimeMillis) {
-            /* in case of dt=0 */
-            TimeUtils.sleep(1);
-            newTimeMillis = System.currentTimeMillis();
+        /* in case of dt=0, or the module is already updated during this cycle */
+        if (timeNano <= previousUpdateTimeNano)
+            return;
+        /* the configs are only loaded again when any of the configs used by this module changes */
+        final long globalConfigsVersion = RobotConfigReader.getGlobalVersion();
+        if (globalConfigsVersion != checkedGlobalConfigsVersion) {
+            checkedGlobalConfigsVersion = globalConfigsVersion;
+            final long configsVersion = getConfigsVersion();
+            if (configsVersion != loadedConfigsVersion) {
+                updateConfigs();
+                loadedConfigsVersion = configsVersion;
+            }
         }
-        updateConfigs();
         // System.out.println("executing periodic");
-        periodic((newTimeMillis - previousTimeMillis) / 1000.0f);
-        this.previousTimeMillis = newTimeMillis;
+        periodic((timeNano - previousUpdateTimeNano) / 1_000_000_000.0);
+        this.previousUpdateTimeNano = timeNano;
         // System.out.println("<-- end of base periodic -->");
     }
 
@@ -76,18 +112,67 @@ public abstract class RobotModuleBase extends RobotModuleOperatorMarker {
         return this;
     }
 
-    /** update robot configs from robotConfigReader, used when debugging the robot override or nothing will be done */
+    /**
+     * whether this module can be skipped when the main loop is overloaded (see the degraded mode of robot core)
+     * override it for modules that does not control the motion of the robot, such as the lights
+     * */
+    public boolean isSheddable() {
+        return false;
+    }
+
+    /**
+     * update robot configs from robotConfigReader, used when debugging the robot override or nothing will be done
+     * this is called before periodic(), but only when the configs used by this module are changed (and once after each reset)
+     * the module should read its configs through the handles from useConfig(), or it is reloaded whenever any config of the robot changes
+     * */
     public void updateConfigs() {}
 
+    /**
+     * gets a handle to a config that this module reads in updateConfigs(), call it in the constructor
+     * the module then only reloads its configs when one of the configs it uses is changed
+     * @param configPath in domainName/constantName
+     * @throws NullPointerException if there is no such config
+     * */
+    protected RobotConfigReader.ConfigHandle useConfig(RobotConfigReader robotConfig, String configPath) {
+        final RobotConfigReader.ConfigHandle handle = robotConfig.getConfigHandle(configPath);
+        configsUsed.add(handle);
+        return handle;
+    }
+
+    protected RobotConfigReader.ConfigHandle useConfig(RobotConfigReader robotConfig, String domainName, String constantName) {
+        return useConfig(robotConfig, domainName + "/" + constantName);
+    }
+
+    /** @return the sum of the versions of the configs used, or the global version if the module does not tell which configs it uses */
+    private long getConfigsVersion() {
+        if (configsUsed.isEmpty())
+            return RobotConfigReader.getGlobalVersion();
+        long configsVersion = 0;
+        for (int i = 0; i < configsUsed.size(); i++)
+            configsVersion += configsUsed.get(i).getVersion();
+        return configsVersion;
+    }
+
     /** called to reset module to initial state, you can also call it by the end of init() */
     public abstract void onReset();
 
     public void reset() {
-        this.previousTimeMillis = System.currentTimeMillis();
+        this.previousUpdateTimeNano = System.nanoTime();
+        this.checkedGlobalConfigsVersion = -1;
+        this.loadedConfigsVersion = -1;
         onReset();
         clearAccumulations();
     }
 
+    /**
+     * registers the inputs and outputs of this module to the flight data recorder, called once before the recorder starts
+     * by default, the powers of the motors are recorded; override it (and call super) to record the sensors too
+     * */
+    public void registerFlightDataChannels(FlightDataRecorder recorder) {
+        for (int i = 0; i < motors.size(); i++)
+            recorder.registerMotor(moduleName + "/motor " + i, motors.get(i));
+    }
+
     /** called when the program ends */
     public void onDestroy() {}
     protected void onEnable() {}
@@ -133,7 +218,47 @@ public abstract class RobotModuleBase extends RobotModuleOperatorMarker {
         return operator == null || operator == owner;
     }
 
-    public long getPreviousUpdateTimeMillis() {
-        return previousTimeMillis;
+    /**
+     * declare that this module reads from the given modules or sensors during periodic()
+     * the module will be updated after the modules (that are added to robot core before this one) that writes to them
+     * */
+    protected void declareReading(Object... resources) {
+        for (Object resource:resources)
+            if (resource != null) resourcesRead.add(resource);
+    }
+
+    /**
+     * declare that this module writes to (or changes the state of) the given modules or sensors during periodic()
+     * note that a module always writes to itself
+     * */
+    protected void declareWriting(Object... resources) {
+        for (Object resource:resources)
+            if (resource != null) resourcesWritten.add(resource);
+    }
+
+    /**
+     * declare that everything this module reads and writes during periodic() is declared
+     * (including the shared states, such as static fields and the dashboard, which must be thread-safe)
+     * only then the scheduler may update this module at the same time as other modules
+     * modules that don't call this are always updated alone, in the order they are added
+     * */
+    protected void declareDependenciesComplete() {
+        this.dependenciesDeclared = true;
+    }
+
+    public boolean areDependenciesDeclared() {
+        return dependenciesDeclared;
+    }
+
+    public Set<Object> getResourcesRead() {
+        return Collections.unmodifiableSet(resourcesRead);
+    }
+
+    public Set<Object> getResourcesWritten() {
+        return Collections.unmodifiableSet(resourcesWritten);
+    }
+
+    public long getPreviousUpdateTimeNano() {
+        return previousUpdateTimeNano;
     }
 }
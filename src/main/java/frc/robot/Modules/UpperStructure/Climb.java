@@ -2,6 +2,7 @@ package frc.robot.Modules.UpperStructure;
 
 import frc.robot.Drivers.Motors.Motor;
 import frc.robot.Modules.RobotModuleBase;
+import frc.robot.Utils.FlightDataRecorder;
 import frc.robot.Utils.MechanismControllers.EncoderMotorMechanism;
 import frc.robot.Utils.RobotConfigReader;
 import frc.robot.Utils.RobotModuleOperatorMarker;
@@ -13,6 +14,7 @@ public class Climb extends RobotModuleBase {
     private final EncoderMotorMechanism leftClimb, rightClimb;
     private final RobotConfigReader robotConfig;
     private double movingPower;
+    private final RobotConfigReader.ConfigHandle movingPowerConfig;
     private ClimbTask leftClimbTask, rightClimbTask;
 
     public Climb(EncoderMotorMechanism leftClimb, EncoderMotorMechanism rightClimb, RobotConfigReader robotConfig) {
@@ -20,6 +22,7 @@ public class Climb extends RobotModuleBase {
         this.leftClimb = leftClimb;
         this.rightClimb = rightClimb;
         this.robotConfig = robotConfig;
+        this.movingPowerConfig = useConfig(robotConfig, "climb", "movingPower");
     }
 
     @Override
@@ -46,7 +49,16 @@ public class Climb extends RobotModuleBase {
 
     @Override
     public void updateConfigs() {
-        movingPower = robotConfig.getConfig("climb", "movingPower");
+        movingPower = movingPowerConfig.get();
+    }
+
+    @Override
+    public void registerFlightDataChannels(FlightDataRecorder recorder) {
+        super.registerFlightDataChannels(recorder);
+        recorder.registerMotor(moduleName + "/left climb", leftClimb);
+        recorder.registerEncoder(moduleName + "/left climb", leftClimb);
+        recorder.registerMotor(moduleName + "/right climb", rightClimb);
+        recorder.registerEncoder(moduleName + "/right climb", rightClimb);
     }
 
     @Override
@@ -4,6 +4,7 @@ import frc.robot.Drivers.DistanceSensors.DistanceSensor;
 import frc.robot.Drivers.Encoders.Encoder;
 import frc.robot.Drivers.Motors.Motor;
 import frc.robot.Utils.EasyShuffleBoard;
+import frc.robot.Utils.FlightDataRecorder;
 import frc.robot.Utils.MechanismControllers.EnhancedPIDController;
 import frc.robot.Utils.RobotConfigReader;
 import frc.robot.Utils.RobotModuleOperatorMarker;
@@ -14,6 +15,8 @@ public class IntakeWithDistanceSensor extends Intake {
     private final DistanceSensor intakeDistanceSensor;
     private final RobotConfigReader robotConfig;
     private final TransformableArm arm;
+    private final RobotConfigReader.ConfigHandle intakePowerConfig, intakeAidPowerConfig, revertPowerConfig, launchPowerConfig,
+            distanceSensorThresholdConfig, splitTimeConfig, launchTimeConfig;
 
     public IntakeWithDistanceSensor(Motor intakeMotor, Motor intakeAidMotor, Encoder intakeEncoder, DistanceSensor intakeDistanceSensor, TransformableArm arm, RobotConfigReader robotConfig) {
         super();
@@ -25,6 +28,15 @@ public class IntakeWithDistanceSensor extends Intake {
         super.motors.add(intakeAidMotor);
         this.robotConfig = robotConfig;
         this.arm = arm;
+        super.declareReading(arm);
+
+        this.intakePowerConfig = useConfig(robotConfig, "intake", "intakePower");
+        this.intakeAidPowerConfig = useConfig(robotConfig, "intake", "intakeAidPower");
+        this.revertPowerConfig = useConfig(robotConfig, "intake", "revertPower");
+        this.launchPowerConfig = useConfig(robotConfig, "intake", "launchPower");
+        this.distanceSensorThresholdConfig = useConfig(robotConfig, "intake", "distanceSensorThreshold");
+        this.splitTimeConfig = useConfig(robotConfig, "intake", "splitTime");
+        this.launchTimeConfig = useConfig(robotConfig, "intake", "launchTime");
     }
 
     @Override
@@ -57,7 +69,7 @@ public class IntakeWithDistanceSensor extends Intake {
                     System.out.println("<-- Intake | note gone when holding, updating to disabled... -->");
                     yield updateStatusToDisabled();
                 }
-                intakeWheelPositionController.startNewTask(new EnhancedPIDController.Task(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, intakeWheelHoldingPosition));
+                intakeWheelPositionController.updateTask(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, intakeWheelHoldingPosition);
                 final double holdPower = intakeWheelPositionController.getMotorPower(intakeEncoder.getEncoderPosition(), intakeEncoder.getEncoderVelocity(), 0); // dt does not matter
                 EasyShuffleBoard.putNumber("intake", "holding power", holdPower);
                 yield holdPower;
@@ -82,8 +94,8 @@ public class IntakeWithDistanceSensor extends Intake {
     @Override
     protected double updateStatusToHolding() {
         super.updateStatusToHolding();
-        intakeWheelPositionController.startNewTask(new EnhancedPIDController.Task(EnhancedPIDController.Task.TaskType.GO_TO_POSITION,
-                this.intakeWheelHoldingPosition = this.intakeEncoder.getEncoderPosition() + intakeSensorToReadyPositionDifference));
+        intakeWheelPositionController.updateTask(EnhancedPIDController.Task.TaskType.GO_TO_POSITION,
+                this.intakeWheelHoldingPosition = this.intakeEncoder.getEncoderPosition() + intakeSensorToReadyPositionDifference);
         return intakeWheelPositionController.getMotorPower(intakeEncoder.getEncoderPosition(), intakeEncoder.getEncoderVelocity(), 0); // dt does not matter
     }
 
@@ -94,13 +106,13 @@ public class IntakeWithDistanceSensor extends Intake {
     @Override
     public void updateConfigs() {
         // this.intakeAidingMotorPower = robotConfig.getConfig("intake", "intakeAidPower");
-        this.intakePower = robotConfig.getConfig("intake", "intakePower");
-        this.intakeAidingMotorPower = robotConfig.getConfig("intake", "intakeAidPower");
-        this.revertPower = robotConfig.getConfig("intake", "revertPower");
-        this.launchPower = robotConfig.getConfig("intake", "launchPower");
-        this.distanceSensorThreshold = robotConfig.getConfig("intake", "distanceSensorThreshold");
-        this.splitTime = robotConfig.getConfig("intake", "splitTime");
-        this.launchTime = robotConfig.getConfig("intake", "launchTime");
+        this.intakePower = intakePowerConfig.get();
+        this.intakeAidingMotorPower = intakeAidPowerConfig.get();
+        this.revertPower = revertPowerConfig.get();
+        this.launchPower = launchPowerConfig.get();
+        this.distanceSensorThreshold = distanceSensorThresholdConfig.get();
+        this.splitTime = splitTimeConfig.get();
+        this.launchTime = launchTimeConfig.get();
 
         // TODO put the following in robotConfig and make this CM
         final double intakeMotorEncoderTicksPerSecondAtNormalPower = 74000;
@@ -118,6 +130,13 @@ public class IntakeWithDistanceSensor extends Intake {
         intakeSensorToReadyPositionDifference = intakeMotorEncoderTicksPerSecondAtNormalPower * -0.025;
     }
 
+    @Override
+    public void registerFlightDataChannels(FlightDataRecorder recorder) {
+        super.registerFlightDataChannels(recorder);
+        recorder.registerEncoder(moduleName + "/intake encoder", intakeEncoder);
+        recorder.registerDistanceSensor(moduleName + "/distance sensor", intakeDistanceSensor);
+    }
+
     @Override
     public void onReset() {
         updateConfigs();
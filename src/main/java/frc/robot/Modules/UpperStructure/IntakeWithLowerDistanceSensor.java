@@ -4,6 +4,7 @@ import frc.robot.Drivers.DistanceSensors.DistanceSensor;
 import frc.robot.Drivers.Motors.Motor;
 import frc.robot.Services.RobotServiceBase;
 import frc.robot.Utils.EasyShuffleBoard;
+import frc.robot.Utils.FlightDataRecorder;
 import frc.robot.Utils.RobotConfigReader;
 import frc.robot.Utils.RobotModuleOperatorMarker;
 
@@ -13,6 +14,8 @@ public class IntakeWithLowerDistanceSensor extends Intake {
     private final RobotConfigReader robotConfig;
     private boolean noteAlreadyInIntake, noteSensedByDistanceSensorDuringCurrentIntakeTask, noteAlreadyInPositionDuringCurrentIntakeTask;
     private double timeSinceNoteInPosition;
+    private final RobotConfigReader.ConfigHandle intakePowerConfig, intakeAidPowerConfig, moveNoteDownInsideIntakePowerConfig, moveNoteUpInsideIntakePowerConfig,
+            revertPowerConfig, launchPowerConfig, distanceSensorThresholdConfig, splitTimeConfig, launchTimeConfig, moveBackToPositionTimeConfig;
 
     public IntakeWithLowerDistanceSensor(Motor intakeMotor, Motor intakeAidMotor, DistanceSensor intakeDistanceSensor, RobotConfigReader robotConfig) {
         super();
@@ -22,6 +25,17 @@ public class IntakeWithLowerDistanceSensor extends Intake {
         super.motors.add(intakeMotor);
         super.motors.add(intakeAidMotor);
         this.robotConfig = robotConfig;
+
+        this.intakePowerConfig = useConfig(robotConfig, "intake", "intakePower");
+        this.intakeAidPowerConfig = useConfig(robotConfig, "intake", "intakeAidPower");
+        this.moveNoteDownInsideIntakePowerConfig = useConfig(robotConfig, "intake", "moveNoteDownInsideIntakePower");
+        this.moveNoteUpInsideIntakePowerConfig = useConfig(robotConfig, "intake", "moveNoteUpInsideIntakePower");
+        this.revertPowerConfig = useConfig(robotConfig, "intake", "revertPower");
+        this.launchPowerConfig = useConfig(robotConfig, "intake", "launchPower");
+        this.distanceSensorThresholdConfig = useConfig(robotConfig, "intake", "distanceSensorThreshold");
+        this.splitTimeConfig = useConfig(robotConfig, "intake", "splitTime");
+        this.launchTimeConfig = useConfig(robotConfig, "intake", "launchTime");
+        this.moveBackToPositionTimeConfig = useConfig(robotConfig, "intake", "moveBackToPositionTime");
     }
 
     @Override
@@ -97,16 +111,22 @@ public class IntakeWithLowerDistanceSensor extends Intake {
     @Override
     public void updateConfigs() {
         // this.intakeAidingMotorPower = robotConfig.getConfig("intake", "intakeAidPower");
-        this.intakePower = robotConfig.getConfig("intake", "intakePower");
-        this.intakeAidingMotorPower = robotConfig.getConfig("intake", "intakeAidPower");
-        this.moveNoteDownInsideIntakePower = robotConfig.getConfig("intake", "moveNoteDownInsideIntakePower");
-        this.moveNoteUpInsideIntakePower = robotConfig.getConfig("intake", "moveNoteUpInsideIntakePower");
-        this.revertPower = robotConfig.getConfig("intake", "revertPower");
-        this.launchPower = robotConfig.getConfig("intake", "launchPower");
-        this.distanceSensorThreshold = robotConfig.getConfig("intake", "distanceSensorThreshold");
-        this.splitTime = robotConfig.getConfig("intake", "splitTime");
-        this.launchTime = robotConfig.getConfig("intake", "launchTime");
-        moveBackToPositionTime = robotConfig.getConfig("intake", "moveBackToPositionTime");
+        this.intakePower = intakePowerConfig.get();
+        this.intakeAidingMotorPower = intakeAidPowerConfig.get();
+        this.moveNoteDownInsideIntakePower = moveNoteDownInsideIntakePowerConfig.get();
+        this.moveNoteUpInsideIntakePower = moveNoteUpInsideIntakePowerConfig.get();
+        this.revertPower = revertPowerConfig.get();
+        this.launchPower = launchPowerConfig.get();
+        this.distanceSensorThreshold = distanceSensorThresholdConfig.get();
+        this.splitTime = splitTimeConfig.get();
+        this.launchTime = launchTimeConfig.get();
+        moveBackToPositionTime = moveBackToPositionTimeConfig.get();
+    }
+
+    @Override
+    public void registerFlightDataChannels(FlightDataRecorder recorder) {
+        super.registerFlightDataChannels(recorder);
+        recorder.registerDistanceSensor(moduleName + "/distance sensor", intakeDistanceSensor);
     }
 
     @Override
@@ -53,6 +53,12 @@ public class LEDStatusLights extends RobotModuleBase {
         onReset();
     }
 
+    /** the animation is only for display, so it is shed when the main loop is overloaded */
+    @Override
+    public boolean isSheddable() {
+        return true;
+    }
+
     public void setAnimation(LEDAnimation animation, RobotModuleOperatorMarker operator) {
         if (!isOwner(operator)) return;
         this.animation = animation;
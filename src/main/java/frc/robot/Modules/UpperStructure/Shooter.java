@@ -4,18 +4,16 @@ import frc.robot.Drivers.Motors.Motor;
 import frc.robot.Modules.PositionReader.PositionEstimator;
 import frc.robot.Modules.RobotModuleBase;
 import frc.robot.Utils.ComputerVisionUtils.AprilTagReferredTarget;
-import frc.robot.Utils.EasyShuffleBoard;
+import frc.robot.Utils.FlightDataRecorder;
 import frc.robot.Utils.MathUtils.LookUpTable;
-import frc.robot.Utils.MathUtils.StatisticsUtils;
 import frc.robot.Utils.MathUtils.Vector2D;
 import frc.robot.Utils.MechanismControllers.EncoderMotorMechanism;
 import frc.robot.Utils.MechanismControllers.FlyWheelSpeedController;
 import frc.robot.Utils.RobotConfigReader;
 import frc.robot.Utils.RobotModuleOperatorMarker;
+import frc.robot.Utils.TelemetryPublisher;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 public class Shooter extends RobotModuleBase {
     public enum ShooterMode {
@@ -35,6 +33,10 @@ public class Shooter extends RobotModuleBase {
     private double specifiedRPM;
     private double aimingSystemDecidedRPM;
     private ShooterMode currentMode;
+    private final TelemetryPublisher.NumberSlot desiredRPMTelemetry = TelemetryPublisher.register("shooter", "Shooter Desired RPM", TelemetryPublisher.driverDataRateHZ),
+            targetDistanceTelemetry = TelemetryPublisher.register("shooter", "target distance", TelemetryPublisher.driverDataRateHZ),
+            correspondingRPMTelemetry = TelemetryPublisher.register("shooter", "shooter corresponding RPM");
+    private final TelemetryPublisher.NumberSlot[] actualRPMTelemetries;
     public Shooter(EncoderMotorMechanism[] shooters, RobotConfigReader robotConfig) {
         this(shooters, null, robotConfig);
     }
@@ -43,7 +45,12 @@ public class Shooter extends RobotModuleBase {
         this.shooters = shooters;
         this.aimingSystem = aimingSystem;
         this.robotConfig = robotConfig;
+        this.actualRPMTelemetries = new TelemetryPublisher.NumberSlot[shooters.length];
+        for (int i = 0; i < shooters.length; i++)
+            actualRPMTelemetries[i] = TelemetryPublisher.register("shooter", "flyWheel " + i + " actual RPM", TelemetryPublisher.driverDataRateHZ);
         super.motors.addAll(Arrays.asList(shooters));
+        if (aimingSystem != null)
+            super.declareReading(aimingSystem.chassisPositionEstimator, aimingSystem.target);
         flyWheelSpeedController = new FlyWheelSpeedController(
                 new FlyWheelSpeedController.FlyWheelSpeedControllerProfile(0,0,0,0,0,0));
         for (EncoderMotorMechanism shooter:shooters)
@@ -51,6 +58,38 @@ public class Shooter extends RobotModuleBase {
 
         this.encoderVelocityToRPM = 60.0 / robotConfig.getConfig("shooter", "shooterMotorEncoderTicksPerRevolution");
         this.shooterReadyErrorBound = robotConfig.getConfig("shooter", "flyWheelSpeedErrorTolerance") * robotConfig.getConfig("shooter", "speedControllerMaximumSpeed");
+
+        this.defaultShootingRPMConfig = useConfig(robotConfig, "shooter", "defaultShootingRPM");
+        this.preparingForShootRPMConfig = useConfig(robotConfig, "shooter", "preparingForShootRPM");
+        this.amplifyRPMConfig = useConfig(robotConfig, "shooter", "amplifyRPM");
+        this.idleRPMConfig = useConfig(robotConfig, "shooter", "idleRPM");
+        this.projectileSpeedConfig = useConfig(robotConfig, "shooter", "projectileSpeed");
+        this.shootingRangeConfig = useConfig(robotConfig, "shooter", "shootingRange");
+        this.additionalInAdvanceTimeConfig = useConfig(robotConfig, "shooter", "additionalInAdvanceTime");
+        this.speedControllerProportionGainConfig = useConfig(robotConfig, "shooter", "speedControllerProportionGain");
+        this.speedControllerFeedForwardGainConfig = useConfig(robotConfig, "shooter", "speedControllerFeedForwardGain");
+        this.speedControllerFrictionGainConfig = useConfig(robotConfig, "shooter", "speedControllerFrictionGain");
+        this.speedControllerFeedForwardDelayConfig = useConfig(robotConfig, "shooter", "speedControllerFeedForwardDelay");
+        this.speedControllerMaximumSpeedConfig = useConfig(robotConfig, "shooter", "speedControllerMaximumSpeed");
+        this.speedControllerTimeNeededToAccelerateToMaxSpeedConfig = useConfig(robotConfig, "shooter", "speedControllerTimeNeededToAccelerateToMaxSpeed");
+        this.smoothAimingCurveConfig = useConfig(robotConfig, "shooter", "smoothAimingCurve");
+
+        int aimingTablePointsCount = 0;
+        while (robotConfig.hasConfig("shooter", "targetDistance" + aimingTablePointsCount)
+                && robotConfig.hasConfig("shooter", "shooterRPM" + aimingTablePointsCount)
+                && robotConfig.hasConfig("shooter", "armAngle" + aimingTablePointsCount))
+            aimingTablePointsCount++;
+        this.targetDistanceConfigs = new RobotConfigReader.ConfigHandle[aimingTablePointsCount];
+        this.shooterRPMConfigs = new RobotConfigReader.ConfigHandle[aimingTablePointsCount];
+        this.armAngleConfigs = new RobotConfigReader.ConfigHandle[aimingTablePointsCount];
+        for (int i = 0; i < aimingTablePointsCount; i++) {
+            targetDistanceConfigs[i] = useConfig(robotConfig, "shooter", "targetDistance" + i);
+            shooterRPMConfigs[i] = useConfig(robotConfig, "shooter", "shooterRPM" + i);
+            armAngleConfigs[i] = useConfig(robotConfig, "shooter", "armAngle" + i);
+        }
+        this.speakerTargetDistances = new double[aimingTablePointsCount];
+        this.shooterRPMs = new double[aimingTablePointsCount];
+        this.armAngles = new double[aimingTablePointsCount];
     }
 
     /**
@@ -105,9 +144,9 @@ public class Shooter extends RobotModuleBase {
 
         flyWheelSpeedController.setDesiredSpeed(desiredEncoderVelocity);
 
-        EasyShuffleBoard.putNumber("shooter", "Shooter Desired RPM", desiredEncoderVelocity * encoderVelocityToRPM);
+        desiredRPMTelemetry.set(desiredEncoderVelocity * encoderVelocityToRPM);
         for (int i = 0; i<shooters.length; i++)
-            EasyShuffleBoard.putNumber("shooter", "flyWheel " + i + " actual RPM", shooters[i].getEncoderVelocity() * encoderVelocityToRPM);
+            actualRPMTelemetries[i].set(shooters[i].getEncoderVelocity() * encoderVelocityToRPM);
 
         for (EncoderMotorMechanism shooter : shooters)
             shooter.updateWithController(this);
@@ -140,6 +179,13 @@ public class Shooter extends RobotModuleBase {
         };
     }
 
+    @Override
+    public void registerFlightDataChannels(FlightDataRecorder recorder) {
+        super.registerFlightDataChannels(recorder);
+        for (int i = 0; i < shooters.length; i++)
+            recorder.registerEncoder(moduleName + "/flyWheel " + i, shooters[i]);
+    }
+
     @Override
     public void onReset() {
         setDesiredSpeed(0, null);
@@ -161,39 +207,66 @@ public class Shooter extends RobotModuleBase {
 
     /** the desired arm position for aiming, in degrees and in reference to the default shooting position of the arm, which is specified in the arm configs */
     private LookUpTable armPositionDegreesToTargetDistanceLookUpTable;
+
+    private final RobotConfigReader.ConfigHandle defaultShootingRPMConfig, preparingForShootRPMConfig, amplifyRPMConfig, idleRPMConfig,
+            projectileSpeedConfig, shootingRangeConfig, additionalInAdvanceTimeConfig,
+            speedControllerProportionGainConfig, speedControllerFeedForwardGainConfig, speedControllerFrictionGainConfig,
+            speedControllerFeedForwardDelayConfig, speedControllerMaximumSpeedConfig, speedControllerTimeNeededToAccelerateToMaxSpeedConfig,
+            smoothAimingCurveConfig;
+
+    /* the points of the aiming look-up tables, the amount of points is decided by the configs when the module is made */
+    private final RobotConfigReader.ConfigHandle[] targetDistanceConfigs, shooterRPMConfigs, armAngleConfigs;
+    private final double[] speakerTargetDistances, shooterRPMs, armAngles;
     @Override
     public void updateConfigs() {
-        final List<Double> speakerTargetDistances = new ArrayList<>(), shooterRPMs = new ArrayList<>(), armAngles = new ArrayList<>();
-        int i = 0; while (i < 100) {
-            try {
-                speakerTargetDistances.add(robotConfig.getConfig("shooter", "targetDistance" + i));
-                shooterRPMs.add(robotConfig.getConfig("shooter", "shooterRPM"+ i));
-                armAngles.add(robotConfig.getConfig("shooter", "armAngle"+ i));
-                i++;
-            } catch (NullPointerException end) { break; }
-        }
-        this.shooterRPMToTargetDistanceLookUpTable = new LookUpTable(StatisticsUtils.toArray(speakerTargetDistances), StatisticsUtils.toArray(shooterRPMs));
-        this.armPositionDegreesToTargetDistanceLookUpTable = new LookUpTable(StatisticsUtils.toArray(speakerTargetDistances), StatisticsUtils.toArray(armAngles));
+        updateAimingTables();
 
-        this.defaultShootingRPM = robotConfig.getConfig("shooter", "defaultShootingRPM");
-        this.preparingForShootRPM = robotConfig.getConfig("shooter", "preparingForShootRPM");
-        this.amplifyingRPM = robotConfig.getConfig("shooter", "amplifyRPM");
-        this.idleRPM = robotConfig.getConfig("shooter", "idleRPM");
-        this.projectileSpeed = robotConfig.getConfig("shooter", "projectileSpeed");
-        this.shootingRange = robotConfig.getConfig("shooter", "shootingRange");
-        this.additionalInAdvanceTime = robotConfig.getConfig("shooter", "additionalInAdvanceTime");
+        this.defaultShootingRPM = defaultShootingRPMConfig.get();
+        this.preparingForShootRPM = preparingForShootRPMConfig.get();
+        this.amplifyingRPM = amplifyRPMConfig.get();
+        this.idleRPM = idleRPMConfig.get();
+        this.projectileSpeed = projectileSpeedConfig.get();
+        this.shootingRange = shootingRangeConfig.get();
+        this.additionalInAdvanceTime = additionalInAdvanceTimeConfig.get();
 
         final FlyWheelSpeedController.FlyWheelSpeedControllerProfile speedControllerProfile = new FlyWheelSpeedController.FlyWheelSpeedControllerProfile(
-                robotConfig.getConfig("shooter", "speedControllerProportionGain"),
-                robotConfig.getConfig("shooter", "speedControllerFeedForwardGain"),
-                robotConfig.getConfig("shooter", "speedControllerFrictionGain"),
-                robotConfig.getConfig("shooter", "speedControllerFeedForwardDelay"),
-                robotConfig.getConfig("shooter", "speedControllerMaximumSpeed") / this.encoderVelocityToRPM,
-                robotConfig.getConfig("shooter", "speedControllerTimeNeededToAccelerateToMaxSpeed")
+                speedControllerProportionGainConfig.get(),
+                speedControllerFeedForwardGainConfig.get(),
+                speedControllerFrictionGainConfig.get(),
+                speedControllerFeedForwardDelayConfig.get(),
+                speedControllerMaximumSpeedConfig.get() / this.encoderVelocityToRPM,
+                speedControllerTimeNeededToAccelerateToMaxSpeedConfig.get()
         );
         flyWheelSpeedController.setProfile(speedControllerProfile);
     }
 
+    /**
+     * reads the aiming look-up tables from the configs
+     * the tables are only made again when the interpolation mode changes
+     * otherwise, only the points whose values are changed (by tuning) are updated
+     * */
+    private void updateAimingTables() {
+        final int pointsCount = speakerTargetDistances.length;
+        for (int i = 0; i < pointsCount; i++) {
+            speakerTargetDistances[i] = targetDistanceConfigs[i].get();
+            shooterRPMs[i] = shooterRPMConfigs[i].get();
+            armAngles[i] = armAngleConfigs[i].get();
+        }
+        final LookUpTable.InterpolationMode interpolationMode = smoothAimingCurveConfig.get() != 0 ?
+                LookUpTable.InterpolationMode.MONOTONE_CUBIC : LookUpTable.InterpolationMode.LINEAR;
+
+        /* both tables have the same distances, so they are either both updated or both left as they were */
+        if (shooterRPMToTargetDistanceLookUpTable != null
+                && shooterRPMToTargetDistanceLookUpTable.getPointsCount() == pointsCount
+                && shooterRPMToTargetDistanceLookUpTable.getInterpolationMode() == interpolationMode
+                && shooterRPMToTargetDistanceLookUpTable.setPoints(speakerTargetDistances, shooterRPMs)
+                && armPositionDegreesToTargetDistanceLookUpTable.setPoints(speakerTargetDistances, armAngles))
+            return;
+        /* the mode is changed, make new tables (distances that are not in increasing order are rejected by the constructor, as before) */
+        this.shooterRPMToTargetDistanceLookUpTable = new LookUpTable(speakerTargetDistances.clone(), shooterRPMs.clone(), interpolationMode);
+        this.armPositionDegreesToTargetDistanceLookUpTable = new LookUpTable(speakerTargetDistances.clone(), armAngles.clone(), interpolationMode);
+    }
+
     public double getAdditionalInAdvanceTime() {
         return additionalInAdvanceTime;
     }
@@ -228,9 +301,10 @@ public class Shooter extends RobotModuleBase {
         final double distanceToTarget = targetRelativePositionToRobot.getMagnitude();
 
         // System.out.println("shooter corresponding (RPM): " + shooterRPMToTargetDistanceLookUpTable.getYPrediction(distanceToTarget));
-        EasyShuffleBoard.putNumber("shooter", "target distance", distanceToTarget);
-        EasyShuffleBoard.putNumber("shooter", "shooter corresponding RPM",  shooterRPMToTargetDistanceLookUpTable.getYPrediction(distanceToTarget));
-        return shooterRPMToTargetDistanceLookUpTable.getYPrediction(distanceToTarget);
+        final double shooterRPM = shooterRPMToTargetDistanceLookUpTable.getYPrediction(distanceToTarget);
+        targetDistanceTelemetry.set(distanceToTarget);
+        correspondingRPMTelemetry.set(shooterRPM);
+        return shooterRPM;
     }
 
     public double getProjectileSpeed() {
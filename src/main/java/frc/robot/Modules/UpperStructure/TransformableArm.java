@@ -5,17 +5,15 @@ import frc.robot.Drivers.Motors.Motor;
 import frc.robot.Modules.RobotModuleBase;
 import frc.robot.Services.RobotServiceBase;
 import frc.robot.Utils.EasyShuffleBoard;
+import frc.robot.Utils.FlightDataRecorder;
 import frc.robot.Utils.MathUtils.AngleUtils;
 import frc.robot.Utils.MathUtils.LookUpTable;
-import frc.robot.Utils.MathUtils.StatisticsUtils;
 import frc.robot.Utils.MechanismControllers.ArmGravityController;
 import frc.robot.Utils.MechanismControllers.EncoderMotorMechanism;
 import frc.robot.Utils.MechanismControllers.SimpleArmController;
 import frc.robot.Utils.RobotConfigReader;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 
 public class TransformableArm extends RobotModuleBase {
@@ -26,6 +24,20 @@ public class TransformableArm extends RobotModuleBase {
     private SimpleArmController simpleArmController;
     private double errorAsArmReady = 0;
     private final RobotConfigReader robotConfig;
+    private final RobotConfigReader.ConfigHandle maximumPowerConfig, errorStartDecelerateConfig, minPowerToMoveConfig, errorToleranceConfig, errorToleranceAsInPositionConfig,
+            feedForwardTimeConfig, errorAccumulationProportionConfig, errorAccumulationLimitConfig, maxAccelerationConfig, maxVelocityConfig, inAdvanceTimeConfig,
+            lowerPositionLimitConfig, upperPositionLimitConfig;
+    /** the configs of each transformer position, by the ordinal of the position */
+    private final RobotConfigReader.ConfigHandle[] positionConfigs;
+    /** the configs of the simple arm controller: max power when moving up and down, power needed to move up and down; null if they are not in the configs */
+    private final RobotConfigReader.ConfigHandle[] simpleArmControllerConfigs;
+    /** the points of the gravity torque look-up table, the encoder positions are in degrees in the configs and in radian here */
+    private final RobotConfigReader.ConfigHandle[] gravityTorqueTableEncoderPositionConfigs, gravityTorqueConfigs;
+    private final double[] gravityTorqueTableEncoderPositions, gravityTorques;
+    private LookUpTable gravityTorqueLookUpTable;
+    private long loadedGravityTorqueTableVersion;
+    /** in radian */
+    private double lowerPositionLimit, upperPositionLimit;
     public enum TransformerPosition {
         /** the position of the arm such that the robot is balanced */
         DEFAULT,
@@ -57,10 +69,53 @@ public class TransformableArm extends RobotModuleBase {
         this.shooterModule = shooterModule;
         super.motors.add(armLifterMotor);
         this.armEncoder = armEncoder;
+
+        this.maximumPowerConfig = useConfig(robotConfig, "arm", "maximumPower");
+        this.errorStartDecelerateConfig = useConfig(robotConfig, "arm", "errorStartDecelerate");
+        this.minPowerToMoveConfig = useConfig(robotConfig, "arm", "minPowerToMove");
+        this.errorToleranceConfig = useConfig(robotConfig, "arm", "errorTolerance");
+        this.errorToleranceAsInPositionConfig = useConfig(robotConfig, "arm", "errorToleranceAsInPosition");
+        this.feedForwardTimeConfig = useConfig(robotConfig, "arm", "feedForwardTime");
+        this.errorAccumulationProportionConfig = useConfig(robotConfig, "arm", "errorAccumulationProportion");
+        this.errorAccumulationLimitConfig = useConfig(robotConfig, "arm", "errorAccumulationLimit");
+        this.maxAccelerationConfig = useConfig(robotConfig, "arm", "maxAcceleration");
+        this.maxVelocityConfig = useConfig(robotConfig, "arm", "maxVelocity");
+        this.inAdvanceTimeConfig = useConfig(robotConfig, "arm", "inAdvanceTime");
+        this.lowerPositionLimitConfig = useConfig(robotConfig, "arm", "lowerPositionLimit");
+        this.upperPositionLimitConfig = useConfig(robotConfig, "arm", "upperPositionLimit");
+        this.positionConfigs = new RobotConfigReader.ConfigHandle[TransformerPosition.values().length];
+        for (TransformerPosition transformerPosition:TransformerPosition.values())
+            positionConfigs[transformerPosition.ordinal()] = useConfig(robotConfig, "arm", "position-" + transformerPosition.name());
+
+        int gravityTorqueTablePointsCount = 0;
+        while (robotConfig.hasConfig("arm", "encoderPosition" + gravityTorqueTablePointsCount)
+                && robotConfig.hasConfig("arm", "gravityTorque" + gravityTorqueTablePointsCount))
+            gravityTorqueTablePointsCount++;
+        this.gravityTorqueTableEncoderPositionConfigs = new RobotConfigReader.ConfigHandle[gravityTorqueTablePointsCount];
+        this.gravityTorqueConfigs = new RobotConfigReader.ConfigHandle[gravityTorqueTablePointsCount];
+        for (int i = 0; i < gravityTorqueTablePointsCount; i++) {
+            gravityTorqueTableEncoderPositionConfigs[i] = useConfig(robotConfig, "arm", "encoderPosition" + i);
+            gravityTorqueConfigs[i] = useConfig(robotConfig, "arm", "gravityTorque" + i);
+        }
+        this.gravityTorqueTableEncoderPositions = new double[gravityTorqueTablePointsCount];
+        this.gravityTorques = new double[gravityTorqueTablePointsCount];
+
+        /* the simple arm controller is optional, it keeps its default profile if it is not in the configs */
+        final String[] simpleArmControllerConfigNames = {"maxPowerWhenMovingUp", "maxPowerWhenMovingDown", "powerNeededToMoveUp", "powerNeededToMoveDown"};
+        boolean simpleArmControllerConfigured = true;
+        for (String configName:simpleArmControllerConfigNames)
+            simpleArmControllerConfigured &= robotConfig.hasConfig("arm", configName);
+        if (simpleArmControllerConfigured) {
+            this.simpleArmControllerConfigs = new RobotConfigReader.ConfigHandle[simpleArmControllerConfigNames.length];
+            for (int i = 0; i < simpleArmControllerConfigNames.length; i++)
+                simpleArmControllerConfigs[i] = useConfig(robotConfig, "arm", simpleArmControllerConfigNames[i]);
+        } else this.simpleArmControllerConfigs = null;
+
         this.armLifterMechanism = new EncoderMotorMechanism(armEncoder, armLifterMotor);
         this.armController = new ArmGravityController(new ArmGravityController.ArmProfile(0, 0, 0, 0,0,0,0 , 0,0,0, null), armLifterMechanism.getEncoderPosition());
         this.simpleArmController = new SimpleArmController(0, 0, Math.PI, 0, 0, 0);
         this.robotConfig = robotConfig;
+        super.declareReading(shooterModule);
     }
 
     @Override
@@ -84,8 +139,8 @@ public class TransformableArm extends RobotModuleBase {
         /* disabled when shooter test */
         if (this.desiredPosition == TransformerPosition.SHOOT_NOTE && shooterModule != null) {
             desiredEncoderPosition = desiredEncoderPositionTable.get(TransformerPosition.SHOOT_NOTE) + shooterModule.getArmPositionWithAimingSystem(shooterModule.getAdditionalInAdvanceTime());
-            desiredEncoderPosition = Math.max(Math.toRadians(robotConfig.getConfig("arm", "lowerPositionLimit")), desiredEncoderPosition);
-            desiredEncoderPosition = Math.min(Math.toRadians(robotConfig.getConfig("arm", "upperPositionLimit")), desiredEncoderPosition);
+            desiredEncoderPosition = Math.max(lowerPositionLimit, desiredEncoderPosition);
+            desiredEncoderPosition = Math.min(upperPositionLimit, desiredEncoderPosition);
             armController.updateDesiredPosition(desiredEncoderPosition);
             desiredEncoderPosition = desiredEncoderPositionTable.get(TransformerPosition.SHOOT_NOTE) + shooterModule.getArmPositionWithAimingSystem(0);
         }
@@ -117,45 +172,62 @@ public class TransformableArm extends RobotModuleBase {
 
     @Override
     public void updateConfigs() {
-        final List<Double> encoderPositions = new ArrayList<>(), gravityTorques = new ArrayList<>();
-        int i = 0; while (i < 100) {
-            try {
-                encoderPositions.add(Math.toRadians(robotConfig.getConfig("arm", "encoderPosition" + i)));
-                gravityTorques.add(robotConfig.getConfig("arm", "gravityTorque"+ i));
-                i++;
-            } catch (NullPointerException end) { break; }
-        }
-        final LookUpTable gravityTorqueLookUpTable = new LookUpTable(StatisticsUtils.toArray(encoderPositions), StatisticsUtils.toArray(gravityTorques));
+        updateGravityTorqueLookUpTable();
 
-        errorAsArmReady = Math.toRadians(robotConfig.getConfig("arm", "errorTolerance")) * robotConfig.getConfig("arm", "errorToleranceAsInPosition");
+        errorAsArmReady = Math.toRadians(errorToleranceConfig.get()) * errorToleranceAsInPositionConfig.get();
+        lowerPositionLimit = Math.toRadians(lowerPositionLimitConfig.get());
+        upperPositionLimit = Math.toRadians(upperPositionLimitConfig.get());
         this.armController.updateArmProfile(new ArmGravityController.ArmProfile(
-                robotConfig.getConfig("arm", "maximumPower"),
-                Math.toRadians(robotConfig.getConfig("arm", "errorStartDecelerate")),
-                robotConfig.getConfig("arm", "minPowerToMove"),
-                Math.toRadians(robotConfig.getConfig("arm", "errorTolerance")),
-                robotConfig.getConfig("arm", "feedForwardTime"),
-                robotConfig.getConfig("arm", "errorAccumulationProportion"),
-                Math.toRadians(robotConfig.getConfig("arm", "errorAccumulationLimit")),
-                Math.toRadians(robotConfig.getConfig("arm", "maxAcceleration")),
-                Math.toRadians(robotConfig.getConfig("arm", "maxVelocity")),
-                robotConfig.getConfig("arm", "inAdvanceTime"),
+                maximumPowerConfig.get(),
+                Math.toRadians(errorStartDecelerateConfig.get()),
+                minPowerToMoveConfig.get(),
+                Math.toRadians(errorToleranceConfig.get()),
+                feedForwardTimeConfig.get(),
+                errorAccumulationProportionConfig.get(),
+                Math.toRadians(errorAccumulationLimitConfig.get()),
+                Math.toRadians(maxAccelerationConfig.get()),
+                Math.toRadians(maxVelocityConfig.get()),
+                inAdvanceTimeConfig.get(),
                 gravityTorqueLookUpTable
         ));
 
-        try {
+        if (simpleArmControllerConfigs != null)
             this.simpleArmController = new SimpleArmController(
-                    robotConfig.getConfig("arm", "maxPowerWhenMovingUp"),
-                    robotConfig.getConfig("arm", "maxPowerWhenMovingDown"),
-                    Math.toRadians(robotConfig.getConfig("arm", "errorStartDecelerate")),
-                    robotConfig.getConfig("arm", "powerNeededToMoveUp"),
-                    robotConfig.getConfig("arm", "powerNeededToMoveDown"),
-                    Math.toRadians(robotConfig.getConfig("arm", "errorTolerance"))
+                    simpleArmControllerConfigs[0].get(),
+                    simpleArmControllerConfigs[1].get(),
+                    Math.toRadians(errorStartDecelerateConfig.get()),
+                    simpleArmControllerConfigs[2].get(),
+                    simpleArmControllerConfigs[3].get(),
+                    Math.toRadians(errorToleranceConfig.get())
             );
-        } catch (NullPointerException ignored) {}
-
 
         for (TransformerPosition transformerPosition:TransformerPosition.values())
-            desiredEncoderPositionTable.put(transformerPosition, Math.toRadians(robotConfig.getConfig("arm", "position-"+transformerPosition.name())));
+            desiredEncoderPositionTable.put(transformerPosition, Math.toRadians(positionConfigs[transformerPosition.ordinal()].get()));
+    }
+
+    /**
+     * makes the gravity torque look-up table from the configs
+     * the table is only made again when one of its points is changed, the amount of points is decided when the module is made
+     * */
+    private void updateGravityTorqueLookUpTable() {
+        long gravityTorqueTableVersion = 0;
+        for (int i = 0; i < gravityTorqueTableEncoderPositions.length; i++)
+            gravityTorqueTableVersion += gravityTorqueTableEncoderPositionConfigs[i].getVersion() + gravityTorqueConfigs[i].getVersion();
+        if (gravityTorqueLookUpTable != null && gravityTorqueTableVersion == loadedGravityTorqueTableVersion)
+            return;
+
+        for (int i = 0; i < gravityTorqueTableEncoderPositions.length; i++) {
+            gravityTorqueTableEncoderPositions[i] = Math.toRadians(gravityTorqueTableEncoderPositionConfigs[i].get());
+            gravityTorques[i] = gravityTorqueConfigs[i].get();
+        }
+        gravityTorqueLookUpTable = new LookUpTable(gravityTorqueTableEncoderPositions.clone(), gravityTorques.clone());
+        loadedGravityTorqueTableVersion = gravityTorqueTableVersion;
+    }
+
+    @Override
+    public void registerFlightDataChannels(FlightDataRecorder recorder) {
+        super.registerFlightDataChannels(recorder);
+        recorder.registerEncoder(moduleName + "/arm encoder", armEncoder);
     }
 
     @Override
@@ -168,7 +240,7 @@ public class TransformableArm extends RobotModuleBase {
 
         this.armEncoder.setZeroPosition(robotConfig.getConfig("arm", "encoderZeroPositionRadians"));
         this.armLifterMechanism.setMotorZeroPowerBehavior(Motor.ZeroPowerBehavior.BRAKE, this);
-        this.armLifterMechanism.setSoftEncoderLimit(Math.toRadians(robotConfig.getConfig("arm", "lowerPositionLimit")), Math.toRadians(robotConfig.getConfig("arm", "upperPositionLimit")));
+        this.armLifterMechanism.setSoftEncoderLimit(lowerPositionLimit, upperPositionLimit);
     }
 
     public void setTransformerDesiredPosition(TransformerPosition desiredPosition, RobotServiceBase operatorService) {
@@ -15,6 +15,8 @@ import edu.wpi.first.math.geometry.Pose2d;
 import edu.wpi.first.math.geometry.Rotation2d;
 import edu.wpi.first.wpilibj.AddressableLED;
 import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Drivers.DistanceSensors.Rev2mDistanceSensorEncapsulation;
 import frc.robot.Drivers.Encoders.CanCoder;
@@ -24,11 +26,16 @@ import frc.robot.Drivers.IMUs.SimpleGyro;
 import frc.robot.Drivers.Motors.Motor;
 import frc.robot.Drivers.Motors.MotorsSet;
 import frc.robot.Drivers.Motors.TalonFXMotor;
+import frc.robot.Drivers.PhoenixSignalsRegistry;
 import frc.robot.Drivers.Visions.FixedAnglePositionTrackingCamera;
 import frc.robot.Drivers.Visions.JetsonDetectionAppClient;
+import frc.robot.Drivers.Visions.RawObjectDetectionCamera;
+import frc.robot.AutoStagePrograms.FieldPositions;
 import frc.robot.Drivers.Visions.TargetFieldPositionTracker;
-import frc.robot.Modules.PositionReader.SwerveWheelPositionEstimator;
-import frc.robot.Modules.PositionReader.SwerveWheelPositionEstimatorCurveOptimized;
+import frc.robot.Modules.PositionReader.KalmanFilterPositionEstimator;
+import frc.robot.Modules.PositionReader.PositionEstimator;
+import frc.robot.Modules.PositionReader.SwerveWheelHighFrequencyPositionEstimator;
+import frc.robot.Modules.PhasedModuleScheduler;
 import frc.robot.Modules.RobotModuleBase;
 import frc.robot.Modules.Chassis.SwerveBasedChassis;
 import frc.robot.Modules.Chassis.SwerveWheel;
@@ -48,12 +55,13 @@ import frc.robot.Utils.MechanismControllers.EncoderMotorMechanism;
  * note that services are not included in this field
  * */
 public class RobotCore {
-        private static final long printTimeIfTimeMillisExceeds = 20;
-
         public RobotConfigReader robotConfig;
         public final SwerveWheel frontLeftWheel, backLeftWheel, frontRightWheel, backRightWheel;
         public final SimpleGyro gyro;
-        public final SwerveWheelPositionEstimator positionReader;
+        /** the odometry, runs on a thread of its own; the only module that calibrates the gyro */
+        public final SwerveWheelHighFrequencyPositionEstimator odometry;
+        /** fuses the odometry with the april tags and the phantom vision (once the position is set on the field), the pose that the chassis, the aiming system and the services use */
+        public final KalmanFilterPositionEstimator positionReader;
         public final SwerveBasedChassis chassisModule;
         public final JetsonDetectionAppClient aprilTagDetectionAppClient, noteDetectionAppClient;
         public final TargetFieldPositionTracker aprilTagPositionTrackingCamera, notePositionTrackingCamera;
@@ -66,12 +74,56 @@ public class RobotCore {
         public final AprilTagReferredTarget speakerTarget, amplifierTarget, noteTarget;
         public final LEDStatusLights statusLight;
 
+        /** the clock of the main loop, ticked once at the start of every cycle */
+        public final LoopClock loopClock = new LoopClock(1.0 / RobotShell.updateFreq);
+        /** records the time taken by each part of the main loop, published once every second */
+        public final LoopTimingProfiler loopTimingProfiler = new LoopTimingProfiler(1);
+        /** records the inputs and outputs of every module every cycle, for debugging after the match */
+        public final FlightDataRecorder flightDataRecorder = new FlightDataRecorder();
+        /** the results of the cameras recorded, taken right after the trackers read the cameras, null before the robot is initialized */
+        private FlightDataRecorder.CameraSnapshot aprilTagCameraRecording, noteCameraRecording;
+        private final TimingHistogram cycleTiming = loopTimingProfiler.registerComponent("main loop cycle"),
+                aprilTagCameraUpdateTiming = loopTimingProfiler.registerComponent("april tag camera update"),
+                aprilTagCameraDashboardTiming = loopTimingProfiler.registerComponent("april tag camera dashboard"),
+                noteCameraUpdateTiming = loopTimingProfiler.registerComponent("note camera update"),
+                noteCameraDashboardTiming = loopTimingProfiler.registerComponent("note camera dashboard"),
+                chassisDashboardTiming = loopTimingProfiler.registerComponent("chassis dashboard"),
+                phantomVisionTiming = loopTimingProfiler.registerComponent("phantom vision"),
+                tuningConfigsTiming = loopTimingProfiler.registerComponent("tuning configs from dashboard"),
+                phoenixSignalsRefreshTiming = loopTimingProfiler.registerComponent("phoenix signals refresh"),
+                flightDataRecordingTiming = loopTimingProfiler.registerComponent("flight data recording");
+        private final Map<RobotServiceBase, TimingHistogram> servicesTimingsMap = new HashMap<>();
+        private TimingHistogram[] servicesTimings = new TimingHistogram[0];
+
+        /* the numbers on the dashboard, written here and sent by the telemetry publisher */
+        private final TelemetryPublisher.NumberSlot[] speakerTargetTelemetry = registerTargetTelemetry("apriltag"),
+                noteTargetTelemetry = registerTargetTelemetry("note-detection");
+        private final TelemetryPublisher.NumberSlot tag3XTelemetry = TelemetryPublisher.register("apriltag", "Tag 3 position to robot X"),
+                tag3YTelemetry = TelemetryPublisher.register("apriltag", "Tag 3 position to robot Y"),
+                tag4XTelemetry = TelemetryPublisher.register("apriltag", "Tag 4 position to robot X"),
+                tag4YTelemetry = TelemetryPublisher.register("apriltag", "Tag 4 position to robot Y"),
+                phantomXTelemetry = TelemetryPublisher.register("phantom vision", "position x"),
+                phantomYTelemetry = TelemetryPublisher.register("phantom vision", "position y");
+
+        /*
+         * when the cycles keep overrunning the period of the main loop, the robot goes into degraded mode
+         * in degraded mode, the non-critical works (dashboard messages, phantom vision test and the lights) are skipped
+         * while the control-critical modules, such as the chassis and the position estimator, keeps running
+         * full mode resumes once the cycles are fast enough for a while
+         * */
+        private static final int overrunsToEnterDegradedMode = 5;
+        private static final int healthyCyclesToResumeFullMode = 100;
+        /** a cycle is considered healthy if it takes less than this portion of the period */
+        private static final double healthyCycleTimePortion = 0.7;
+        private boolean degradedMode = false;
+        private int consecutiveOverruns = 0, consecutiveHealthyCycles = 0;
+
         private final List<String> configsToTune = new ArrayList<>(1);
         private final List<RobotModuleBase> modules;
+        private final PhasedModuleScheduler moduleScheduler;
         private List<RobotServiceBase> services;
         protected boolean wasEnabled;
         private Vector2D chassisCurrentPositionForCameraCalculation = new Vector2D();
-        private double chassisCurrentRotationForCameraCalculation = 0;
 
         /**
          * creates a robot core
@@ -79,6 +131,8 @@ public class RobotCore {
          * */
         public RobotCore(String configName) {
                 System.out.println("<-- Robot Core | creating robot... -->");
+                /* the robot is created and updated by the main thread of wpilib, the only thread that can touch shuffleboard */
+                EasyShuffleBoard.setMainThread(Thread.currentThread());
                 modules = new ArrayList<>();
                 services = new ArrayList<>();
 
@@ -89,43 +143,36 @@ public class RobotCore {
                         robotConfig = new RobotConfigReader(configName);
                 }
 
-                frontLeftWheel = createSwerveWheel("frontLeft", 1, new Vector2D(new double[] { -0.6, 0.6 }));
+                frontLeftWheel = createSwerveWheel(swerveWheelNames[0], 1, swerveWheelInstallationPositions[0]);
                 modules.add(frontLeftWheel);
 
-                backLeftWheel = createSwerveWheel("backLeft", 2, new Vector2D(new double[] { -0.6, -0.6 }));
+                backLeftWheel = createSwerveWheel(swerveWheelNames[1], 2, swerveWheelInstallationPositions[1]);
                 modules.add(backLeftWheel);
 
-                frontRightWheel = createSwerveWheel("frontRight", 3, new Vector2D(new double[] { 0.6, 0.6 }));
+                frontRightWheel = createSwerveWheel(swerveWheelNames[2], 3, swerveWheelInstallationPositions[2]);
                 modules.add(frontRightWheel);
 
-                backRightWheel = createSwerveWheel("backRight", 4, new Vector2D(new double[] { 0.6, -0.6 }));
+                backRightWheel = createSwerveWheel(swerveWheelNames[3], 4, swerveWheelInstallationPositions[3]);
                 modules.add(backRightWheel);
 
-                this.gyro = new SimpleGyro(0, false, new PigeonsIMU((int) robotConfig.getConfig("hardware/gyroPort")));
+                final PigeonsIMU pigeon = new PigeonsIMU((int) robotConfig.getConfig("hardware/gyroPort"));
+                this.gyro = new SimpleGyro(0, false, pigeon);
+                flightDataRecorder.registerRawGyro("gyro", pigeon);
 
                 final SwerveWheel[] swerveWheels = new SwerveWheel[] {frontLeftWheel, frontRightWheel, backLeftWheel, backRightWheel};
-                positionReader = new SwerveWheelPositionEstimator(swerveWheels, gyro);
-                modules.add(positionReader);
+                odometry = new SwerveWheelHighFrequencyPositionEstimator(swerveWheels, gyro);
+                modules.add(odometry);
 
-                SwerveWheelPositionEstimatorCurveOptimized testPositionEstimator = new SwerveWheelPositionEstimatorCurveOptimized(swerveWheels, gyro);
-                modules.add(testPositionEstimator);
+                /* TODO: the following into robot config */
+                aprilTagDetectionAppClient = new JetsonDetectionAppClient("AprilTagDetector", "onbot-jetson.local", 8888);
+                aprilTagPositionTrackingCamera = createAprilTagPositionTrackingCamera(aprilTagDetectionAppClient);
+
+                positionReader = createPositionReader(odometry, aprilTagPositionTrackingCamera);
+                modules.add(positionReader);
 
                 this.chassisModule = new SwerveBasedChassis(swerveWheels, gyro, robotConfig, positionReader);
                 modules.add(chassisModule);
 
-
-                /* TODO: the following into robot config */
-                aprilTagDetectionAppClient = new JetsonDetectionAppClient("AprilTagDetector", "onbot-jetson.local", 8888);
-                final double[] targetHeights = new double[] {100, 100, 100, 100, 100, 100};
-                aprilTagPositionTrackingCamera = new FixedAnglePositionTrackingCamera(
-                        aprilTagDetectionAppClient,
-                        new FixedAngleCameraProfile(
-                                0.2984,
-                                -0.00181,
-                                -0.00107
-                        ),
-                        targetHeights
-                );
                 noteDetectionAppClient = new JetsonDetectionAppClient("NoteDetector", "onbot-jetson.local", 8889, new double[] {640, 480});
                 notePositionTrackingCamera = new FixedAnglePositionTrackingCamera(
                         noteDetectionAppClient,
@@ -138,19 +185,16 @@ public class RobotCore {
                         new Rotation2D(Math.PI)
                 );
 
-                final Map<Integer, Vector2D> speakerTargetAprilTagReferences = new HashMap<>(), amplifierTargetAprilTagReferences = new HashMap<>(), noteTargetReferences = new HashMap<>();
-                speakerTargetAprilTagReferences.put(4, new Vector2D(new double[] {0, -0.2}));
-                // speakerTargetAprilTagReferences.put(3, new Vector2D(new double[] {-0.5,0}));
+                final Map<Integer, Vector2D> speakerTargetAprilTagReferences = getSpeakerTargetAprilTagReferences(), amplifierTargetAprilTagReferences = new HashMap<>(), noteTargetReferences = new HashMap<>();
                 // amplifierTargetAprilTagReferences.put(5, new Vector2D(new double[] {0, 0}));
-                speakerTargetAprilTagReferences.put(7, new Vector2D(new double[] {0, -0.2}));
-                // speakerTargetAprilTagReferences.put(8, new Vector2D(new double[] {-0.5,0}));
                 // amplifierTargetAprilTagReferences.put(6, new Vector2D(new double[] {0, 0}));
 
                 noteTargetReferences.put(1, new Vector2D()); // the id of note is always 0, and the note is itself the reference so the relative position is (0,0)
-                speakerTarget = new AprilTagReferredTarget(aprilTagPositionTrackingCamera, speakerTargetAprilTagReferences);
-                amplifierTarget = new AprilTagReferredTarget(aprilTagPositionTrackingCamera, amplifierTargetAprilTagReferences);
+                /* the speaker and amplifier stay still, so they are smoothed over more frames than the notes */
+                speakerTarget = new AprilTagReferredTarget(aprilTagPositionTrackingCamera, speakerTargetAprilTagReferences, speakerTargetWindowSize);
+                amplifierTarget = new AprilTagReferredTarget(aprilTagPositionTrackingCamera, amplifierTargetAprilTagReferences, 8);
 
-                noteTarget = new AprilTagReferredTarget(notePositionTrackingCamera, noteTargetReferences); // we call it april tag referred target but it is actually recognized by detect-net app
+                noteTarget = new AprilTagReferredTarget(notePositionTrackingCamera, noteTargetReferences, 3); // we call it april tag referred target but it is actually recognized by detect-net app
                 final Shooter.AimingSystem aimingSystem = new Shooter.AimingSystem(positionReader, speakerTarget, robotConfig);
                 final EncoderMotorMechanism[] shooterMechanisms = new EncoderMotorMechanism[] {
                         new TalonFXMotor(
@@ -193,6 +237,8 @@ public class RobotCore {
 
                 this.statusLight = new LEDStatusLights(new AddressableLED(0), new AddressableLEDBuffer(155)); modules.add(statusLight);
                 // this.statusLight = null;
+
+                this.moduleScheduler = new PhasedModuleScheduler(modules, 2, loopTimingProfiler);
         }
 
         private SwerveWheel createSwerveWheel(String name, int id, Vector2D wheelInstallationPosition) {
@@ -207,9 +253,7 @@ public class RobotCore {
                         wheelInstallationPosition,
                         robotConfig, 
                         id, 
-                        robotConfig.getConfig("hardware/"+name+"WheelZeroPosition") 
-                                + (robotConfig.getConfig("hardware/"+name+"WheelSteerEncoderReversed") == 1 ? 
-                                        (Math.PI / 2) : (-Math.PI / 2))
+                        getSwerveWheelEncoderBias(robotConfig, name)
                 );
         }
 
@@ -223,12 +267,78 @@ public class RobotCore {
                         wheelInstallationPosition,
                         robotConfig,
                         id,
-                        robotConfig.getConfig("hardware/"+name+"WheelZeroPosition")
-                                + (robotConfig.getConfig("hardware/"+name+"WheelSteerEncoderReversed") == 1 ?
-                                (Math.PI / 2) : (-Math.PI / 2))
+                        getSwerveWheelEncoderBias(robotConfig, name)
                 );
         }
 
+        /*
+         * the wiring of the robot, shared with LogReplay so that a replayed robot is built the same way as the real one
+         * */
+        /** the names of the swerve wheels in the configs, in the order of their ids (1 to 4) */
+        public static final String[] swerveWheelNames = new String[] {"frontLeft", "backLeft", "frontRight", "backRight"};
+        public static final Vector2D[] swerveWheelInstallationPositions = new Vector2D[] {
+                new Vector2D(new double[] { -0.6, 0.6 }),
+                new Vector2D(new double[] { -0.6, -0.6 }),
+                new Vector2D(new double[] { 0.6, 0.6 }),
+                new Vector2D(new double[] { 0.6, -0.6 })
+        };
+        public static final int speakerTargetWindowSize = 8;
+
+        /** the zero position in the config is to the front, the bias of the steer encoder needs to be to the left */
+        public static double getSwerveWheelEncoderBias(RobotConfigReader robotConfig, String name) {
+                return robotConfig.getConfig("hardware/"+name+"WheelZeroPosition")
+                        + (robotConfig.getConfig("hardware/"+name+"WheelSteerEncoderReversed") == 1 ?
+                        (Math.PI / 2) : (-Math.PI / 2));
+        }
+
+        public static FixedAnglePositionTrackingCamera createAprilTagPositionTrackingCamera(RawObjectDetectionCamera aprilTagDetectionCamera) {
+                final double[] targetHeights = new double[] {100, 100, 100, 100, 100, 100};
+                return new FixedAnglePositionTrackingCamera(
+                        aprilTagDetectionCamera,
+                        new FixedAngleCameraProfile(
+                                0.2984,
+                                -0.00181,
+                                -0.00107
+                        ),
+                        targetHeights
+                );
+        }
+
+        public static Map<Integer, Vector2D> getSpeakerTargetAprilTagReferences() {
+                final Map<Integer, Vector2D> speakerTargetAprilTagReferences = new HashMap<>();
+                speakerTargetAprilTagReferences.put(4, new Vector2D(new double[] {0, -0.2}));
+                // speakerTargetAprilTagReferences.put(3, new Vector2D(new double[] {-0.5,0}));
+                speakerTargetAprilTagReferences.put(7, new Vector2D(new double[] {0, -0.2}));
+                // speakerTargetAprilTagReferences.put(8, new Vector2D(new double[] {-0.5,0}));
+                return speakerTargetAprilTagReferences;
+        }
+
+        /**
+         * the kalman filter on the odometry, with the april tag of the speaker as its vision
+         * the april tag tracker must be updated with the returned estimator, so that the targets are in its coordinates
+         * the vision is only taken once the auto program sets the position in the coordinates of the field, until then (in teleop-only runs) it follows the odometry
+         * */
+        public static KalmanFilterPositionEstimator createPositionReader(PositionEstimator odometry, TargetFieldPositionTracker aprilTagTracker) {
+                final Map<Integer, Vector2D> redAllianceAprilTagFieldPositions = getSpeakerAprilTagFieldPositions(DriverStation.Alliance.Red),
+                        blueAllianceAprilTagFieldPositions = getSpeakerAprilTagFieldPositions(DriverStation.Alliance.Blue);
+                return new KalmanFilterPositionEstimator(odometry, aprilTagTracker, () ->
+                        DriverStation.getAlliance().orElse(DriverStation.Alliance.Red) == DriverStation.Alliance.Blue ?
+                                blueAllianceAprilTagFieldPositions : redAllianceAprilTagFieldPositions);
+        }
+
+        /**
+         * the field position of the april tag on the speaker of an alliance, in the coordinates of that alliance (see FieldPositions)
+         * the tag of the red speaker is 4, and the blue one is 7
+         * */
+        public static Map<Integer, Vector2D> getSpeakerAprilTagFieldPositions(DriverStation.Alliance alliance) {
+                final int aprilTagID = alliance == DriverStation.Alliance.Blue ? 7 : 4;
+                final Vector2D speakerPosition = alliance == DriverStation.Alliance.Blue ?
+                        new Vector2D(new double[] {-FieldPositions.speakerPosition.getX(), FieldPositions.speakerPosition.getY()})
+                        : FieldPositions.speakerPosition;
+                /* the references are the positions of the tags to the speaker */
+                return Map.of(aprilTagID, speakerPosition.addBy(getSpeakerTargetAprilTagReferences().get(aprilTagID)));
+        }
+
         /**
          * initializes the robot
          * note that this will take a little bit of time as it involves creating threads
@@ -247,6 +357,16 @@ public class RobotCore {
                 for (String config:configsToTune)
                         robotConfig.startTuningConfig(config);
 
+                TelemetryPublisher.start();
+
+                /* start recording, once all the modules are created */
+                flightDataRecorder.registerChannel(FlightDataRecorder.fpgaTimestampChannel, Timer::getFPGATimestamp);
+                flightDataRecorder.registerChannel(FlightDataRecorder.enabledChannel, () -> wasEnabled ? 1 : 0);
+                for (RobotModuleBase module:modules)
+                        module.registerFlightDataChannels(flightDataRecorder);
+                aprilTagCameraRecording = flightDataRecorder.registerCamera("april tag camera", aprilTagDetectionAppClient, 4);
+                noteCameraRecording = flightDataRecorder.registerCamera("note camera", noteDetectionAppClient, 4);
+                flightDataRecorder.start();
                 System.out.println("<-- Robot | robot initialized -->");
         }
 
@@ -307,6 +427,10 @@ public class RobotCore {
          * */
         public void startStage(List<RobotServiceBase> services) {
                 this.services = services;
+                this.servicesTimings = new TimingHistogram[services.size()];
+                for (int i = 0; i < services.size(); i++)
+                        servicesTimings[i] = servicesTimingsMap.computeIfAbsent(services.get(i),
+                                service -> loopTimingProfiler.registerComponent("service " + service.serviceName));
                 System.out.println("<-- Robot Core | starting current stage... -->");
                 /* initialize the services */
                 for (RobotServiceBase service:services)
@@ -321,6 +445,8 @@ public class RobotCore {
                 aprilTagDetectionAppClient.startRecognizing();
                 noteDetectionAppClient.startRecognizing();
 
+                /* each stage goes into a log of its own */
+                flightDataRecorder.startNewLog();
                 wasEnabled = true;
                 System.out.println("<-- Robot Core | current stage started -->");
         }
@@ -334,6 +460,7 @@ public class RobotCore {
                 for (RobotModuleBase module: modules)
                         module.disable();
                 this.services = new ArrayList<>();
+                this.servicesTimings = new TimingHistogram[0];
 
                 aprilTagDetectionAppClient.stopRecognizing();
                 noteDetectionAppClient.stopRecognizing();
@@ -344,59 +471,137 @@ public class RobotCore {
         /**
          * called when the robot is enabled
          * */
-        private long t = System.currentTimeMillis();
         public void updateRobot() {
+                loopClock.tick();
+                refreshPhoenixSignals();
                 chassisCurrentPositionForCameraCalculation = positionReader.getRobotPosition2D();
-                chassisCurrentRotationForCameraCalculation = positionReader.getRobotRotation();
                 updateAprilTagCamera();
                 updateNoteCamera();
 
                 updateServices();
-                updateModules();
+                updateModulesInCurrentCycle();
 
-                printChassisDebugMessagesToDashboard();
-                testPhantomVision();
+                if (!degradedMode) {
+                        long startTimeNano = System.nanoTime();
+                        printChassisDebugMessagesToDashboard();
+                        chassisDashboardTiming.record(System.nanoTime() - startTimeNano);
 
+                        startTimeNano = System.nanoTime();
+                        testPhantomVision();
+                        phantomVisionTiming.record(System.nanoTime() - startTimeNano);
+                }
 
+                final long startTimeNano = System.nanoTime();
                 robotConfig.updateTuningConfigsFromDashboard();
+                tuningConfigsTiming.record(System.nanoTime() - startTimeNano);
 
                 /* monitor the program's performance */
-                SmartDashboard.putNumber("robot main thread delay", System.currentTimeMillis()-t);
-                t = System.currentTimeMillis();
+                SmartDashboard.putNumber("robot main thread delay", loopClock.getDt() * 1000);
+
+                /* only the stages are recorded, not the time spent disabled */
+                final long recordingStartTimeNano = System.nanoTime();
+                flightDataRecorder.recordFrame(loopClock.getCycleStartTimeNano() / 1_000_000_000.0);
+                flightDataRecordingTiming.record(System.nanoTime() - recordingStartTimeNano);
+                endCycle();
+        }
+
+        private void endCycle() {
+                final long cycleTimeNano = System.nanoTime() - loopClock.getCycleStartTimeNano();
+                cycleTiming.record(cycleTimeNano);
+                updateDegradedMode(cycleTimeNano);
+                loopTimingProfiler.publishIfNeeded(loopClock);
+                /* the widgets of the new numbers are created here, on the main thread, the other threads only send the numbers */
+                TelemetryPublisher.createEntries();
+                EasyShuffleBoard.createRequestedWidgets();
+        }
+
+        private void updateDegradedMode(long cycleTimeNano) {
+                if (cycleTimeNano > loopClock.getPeriodNano()) {
+                        consecutiveOverruns++;
+                        consecutiveHealthyCycles = 0;
+                } else {
+                        consecutiveOverruns = 0;
+                        if (cycleTimeNano < loopClock.getPeriodNano() * healthyCycleTimePortion)
+                                consecutiveHealthyCycles++;
+                        else
+                                consecutiveHealthyCycles = 0;
+                }
+
+                if (!degradedMode && consecutiveOverruns >= overrunsToEnterDegradedMode)
+                        setDegradedMode(true);
+                else if (degradedMode && consecutiveHealthyCycles >= healthyCyclesToResumeFullMode)
+                        setDegradedMode(false);
+        }
+
+        private void setDegradedMode(boolean degradedMode) {
+                this.degradedMode = degradedMode;
+                moduleScheduler.setDegradedMode(degradedMode);
+                SmartDashboard.putBoolean("loop degraded mode", degradedMode);
+                System.out.println(degradedMode ?
+                        "<-- Robot Core | main loop overrun for " + consecutiveOverruns + " cycles, entering degraded mode -->"
+                        : "<-- Robot Core | main loop recovered, resuming full mode -->");
+        }
+
+        /** @return whether the robot is skipping non-critical works since the main loop is overloaded */
+        public boolean isInDegradedMode() {
+                return degradedMode;
         }
 
         public PhantomClient phantomClient = new PhantomClient("onbot-jetson");
+        /** the time from the camera capturing the frame to the phantom sending the position, and how accurate the position is, both estimations */
+        private static final double phantomVisionLatencySeconds = 0.1, phantomVisionStandardDeviation = 0.2;
+        private long previousPhantomResultTimeMicros = 0;
         public void testPhantomVision() {
-                long dt = System.currentTimeMillis();
                 phantomClient.update(new Pose2d(
                         5, // positionReader.getRobotPosition2D().getX(),
                         5, //positionReader.getRobotPosition2D().getY(),
                         new Rotation2d(positionReader.getRobotRotation2D().getRadian() + Math.PI)
                 ));
 
-                EasyShuffleBoard.putNumber("phantom vision", "position x", phantomClient.getRobotPose().getX());
-                EasyShuffleBoard.putNumber("phantom vision", "position y", phantomClient.getRobotPose().getY());
-
-                if (System.currentTimeMillis()-dt > printTimeIfTimeMillisExceeds)
-                        System.out.println("phantom client update took longer than expected, time: " + (System.currentTimeMillis() - dt));
+                phantomXTelemetry.set(phantomClient.getRobotPose().getX());
+                phantomYTelemetry.set(phantomClient.getRobotPose().getY());
+
+                final long phantomResultTimeMicros = phantomClient.getRobotPoseTimeMicros();
+                if (phantomResultTimeMicros == 0 || phantomResultTimeMicros == previousPhantomResultTimeMicros)
+                        return; // no new results
+                previousPhantomResultTimeMicros = phantomResultTimeMicros;
+                final Pose2d phantomRobotPose = phantomClient.getRobotPose();
+                /* taken by the position reader only once its position is in the coordinates of the field */
+                positionReader.addVisionMeasurement(
+                        phantomResultTimeMicros / 1_000_000.0 - phantomVisionLatencySeconds,
+                        phantomRobotPose.getX(), phantomRobotPose.getY(),
+                        phantomVisionStandardDeviation
+                );
         }
 
         public void updateServices() {
-                for (RobotServiceBase service : services) {
-                        long dt = System.currentTimeMillis();
-                        service.periodic();
-                        if (System.currentTimeMillis() - dt > printTimeIfTimeMillisExceeds)
-                                System.out.println("update service " + service.serviceName + " took longer than expected, time: " + (System.currentTimeMillis() - dt));
+                for (int i = 0; i < services.size(); i++) {
+                        final long startTimeNano = System.nanoTime();
+                        services.get(i).periodic(loopClock);
+                        servicesTimings[i].record(System.nanoTime() - startTimeNano);
                 }
         }
 
+        /**
+         * updates the modules only, starting a new cycle of the main loop
+         * called when the robot is disabled
+         * */
         public void updateModules() {
-                for (RobotModuleBase module:modules) {
-                        long dt = System.currentTimeMillis();
-                        module.periodic();
-                        if (System.currentTimeMillis() - dt > printTimeIfTimeMillisExceeds)
-                                System.out.println("update module " + module.moduleName + " took longer than expected, time: " + (System.currentTimeMillis() - dt));
-                }
+                loopClock.tick();
+                refreshPhoenixSignals();
+                updateModulesInCurrentCycle();
+                endCycle();
+        }
+
+        /** refreshes all the encoders and the gyro at once, so the modules read the same, cached values during this cycle */
+        private void refreshPhoenixSignals() {
+                long startTimeNano = System.nanoTime();
+                PhoenixSignalsRegistry.refreshAll();
+                phoenixSignalsRefreshTiming.record(System.nanoTime() - startTimeNano);
+        }
+
+        private void updateModulesInCurrentCycle() {
+                moduleScheduler.updateModules(loopClock);
         }
 
         private void printChassisDebugMessagesToDashboard() {
@@ -407,30 +612,36 @@ public class RobotCore {
         }
 
         private void updateAprilTagCamera() {
-                long dt = System.currentTimeMillis();
+                long startTimeNano = System.nanoTime();
                 if (aprilTagPositionTrackingCamera != null)
-                        aprilTagPositionTrackingCamera.update(chassisCurrentPositionForCameraCalculation, new Rotation2D(chassisCurrentRotationForCameraCalculation));
-                if (System.currentTimeMillis()-dt > printTimeIfTimeMillisExceeds)
-                        System.out.println("update april tag camera time (ms): " + (System.currentTimeMillis() - dt));
-
+                        aprilTagPositionTrackingCamera.update(positionReader);
+                if (aprilTagCameraRecording != null)
+                        aprilTagCameraRecording.take();
+                speakerTarget.update();
+                amplifierTarget.update();
+                aprilTagCameraUpdateTiming.record(System.nanoTime() - startTimeNano);
+
+                if (degradedMode)
+                        return;
+                startTimeNano = System.nanoTime();
                 printAprilTagCameraResultsToDashboard();
-
-
-                if (System.currentTimeMillis()-dt > printTimeIfTimeMillisExceeds)
-                        System.out.println("print april camera messages time (ms): " + (System.currentTimeMillis() - dt));
+                aprilTagCameraDashboardTiming.record(System.nanoTime() - startTimeNano);
         }
 
         private void updateNoteCamera() {
-                long dt = System.currentTimeMillis();
+                long startTimeNano = System.nanoTime();
                 if (notePositionTrackingCamera != null)
-                        notePositionTrackingCamera.update(chassisCurrentPositionForCameraCalculation, new Rotation2D(chassisCurrentRotationForCameraCalculation));
-                if (System.currentTimeMillis()-dt > printTimeIfTimeMillisExceeds)
-                        System.out.println("update note camera time (ms): " + (System.currentTimeMillis() - dt));
+                        notePositionTrackingCamera.update(positionReader);
+                if (noteCameraRecording != null)
+                        noteCameraRecording.take();
+                noteTarget.update();
+                noteCameraUpdateTiming.record(System.nanoTime() - startTimeNano);
 
-                dt=System.currentTimeMillis();
+                if (degradedMode)
+                        return;
+                startTimeNano = System.nanoTime();
                 printNoteDetectionCameraResultsToDashboard();
-                if (System.currentTimeMillis()-dt > printTimeIfTimeMillisExceeds)
-                        System.out.println("print note camera messages time (ms): " + (System.currentTimeMillis() - dt));
+                noteCameraDashboardTiming.record(System.nanoTime() - startTimeNano);
         }
 
         private void printAprilTagCameraResultsToDashboard() {
@@ -439,29 +650,21 @@ public class RobotCore {
 
                 final Vector2D speakerFieldPosition =  this.speakerTarget.getTargetFieldPositionWithAprilTags(500);
                 if (speakerFieldPosition == null) {
-                        EasyShuffleBoard.putNumber("apriltag", "target absolute field position X", 0);
-                        EasyShuffleBoard.putNumber("apriltag", "target absolute field position Y", 0);
-                        EasyShuffleBoard.putNumber("apriltag", "target relative position to robot X", 0);
-                        EasyShuffleBoard.putNumber("apriltag", "target relative position to robot Y", 0);
-                        EasyShuffleBoard.putNumber("apriltag", "target distance from camera (CM)", 0);
+                        setTargetTelemetry(speakerTargetTelemetry, 0, 0, 0, 0);
                         return;
                 }
                 final Vector2D speakerRelativePositionToRobot = Vector2D.displacementToTarget(chassisCurrentPositionForCameraCalculation, speakerFieldPosition);
-                EasyShuffleBoard.putNumber("apriltag", "target absolute field position X", speakerFieldPosition.getX());
-                EasyShuffleBoard.putNumber("apriltag", "target absolute field position Y", speakerFieldPosition.getY());
-                EasyShuffleBoard.putNumber("apriltag", "target relative position to robot X", speakerRelativePositionToRobot.getX());
-                EasyShuffleBoard.putNumber("apriltag", "target relative position to robot Y", speakerRelativePositionToRobot.getY());
-                EasyShuffleBoard.putNumber("apriltag", "target distance from camera (M)", speakerRelativePositionToRobot.getMagnitude());
+                setTargetTelemetry(speakerTargetTelemetry, speakerFieldPosition.getX(), speakerFieldPosition.getY(), speakerRelativePositionToRobot.getX(), speakerRelativePositionToRobot.getY());
 
                 final TargetFieldPositionTracker.TargetOnField aprilTag3 = aprilTagPositionTrackingCamera.getVisibleTargetByID(3),
                         aprilTag4 = aprilTagPositionTrackingCamera.getVisibleTargetByID(4);
                 if (aprilTag3 != null) {
-                        EasyShuffleBoard.putNumber("apriltag", "Tag 3 position to robot X", aprilTag3.fieldPosition.getX() - chassisCurrentPositionForCameraCalculation.getX());
-                        EasyShuffleBoard.putNumber("apriltag", "Tag 3 position to robot Y", aprilTag3.fieldPosition.getY() - chassisCurrentPositionForCameraCalculation.getY());
+                        tag3XTelemetry.set(aprilTag3.fieldPosition.getX() - chassisCurrentPositionForCameraCalculation.getX());
+                        tag3YTelemetry.set(aprilTag3.fieldPosition.getY() - chassisCurrentPositionForCameraCalculation.getY());
                 }
                 if (aprilTag4 != null) {
-                        EasyShuffleBoard.putNumber("apriltag", "Tag 4 position to robot X", aprilTag4.fieldPosition.getX() - chassisCurrentPositionForCameraCalculation.getX());
-                        EasyShuffleBoard.putNumber("apriltag", "Tag 4 position to robot Y", aprilTag4.fieldPosition.getY() - chassisCurrentPositionForCameraCalculation.getY());
+                        tag4XTelemetry.set(aprilTag4.fieldPosition.getX() - chassisCurrentPositionForCameraCalculation.getX());
+                        tag4YTelemetry.set(aprilTag4.fieldPosition.getY() - chassisCurrentPositionForCameraCalculation.getY());
                 }
 
                 SmartDashboard.putNumber("target distance from camera (M)", speakerRelativePositionToRobot.getMagnitude());
@@ -473,18 +676,29 @@ public class RobotCore {
 
                 final Vector2D notePosition =  this.noteTarget.getTargetFieldPositionWithAprilTags(500);
                 if (notePosition == null) {
-                        EasyShuffleBoard.putNumber("note-detection", "target absolute field position X", 0);
-                        EasyShuffleBoard.putNumber("note-detection", "target absolute field position Y", 0);
-                        EasyShuffleBoard.putNumber("note-detection", "target relative position to robot X", 0);
-                        EasyShuffleBoard.putNumber("note-detection", "target relative position to robot Y", 0);
-                        EasyShuffleBoard.putNumber("note-detection", "target distance from camera (CM)", 0);
+                        setTargetTelemetry(noteTargetTelemetry, 0, 0, 0, 0);
                         return;
                 }
                 final Vector2D noteRelativePositionToRobot = Vector2D.displacementToTarget(chassisCurrentPositionForCameraCalculation, notePosition);
-                EasyShuffleBoard.putNumber("note-detection", "target absolute field position X", notePosition.getX());
-                EasyShuffleBoard.putNumber("note-detection", "target absolute field position Y", notePosition.getY());
-                EasyShuffleBoard.putNumber("note-detection", "target relative position to robot X", noteRelativePositionToRobot.getX());
-                EasyShuffleBoard.putNumber("note-detection", "target relative position to robot Y", noteRelativePositionToRobot.getY());
-                EasyShuffleBoard.putNumber("note-detection", "target distance from camera (CM)", noteRelativePositionToRobot.getMagnitude());
+                setTargetTelemetry(noteTargetTelemetry, notePosition.getX(), notePosition.getY(), noteRelativePositionToRobot.getX(), noteRelativePositionToRobot.getY());
+        }
+
+        /** @return the dashboard numbers of a target, in the order of: field position x, y, position to robot x, y, and distance (all in meters) */
+        private static TelemetryPublisher.NumberSlot[] registerTargetTelemetry(String tab) {
+                return new TelemetryPublisher.NumberSlot[] {
+                        TelemetryPublisher.register(tab, "target absolute field position X", TelemetryPublisher.driverDataRateHZ),
+                        TelemetryPublisher.register(tab, "target absolute field position Y", TelemetryPublisher.driverDataRateHZ),
+                        TelemetryPublisher.register(tab, "target relative position to robot X", TelemetryPublisher.driverDataRateHZ),
+                        TelemetryPublisher.register(tab, "target relative position to robot Y", TelemetryPublisher.driverDataRateHZ),
+                        TelemetryPublisher.register(tab, "target distance from camera (M)", TelemetryPublisher.driverDataRateHZ)
+                };
+        }
+
+        private static void setTargetTelemetry(TelemetryPublisher.NumberSlot[] targetTelemetry, double fieldPositionX, double fieldPositionY, double relativePositionX, double relativePositionY) {
+                targetTelemetry[0].set(fieldPositionX);
+                targetTelemetry[1].set(fieldPositionY);
+                targetTelemetry[2].set(relativePositionX);
+                targetTelemetry[3].set(relativePositionY);
+                targetTelemetry[4].set(Math.hypot(relativePositionX, relativePositionY));
         }
 }
\ No newline at end of file
@@ -8,6 +8,7 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.AutoStagePrograms.*;
 import frc.robot.Services.*;
 import frc.robot.Utils.CommandSequenceGenerator;
+import frc.robot.Utils.PathPlannerPathsCache;
 import frc.robot.Utils.MathUtils.Rotation2D;
 import frc.robot.Utils.MathUtils.Vector2D;
 import frc.robot.Utils.SequentialCommandSegment;
@@ -18,7 +19,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class RobotShell extends TimedRobot {
-    private static final int updateFreq = 100;
+    public static final int updateFreq = 100;
     public static final boolean isFormalCompetition = false;
 
     private final XboxController copilotGamePad = new XboxController(1);
@@ -42,6 +43,8 @@ public class RobotShell extends TimedRobot {
     public void robotInit() {
         // System.out.println("<-- Robot Shell | robot init -->");
         robotCore = new RobotCore("5516-2024");
+        /* read the paths of the auto programs now, so that choosing an auto does not wait for the files */
+        PathPlannerPathsCache.loadAllPaths();
     }
 
     /** called once when the driver station first connects to the robot */
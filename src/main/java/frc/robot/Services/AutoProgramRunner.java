@@ -1,15 +1,14 @@
 package frc.robot.Services;
 
 import edu.wpi.first.math.MathUtil;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import frc.robot.Modules.Chassis.SwerveBasedChassis;
-import frc.robot.Utils.EasyShuffleBoard;
 import frc.robot.Utils.MathUtils.BezierCurveSchedule;
 import frc.robot.Utils.MathUtils.BezierCurveScheduleGenerator;
 import frc.robot.Utils.MathUtils.Vector2D;
 import frc.robot.Utils.RobotConfigReader;
 import frc.robot.Utils.SequentialCommandSegment;
+import frc.robot.Utils.TelemetryPublisher;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -28,16 +27,19 @@ public class AutoProgramRunner extends RobotServiceBase {
     private int currentSegmentID;
     private SequentialCommandSegment.StaticSequentialCommandSegment currentCommandSegment;
     private BezierCurveSchedule currentPathSchedule;
-    private final Timer dt = new Timer();
     private double currentSegmentRotationScheduleETA, rotationT, inAdvanceTime;
+    private final TelemetryPublisher.NumberSlot segmentIDTelemetry = TelemetryPublisher.register("auto", "segment ID"),
+            translationalTTelemetry = TelemetryPublisher.register("auto", "translational scaled T"),
+            positionXTelemetry = TelemetryPublisher.register("auto", "position (x)"),
+            positionYTelemetry = TelemetryPublisher.register("auto", "position (y)"),
+            rotationTTelemetry = TelemetryPublisher.register("auto", "rotation T"),
+            rotationTelemetry = TelemetryPublisher.register("auto", "rotation (deg)");
 
     public AutoProgramRunner(SwerveBasedChassis chassis, RobotConfigReader robotConfig) {
         super("Auto-Program-Runner");
         this.robotChassis = chassis;
         this.robotConfig = robotConfig;
         this.scheduleGenerator = new BezierCurveScheduleGenerator(robotConfig);
-
-        dt.start();
     }
 
     @Override
@@ -59,7 +61,7 @@ public class AutoProgramRunner extends RobotServiceBase {
 
 
         if (currentPathSchedule != null) {
-            final double translationalT = currentPathSchedule.nextCheckPoint(dt.get() * currentCommandSegment.timeScale);
+            final double translationalT = currentPathSchedule.nextCheckPoint(loopDt * currentCommandSegment.timeScale);
             final Vector2D inAdvanceSpaceWithoutConstrain =  currentPathSchedule.getVelocityWithLERP().multiplyBy(inAdvanceTime),
                     distanceLeft = Vector2D.displacementToTarget(currentPathSchedule.getPositionWithLERP(), currentPathSchedule.getPositionWithLERP(1)),
                     inAdvanceSpaceWithConstrain = new Vector2D(inAdvanceSpaceWithoutConstrain.getHeading(), Math.min(inAdvanceSpaceWithoutConstrain.getMagnitude(), distanceLeft.getMagnitude()));
@@ -69,14 +71,14 @@ public class AutoProgramRunner extends RobotServiceBase {
                                     currentSegmentID == commandSegments.size()-1 ?
                                             inAdvanceSpaceWithConstrain : inAdvanceSpaceWithoutConstrain)),
                     this);
-            EasyShuffleBoard.putNumber("auto", "segment ID", currentSegmentID);
-            EasyShuffleBoard.putNumber("auto", "translational scaled T", translationalT);
-            EasyShuffleBoard.putNumber("auto", "position (x)", currentPathSchedule.getPositionWithLERP().getX());
-            EasyShuffleBoard.putNumber("auto", "position (y)", currentPathSchedule.getPositionWithLERP().getY());
+            segmentIDTelemetry.set(currentSegmentID);
+            translationalTTelemetry.set(translationalT);
+            positionXTelemetry.set(currentPathSchedule.getPositionWithLERP().getX());
+            positionYTelemetry.set(currentPathSchedule.getPositionWithLERP().getY());
         }
 
         if (currentSegmentRotationScheduleETA != -1) {
-            rotationT += dt.get() / currentSegmentRotationScheduleETA;
+            rotationT += loopDt / currentSegmentRotationScheduleETA;
             double rotationTSyncedToTranslationT = rotationT;
             if (currentPathSchedule != null)
                 rotationTSyncedToTranslationT = Math.min(currentPathSchedule.getT(), rotationTSyncedToTranslationT);
@@ -84,15 +86,13 @@ public class AutoProgramRunner extends RobotServiceBase {
                             SwerveBasedChassis.ChassisTaskRotation.TaskType.FACE_DIRECTION,
                             currentCommandSegment.getCurrentRotationWithLERP(rotationTSyncedToTranslationT)),
                     this);
-            EasyShuffleBoard.putNumber("auto", "rotation T", rotationT);
-            EasyShuffleBoard.putNumber("auto", "rotation (deg)", Math.toDegrees(currentCommandSegment.getCurrentRotationWithLERP(rotationTSyncedToTranslationT)));
+            rotationTTelemetry.set(rotationT);
+            rotationTelemetry.set(Math.toDegrees(currentCommandSegment.getCurrentRotationWithLERP(rotationTSyncedToTranslationT)));
         }
         currentCommandSegment.periodic.run();
 
         if (isCurrentSegmentComplete())
             nextSegment();
-
-        dt.reset();
     }
 
     @Override
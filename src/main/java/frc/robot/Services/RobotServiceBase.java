@@ -1,6 +1,7 @@
 package frc.robot.Services;
 
 import frc.robot.Modules.RobotModuleBase;
+import frc.robot.Utils.LoopClock;
 import frc.robot.Utils.RobotModuleOperatorMarker;
 
 import java.util.HashMap;
@@ -16,6 +17,9 @@ public abstract class RobotServiceBase extends RobotModuleOperatorMarker {
     /** the name of the service */
     public String serviceName;
 
+    /** the time, in seconds, passed since the previous cycle of the robot's main loop */
+    protected double loopDt = 0;
+
     /**
      * initialization of robot service, just do super("your module name")
      */
@@ -32,6 +36,15 @@ public abstract class RobotServiceBase extends RobotModuleOperatorMarker {
     /** called during every loop */
     abstract public void periodic();
 
+    /**
+     * update the service with the time of the robot's main loop
+     * @param loopClock the clock of the robot's main loop, already ticked for the current cycle
+     * */
+    public void periodic(LoopClock loopClock) {
+        this.loopDt = loopClock.getDt();
+        periodic();
+    }
+
     /** update robot configs from robotConfigReader, used when debugging the robot override or nothing will be done */
     public void updateConfigs() {}
 
@@ -1,59 +1,164 @@
 package frc.robot.Utils.ComputerVisionUtils;
 
 import frc.robot.Drivers.Visions.TargetFieldPositionTracker;
+import frc.robot.Utils.MathUtils.AlphaBetaFilter2D;
 import frc.robot.Utils.MathUtils.Vector2D;
 import frc.robot.Utils.Tests.ShooterSpeedTest;
 
 import java.util.Map;
+import java.util.function.LongSupplier;
 
+/**
+ * a target on the field, located by the april tags (or other targets) around it
+ * every new set of results from the tracker is an observation of the target, the observations are smoothed by an alpha-beta filter (see AlphaBetaFilter2D)
+ * so that the aiming does not follow the noise of every frame, and the velocity of a moving target (like a note) is estimated
+ * */
 public class AprilTagReferredTarget {
+    public static final int defaultWindowSize = 5;
+    /** if the target is unseen for longer than this, the filter starts over, as the old velocity is no longer meaningful */
+    private static final long filterResetTimeMillis = 1000;
+    /** an observation this far away from the smoothed position is taken as a different target (for example, another note), the filter starts over */
+    private static final double filterResetDistanceMeters = 1.0;
+
     private final Map<Integer, Vector2D> aprilTagReferences;
+    /* the references in arrays, so that we don't iterate through the map every time */
+    private final int[] referenceTagIDs;
+    private final Vector2D[] referenceTagPositionsToTarget;
     private final TargetFieldPositionTracker targetTracker;
 
+    /* the filter and its states, used while holding the lock of this object */
+    private final AlphaBetaFilter2D filter;
+    /** the generation of the tracker when this target is last updated, and when this target is last seen */
+    private long trackerGenerationLastUpdated = -1, trackerGenerationLastObserved = -1;
+    private long timeLastObservedMillis = 0;
+    /** when the frame of the last observation is captured, in seconds, the time between two captures is the time step of the filter */
+    private double captureTimestampLastObserved = Double.NaN;
+    /** where the time comes from, the wall clock by default, only used for the age of the target and for trackers that don't tell the capture time */
+    private LongSupplier timeMillisSource = System::currentTimeMillis;
+
 
     /**
      * @param targetTracker
      * @param aprilTagReferences the id of the reference tags, and their positions to the target (oriented to the field and in meters)
      */
     public AprilTagReferredTarget(TargetFieldPositionTracker targetTracker, Map<Integer, Vector2D> aprilTagReferences) {
+        this(targetTracker, aprilTagReferences, defaultWindowSize);
+    }
+
+    /**
+     * @param targetTracker
+     * @param aprilTagReferences the id of the reference tags, and their positions to the target (oriented to the field and in meters)
+     * @param windowSize the amount of observations to smooth over, larger for still targets and smaller for moving ones
+     */
+    public AprilTagReferredTarget(TargetFieldPositionTracker targetTracker, Map<Integer, Vector2D> aprilTagReferences, int windowSize) {
         this.aprilTagReferences = aprilTagReferences;
         this.targetTracker = targetTracker;
+        this.referenceTagIDs = new int[aprilTagReferences.size()];
+        this.referenceTagPositionsToTarget = new Vector2D[aprilTagReferences.size()];
+        int i = 0;
+        for (int id:aprilTagReferences.keySet()) {
+            referenceTagIDs[i] = id;
+            referenceTagPositionsToTarget[i++] = aprilTagReferences.get(id);
+        }
+        this.filter = new AlphaBetaFilter2D(windowSize);
     }
 
-    public Vector2D getTargetFieldPositionWithVisibleAprilTags() {
+    /**
+     * replaces the clock of this target, so that the time of a replayed log is used instead of the wall clock (see LogReplay)
+     * @param timeMillisSource gives the current time, in milliseconds
+     * */
+    public synchronized void setTimeSource(LongSupplier timeMillisSource) {
+        this.timeMillisSource = timeMillisSource;
+    }
+
+    /**
+     * takes the new results of the tracker as an observation, if there are any
+     * the time between the observations is the time between the captures of their frames, so it does not matter when this is called
+     * (the getters call it too, and a frame that is already observed is skipped)
+     * */
+    public synchronized void update() {
+        if (targetTracker == null) return;
+        final long trackerGeneration = targetTracker.getGeneration();
+        if (trackerGeneration == trackerGenerationLastUpdated)
+            return; // no new results
+        trackerGenerationLastUpdated = trackerGeneration;
+
         int visibleTargetCount = 0;
-        Vector2D targetFieldPosition = new Vector2D();
-        for (int id:aprilTagReferences.keySet()) {
-            if (!targetTracker.isTargetVisible(id))
+        double targetFieldPositionX = 0, targetFieldPositionY = 0, captureTimestamp = Double.NaN;
+        for (int i = 0; i < referenceTagIDs.length; i++) {
+            TargetFieldPositionTracker.TargetOnField target = targetTracker.getVisibleTargetByID(referenceTagIDs[i]);
+            if (target == null)
                 continue;
-            TargetFieldPositionTracker.TargetOnField target = targetTracker.getTargetByID(id);
 
             /* the target's field position is equal the current reference's position minus the reference's relative position to target */
-            final Vector2D targetFieldPositionEstimatedByCurrentReference = target.fieldPosition.addBy(aprilTagReferences.get(id).multiplyBy(-1));
-            targetFieldPosition = targetFieldPosition.addBy(targetFieldPositionEstimatedByCurrentReference);
+            targetFieldPositionX += target.fieldPosition.getX() + referenceTagPositionsToTarget[i].getX() * -1;
+            targetFieldPositionY += target.fieldPosition.getY() + referenceTagPositionsToTarget[i].getY() * -1;
             visibleTargetCount++;
+            if (!(target.captureTimestamp <= captureTimestamp)) // the latest one, and NaN only if none of them tells
+                captureTimestamp = target.captureTimestamp;
         }
-        if (visibleTargetCount == 0) return null;
+        if (visibleTargetCount == 0) return;
+        targetFieldPositionX /= visibleTargetCount;
+        targetFieldPositionY /= visibleTargetCount;
 
-        return targetFieldPosition.multiplyBy(1.0/visibleTargetCount);
+        final long timeMillis = timeMillisSource.getAsLong();
+        if (!Double.isFinite(captureTimestamp))
+            captureTimestamp = timeMillis / 1000.0;
+        if (captureTimestamp <= captureTimestampLastObserved) {
+            /* the same frame as the last observation (or an older one), the target is still seen but the filter has nothing new */
+            trackerGenerationLastObserved = trackerGeneration;
+            return;
+        }
+        final double dt = captureTimestamp - captureTimestampLastObserved;
+        if (filter.getObservationsCount() > 0 && (
+                dt * 1000 > filterResetTimeMillis
+                || Math.hypot(targetFieldPositionX - filter.getX(), targetFieldPositionY - filter.getY()) > filterResetDistanceMeters))
+            filter.reset();
+        filter.update(targetFieldPositionX, targetFieldPositionY, dt);
+        timeLastObservedMillis = timeMillis;
+        captureTimestampLastObserved = captureTimestamp;
+        trackerGenerationLastObserved = trackerGeneration;
     }
 
-    public Vector2D getTargetFieldPositionWithAprilTags(long timeUnseenTolerance) {
-        int visibleTargetCount = 0;
-        Vector2D targetFieldPosition = new Vector2D();
-        for (int id:aprilTagReferences.keySet()) {
-            TargetFieldPositionTracker.TargetOnField target = targetTracker.getTargetByID(id);
-            if (target == null || target.timeMillisSinceLastContact() > timeUnseenTolerance)
-                continue;
+    /** @return the smoothed position of the target, if it's seen in the latest results of the tracker, null otherwise */
+    public synchronized Vector2D getTargetFieldPositionWithVisibleAprilTags() {
+        update();
+        if (filter.getObservationsCount() == 0 || trackerGenerationLastObserved != trackerGenerationLastUpdated)
+            return null;
+        return new Vector2D(new double[] {filter.getX(), filter.getY()});
+    }
 
-            /* the target's field position is equal the current reference's position minus the reference's relative position to target */
-            final Vector2D targetFieldPositionEstimatedByCurrentReference = target.fieldPosition.addBy(aprilTagReferences.get(id).multiplyBy(-1));
-            targetFieldPosition = targetFieldPosition.addBy(targetFieldPositionEstimatedByCurrentReference);
-            visibleTargetCount++;
-        }
-        if (visibleTargetCount == 0) return null;
+    /** @return the smoothed position of the target, if it's seen within the tolerance, null otherwise */
+    public synchronized Vector2D getTargetFieldPositionWithAprilTags(long timeUnseenTolerance) {
+        update();
+        if (filter.getObservationsCount() == 0 || timeMillisSource.getAsLong() - timeLastObservedMillis > timeUnseenTolerance)
+            return null;
+        return new Vector2D(new double[] {filter.getX(), filter.getY()});
+    }
+
+    /** @return the estimated velocity of the target, in meters per second, zero if it's not seen yet */
+    public synchronized Vector2D getTargetVelocity() {
+        update();
+        return new Vector2D(new double[] {filter.getVelocityX(), filter.getVelocityY()});
+    }
+
+    /**
+     * @return how much the smoothed position can be trusted, from 0 to 1
+     * it goes up as the observations fill up the window, and goes down as the target stays unseen
+     * */
+    public synchronized double getConfidence() {
+        update();
+        final double windowFilled = Math.min(filter.getObservationsCount(), filter.getWindowSize()) / (double) filter.getWindowSize(),
+                freshness = 1 - (timeMillisSource.getAsLong() - timeLastObservedMillis) / (double) filterResetTimeMillis;
+        return windowFilled * Math.max(0, freshness);
+    }
 
-        return targetFieldPosition.multiplyBy(1.0/visibleTargetCount);
+    /** @return the time since the target is last seen, in milliseconds, Long.MAX_VALUE if it's never seen */
+    public synchronized long getAgeMillis() {
+        update();
+        if (filter.getObservationsCount() == 0)
+            return Long.MAX_VALUE;
+        return timeMillisSource.getAsLong() - timeLastObservedMillis;
     }
 
     public boolean isVisible() {
@@ -42,4 +42,9 @@ public class PhantomClient {
                 previousPosition.getRotation()
         );
     }
+
+    /** @return when the robot position is last received, in microseconds and in the same time base as the fpga timestamp, 0 if never received */
+    public long getRobotPoseTimeMicros() {
+        return robot_position_x.getLastChange();
+    }
 }
@@ -5,53 +5,131 @@ import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import frc.robot.RobotShell;
 
-import java.util.ConcurrentModificationException;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 /**
  * an easier way to access custom tags of shuffleboard, but with the simple logic of SmartDashboard
  * by 5516 the "IRON MAPLE"
+ *
+ * the widgets are kept in concurrent maps, so any thread can put numbers to the widgets that are already created, without a lock
+ * but shuffleboard itself is not thread-safe, and the main thread of wpilib updates it every cycle, so the widgets are only created by the main thread (see setMainThread())
+ * a widget asked for by another thread (for example, a module updated by the workers of PhasedModuleScheduler) is only requested,
+ * and it's created the next time the main thread calls createRequestedWidgets(), the numbers put to it before that are dropped
  * */
 public class EasyShuffleBoard {
-    private static final Map<String, Map<String, GenericEntry>> widgetsInTags = new HashMap<>();
+    /** if a title is taken in the tab (by a widget not created here), we try "title (1)", "title (2)"... up to this */
+    private static final int maxDuplicatedTitles = 64;
+
+    private static final Map<String, Map<String, GenericEntry>> widgetsInTabs = new ConcurrentHashMap<>();
+    /** the widgets that could not be created, in the form of "tab/title", so that we don't try again every time */
+    private static final Set<String> failedWidgets = ConcurrentHashMap.newKeySet();
+    /** the widgets asked for by other threads, waiting for the main thread to create them */
+    private static final Queue<WidgetRequest> requestedWidgets = new ConcurrentLinkedQueue<>();
+    /** the widgets in requestedWidgets, in the form of "tab/title", so that each widget is only requested once */
+    private static final Set<String> requestedWidgetNames = ConcurrentHashMap.newKeySet();
+    /** the only thread that can create widgets, null if it's not set, and then any thread can (when there's only one thread, like in LogReplay) */
+    private static volatile Thread mainThread = null;
+
+    private static final class WidgetRequest {
+        final String tab, title;
+        final double initialValue;
+
+        WidgetRequest(String tab, String title, double initialValue) {
+            this.tab = tab;
+            this.title = title;
+            this.initialValue = initialValue;
+        }
+    }
+
+    /**
+     * sets the thread that creates the widgets, it should be the thread that runs the robot loop (the one that updates shuffleboard)
+     * call this once, when the robot is created
+     * */
+    public static void setMainThread(Thread thread) {
+        mainThread = thread;
+    }
+
+    private static boolean isOnMainThread() {
+        final Thread mainThread = EasyShuffleBoard.mainThread;
+        return mainThread == null || mainThread == Thread.currentThread();
+    }
+
     public static void putNumber(String tab, String title, double number) {
+        final GenericEntry entry = getEntry(tab, title, number);
+        if (entry != null)
+            entry.setDouble(number);
+    }
+
+    /**
+     * gets the entry of a widget, creating it if it's not there yet
+     * the entry can be kept by the caller, so the maps are not even looked up the next time
+     * if it's called by a thread other than the main thread, the widget is only requested, and created by the next createRequestedWidgets()
+     * @param initialValue the value of the widget, if it's created
+     * @return the entry of the widget, null during formal competitions, if the widget can not be created, or if it's not created yet
+     * */
+    public static GenericEntry getEntry(String tab, String title, double initialValue) {
         if (RobotShell.isFormalCompetition)
-            return;
-        try {
-            if (!widgetsInTags.containsKey(tab))
-                widgetsInTags.put(tab, new HashMap<>());
-            if (!widgetsInTags.get(tab).containsKey(title))
-                addEntry(tab, Shuffleboard.getTab(tab), title, number, 0);
-            if (widgetsInTags.get(tab).get(title) != null)
-                widgetsInTags.get(tab).get(title).setDouble(number);
-        } catch (Exception e) {
-            e.printStackTrace();
-            // System.out.print("<-- shuffleboard exception, ignoring... -->"); // TODO concurrent modification exception
+            return null;
+        final Map<String, GenericEntry> widgets = widgetsInTabs.computeIfAbsent(tab, tabName -> new ConcurrentHashMap<>());
+        final GenericEntry entry = widgets.get(title);
+        if (entry != null)
+            return entry;
+        if (isOnMainThread())
+            return addEntry(tab, widgets, title, initialValue);
+        final String widgetName = tab + "/" + title;
+        if (!failedWidgets.contains(widgetName) && requestedWidgetNames.add(widgetName))
+            requestedWidgets.add(new WidgetRequest(tab, title, initialValue));
+        return null;
+    }
+
+    /**
+     * creates the widgets requested by the other threads
+     * this must be called by the main thread, once every cycle of the main loop
+     * */
+    public static void createRequestedWidgets() {
+        WidgetRequest request;
+        while ((request = requestedWidgets.poll()) != null) {
+            getEntry(request.tab, request.title, request.initialValue);
+            requestedWidgetNames.remove(request.tab + "/" + request.title);
         }
     }
 
-    private static void addEntry(String tabName, ShuffleboardTab tab, String title, double number, int duplicate) {
-        final String actualTitle =
-                duplicate == 0 ? title : title + " (" + duplicate + ")";
-        try {
-            widgetsInTags.get(tabName).put(title, tab.add(actualTitle, number).getEntry());
-        } catch (IllegalArgumentException ignored){
-            addEntry(tabName, tab, title, number, duplicate+1);
-        } catch (ConcurrentModificationException ignored) {}
+    private static GenericEntry addEntry(String tabName, Map<String, GenericEntry> widgets, String title, double initialValue) {
+        if (!isOnMainThread())
+            throw new IllegalStateException("shuffleboard widgets can only be created by the main thread, but " + Thread.currentThread().getName() + " tried to create " + tabName + "/" + title);
+        final String widgetName = tabName + "/" + title;
+        if (failedWidgets.contains(widgetName))
+            return null;
+
+        final ShuffleboardTab tab = Shuffleboard.getTab(tabName);
+        for (int duplicate = 0; duplicate <= maxDuplicatedTitles; duplicate++) {
+            final String actualTitle = duplicate == 0 ? title : title + " (" + duplicate + ")";
+            try {
+                final GenericEntry entry = tab.add(actualTitle, initialValue).getEntry();
+                widgets.put(title, entry);
+                return entry;
+            } catch (IllegalArgumentException titleTaken) {
+                // try the next title
+            } catch (RuntimeException e) {
+                System.out.println("<-- Easy Shuffleboard | failed to create widget " + widgetName + ": " + e + " -->");
+                break;
+            }
+        }
+        failedWidgets.add(widgetName);
+        return null;
     }
 
     public static double getNumber(String tag, String title, double defaultValue) {
         if (RobotShell.isFormalCompetition)
             return defaultValue;
-        if (!widgetsInTags.containsKey(tag) || !widgetsInTags.get(tag).containsKey(title))
+        final Map<String, GenericEntry> widgets = widgetsInTabs.get(tag);
+        final GenericEntry entry = widgets == null ? null : widgets.get(title);
+        if (entry == null)
             return defaultValue; // in case the widget is nowhere to be found
-        try {
-            return widgetsInTags.get(tag).get(title).getDouble(defaultValue);
-        } catch (Exception e) {
-            // e.printStackTrace();
-            return defaultValue;
-        }
-
+        return entry.getDouble(defaultValue);
     }
 }
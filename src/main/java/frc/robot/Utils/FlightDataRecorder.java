@@ -0,0 +1,322 @@
+package frc.robot.Utils;
+
+import frc.robot.Drivers.DistanceSensors.DistanceSensor;
+import frc.robot.Drivers.Encoders.Encoder;
+import frc.robot.Drivers.IMUs.RawGyro;
+import frc.robot.Drivers.Motors.Motor;
+import frc.robot.Drivers.Visions.RawObjectDetectionCamera;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleSupplier;
+
+/**
+ * records the inputs (sensor readings, vision targets) and outputs (motor powers) of the robot every cycle, into binary logs for debugging and replaying
+ * each channel is a number read from a DoubleSupplier, the channels are registered during initialization and cannot change afterwards
+ * every cycle, the main thread copies the channels into a pre-allocated frame of a ring, no object is created and no file is touched
+ * a writer thread takes the frames out of the ring and writes them to the log file, starting a new file when it gets too large, or when a new log is asked for (see startNewLog())
+ * the robot only records while it's running a stage (auto or teleop) and starts a new log for each, so the matches are not pushed out of the logs by the time spent disabled
+ * if the writer falls behind and the ring is full, the new frames are dropped (and counted), the main loop never waits
+ *
+ * the log format (big-endian):
+ *   header: int magic ("FDR1"), int version, int channels count, then the name of each channel (short length followed by the utf-8 bytes)
+ *   frames: double time of the cycle (in seconds), then a double for each channel, in the order they are registered
+ * every file starts with the header, so each file can be read on its own
+ * */
+public class FlightDataRecorder {
+    public static final int fileMagic = 0x46445231; // "FDR1"
+    public static final int fileVersion = 1;
+    public static final String defaultLogDirectory = "/home/lvuser/logs";
+    public static final String logFilePrefix = "flight-data-", logFileSuffix = ".fdr";
+    /** the time base of the sensor timestamps, recorded so that they can be replayed (see LogReplay) */
+    public static final String fpgaTimestampChannel = "robot/fpga timestamp";
+    /** 1 if the modules are enabled during the frame and 0 if not, so that the replay can enable and disable them the same way */
+    public static final String enabledChannel = "robot/enabled";
+    /** about 2.5 seconds of frames at 100 hz, in case the file system gets slow */
+    private static final int ringCapacity = 256;
+    /** a new file is started when the current one is larger than this, a stage of a match takes about 12 mb */
+    private static final long maxFileBytes = 12L * 1024 * 1024;
+    /** the oldest files are deleted when there are more than this many, so the logs take 96 mb at most (about four matches, two stages each) */
+    private static final int maxLogFiles = 8;
+    private static final long writerPeriodNano = 20_000_000;
+
+    private final File logDirectory;
+    private final List<String> channelNames = new ArrayList<>();
+    private final List<DoubleSupplier> channelSources = new ArrayList<>();
+    private DoubleSupplier[] sources;
+
+    /* the ring of frames, written by the main thread (at writeIndex) and read by the writer thread (at readIndex) */
+    private double[][] frames;
+    private volatile long writeIndex = 0, readIndex = 0;
+    private long framesDropped = 0;
+    /** the index of the first frame that goes into a new file, written by the main thread (see startNewLog()) and cleared by the writer thread */
+    private final AtomicLong newFileStartIndex = new AtomicLong(Long.MAX_VALUE);
+
+    /* used by the writer thread only */
+    private ByteBuffer buffer;
+    private FileChannel fileChannel = null;
+    private long currentFileBytes = 0;
+    private int nextFileNumber = 0;
+
+    private Thread writerThread = null;
+    private volatile boolean running = false;
+
+    public FlightDataRecorder() {
+        this(defaultLogDirectory);
+    }
+
+    public FlightDataRecorder(String logDirectory) {
+        this.logDirectory = new File(logDirectory);
+    }
+
+    /**
+     * registers a channel, call this during initialization, before start()
+     * @param name the name of the channel, such as "swerve module 1/driving encoder/velocity"
+     * @param source where the value is read every cycle, called from the main thread
+     * */
+    public synchronized void registerChannel(String name, DoubleSupplier source) {
+        if (sources != null)
+            throw new IllegalStateException("cannot register channel " + name + " after the recorder is started");
+        channelNames.add(name);
+        channelSources.add(source);
+    }
+
+    /** registers the power of a motor, as "name/power" */
+    public void registerMotor(String name, Motor motor) {
+        registerChannel(name + "/power", motor::getCurrentPower);
+    }
+
+    /** registers the position, raw reading and velocity of an encoder, as "name/position", "name/raw reading" and "name/velocity" */
+    public void registerEncoder(String name, Encoder encoder) {
+        registerChannel(name + "/position", encoder::getEncoderPosition);
+        registerChannel(name + "/raw reading", encoder::getRawEncoderReading);
+        registerChannel(name + "/velocity", encoder::getEncoderVelocity);
+    }
+
+    /** registers the yaw and yaw velocity of a gyro, as "name/yaw" and "name/yaw velocity" */
+    public void registerRawGyro(String name, RawGyro gyro) {
+        /* read the axes one by one, the arrays are new every call */
+        registerChannel(name + "/yaw", () -> gyro.getRawAngle(0));
+        registerChannel(name + "/yaw velocity", () -> gyro.getRawAngularVelocity(0));
+    }
+
+    /** registers the distance read by a distance sensor, as "name/distance (cm)", -1 for invalid */
+    public void registerDistanceSensor(String name, DistanceSensor distanceSensor) {
+        registerChannel(name + "/distance (cm)", () -> distanceSensor.getDistanceCM(-1));
+    }
+
+    /**
+     * registers the targets seen by a camera
+     * as "name/results timestamp", "name/targets count", and "name/target i/id", "name/target i/x", "name/target i/y", "name/target i/area" for each i below maxTargets
+     * the targets beyond maxTargets are not recorded, and the unused targets are recorded as NaN
+     * the results recorded are the ones in the snapshot, which should be taken right after the modules read the camera, so they are the results that the modules used in that cycle
+     * @return the snapshot of the camera, call take() on it every cycle right after the camera is read
+     * */
+    public CameraSnapshot registerCamera(String name, RawObjectDetectionCamera camera, int maxTargets) {
+        final CameraSnapshot snapshot = new CameraSnapshot(camera);
+        registerChannel(name + "/results timestamp", () -> snapshot.timestamp);
+        registerChannel(name + "/targets count", () -> snapshot.targets == null ? 0 : Math.min(snapshot.targets.size(), maxTargets));
+        for (int i = 0; i < maxTargets; i++) {
+            final int targetIndex = i;
+            final String targetName = name + "/target " + i;
+            registerChannel(targetName + "/id", () -> getTargetValue(snapshot.targets, targetIndex, 0));
+            registerChannel(targetName + "/x", () -> getTargetValue(snapshot.targets, targetIndex, 1));
+            registerChannel(targetName + "/y", () -> getTargetValue(snapshot.targets, targetIndex, 2));
+            registerChannel(targetName + "/area", () -> getTargetValue(snapshot.targets, targetIndex, 3));
+        }
+        return snapshot;
+    }
+
+    /** the results of a camera in the frame being recorded, used by the main thread only */
+    public static final class CameraSnapshot {
+        private final RawObjectDetectionCamera camera;
+        private List<RawObjectDetectionCamera.ObjectTargetRaw> targets = null;
+        private double timestamp = Double.NaN;
+
+        private CameraSnapshot(RawObjectDetectionCamera camera) {
+            this.camera = camera;
+        }
+
+        /** reads the targets, and then the timestamp of them (the timestamp is of the targets last returned, see JetsonDetectionAppClient) */
+        public void take() {
+            targets = camera.getRawTargets();
+            timestamp = camera.getResultsTimestamp();
+        }
+    }
+
+    private static double getTargetValue(List<RawObjectDetectionCamera.ObjectTargetRaw> targets, int targetIndex, int field) {
+        if (targets == null || targetIndex >= targets.size())
+            return Double.NaN;
+        final RawObjectDetectionCamera.ObjectTargetRaw target = targets.get(targetIndex);
+        return switch (field) {
+            case 0 -> target.id;
+            case 1 -> target.x;
+            case 2 -> target.y;
+            default -> target.areaReflected;
+        };
+    }
+
+    /** freezes the channels, allocates the frames and starts the writer thread */
+    public synchronized void start() {
+        if (sources != null)
+            return;
+        sources = channelSources.toArray(new DoubleSupplier[0]);
+        frames = new double[ringCapacity][sources.length + 1];
+        buffer = ByteBuffer.allocateDirect(Math.max(64 * 1024, frames[0].length * Double.BYTES * 16));
+
+        if (!logDirectory.isDirectory() && !logDirectory.mkdirs()) {
+            System.out.println("<-- Flight Data Recorder | cannot create log directory " + logDirectory + ", not recording -->");
+            return;
+        }
+        nextFileNumber = findLatestFileNumber() + 1;
+        running = true;
+        writerThread = new Thread(this::writeContinuously, "flight-data-writer");
+        writerThread.setDaemon(true);
+        writerThread.setPriority(Thread.MIN_PRIORITY);
+        writerThread.start();
+        System.out.println("<-- Flight Data Recorder | recording " + sources.length + " channels to " + logDirectory + " -->");
+    }
+
+    /**
+     * records the channels of the current cycle, called by the main thread at the end of every cycle that is recorded
+     * @param cycleTimeSeconds the time of the cycle
+     * */
+    public void recordFrame(double cycleTimeSeconds) {
+        if (!running)
+            return;
+        final long index = writeIndex;
+        if (index - readIndex >= ringCapacity) {
+            framesDropped++;
+            return;
+        }
+        final double[] frame = frames[(int) (index % ringCapacity)];
+        frame[0] = cycleTimeSeconds;
+        for (int i = 0; i < sources.length; i++)
+            frame[i + 1] = sources[i].getAsDouble();
+        writeIndex = index + 1; // publishes the frame to the writer thread
+    }
+
+    /**
+     * starts a new log file from the next frame recorded, called by the main thread when a stage starts
+     * the older files are deleted when there are too many, so the latest stages are kept
+     * */
+    public void startNewLog() {
+        newFileStartIndex.set(writeIndex);
+    }
+
+    /** @return the amount of frames dropped since the writer is behind */
+    public long getFramesDropped() {
+        return framesDropped;
+    }
+
+    /** stops the writer thread, after it writes the frames left in the ring */
+    public void stop() {
+        running = false;
+        if (writerThread != null)
+            LockSupport.unpark(writerThread);
+    }
+
+    private void writeContinuously() {
+        try {
+            while (running) {
+                final long startTimeNano = System.nanoTime();
+                writeFramesInRing();
+                LockSupport.parkNanos(writerPeriodNano - (System.nanoTime() - startTimeNano));
+            }
+            writeFramesInRing();
+            if (fileChannel != null)
+                fileChannel.close();
+        } catch (IOException e) {
+            running = false;
+            System.out.println("<-- Flight Data Recorder | failed to write log, stopped recording: " + e + " -->");
+        }
+    }
+
+    private void writeFramesInRing() throws IOException {
+        final long lastIndex = writeIndex;
+        if (readIndex == lastIndex)
+            return;
+        final int frameBytes = frames[0].length * Double.BYTES;
+        for (long index = readIndex; index < lastIndex; index++) {
+            final long newFileStartIndex = this.newFileStartIndex.get();
+            if (fileChannel == null || currentFileBytes >= maxFileBytes || index >= newFileStartIndex) {
+                flushBuffer(); // the frames before go into the current file
+                startNewFile();
+                if (index >= newFileStartIndex)
+                    this.newFileStartIndex.compareAndSet(newFileStartIndex, Long.MAX_VALUE);
+            }
+            if (buffer.remaining() < frameBytes)
+                flushBuffer();
+            for (double value:frames[(int) (index % ringCapacity)])
+                buffer.putDouble(value);
+            readIndex = index + 1; // frees the frame for the main thread
+        }
+        flushBuffer();
+    }
+
+    private void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining())
+            currentFileBytes += fileChannel.write(buffer);
+        buffer.clear();
+    }
+
+    private void startNewFile() throws IOException {
+        if (fileChannel != null)
+            fileChannel.close();
+        final File file = new File(logDirectory, String.format("%s%05d%s", logFilePrefix, nextFileNumber++, logFileSuffix));
+        fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        currentFileBytes = 0;
+
+        buffer.clear();
+        buffer.putInt(fileMagic);
+        buffer.putInt(fileVersion);
+        buffer.putInt(channelNames.size());
+        for (String name:channelNames) {
+            final byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+            if (buffer.remaining() < Short.BYTES + nameBytes.length)
+                flushBuffer();
+            buffer.putShort((short) nameBytes.length);
+            buffer.put(nameBytes);
+        }
+        flushBuffer();
+        deleteOldFiles();
+        System.out.println("<-- Flight Data Recorder | writing to " + file + " -->");
+    }
+
+    /** @return the log files in the directory, from the oldest to the latest */
+    private File[] getLogFiles() {
+        final File[] files = logDirectory.listFiles((directory, name) -> name.startsWith(logFilePrefix) && name.endsWith(logFileSuffix));
+        if (files == null)
+            return new File[0];
+        Arrays.sort(files); // the numbers are zero-padded, so they are in order by name
+        return files;
+    }
+
+    private int findLatestFileNumber() {
+        int latestFileNumber = -1;
+        for (File file:getLogFiles()) {
+            final String name = file.getName();
+            try {
+                latestFileNumber = Math.max(latestFileNumber, Integer.parseInt(name.substring(logFilePrefix.length(), name.length() - logFileSuffix.length())));
+            } catch (NumberFormatException ignored) {}
+        }
+        return latestFileNumber;
+    }
+
+    private void deleteOldFiles() {
+        final File[] files = getLogFiles();
+        for (int i = 0; i < files.length - maxLogFiles; i++)
+            if (!files[i].delete())
+                System.out.println("<-- Flight Data Recorder | failed to delete old log " + files[i] + " -->");
+    }
+}
@@ -0,0 +1,63 @@
+package frc.robot.Utils;
+
+/**
+ * the clock of the robot's main loop
+ * the time is sampled only once, at the start of each cycle
+ * so every module and service updated during the same cycle sees exactly the same time and dt
+ * */
+public class LoopClock {
+    private final long periodNano;
+    private long cycleStartTimeNano, previousCycleStartTimeNano;
+    private long cycleCount;
+    private double dt;
+
+    /**
+     * @param periodSeconds the period of the main loop, in seconds
+     * */
+    public LoopClock(double periodSeconds) {
+        this.periodNano = (long) (periodSeconds * 1_000_000_000L);
+        this.cycleStartTimeNano = this.previousCycleStartTimeNano = System.nanoTime();
+        this.cycleCount = 0;
+        this.dt = 0;
+    }
+
+    /**
+     * starts a new cycle of the robot's main loop
+     * call this only once, at the very beginning of each cycle
+     * */
+    public void tick() {
+        tick(System.nanoTime());
+    }
+
+    /**
+     * starts a new cycle at the given time, instead of now
+     * used when the loop is not run in real time, such as replaying a log (see LogReplay)
+     * @param cycleStartTimeNano the time when this cycle starts, in the same time base as System.nanoTime()
+     * */
+    public void tick(long cycleStartTimeNano) {
+        previousCycleStartTimeNano = this.cycleStartTimeNano;
+        this.cycleStartTimeNano = cycleStartTimeNano;
+        dt = (cycleStartTimeNano - previousCycleStartTimeNano) / 1_000_000_000.0;
+        cycleCount++;
+    }
+
+    /** @return the time, in nanoseconds, when the current cycle started (from System.nanoTime()) */
+    public long getCycleStartTimeNano() {
+        return cycleStartTimeNano;
+    }
+
+    /** @return the time passed between the start of the previous cycle and the current one, in seconds */
+    public double getDt() {
+        return dt;
+    }
+
+    /** @return the period of the main loop, in nanoseconds, which is the time budget of each cycle */
+    public long getPeriodNano() {
+        return periodNano;
+    }
+
+    /** @return the amount of cycles that had been started */
+    public long getCycleCount() {
+        return cycleCount;
+    }
+}
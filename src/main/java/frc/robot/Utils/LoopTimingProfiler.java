@@ -0,0 +1,78 @@
+package frc.robot.Utils;
+
+import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * records how long each component (module, service, camera, dashboard flush...) of the main loop takes
+ * each component has its own timing histogram, the p50, p99 and max of which are published to the dashboard at a low rate
+ * this is published even during formal competitions, so that we know what is eating the time of the loop
+ *
+ * usage:
+ *   TimingHistogram histogram = profiler.registerComponent("my component"); // once, during initialization
+ *   long startTime = System.nanoTime(); doSomething(); histogram.record(System.nanoTime() - startTime); // every cycle
+ * */
+public class LoopTimingProfiler {
+    private static final String dashboardTable = "loop timing/";
+    private final long publishPeriodNano;
+    private final List<Component> components = new ArrayList<>();
+    private long previousPublishTimeNano;
+
+    private static final class Component {
+        public final TimingHistogram histogram = new TimingHistogram();
+        /* the keys are prepared in advance, to avoid string concatenation during the loop */
+        public final String p50Key, p99Key, maxKey, countKey;
+
+        public Component(String name) {
+            this.p50Key = dashboardTable + name + "/p50 (ms)";
+            this.p99Key = dashboardTable + name + "/p99 (ms)";
+            this.maxKey = dashboardTable + name + "/max (ms)";
+            this.countKey = dashboardTable + name + "/count";
+        }
+    }
+
+    /**
+     * @param publishPeriodSeconds the period, in seconds, between two publishes to the dashboard
+     * */
+    public LoopTimingProfiler(double publishPeriodSeconds) {
+        this.publishPeriodNano = (long) (publishPeriodSeconds * 1_000_000_000L);
+        this.previousPublishTimeNano = System.nanoTime();
+    }
+
+    /**
+     * registers a component to the profiler
+     * call this during initialization, not in the loop
+     * @param name the name of the component, as it appears on the dashboard
+     * @return the histogram that the timings of the component should be recorded to
+     * */
+    public synchronized TimingHistogram registerComponent(String name) {
+        final Component component = new Component(name);
+        components.add(component);
+        return component.histogram;
+    }
+
+    /**
+     * publish the timings of all the components to the dashboard, if it has been long enough since the last time
+     * the histograms are cleared after being published, so each publish shows the timings during the previous period only
+     * this must be called from the main thread, when no component is being recorded
+     * @param loopClock the clock of the main loop
+     * */
+    public synchronized void publishIfNeeded(LoopClock loopClock) {
+        if (loopClock.getCycleStartTimeNano() - previousPublishTimeNano < publishPeriodNano)
+            return;
+        previousPublishTimeNano = loopClock.getCycleStartTimeNano();
+
+        for (int i = 0; i < components.size(); i++) {
+            final Component component = components.get(i);
+            if (component.histogram.getTotalCount() == 0)
+                continue;
+            SmartDashboard.putNumber(component.p50Key, component.histogram.getValueAtPercentile(0.5) / 1_000_000.0);
+            SmartDashboard.putNumber(component.p99Key, component.histogram.getValueAtPercentile(0.99) / 1_000_000.0);
+            SmartDashboard.putNumber(component.maxKey, component.histogram.getMaxValue() / 1_000_000.0);
+            SmartDashboard.putNumber(component.countKey, component.histogram.getTotalCount());
+            component.histogram.reset();
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package frc.robot.Utils.MathUtils;
+
+/**
+ * an alpha-beta filter on a position in 2d, it smooths the noisy observations and estimates the velocity
+ * each observation moves the position by alpha of the error, and the velocity by beta of the error over the time passed
+ * the gains are those of a least-squares line fit over the last windowSize observations:
+ *      alpha = 2(2N-1) / (N(N+1)), beta = 6 / (N(N+1))
+ * so a larger window is smoother but slower to follow
+ * the window grows with the observations, up to windowSize, so the first few observations are not held back by the initial guess
+ *
+ * note that this is not thread-safe
+ * */
+public class AlphaBetaFilter2D {
+    private final int windowSize;
+    private double positionX, positionY, velocityX, velocityY;
+    private int observationsCount = 0;
+
+    /** @param windowSize the amount of observations that the filter works like it's averaging over, at least 1 */
+    public AlphaBetaFilter2D(int windowSize) {
+        if (windowSize < 1)
+            throw new IllegalArgumentException("window size must be at least 1");
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * adds an observation
+     * @param measuredX the x position observed
+     * @param measuredY the y position observed
+     * @param dt the time passed since the previous observation, in seconds
+     * */
+    public void update(double measuredX, double measuredY, double dt) {
+        if (observationsCount == 0) {
+            positionX = measuredX;
+            positionY = measuredY;
+            velocityX = velocityY = 0;
+            observationsCount = 1;
+            return;
+        }
+        final int n = Math.min(++observationsCount, windowSize);
+        final double alpha = 2.0 * (2 * n - 1) / (n * (n + 1)), beta = 6.0 / (n * (n + 1));
+
+        if (!(dt > 0)) {
+            /* observed at the same time, there is no way to tell the velocity */
+            positionX += alpha * (measuredX - positionX);
+            positionY += alpha * (measuredY - positionY);
+            return;
+        }
+        positionX += velocityX * dt;
+        positionY += velocityY * dt;
+        final double errorX = measuredX - positionX, errorY = measuredY - positionY;
+        positionX += alpha * errorX;
+        positionY += alpha * errorY;
+        velocityX += beta * errorX / dt;
+        velocityY += beta * errorY / dt;
+    }
+
+    /** forgets all the observations */
+    public void reset() {
+        observationsCount = 0;
+        positionX = positionY = velocityX = velocityY = 0;
+    }
+
+    public double getX() {
+        return positionX;
+    }
+
+    public double getY() {
+        return positionY;
+    }
+
+    public double getVelocityX() {
+        return velocityX;
+    }
+
+    public double getVelocityY() {
+        return velocityY;
+    }
+
+    /** @return the amount of observations since the last reset */
+    public int getObservationsCount() {
+        return observationsCount;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+}
@@ -1,18 +1,34 @@
 package frc.robot.Utils.MathUtils;
 
+/**
+ * angle maths
+ * the wrapping is done with a single floor() or rint(), without loops or remainders, so it takes the same time no matter how big the angle is
+ * */
 public class AngleUtils {
+    private static final double fullCircle = Math.PI * 2;
+
     /**
      * simplify an angle into the range 0-360 degrees
      * @param radian the angle to simplify, in radian
-     * @return the simplified angle, in radian and in the range 0 < x < Math.Pi*2
+     * @return the simplified angle, in radian and in the range 0 <= x < Math.Pi*2
      * */
     public static double simplifyAngle(double radian) {
-        if (Double.isNaN(radian) || Double.isInfinite(radian) || Math.abs(radian) > 10e7)
-            throw new IllegalArgumentException("invalid radian: " + radian);
-        radian = Math.copySign(radian % (Math.PI*2), radian);
-        if (radian < 0)
-            radian += Math.PI * 2;
-        return radian;
+        checkRadian(radian);
+        return wrap(radian, fullCircle);
+    }
+
+    /**
+     * wraps a position on a loop (like the position of a steer) into the range of one loop
+     * @param position the position to wrap
+     * @param loopLength the length of the loop, must be positive and finite
+     * @return the position, in the range 0 <= x < loopLength, or NaN if the position is NaN or infinite
+     * */
+    public static double wrap(double position, double loopLength) {
+        final double wrapped = position - loopLength * Math.floor(position / loopLength);
+        /* when the position is right below a multiple of the loop length, the rounding errors can end it at loopLength, or slightly below zero */
+        if (wrapped >= loopLength || wrapped < 0)
+            return 0;
+        return wrapped;
     }
 
     /**
@@ -22,15 +38,23 @@ public class AngleUtils {
      * @return the shortest distance between the two points, in radian and positive is counter-clockwise
      * */
     public static double getActualDifference(double currentRotation, double targetedRotation) {
-        final double loopLength = Math.PI * 2;
-        currentRotation = simplifyAngle(currentRotation);
-        targetedRotation = simplifyAngle(targetedRotation);
-        double difference = targetedRotation - currentRotation;
-        if (difference > loopLength / 2)
-            return -(loopLength - difference); // go the other way around
-        if (difference < -loopLength / 2)
-            return loopLength + difference; // go the other way around
-        return difference;
+        checkRadian(currentRotation);
+        checkRadian(targetedRotation);
+        return getActualDifference(currentRotation, targetedRotation, fullCircle);
+    }
+
+    /**
+     * gets the shortest distance (and its direction) needed to get from the current to targeted position, on a loop
+     * @param currentPosition the current position
+     * @param targetedPosition the desired position
+     * @param loopLength the length of the loop, positive infinity if the mechanism is not a loop
+     * @return the shortest distance between the two points, in the range -loopLength/2 <= x <= loopLength/2
+     * */
+    public static double getActualDifference(double currentPosition, double targetedPosition, double loopLength) {
+        final double difference = targetedPosition - currentPosition;
+        if (loopLength == Double.POSITIVE_INFINITY)
+            return difference;
+        return difference - loopLength * Math.rint(difference / loopLength); // take away whole loops, go the other way around if it's more than half a loop
     }
 
     /** get the mid point between two points */
@@ -39,4 +63,9 @@ public class AngleUtils {
                 rotation1 + getActualDifference(rotation1, rotation2)
         );
     }
+
+    private static void checkRadian(double radian) {
+        if (Double.isNaN(radian) || Double.isInfinite(radian) || Math.abs(radian) > 10e7)
+            throw new IllegalArgumentException("invalid radian: " + radian);
+    }
 }
@@ -52,13 +52,11 @@ public class BezierCurve {
          *   p2(-3t^3 + 3t^2) +
          *   p3(t^3)
          */
-        Vector2D position = new Vector2D();
-        position = position.addBy(p0.multiplyBy(-Math.pow(t,3) + 3*t*t - 3*t +1));
-        position = position.addBy(p1.multiplyBy(3 * Math.pow(t,3) - 6*t*t + 3*t));
-        position = position.addBy(p2.multiplyBy(-3 * Math.pow(t,3) + 3*t*t));
-        position = position.addBy(p3.multiplyBy(Math.pow(t,3)));
-
-        return position;
+        return getWeightedSum(
+                -Math.pow(t,3) + 3*t*t - 3*t +1,
+                3 * Math.pow(t,3) - 6*t*t + 3*t,
+                -3 * Math.pow(t,3) + 3*t*t,
+                Math.pow(t,3));
     }
 
     public Vector2D getVelocityWithLERP(double t) {
@@ -69,13 +67,11 @@ public class BezierCurve {
          *   p2(-9t^2 + 6t) +
          *   p3(3t^2)
          */
-        Vector2D velocity = new Vector2D();
-        velocity = velocity.addBy(p0.multiplyBy(-3*t*t + 6*t - 3));
-        velocity = velocity.addBy(p1.multiplyBy(9*t*t - 12 *t + 3));
-        velocity = velocity.addBy(p2.multiplyBy(-9*t*t + 6*t));
-        velocity = velocity.addBy(p3.multiplyBy(3*t*t));
-
-        return velocity;
+        return getWeightedSum(
+                -3*t*t + 6*t - 3,
+                9*t*t - 12 *t + 3,
+                -9*t*t + 6*t,
+                3*t*t);
     }
 
     public Vector2D getAccelerationWithLERP(double t) {
@@ -86,21 +82,33 @@ public class BezierCurve {
          *   p2(-18t + 6) +
          *   p3(6t)
          */
-        Vector2D acceleration = new Vector2D();
-        acceleration = acceleration.addBy(p0.multiplyBy(-6*t + 6));
-        acceleration = acceleration.addBy(p1.multiplyBy(18*t - 12));
-        acceleration = acceleration.addBy(p2.multiplyBy(-18*t + 6));
-        acceleration = acceleration.addBy(p3.multiplyBy(6*t));
+        return getWeightedSum(
+                -6*t + 6,
+                18*t - 12,
+                -18*t + 6,
+                6*t);
+    }
 
-        return acceleration;
+    /**
+     * p0 * k0 + p1 * k1 + p2 * k2 + p3 * k3
+     * calculated with primitives, so only the result is allocated
+     * */
+    private Vector2D getWeightedSum(double k0, double k1, double k2, double k3) {
+        return new Vector2D(new double[] {
+                p0.getX() * k0 + p1.getX() * k1 + p2.getX() * k2 + p3.getX() * k3,
+                p0.getY() * k0 + p1.getY() * k1 + p2.getY() * k2 + p3.getY() * k3
+        });
     }
 
     // TODO get the boundary box
 
     public double getLength(int samples) {
         double length = 0;
-        for (double t = 0; t <= 1; t += 1.0d/samples)
-            length += getVelocityWithLERP(t).getMagnitude() / samples;
+        for (double t = 0; t <= 1; t += 1.0d/samples) {
+            final double vx = p0.getX() * (-3*t*t + 6*t - 3) + p1.getX() * (9*t*t - 12 *t + 3) + p2.getX() * (-9*t*t + 6*t) + p3.getX() * (3*t*t),
+                    vy = p0.getY() * (-3*t*t + 6*t - 3) + p1.getY() * (9*t*t - 12 *t + 3) + p2.getY() * (-9*t*t + 6*t) + p3.getY() * (3*t*t);
+            length += Math.sqrt(vx * vx + vy * vy) / samples; // same as getVelocityWithLERP(t).getMagnitude()
+        }
         return length;
     }
 }
@@ -1,11 +1,37 @@
 package frc.robot.Utils.MathUtils;
 
+/**
+ * a table of (x, y) points, that predicts the y value for any x by interpolating between the points
+ * x values outside the table gives the y value of the nearest end
+ *
+ * the segment that x falls in is found by binary search, and the slopes of the segments are calculated in advance
+ * so a prediction takes O(log n) time and creates no objects
+ * */
 public class LookUpTable {
+    public enum InterpolationMode {
+        /** straight lines between the points */
+        LINEAR,
+        /**
+         * monotone cubic interpolation (PCHIP), which is smooth at the points
+         * it never overshoots: between two points, the prediction is always between their y values
+         * */
+        MONOTONE_CUBIC
+    }
+
     public final double[] xValues;
     public final double[] yValues;
     final int n;
+    private final InterpolationMode interpolationMode;
+    /** the slope of each segment, slopes[i] is between point i and point i+1 */
+    private final double[] slopes;
+    /** the tangent at each point, for monotone cubic interpolation only */
+    private final double[] tangents;
 
     public LookUpTable(double[] xValues, double[] yValues) {
+        this(xValues, yValues, InterpolationMode.LINEAR);
+    }
+
+    public LookUpTable(double[] xValues, double[] yValues, InterpolationMode interpolationMode) {
         if (xValues.length != yValues.length)
             throw new IllegalArgumentException("look up table length not match");
         double prev_x = -Double.POSITIVE_INFINITY;
@@ -14,18 +40,189 @@ public class LookUpTable {
                 throw new IllegalArgumentException("look up table X must be in increasing order");
             prev_x = x;
         }
-        this.xValues = xValues;
-        this.yValues = yValues;
+        /* copied, so that the points are only changed through setPoint() */
+        this.xValues = xValues.clone();
+        this.yValues = yValues.clone();
         this.n = xValues.length;
+        this.interpolationMode = interpolationMode;
+
+        this.slopes = new double[Math.max(n-1, 0)];
+        for (int i = 0; i < n-1; i++)
+            updateSlope(i);
+        this.tangents = interpolationMode == InterpolationMode.MONOTONE_CUBIC ? new double[n] : null;
+        if (tangents != null)
+            for (int i = 0; i < n; i++)
+                updateTangent(i);
     }
 
     public double getYPrediction(double x) {
-        if (x < xValues[0])
+        if (x <= xValues[0])
             return yValues[0];
-        for (int i = 0; i < n-1; i++)
-            if (xValues[i] < x && x < xValues[i+1])
-                return linearInterpretation(xValues[i], yValues[i], xValues[i+1], yValues[i+1], x);
-        return yValues[yValues.length-1];
+        if (!(x < xValues[n-1])) // also catches NaN
+            return yValues[n-1];
+        return interpolate(findSegment(x, 0, n-1), x);
+    }
+
+    /**
+     * predicts the y values of many x values at once
+     * it is faster when the x values are in increasing order, as the search for each x starts from the segment of the previous one
+     * @param xs the x values to look up
+     * @param output the array to store the results, must be at least as long as xs
+     * @return output, with output[i] being the prediction of xs[i]
+     * */
+    public double[] getYPredictions(double[] xs, double[] output) {
+        int segment = 0;
+        for (int i = 0; i < xs.length; i++) {
+            final double x = xs[i];
+            if (x <= xValues[0])
+                output[i] = yValues[0];
+            else if (!(x < xValues[n-1]))
+                output[i] = yValues[n-1];
+            else {
+                segment = xValues[segment] <= x ? findSegment(x, segment, n-1) : findSegment(x, 0, segment);
+                output[i] = interpolate(segment, x);
+            }
+        }
+        return output;
+    }
+
+    /**
+     * changes a point in the table
+     * only the slopes and tangents near the point are calculated again, so this is a lot cheaper than making a new table
+     * @param index the index of the point
+     * @param x the new x value, the x values must still be in increasing order after the change
+     * @param y the new y value
+     * */
+    public void setPoint(int index, double x, double y) {
+        if ((index > 0 && x < xValues[index-1]) || (index < n-1 && x > xValues[index+1]))
+            throw new IllegalArgumentException("look up table X must be in increasing order");
+        updatePoint(index, x, y);
+    }
+
+    /**
+     * changes all the points in the table, only the points that are different are calculated again
+     * @param xValues the new x values, as many as the points in the table
+     * @param yValues the new y values
+     * @return whether the points are changed, false if the new x values are not in increasing order (the table is then left as it was, make a new one)
+     * */
+    public boolean setPoints(double[] xValues, double[] yValues) {
+        if (xValues.length != n || yValues.length != n)
+            throw new IllegalArgumentException("look up table length not match");
+        for (int i = 1; i < n; i++)
+            if (xValues[i] < xValues[i-1])
+                return false;
+        /* the points in between may be out of order while they are changed one by one, but each slope and tangent is calculated again after its last point is changed */
+        for (int i = 0; i < n; i++)
+            updatePoint(i, xValues[i], yValues[i]);
+        return true;
+    }
+
+    private void updatePoint(int index, double x, double y) {
+        if (xValues[index] == x && yValues[index] == y)
+            return;
+        xValues[index] = x;
+        yValues[index] = y;
+
+        if (index > 0) updateSlope(index-1);
+        if (index < n-1) updateSlope(index);
+        if (tangents == null) return;
+        /* the tangent at a point depends on the two segments next to it, the tangents at the ends depend on the two segments near the end */
+        for (int i = Math.max(index-1, 0); i <= Math.min(index+1, n-1); i++)
+            updateTangent(i);
+        if (index <= 2) updateTangent(0);
+        if (index >= n-3) updateTangent(n-1);
+    }
+
+    public int getPointsCount() {
+        return n;
+    }
+
+    public InterpolationMode getInterpolationMode() {
+        return interpolationMode;
+    }
+
+    /**
+     * finds the segment that x falls in, such that xValues[i] <= x < xValues[i+1]
+     * x must be in the range of [xValues[low], xValues[high])
+     * */
+    private int findSegment(double x, int low, int high) {
+        while (high - low > 1) {
+            final int mid = (low + high) >>> 1;
+            if (xValues[mid] <= x)
+                low = mid;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private double interpolate(int segment, double x) {
+        if (tangents == null)
+            return yValues[segment] + (x - xValues[segment]) * slopes[segment];
+
+        /* cubic hermite spline */
+        final double h = xValues[segment+1] - xValues[segment],
+                t = (x - xValues[segment]) / h,
+                oneMinusT = 1 - t;
+        return yValues[segment] * (1 + 2*t) * oneMinusT * oneMinusT
+                + tangents[segment] * h * t * oneMinusT * oneMinusT
+                + yValues[segment+1] * t * t * (3 - 2*t)
+                - tangents[segment+1] * h * t * t * oneMinusT;
+    }
+
+    private void updateSlope(int segment) {
+        final double h = xValues[segment+1] - xValues[segment];
+        /* a segment with no width is never used for interpolation */
+        slopes[segment] = h == 0 ? 0 : (yValues[segment+1] - yValues[segment]) / h;
+    }
+
+    /** calculates the tangent at a point with the Fritsch-Carlson method, so that the curve stays monotone */
+    private void updateTangent(int i) {
+        if (n < 2) {
+            tangents[i] = 0;
+            return;
+        }
+        if (n == 2) {
+            tangents[i] = slopes[0];
+            return;
+        }
+        if (i == 0) {
+            tangents[i] = getEndTangent(xValues[1] - xValues[0], xValues[2] - xValues[1], slopes[0], slopes[1]);
+            return;
+        }
+        if (i == n-1) {
+            tangents[i] = getEndTangent(xValues[n-1] - xValues[n-2], xValues[n-2] - xValues[n-3], slopes[n-2], slopes[n-3]);
+            return;
+        }
+
+        final double previousSlope = slopes[i-1], nextSlope = slopes[i];
+        if (previousSlope * nextSlope <= 0) {
+            tangents[i] = 0; // a peak or a flat part, stay flat so that it doesn't overshoot
+            return;
+        }
+        /* weighted harmonic mean of the slopes on both sides */
+        final double previousH = xValues[i] - xValues[i-1], nextH = xValues[i+1] - xValues[i],
+                previousWeight = 2 * nextH + previousH,
+                nextWeight = nextH + 2 * previousH;
+        tangents[i] = (previousWeight + nextWeight) / (previousWeight / previousSlope + nextWeight / nextSlope);
+    }
+
+    /**
+     * the tangent at the end of the table, with a three-point formula that is limited to keep the curve monotone
+     * @param h the width of the segment at the end
+     * @param neighbourH the width of the segment next to it
+     * @param slope the slope of the segment at the end
+     * @param neighbourSlope the slope of the segment next to it
+     * */
+    private static double getEndTangent(double h, double neighbourH, double slope, double neighbourSlope) {
+        if (h + neighbourH == 0)
+            return 0;
+        final double tangent = ((2 * h + neighbourH) * slope - h * neighbourSlope) / (h + neighbourH);
+        if (Math.signum(tangent) != Math.signum(slope))
+            return 0;
+        if (Math.signum(slope) != Math.signum(neighbourSlope) && Math.abs(tangent) > Math.abs(3 * slope))
+            return 3 * slope;
+        return tangent;
     }
 
     public static double linearInterpretation(double x1, double y1, double x2, double y2, double x) {
@@ -0,0 +1,124 @@
+package frc.robot.Utils.MathUtils;
+
+/**
+ * a 2d vector that can be changed in-place, for the hot paths that runs every cycle
+ * unlike Vector2D, the operations here change this vector and return itself, so nothing is allocated
+ * the results are exactly the same as the corresponding operations of Vector2D
+ *
+ * note that instances of this class should not be shared between threads
+ * */
+public class MutableVector2D {
+    private double x, y;
+
+    /** creates a zero vector */
+    public MutableVector2D() {
+        this(0, 0);
+    }
+
+    public MutableVector2D(double x, double y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    public MutableVector2D(Vector2D vector) {
+        this(vector.getX(), vector.getY());
+    }
+
+    public MutableVector2D set(double x, double y) {
+        this.x = x;
+        this.y = y;
+        return this;
+    }
+
+    public MutableVector2D set(Vector2D vector) {
+        return set(vector.getX(), vector.getY());
+    }
+
+    public MutableVector2D set(MutableVector2D vector) {
+        return set(vector.x, vector.y);
+    }
+
+    /**
+     * set the vector with a heading and magnitude, same as new Vector2D(heading, magnitude)
+     * @param heading the direction of the vector, in radian, zero is to the left and positive is counter-clockwise
+     * @param magnitude the magnitude of the vector
+     * */
+    public MutableVector2D setWithHeadingAndMagnitude(double heading, double magnitude) {
+        return set(Math.cos(heading) * magnitude, Math.sin(heading) * magnitude);
+    }
+
+    public MutableVector2D addBy(double x, double y) {
+        this.x += x;
+        this.y += y;
+        return this;
+    }
+
+    public MutableVector2D addBy(Vector2D adder) {
+        return addBy(adder.getX(), adder.getY());
+    }
+
+    public MutableVector2D addBy(MutableVector2D adder) {
+        return addBy(adder.x, adder.y);
+    }
+
+    /** adds a scaled vector to this vector, same as vector.addBy(adder.multiplyBy(scaler)) */
+    public MutableVector2D addBy(Vector2D adder, double scaler) {
+        return addBy(adder.getX() * scaler, adder.getY() * scaler);
+    }
+
+    /** adds a scaled vector to this vector, same as vector.addBy(adder.multiplyBy(scaler)) */
+    public MutableVector2D addBy(MutableVector2D adder, double scaler) {
+        return addBy(adder.x * scaler, adder.y * scaler);
+    }
+
+    /** scale this vector by a given factor */
+    public MutableVector2D multiplyBy(double scaler) {
+        this.x *= scaler;
+        this.y *= scaler;
+        return this;
+    }
+
+    /** apply a given transformation to this vector, same as Vector2D.multiplyBy(transformation) */
+    public MutableVector2D multiplyBy(Transformation2D transformation) {
+        final Vector2D iHat = transformation.getIHat(), jHat = transformation.getJHat();
+        return set(
+                iHat.getX() * x + jHat.getX() * y,
+                iHat.getY() * x + jHat.getY() * y
+        );
+    }
+
+    /** rotate this vector, same as Vector2D.multiplyBy(new Rotation2D(radian)) but without creating the rotation */
+    public MutableVector2D rotateBy(double radian) {
+        radian = AngleUtils.simplifyAngle(radian);
+        return set(
+                Math.cos(radian) * x + Math.cos(radian + Math.PI / 2) * y,
+                Math.sin(radian) * x + Math.sin(radian + Math.PI / 2) * y
+        );
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getHeading() {
+        return Vector2D.getHeading(x, y);
+    }
+
+    public double getMagnitude() {
+        return Math.sqrt(x * x + y * y);
+    }
+
+    /** @return an immutable copy of this vector */
+    public Vector2D toVector2D() {
+        return new Vector2D(new double[] {x, y});
+    }
+
+    @Override
+    public String toString() {
+        return "mutable vector with value:\n [ " + x + " ]\n [ " + y + " ]";
+    }
+}
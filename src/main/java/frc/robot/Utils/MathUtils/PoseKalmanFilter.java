@@ -0,0 +1,198 @@
+package frc.robot.Utils.MathUtils;
+
+/**
+ * an extended kalman filter on the pose of the robot, the state is {x, y, rotation}
+ * the odometry moves the pose (predict), the gyro and the vision measure it (correct)
+ * measurements that are too far away from the estimation (in mahalanobis distance) are taken as outliers and rejected
+ *
+ * it is pure maths on pre-allocated arrays, so it can be tested on a computer
+ * note that this is not thread-safe
+ * */
+public class PoseKalmanFilter {
+    /** the chi-squared value with 2 degrees of freedom at 99%, a position measurement further than this (mahalanobis distance squared) is an outlier */
+    public static final double defaultGateThreshold = 9.21;
+
+    /** the variance of the odometry, in square meters per meter travelled and square radians per radian turned */
+    private final double translationVariancePerMeter, rotationVariancePerRadian;
+
+    private final double[] state = new double[3];
+    private final double[][] covariance = new double[3][3];
+    /* temporary results of the matrix operations */
+    private final double[][] temp = new double[3][3];
+    private final double[] kalmanGainX = new double[3], kalmanGainY = new double[3];
+    private double lastMahalanobisDistanceSquared = 0;
+
+    /**
+     * creates a kalman filter, starting at the origin with no uncertainty
+     * @param translationVariancePerMeter how much the position estimated by the odometry spreads, in square meters for every meter travelled
+     * @param rotationVariancePerRadian how much the rotation estimated by the odometry spreads, in square radians for every radian turned
+     * */
+    public PoseKalmanFilter(double translationVariancePerMeter, double rotationVariancePerRadian) {
+        this.translationVariancePerMeter = translationVariancePerMeter;
+        this.rotationVariancePerRadian = rotationVariancePerRadian;
+    }
+
+    /**
+     * moves the pose with the odometry
+     * the displacement is in the robot's coordinates, that is, it gets rotated by the estimated rotation before being added to the position
+     * @param dxRobot the x displacement since the last prediction, in meters
+     * @param dyRobot the y displacement since the last prediction, in meters
+     * @param dRotation the rotation since the last prediction, in radians, counter-clockwise is positive
+     * */
+    public void predict(double dxRobot, double dyRobot, double dRotation) {
+        final double cos = Math.cos(state[2]), sin = Math.sin(state[2]);
+        state[0] += cos * dxRobot - sin * dyRobot;
+        state[1] += sin * dxRobot + cos * dyRobot;
+        state[2] = AngleUtils.simplifyAngle(state[2] + dRotation);
+
+        /* P = F P F^T + Q, where F is the identity except for how the rotation affects the displacement */
+        final double f02 = -sin * dxRobot - cos * dyRobot, f12 = cos * dxRobot - sin * dyRobot;
+        for (int col = 0; col < 3; col++) {
+            temp[0][col] = covariance[0][col] + f02 * covariance[2][col];
+            temp[1][col] = covariance[1][col] + f12 * covariance[2][col];
+            temp[2][col] = covariance[2][col];
+        }
+        for (int row = 0; row < 3; row++) {
+            covariance[row][0] = temp[row][0] + temp[row][2] * f02;
+            covariance[row][1] = temp[row][1] + temp[row][2] * f12;
+            covariance[row][2] = temp[row][2];
+        }
+        final double translationVariance = translationVariancePerMeter * Math.hypot(dxRobot, dyRobot);
+        covariance[0][0] += translationVariance;
+        covariance[1][1] += translationVariance;
+        covariance[2][2] += rotationVariancePerRadian * Math.abs(dRotation);
+    }
+
+    /**
+     * corrects the rotation with a measurement (from the gyro)
+     * @param measuredRotation the rotation measured, in radians
+     * @param variance the variance of the measurement, in square radians
+     * */
+    public void correctRotation(double measuredRotation, double variance) {
+        final double innovation = AngleUtils.getActualDifference(state[2], measuredRotation),
+                innovationVariance = covariance[2][2] + variance;
+        if (innovationVariance <= 0)
+            return;
+        for (int i = 0; i < 3; i++)
+            kalmanGainX[i] = covariance[i][2] / innovationVariance;
+
+        state[0] += kalmanGainX[0] * innovation;
+        state[1] += kalmanGainX[1] * innovation;
+        state[2] = AngleUtils.simplifyAngle(state[2] + kalmanGainX[2] * innovation);
+
+        /* P = (I - K H) P, where H picks the rotation */
+        final double p20 = covariance[2][0], p21 = covariance[2][1], p22 = covariance[2][2];
+        for (int row = 0; row < 3; row++) {
+            covariance[row][0] -= kalmanGainX[row] * p20;
+            covariance[row][1] -= kalmanGainX[row] * p21;
+            covariance[row][2] -= kalmanGainX[row] * p22;
+        }
+        symmetrize();
+    }
+
+    /**
+     * corrects the position with a measurement (from the vision), if it's not an outlier
+     * @param measuredX the x position measured, in meters
+     * @param measuredY the y position measured, in meters
+     * @param variance the variance of the measurement, in square meters, on both axis
+     * @param gateThreshold the maximum mahalanobis distance squared of the measurement, see defaultGateThreshold
+     * @return whether the measurement is accepted, false if it's rejected as an outlier
+     * */
+    public boolean correctPosition(double measuredX, double measuredY, double variance, double gateThreshold) {
+        final double innovationX = measuredX - state[0], innovationY = measuredY - state[1];
+        /* S = H P H^T + R, where H picks the position */
+        final double s00 = covariance[0][0] + variance, s01 = covariance[0][1], s11 = covariance[1][1] + variance,
+                determinant = s00 * s11 - s01 * s01;
+        if (!(determinant > 0))
+            return false;
+        final double inverse00 = s11 / determinant, inverse01 = -s01 / determinant, inverse11 = s00 / determinant;
+
+        lastMahalanobisDistanceSquared = innovationX * (inverse00 * innovationX + inverse01 * innovationY)
+                + innovationY * (inverse01 * innovationX + inverse11 * innovationY);
+        if (!(lastMahalanobisDistanceSquared <= gateThreshold))
+            return false;
+
+        /* K = P H^T S^-1, the first two columns of P times the inverse of S */
+        for (int i = 0; i < 3; i++) {
+            kalmanGainX[i] = covariance[i][0] * inverse00 + covariance[i][1] * inverse01;
+            kalmanGainY[i] = covariance[i][0] * inverse01 + covariance[i][1] * inverse11;
+        }
+        state[0] += kalmanGainX[0] * innovationX + kalmanGainY[0] * innovationY;
+        state[1] += kalmanGainX[1] * innovationX + kalmanGainY[1] * innovationY;
+        state[2] = AngleUtils.simplifyAngle(state[2] + kalmanGainX[2] * innovationX + kalmanGainY[2] * innovationY);
+
+        /* P = (I - K H) P */
+        for (int row = 0; row < 3; row++)
+            for (int col = 0; col < 3; col++)
+                temp[row][col] = covariance[row][col] - kalmanGainX[row] * covariance[0][col] - kalmanGainY[row] * covariance[1][col];
+        for (int row = 0; row < 3; row++)
+            System.arraycopy(temp[row], 0, covariance[row], 0, 3);
+        symmetrize();
+        return true;
+    }
+
+    /** keeps the covariance symmetric despite the rounding errors */
+    private void symmetrize() {
+        for (int row = 0; row < 3; row++)
+            for (int col = row + 1; col < 3; col++)
+                covariance[row][col] = covariance[col][row] = (covariance[row][col] + covariance[col][row]) / 2;
+    }
+
+    /**
+     * sets the position, forgetting how it's related to the rotation
+     * @param variance how uncertain the given position is, in square meters
+     * */
+    public void setPosition(double x, double y, double variance) {
+        state[0] = x;
+        state[1] = y;
+        for (int i = 0; i < 3; i++)
+            covariance[0][i] = covariance[i][0] = covariance[1][i] = covariance[i][1] = 0;
+        covariance[0][0] = covariance[1][1] = variance;
+    }
+
+    /**
+     * sets the rotation, forgetting how it's related to the position
+     * @param variance how uncertain the given rotation is, in square radians
+     * */
+    public void setRotation(double rotation, double variance) {
+        state[2] = AngleUtils.simplifyAngle(rotation);
+        for (int i = 0; i < 3; i++)
+            covariance[2][i] = covariance[i][2] = 0;
+        covariance[2][2] = variance;
+    }
+
+    public double getX() {
+        return state[0];
+    }
+
+    public double getY() {
+        return state[1];
+    }
+
+    /** @return the rotation, in radians and in the range 0 <= x < Math.PI*2 */
+    public double getRotation() {
+        return state[2];
+    }
+
+    public double getCovariance(int row, int col) {
+        return covariance[row][col];
+    }
+
+    /** @return the standard deviation of the position, on the most uncertain direction, in meters */
+    public double getPositionStandardDeviation() {
+        /* the larger eigenvalue of the position block of the covariance */
+        final double halfTrace = (covariance[0][0] + covariance[1][1]) / 2,
+                determinant = covariance[0][0] * covariance[1][1] - covariance[0][1] * covariance[1][0];
+        return Math.sqrt(halfTrace + Math.sqrt(Math.max(0, halfTrace * halfTrace - determinant)));
+    }
+
+    /** @return the standard deviation of the rotation, in radians */
+    public double getRotationStandardDeviation() {
+        return Math.sqrt(Math.max(0, covariance[2][2]));
+    }
+
+    /** @return the mahalanobis distance squared of the last position measurement, accepted or not */
+    public double getLastMahalanobisDistanceSquared() {
+        return lastMahalanobisDistanceSquared;
+    }
+}
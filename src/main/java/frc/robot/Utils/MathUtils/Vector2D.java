@@ -79,13 +79,18 @@ public class Vector2D {
     }
 
     public double getHeading() {
-        if (Math.abs(vector[0]) >= 1e-4) // when x is non-zero
-            return AngleUtils.simplifyAngle(Math.atan2(vector[1], vector[0])); // arc-tangent will just do the job for us
+        return getHeading(vector[0], vector[1]);
+    }
+
+    /** the heading of a vector (x, y), shared with MutableVector2D */
+    static double getHeading(double x, double y) {
+        if (Math.abs(x) >= 1e-4) // when x is non-zero
+            return AngleUtils.simplifyAngle(Math.atan2(y, x)); // arc-tangent will just do the job for us
 
         /* deal with zero x situations */
-        if (vector[1] > 0)
+        if (y > 0)
             return Math.PI / 2;
-        if (vector[1] < 0)
+        if (y < 0)
             return Math.PI * 3 / 2;
 
         /* when y is also zero */
@@ -61,6 +61,31 @@ public class EncoderMotorMechanism implements Encoder, Motor {
         return encoder.getRawEncoderReading();
     }
 
+    @Override
+    public double getEncoderReadingTimestamp() {
+        return encoder.getEncoderReadingTimestamp();
+    }
+
+    @Override
+    public void setHighFrequencyReading(double frequencyHZ) {
+        encoder.setHighFrequencyReading(frequencyHZ);
+    }
+
+    @Override
+    public double getHighFrequencyEncoderPosition() {
+        return encoder.getHighFrequencyEncoderPosition();
+    }
+
+    @Override
+    public double getHighFrequencyEncoderVelocity() {
+        return encoder.getHighFrequencyEncoderVelocity();
+    }
+
+    @Override
+    public double getHighFrequencyEncoderReadingTimestamp() {
+        return encoder.getHighFrequencyEncoderReadingTimestamp();
+    }
+
     @Override
     public void gainOwnerShip(RobotModuleBase ownerModule) {
         motor.gainOwnerShip(ownerModule);
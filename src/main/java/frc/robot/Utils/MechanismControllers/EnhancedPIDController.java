@@ -1,5 +1,7 @@
 package frc.robot.Utils.MechanismControllers;
 
+import frc.robot.Utils.MathUtils.AngleUtils;
+
 /**
  * An enhanced version of the math utility: edu.wpi.first.math.controller.ProfiledPIDController
  *
@@ -20,6 +22,10 @@ public class EnhancedPIDController {
     private PIDProfile pidProfile;
     /** the current mission of the controller */
     private Task task;
+    /** the task used by updateTask(), its value is changed in place so no new task is created every cycle */
+    private final Task streamingTask = new Task(Task.TaskType.MAINTAIN_SPEED, 0);
+    /** the value of the streaming task when its schedule was last planned */
+    private double streamingTaskPlannedValue;
     /** the current schedule for the movement */
     private TrapezoidPathSchedule pathSchedule;
     /** the current schedule for the set to speed process */
@@ -42,8 +48,26 @@ public class EnhancedPIDController {
         reset(0);
     }
 
+    /**
+     * changes the settings of the controller, without resetting it
+     * the current task, the integration and the previous position and velocity are all kept, so the mechanism does not jerk when the settings are tuned
+     * a trapezoid schedule that is already running is kept, and finishes with the settings it was planned with
+     * @param newPIDProfile the new settings
+     * */
     public void setPidProfile(PIDProfile newPIDProfile) {
+        if (newPIDProfile == this.pidProfile)
+            return;
         this.pidProfile = newPIDProfile;
+        if (!newPIDProfile.dynamicallyAdjusting) {
+            /* the schedules are only used by dynamic profiles */
+            pathSchedule = null;
+            speedChangingProcess = null;
+        } else if (pathSchedule == null && task.taskType == Task.TaskType.GO_TO_POSITION)
+            pathSchedule = new TrapezoidPathSchedule((DynamicalPIDProfile) newPIDProfile, task, previousPosition);
+    }
+
+    public PIDProfile getPidProfile() {
+        return pidProfile;
     }
 
     /**
@@ -85,10 +109,59 @@ public class EnhancedPIDController {
 
     /** start a new task, but keep the current integration so the machine do not need to find integration again */
     public void startNewTaskKeepIntegration(Task newTask, double initialPosition) {
+        this.task = newTask;
+        reset(initialPosition, true); // the schedule must be made after resetting, as resetting clears it
         if (newTask.taskType == Task.TaskType.GO_TO_POSITION && this.pidProfile.dynamicallyAdjusting)
             this.pathSchedule = new TrapezoidPathSchedule((DynamicalPIDProfile) pidProfile, newTask, initialPosition);
-        this.task = newTask;
-        reset(initialPosition, true);
+    }
+
+    /**
+     * updates the target of the controller, for targets that change every cycle (like the heading of a steer)
+     * instead of creating a new task, the value of the current task is changed in place, and the integration is kept
+     * with dynamic profiles, the schedule is only planned again if the target moves by more than the error tolerance
+     * @param taskType the type of the task, the task is restarted if this is different from the current one
+     * @param value the target position or velocity
+     * */
+    public void updateTask(Task.TaskType taskType, double value) {
+        updateTask(taskType, value, pidProfile.getErrorTolerance());
+    }
+
+    /**
+     * updates the target of the controller, for targets that change every cycle (like the heading of a steer)
+     * instead of creating a new task, the value of the current task is changed in place, and the integration is kept
+     * @param taskType the type of the task, the task is restarted if this is different from the current one
+     * @param value the target position or velocity
+     * @param rescheduleThreshold with dynamic profiles, the schedule is only planned again if the target moves by more than this, since it was last planned
+     * */
+    public void updateTask(Task.TaskType taskType, double value, double rescheduleThreshold) {
+        if (task != streamingTask || streamingTask.taskType != taskType) {
+            streamingTask.taskType = taskType;
+            streamingTask.value = value;
+            streamingTaskPlannedValue = value;
+            startNewTaskKeepIntegration(streamingTask);
+            return;
+        }
+        if (value == streamingTask.value)
+            return;
+
+        final double targetChange = taskType == Task.TaskType.SET_TO_SPEED ?
+                value - streamingTaskPlannedValue : getActualDifference(streamingTaskPlannedValue, value);
+        final boolean reschedule = Math.abs(targetChange) > rescheduleThreshold;
+        if (reschedule && pathSchedule != null) {
+            /* plan again from where the current schedule is at, so the mechanism does not jump back */
+            final double currentPathPosition = pathSchedule.getCurrentPathPosition();
+            streamingTask.value = value;
+            streamingTask.resetTaskTime();
+            pathSchedule = new TrapezoidPathSchedule((DynamicalPIDProfile) pidProfile, streamingTask, currentPathPosition);
+        } else if (reschedule && speedChangingProcess != null) {
+            final double currentScheduledVelocity = speedChangingProcess.sampleCurrentVelocity();
+            streamingTask.value = value;
+            streamingTask.resetTaskTime();
+            speedChangingProcess = new SpeedChangingProcess(streamingTask, (DynamicalPIDProfile) pidProfile, currentScheduledVelocity);
+        } else
+            streamingTask.value = value;
+        if (reschedule)
+            streamingTaskPlannedValue = value;
     }
 
     public double getErrorAccumulation() {
@@ -176,12 +249,9 @@ public class EnhancedPIDController {
 
 
     public double getMotorPowerGoToPositionDynamic(double currentPosition, double velocity, double dt) {
-        return getMotorPowerGoToPositionClassic(
-                currentPosition,
-                velocity,
-                new Task(Task.TaskType.GO_TO_POSITION, pathSchedule.getCurrentPathPosition()),
-                dt
-        );
+        if (pathSchedule == null)
+            pathSchedule = new TrapezoidPathSchedule((DynamicalPIDProfile) pidProfile, this.task, currentPosition);
+        return getMotorPowerGoToPositionClassic(currentPosition, velocity, pathSchedule.getCurrentPathPosition(), dt);
     }
 
     /**
@@ -191,7 +261,7 @@ public class EnhancedPIDController {
      * @return
      */
     public double getMotorPowerGoToPositionClassic(double currentPosition, double velocity, double dt) {
-        return getMotorPowerGoToPositionClassic(currentPosition, velocity, this.task, dt);
+        return getMotorPowerGoToPositionClassic(currentPosition, velocity, this.task.value, dt);
     }
 
     /**
@@ -202,8 +272,12 @@ public class EnhancedPIDController {
      * @return
      */
     public double getMotorPowerGoToPositionClassic(double currentPosition, double velocity, Task task, double dt) {
+        return getMotorPowerGoToPositionClassic(currentPosition, velocity, task.value, dt);
+    }
+
+    private double getMotorPowerGoToPositionClassic(double currentPosition, double velocity, double targetedPosition, double dt) {
         double predictedFuturePosition = currentPosition + velocity * pidProfile.getFeedForwardTime();
-        double error = getActualDifference(predictedFuturePosition, task.value);
+        double error = getActualDifference(predictedFuturePosition, targetedPosition);
 
         /* proportion */
         double correctionPower = error * pidProfile.getProportion();
@@ -218,7 +292,7 @@ public class EnhancedPIDController {
 
         /* integral */
         correctionPower += errorAccumulation * pidProfile.getProportion();
-        this.errorAccumulation += (getActualDifference(currentPosition, task.value)) * dt * pidProfile.getErrorIntegralCoefficient();
+        this.errorAccumulation += (getActualDifference(currentPosition, targetedPosition)) * dt * pidProfile.getErrorIntegralCoefficient();
 
         correctionPower = clamp(correctionPower, -pidProfile.getMaxPowerAllowed(), pidProfile.getMaxPowerAllowed());
 
@@ -229,24 +303,12 @@ public class EnhancedPIDController {
         return getActualDifference(currentPosition, targetedPosition, pidProfile.loopLength);
     }
     public static double getActualDifference(double currentPosition, double targetedPosition, double loopLength) {
-        if (loopLength == Double.POSITIVE_INFINITY)
-            return targetedPosition - currentPosition;
-        currentPosition = simplifyPosition(currentPosition, loopLength);
-        targetedPosition = simplifyPosition(targetedPosition, loopLength);
-        double difference = targetedPosition - currentPosition;
-        if (difference > loopLength / 2)
-            return -(loopLength - difference); // go the other way around
-        if (difference < -loopLength / 2)
-            return loopLength + difference; // go the other way around
-        return difference;
+        return AngleUtils.getActualDifference(currentPosition, targetedPosition, loopLength);
     }
 
+    /** wraps the position into the range 0 <= x < loopLength, see AngleUtils.wrap() */
     public static double simplifyPosition(double position, double loopLength) {
-        while (position > loopLength)
-            position -= loopLength;
-        while (position < 0)
-            position += loopLength;
-        return position;
+        return AngleUtils.wrap(position, loopLength);
     }
 
     /**
@@ -258,11 +320,7 @@ public class EnhancedPIDController {
     public double getMotorPowerSetToVelocityDynamic(double currentVelocity, double dt) { // TODO apply loop control
         if (speedChangingProcess == null)
             speedChangingProcess = new SpeedChangingProcess(this.task, (DynamicalPIDProfile) pidProfile, currentVelocity);
-        return getMotorPowerSetToVelocityClassic(
-                currentVelocity,
-                new Task(Task.TaskType.SET_TO_SPEED, speedChangingProcess.sampleCurrentVelocity()),
-                dt
-        );
+        return getMotorPowerSetToVelocityClassic(currentVelocity, speedChangingProcess.sampleCurrentVelocity(), dt);
     }
 
     /**
@@ -273,7 +331,7 @@ public class EnhancedPIDController {
      * @return motor power, in percentage output
      */
     private double getMotorPowerSetToVelocityClassic(double currentVelocity, double dt) {
-        return getMotorPowerSetToVelocityClassic(currentVelocity, this.task, dt);
+        return getMotorPowerSetToVelocityClassic(currentVelocity, this.task.value, dt);
     }
 
     /**
@@ -281,17 +339,17 @@ public class EnhancedPIDController {
      * uses a traditional feed-forward system
      *
      * @param currentVelocity the current velocity of the mechanism, in whatever unit / second
-     * @param task the given task to achieve, overrides the current task of the controller
+     * @param taskVelocity the velocity to achieve, overrides the current task of the controller
      * @return motor power, in percentage output
      */
-    private double getMotorPowerSetToVelocityClassic(double currentVelocity, Task task, double dt) {
-        double targetedVelocity = task.value;
+    private double getMotorPowerSetToVelocityClassic(double currentVelocity, double taskVelocity, double dt) {
+        double targetedVelocity = taskVelocity;
         if (pidProfile.dynamicallyAdjusting) {
             double velocityRestriction = ((DynamicalPIDProfile)pidProfile).maxVelocity;
             targetedVelocity = clamp(targetedVelocity, -velocityRestriction, velocityRestriction);
         }
 
-        double velocityDifference = task.value - currentVelocity;
+        double velocityDifference = taskVelocity - currentVelocity;
 
         /* proportional */
         double feedBackPower = velocityDifference * pidProfile.getProportion();
@@ -497,7 +555,8 @@ public class EnhancedPIDController {
      */
     public static class Task {
         public TaskType taskType;
-        public final double value;
+        /** the target of the task, only changed in place by the controller (see updateTask()) */
+        public double value;
         /** whether the expected outcome is achieved */
         public boolean completed;
         /** the time elapsed since the task is created */
@@ -7,7 +7,7 @@ import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
  */
 public class SimpleFeedForwardSpeedController {
     private static final double nanoToSec = 1_000_000_000.0;
-    private final SimpleFeedForwardControllerProfile profile;
+    private SimpleFeedForwardControllerProfile profile;
     private double previousSpeed;
     private double previousTimeNano;
     /**
@@ -40,6 +40,21 @@ public class SimpleFeedForwardSpeedController {
         return profile;
     }
 
+    /**
+     * changes the profile of the controller, without resetting it
+     * the previous speed and time are kept, so the next acceleration is still measured correctly
+     * @param profile the new profile
+     * */
+    public void setProfile(SimpleFeedForwardControllerProfile profile) {
+        this.profile = profile;
+    }
+
+    /** forgets the previous speed, as if the controller is just created */
+    public void reset() {
+        this.previousSpeed = 0;
+        this.previousTimeNano = 0;
+    }
+
     public static class SimpleFeedForwardControllerProfile {
         public final double proportionGain, feedForwardGain, frictionGain, feedForwardDelay;
         public SimpleFeedForwardControllerProfile(double proportionGain, double feedForwardGain, double frictionGain, double feedForwardDelay) {
@@ -0,0 +1,165 @@
+package frc.robot.Utils;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
+import frc.robot.Utils.MathUtils.BezierCurve;
+import frc.robot.Utils.MathUtils.Vector2D;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+
+/**
+ * the paths drawn in pathplanner, read and parsed only once
+ * all the files in deploy/pathplanner/paths are loaded at the same time when the robot starts (see loadAllPaths())
+ * each path is kept for both alliances, so choosing the path of the current alliance is only a look-up, and the auto programs can be built instantly when the auto is changed
+ * paths that are not loaded yet (or added afterward) are loaded the first time they are asked for
+ * */
+public class PathPlannerPathsCache {
+    private static final String pathsDirectory = "pathplanner/paths", pathFileSuffix = ".path";
+    private static final double fieldHeight = 8.21, fieldWidth = 16.54;
+
+    /** a path, in the coordinates of both alliances */
+    private static final class CachedPath {
+        /* unmodifiable, and the curves can't be changed either, so they are shared by all the auto programs */
+        final List<BezierCurve> redAllianceCurves, blueAllianceCurves;
+        final Vector2D redAllianceStartingPosition, blueAllianceStartingPosition;
+
+        CachedPath(List<Vector2D[]> redAllianceCurvesPoints, Vector2D redAllianceStartingPosition) {
+            final List<BezierCurve> redAllianceCurves = new ArrayList<>(redAllianceCurvesPoints.size()),
+                    blueAllianceCurves = new ArrayList<>(redAllianceCurvesPoints.size());
+            for (Vector2D[] points:redAllianceCurvesPoints) {
+                redAllianceCurves.add(new BezierCurve(points[0], points[1], points[2], points[3]));
+                blueAllianceCurves.add(new BezierCurve(
+                        Flip.flipHorizontally(points[0]),
+                        Flip.flipHorizontally(points[1]),
+                        Flip.flipHorizontally(points[2]),
+                        Flip.flipHorizontally(points[3])
+                ));
+            }
+            this.redAllianceCurves = Collections.unmodifiableList(redAllianceCurves);
+            this.blueAllianceCurves = Collections.unmodifiableList(blueAllianceCurves);
+            this.redAllianceStartingPosition = redAllianceStartingPosition;
+            this.blueAllianceStartingPosition = Flip.flipHorizontally(redAllianceStartingPosition);
+        }
+    }
+
+    private static final Map<String, CachedPath> paths = new ConcurrentHashMap<>();
+
+    /**
+     * loads all the paths in the deploy directory, on a few threads at the same time
+     * call this once when the robot starts, it returns when all the paths are loaded
+     * */
+    public static void loadAllPaths() {
+        final File[] pathFiles = new File(Filesystem.getDeployDirectory(), pathsDirectory).listFiles((directory, name) -> name.endsWith(pathFileSuffix));
+        if (pathFiles == null || pathFiles.length == 0) {
+            System.out.println("<-- Path Planner Paths Cache | no paths found in deploy directory -->");
+            return;
+        }
+
+        final long startTimeNano = System.nanoTime();
+        final ExecutorService loaders = Executors.newFixedThreadPool(Math.min(pathFiles.length, Runtime.getRuntime().availableProcessors()));
+        final List<Future<?>> results = new ArrayList<>(pathFiles.length);
+        for (File pathFile:pathFiles) {
+            final String pathName = pathFile.getName().substring(0, pathFile.getName().length() - pathFileSuffix.length());
+            results.add(loaders.submit(() -> paths.putIfAbsent(pathName, readPath(pathName))));
+        }
+        int pathsLoaded = 0;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                results.get(i).get();
+                pathsLoaded++;
+            } catch (ExecutionException e) {
+                System.out.println("<-- Path Planner Paths Cache | failed to load " + pathFiles[i].getName() + ": " + e.getCause().getMessage() + " -->");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        loaders.shutdown();
+        System.out.println("<-- Path Planner Paths Cache | " + pathsLoaded + " paths loaded in " + (System.nanoTime() - startTimeNano) / 1_000_000 + "ms -->");
+    }
+
+    /**
+     * gets the curves of a path, in the coordinates of the current alliance (according to driver-station, red by default)
+     * @return the curves between every two waypoints, the list can not be modified
+     * */
+    public static List<BezierCurve> getBezierCurves(String pathName) {
+        final CachedPath path = getPath(pathName);
+        return isBlueAlliance() ? path.blueAllianceCurves : path.redAllianceCurves;
+    }
+
+    /** gets the first waypoint of a path, in the coordinates of the current alliance */
+    public static Vector2D getStartingPosition(String pathName) {
+        final CachedPath path = getPath(pathName);
+        return isBlueAlliance() ? path.blueAllianceStartingPosition : path.redAllianceStartingPosition;
+    }
+
+    private static CachedPath getPath(String pathName) {
+        final CachedPath path = paths.get(pathName);
+        if (path != null)
+            return path;
+        /* the file is read outside the map, so that loading one path does not block the others */
+        final CachedPath newPath = readPath(pathName);
+        final CachedPath pathLoadedMeanwhile = paths.putIfAbsent(pathName, newPath);
+        return pathLoadedMeanwhile == null ? newPath : pathLoadedMeanwhile;
+    }
+
+    private static boolean isBlueAlliance() {
+        return DriverStation.getAlliance().orElse(DriverStation.Alliance.Red) == DriverStation.Alliance.Blue;
+    }
+
+    private static CachedPath readPath(String pathName) {
+        try (BufferedReader br = new BufferedReader(new FileReader(new File(
+                Filesystem.getDeployDirectory(), pathsDirectory + "/" + pathName + pathFileSuffix)))) {
+            StringBuilder fileContentBuilder = new StringBuilder();
+            String line;
+            while ((line = br.readLine()) != null) fileContentBuilder.append(line);
+
+            String fileContent = fileContentBuilder.toString();
+            JSONObject pathJson = (JSONObject) new JSONParser().parse(fileContent);
+            JSONArray waypointsJson = (JSONArray) pathJson.get("waypoints");
+
+            List<Vector2D[]> curvesPoints = new ArrayList<>();
+            for (int i = 0; i < waypointsJson.size() - 1; i++) {
+                JSONObject point = (JSONObject) waypointsJson.get(i),
+                        nextPoint = (JSONObject) waypointsJson.get(i+1);
+                curvesPoints.add(new Vector2D[] {
+                        pointFromJson((JSONObject) point.get("anchor")),
+                        pointFromJson((JSONObject) point.get("nextControl")),
+                        pointFromJson((JSONObject) nextPoint.get("prevControl")),
+                        pointFromJson((JSONObject) nextPoint.get("anchor"))
+                });
+            }
+            final Vector2D startingPosition = pointFromJson((JSONObject) ((JSONObject) waypointsJson.get(0)).get("anchor"));
+            return new CachedPath(curvesPoints, startingPosition);
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Cannot Find Path File: " + pathName + " From Deploy Directory: " + Filesystem.getDeployDirectory());
+        } catch (IOException e) {
+            throw new RuntimeException("IO Error While Reading File: " + pathName);
+        } catch (ParseException e) {
+            throw new RuntimeException("Error Occurred While Processing JSON Path File: " + pathName);
+        }
+    }
+
+    /**
+     * converts a point from pathplanner to vector2D
+     * pathplanner is always in red alliance, so is the result; the blue alliance is its horizontal flip (see Flip)
+     * */
+    private static Vector2D pointFromJson(JSONObject pointJson) {
+        final double x = ((Number) pointJson.get("x")).doubleValue();
+        final double y = ((Number) pointJson.get("y")).doubleValue();
+
+        return new Vector2D(new double[] {
+                y - fieldHeight / 2,
+                fieldWidth - x
+        });
+    }
+}
@@ -0,0 +1,99 @@
+package frc.robot.Utils;
+
+import frc.robot.Utils.MathUtils.AngleUtils;
+
+/**
+ * the poses of the robot in the recent past, so that a vision result can be matched with the pose at the moment it was captured
+ * the poses are kept in a ring of pre-allocated arrays, recording a pose creates no object
+ * the estimator records, while the cameras read from other threads, so the methods are synchronized (but only hold the lock for a few operations)
+ * */
+public class PoseHistory {
+    private final double[] timestamps, positionsX, positionsY, rotations;
+    /** the index of the oldest pose */
+    private int start = 0;
+    private int size = 0;
+
+    /** @param capacity the maximum amount of poses kept, the oldest ones are dropped */
+    public PoseHistory(int capacity) {
+        this.timestamps = new double[capacity];
+        this.positionsX = new double[capacity];
+        this.positionsY = new double[capacity];
+        this.rotations = new double[capacity];
+    }
+
+    /**
+     * records a pose, the timestamps must be increasing
+     * @param timestamp the time when the pose is measured, in seconds
+     * @param rotation the facing of the robot, in radian
+     * */
+    public synchronized void record(double timestamp, double positionX, double positionY, double rotation) {
+        if (size > 0 && timestamp <= timestamps[getIndex(size - 1)])
+            return; // not newer than the latest pose, the sensors did not send new readings
+        final int index;
+        if (size < timestamps.length)
+            index = getIndex(size++);
+        else {
+            index = start;
+            start = getIndex(1);
+        }
+        timestamps[index] = timestamp;
+        positionsX[index] = positionX;
+        positionsY[index] = positionY;
+        rotations[index] = rotation;
+    }
+
+    /**
+     * gets the pose at a given moment, interpolated between the two poses recorded around it
+     * moments earlier than the oldest pose or later than the latest pose get the oldest or latest pose
+     * @param timestamp the moment, in seconds
+     * @param poseOutput the array of length 3 to store the pose in, in the form of {x, y, rotation}
+     * @return false if the history is empty, in which case the output is not touched
+     * */
+    public synchronized boolean getPoseAt(double timestamp, double[] poseOutput) {
+        if (size == 0)
+            return false;
+        if (timestamp <= timestamps[start]) {
+            copyPose(start, poseOutput);
+            return true;
+        }
+        final int latest = getIndex(size - 1);
+        if (timestamp >= timestamps[latest]) {
+            copyPose(latest, poseOutput);
+            return true;
+        }
+
+        /* binary search for the first pose after the moment, the poses are in order of time */
+        int low = 1, high = size - 1;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (timestamps[getIndex(middle)] > timestamp)
+                high = middle;
+            else
+                low = middle + 1;
+        }
+        final int after = getIndex(low), before = getIndex(low - 1);
+        final double t = (timestamp - timestamps[before]) / (timestamps[after] - timestamps[before]);
+        poseOutput[0] = positionsX[before] + (positionsX[after] - positionsX[before]) * t;
+        poseOutput[1] = positionsY[before] + (positionsY[after] - positionsY[before]) * t;
+        poseOutput[2] = AngleUtils.simplifyAngle(rotations[before] + AngleUtils.getActualDifference(rotations[before], rotations[after]) * t);
+        return true;
+    }
+
+    /** forgets all the poses, called when the estimator is reset or calibrated */
+    public synchronized void clear() {
+        start = 0;
+        size = 0;
+    }
+
+    private void copyPose(int index, double[] poseOutput) {
+        poseOutput[0] = positionsX[index];
+        poseOutput[1] = positionsY[index];
+        poseOutput[2] = rotations[index];
+    }
+
+    /** @return the index in the arrays, of the i-th oldest pose */
+    private int getIndex(int i) {
+        final int index = start + i;
+        return index >= timestamps.length ? index - timestamps.length : index;
+    }
+}
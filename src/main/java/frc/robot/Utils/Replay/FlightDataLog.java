@@ -0,0 +1,125 @@
+package frc.robot.Utils.Replay;
+
+import frc.robot.Utils.FlightDataRecorder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a log written by the flight data recorder (see FlightDataRecorder for the format), read into the memory
+ * the frames are visited one at a time, by moving the current frame, and the log-backed drivers read their channels from the current frame
+ * */
+public class FlightDataLog {
+    public final String name;
+    private final String[] channelNames;
+    private final Map<String, Integer> channelIndexes = new HashMap<>();
+    /** each frame is the time of the cycle, followed by the value of each channel */
+    private final double[][] frames;
+    private final int timestampChannel;
+    private int currentFrame = 0;
+
+    private FlightDataLog(String name, String[] channelNames, double[][] frames) {
+        this.name = name;
+        this.channelNames = channelNames;
+        for (int i = 0; i < channelNames.length; i++)
+            channelIndexes.put(channelNames[i], i);
+        this.frames = frames;
+        this.timestampChannel = channelIndexes.getOrDefault(FlightDataRecorder.fpgaTimestampChannel, -1);
+    }
+
+    /**
+     * reads a log file
+     * a frame that is cut off at the end of the file (the robot is turned off while writing) is ignored
+     * @throws IOException if the file can not be read or is not a flight data log
+     * */
+    public static FlightDataLog read(File file) throws IOException {
+        final ByteBuffer buffer;
+        try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (fileChannel.size() > Integer.MAX_VALUE)
+                throw new IOException("log too large: " + file);
+            buffer = ByteBuffer.allocate((int) fileChannel.size());
+            while (buffer.hasRemaining())
+                if (fileChannel.read(buffer) < 0)
+                    break;
+        }
+        buffer.flip();
+
+        if (buffer.remaining() < Integer.BYTES * 3 || buffer.getInt() != FlightDataRecorder.fileMagic)
+            throw new IOException("not a flight data log: " + file);
+        final int version = buffer.getInt();
+        if (version != FlightDataRecorder.fileVersion)
+            throw new IOException("unsupported version " + version + " of flight data log: " + file);
+        final String[] channelNames = new String[buffer.getInt()];
+        for (int i = 0; i < channelNames.length; i++) {
+            final byte[] nameBytes = new byte[buffer.getShort()];
+            buffer.get(nameBytes);
+            channelNames[i] = new String(nameBytes, StandardCharsets.UTF_8);
+        }
+
+        final int frameBytes = (channelNames.length + 1) * Double.BYTES;
+        final List<double[]> frames = new ArrayList<>(buffer.remaining() / frameBytes);
+        while (buffer.remaining() >= frameBytes) {
+            final double[] frame = new double[channelNames.length + 1];
+            for (int i = 0; i < frame.length; i++)
+                frame[i] = buffer.getDouble();
+            frames.add(frame);
+        }
+        return new FlightDataLog(file.getName(), channelNames, frames.toArray(new double[0][]));
+    }
+
+    public boolean hasChannel(String channelName) {
+        return channelIndexes.containsKey(channelName);
+    }
+
+    /**
+     * @return the index of a channel, to be passed to getValue()
+     * @throws IllegalArgumentException if the channel is not in the log
+     * */
+    public int getChannel(String channelName) {
+        final Integer index = channelIndexes.get(channelName);
+        if (index == null)
+            throw new IllegalArgumentException("channel " + channelName + " not found in log " + name);
+        return index;
+    }
+
+    public String[] getChannelNames() {
+        return channelNames.clone();
+    }
+
+    public int getFramesCount() {
+        return frames.length;
+    }
+
+    public void setCurrentFrame(int frame) {
+        if (frame < 0 || frame >= frames.length)
+            throw new IndexOutOfBoundsException("frame " + frame + " out of " + frames.length);
+        this.currentFrame = frame;
+    }
+
+    public int getCurrentFrame() {
+        return currentFrame;
+    }
+
+    /** @return the time of the current frame, in seconds */
+    public double getTime() {
+        return frames[currentFrame][0];
+    }
+
+    /** @return the value of a channel in the current frame */
+    public double getValue(int channel) {
+        return frames[currentFrame][channel + 1];
+    }
+
+    /** @return the fpga timestamp of the current frame, or the time of the frame if it's not recorded, in seconds */
+    public double getTimestamp() {
+        return timestampChannel < 0 ? getTime() : getValue(timestampChannel);
+    }
+}
@@ -0,0 +1,312 @@
+package frc.robot.Utils.Replay;
+
+import frc.robot.Drivers.IMUs.SimpleGyro;
+import frc.robot.Drivers.Visions.FixedAnglePositionTrackingCamera;
+import frc.robot.Modules.Chassis.SwerveBasedChassis;
+import frc.robot.Modules.Chassis.SwerveWheel;
+import frc.robot.Modules.PositionReader.KalmanFilterPositionEstimator;
+import frc.robot.Modules.PositionReader.SwerveWheelHighFrequencyPositionEstimator;
+import frc.robot.Modules.RobotModuleBase;
+import frc.robot.Modules.UpperStructure.Shooter;
+import frc.robot.RobotCore;
+import frc.robot.RobotShell;
+import frc.robot.Services.RobotServiceBase;
+import frc.robot.Utils.ComputerVisionUtils.AprilTagReferredTarget;
+import frc.robot.Utils.FlightDataRecorder;
+import frc.robot.Utils.LoopClock;
+import frc.robot.Utils.MathUtils.Vector2D;
+import frc.robot.Utils.MechanismControllers.EncoderMotorMechanism;
+import frc.robot.Utils.RobotConfigReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * re-runs the modules of the robot on a log of the flight data recorder, with no hardware and faster than real time
+ * the chassis, the position estimator, the speaker target and the shooter (with its aiming system) are built the same way as RobotCore does,
+ * but on the drivers backed by the log (see ReplayMotor, ReplayEncoder, ReplayGyro and ReplayCamera)
+ * the sensors give exactly what they gave on the robot, frame by frame, and the powers that the modules command are compared with the recorded ones
+ * so a change to a controller can be checked against the matches that have been played
+ *
+ * the loop clock and the sensor timestamps follow the time in the log, not the wall clock
+ * the modules are enabled and disabled as they were on the robot, and the frames where the robot is disabled are not compared
+ * the inputs of the services (the pilot's gamepad) are not recorded, so the commands of the chassis only match the log if the same services are added (see addService())
+ * the wpilib Timers used inside some modules still follow the wall clock
+ *
+ * usage (on a computer): LogReplay.main(new String[] {"logs/flight-data-00012.fdr"}), or give it a directory to replay all the logs in it
+ * add "--tolerance=0.05" to change the largest power error allowed, main() exits with 1 if a log can not be replayed or diverges more than that
+ * */
+public class LogReplay {
+    public static final String defaultConfigName = "5516-2024";
+    /** the largest root mean square power error of a motor for a replay to be taken as matching the log, see getMaxPowerError() */
+    public static final double defaultPowerErrorTolerance = 0.02;
+    private static final String toleranceArgumentPrefix = "--tolerance=";
+
+    public final FlightDataLog log;
+    public final RobotConfigReader robotConfig;
+    public final SwerveWheel[] swerveWheels;
+    public final SimpleGyro gyro;
+    public final SwerveWheelHighFrequencyPositionEstimator odometry;
+    public final KalmanFilterPositionEstimator positionReader;
+    public final SwerveBasedChassis chassisModule;
+    public final ReplayCamera aprilTagCamera;
+    public final FixedAnglePositionTrackingCamera aprilTagPositionTrackingCamera;
+    public final AprilTagReferredTarget speakerTarget;
+    public final Shooter.AimingSystem aimingSystem;
+    public final Shooter shooter;
+
+    /** the loop clock of the replay, ticked with the time in the log */
+    public final LoopClock loopClock = new LoopClock(1.0 / RobotShell.updateFreq);
+    /** all the motors, to be compared with the log */
+    private final List<ReplayMotor> motors = new ArrayList<>();
+    /** the modules, in the same order that RobotCore adds them */
+    private final List<RobotModuleBase> modules = new ArrayList<>();
+    private final List<RobotServiceBase> services = new ArrayList<>();
+    /** the channel that tells whether the robot is enabled, -1 for the older logs that don't have it (the robot is taken as always enabled) */
+    private final int enabledChannel;
+    private int enabledFramesCount = 0;
+    private long replayWallTimeNano = 0;
+
+    public LogReplay(FlightDataLog log) {
+        this(log, defaultConfigName);
+    }
+
+    /**
+     * builds the modules on the log
+     * @param log the log to replay
+     * @param configName the name of the robot config that the log is recorded with
+     * @throws IllegalArgumentException if a sensor of the modules is not recorded in the log
+     * */
+    public LogReplay(FlightDataLog log, String configName) {
+        this.log = log;
+        this.robotConfig = new RobotConfigReader(configName);
+        this.enabledChannel = log.hasChannel(FlightDataRecorder.enabledChannel) ? log.getChannel(FlightDataRecorder.enabledChannel) : -1;
+
+        swerveWheels = new SwerveWheel[RobotCore.swerveWheelNames.length];
+        for (int i = 0; i < swerveWheels.length; i++) {
+            final int id = i + 1;
+            final String moduleName = "swerve module " + id;
+            swerveWheels[i] = new SwerveWheel(
+                    createMotor(moduleName + "/motor 0"),
+                    createMotor(moduleName + "/motor 1"),
+                    new ReplayEncoder(log, moduleName + "/driving encoder"),
+                    new ReplayEncoder(log, moduleName + "/steer encoder"),
+                    RobotCore.swerveWheelInstallationPositions[i],
+                    robotConfig,
+                    id,
+                    RobotCore.getSwerveWheelEncoderBias(robotConfig, RobotCore.swerveWheelNames[i])
+            );
+            modules.add(swerveWheels[i]);
+        }
+        /* the same order as RobotCore: front left, front right, back left, back right */
+        final SwerveWheel[] swerveWheelsInChassis = new SwerveWheel[] {swerveWheels[0], swerveWheels[2], swerveWheels[1], swerveWheels[3]};
+
+        gyro = new SimpleGyro(0, false, new ReplayGyro(log, "gyro"));
+        /* the same odometry as the robot, but updated once per frame instead of on its own thread, so that the replay is repeatable */
+        odometry = new SwerveWheelHighFrequencyPositionEstimator(swerveWheelsInChassis, gyro, false);
+        modules.add(odometry);
+
+        aprilTagCamera = new ReplayCamera(log, "april tag camera");
+        aprilTagPositionTrackingCamera = RobotCore.createAprilTagPositionTrackingCamera(aprilTagCamera);
+        positionReader = RobotCore.createPositionReader(odometry, aprilTagPositionTrackingCamera);
+        modules.add(positionReader);
+
+        chassisModule = new SwerveBasedChassis(swerveWheelsInChassis, gyro, robotConfig, positionReader);
+        modules.add(chassisModule);
+
+        speakerTarget = new AprilTagReferredTarget(aprilTagPositionTrackingCamera, RobotCore.getSpeakerTargetAprilTagReferences(), RobotCore.speakerTargetWindowSize);
+        speakerTarget.setTimeSource(() -> (long) (log.getTime() * 1000));
+
+        aimingSystem = new Shooter.AimingSystem(positionReader, speakerTarget, robotConfig);
+        final EncoderMotorMechanism[] shooterMechanisms = new EncoderMotorMechanism[2];
+        for (int i = 0; i < shooterMechanisms.length; i++)
+            shooterMechanisms[i] = new EncoderMotorMechanism(
+                    new ReplayEncoder(log, "Shooter/flyWheel " + i),
+                    createMotor("Shooter/motor " + i)
+            );
+        shooter = new Shooter(shooterMechanisms, aimingSystem, robotConfig);
+        modules.add(shooter);
+    }
+
+    private ReplayMotor createMotor(String name) {
+        final ReplayMotor motor = new ReplayMotor(log, name);
+        motors.add(motor);
+        return motor;
+    }
+
+    /**
+     * adds a service that commands the modules during the replay, such as an AutoProgramRunner with the segments of the auto that was run
+     * call this before run()
+     * */
+    public void addService(RobotServiceBase service) {
+        services.add(service);
+    }
+
+    /** replays the whole log, as fast as possible */
+    public void run() {
+        if (log.getFramesCount() == 0)
+            return;
+        log.setCurrentFrame(0);
+        for (RobotModuleBase module:modules) {
+            module.init();
+            module.reset();
+        }
+        for (RobotServiceBase service:services)
+            service.init();
+
+        /* the clock starts right after the modules are reset, and moves with the time in the log */
+        final double startTime = log.getTime();
+        final long wallStartTimeNano = System.nanoTime();
+        final long replayStartTimeNano = System.nanoTime() + loopClock.getPeriodNano();
+        boolean modulesEnabled = true;
+        enabledFramesCount = 0;
+        for (int frame = 0; frame < log.getFramesCount(); frame++) {
+            log.setCurrentFrame(frame);
+            loopClock.tick(replayStartTimeNano + (long) ((log.getTime() - startTime) * 1_000_000_000L));
+
+            /* follow the robot as it is enabled and disabled, like RobotCore.startStage() and stopStage() */
+            final boolean enabled = isRobotEnabled();
+            if (enabled != modulesEnabled) {
+                for (RobotModuleBase module:modules)
+                    if (enabled) module.enable();
+                    else module.disable();
+                modulesEnabled = enabled;
+            }
+
+            aprilTagPositionTrackingCamera.update(positionReader);
+            speakerTarget.update();
+            if (enabled)
+                for (RobotServiceBase service:services)
+                    service.periodic(loopClock);
+            for (RobotModuleBase module:modules)
+                module.periodic(loopClock);
+
+            if (!enabled)
+                continue;
+            enabledFramesCount++;
+            for (ReplayMotor motor:motors)
+                motor.compareWithRecord();
+        }
+        replayWallTimeNano = System.nanoTime() - wallStartTimeNano;
+
+        for (RobotServiceBase service:services)
+            service.onDestroy();
+        for (RobotModuleBase module:modules)
+            module.onDestroy();
+    }
+
+    /** @return whether the robot is enabled in the current frame of the log */
+    private boolean isRobotEnabled() {
+        return enabledChannel < 0 || log.getValue(enabledChannel) != 0;
+    }
+
+    /** @return the largest root mean square difference between the commanded and recorded powers of a motor */
+    public double getMaxPowerError() {
+        double maxError = 0;
+        for (ReplayMotor motor:motors)
+            if (motor.getFramesCompared() > 0)
+                maxError = Math.max(maxError, motor.getRootMeanSquaredError());
+        return maxError;
+    }
+
+    public List<ReplayMotor> getMotors() {
+        return motors;
+    }
+
+    public void printReport() {
+        final double logDuration = log.getFramesCount() == 0 ? 0 : getLogDuration(),
+                replayWallTime = replayWallTimeNano / 1_000_000_000.0;
+        System.out.println("<-- Log Replay | " + log.name + ": " + log.getFramesCount() + " frames (" + String.format("%.1f", logDuration) + "s)"
+                + " replayed in " + String.format("%.2f", replayWallTime) + "s, "
+                + String.format("%.0f", logDuration / Math.max(replayWallTime, 1e-9)) + "x real time, "
+                + enabledFramesCount + " frames enabled -->");
+        for (ReplayMotor motor:motors) {
+            if (motor.getFramesCompared() == 0) {
+                System.out.println("    " + motor.name + ": power not recorded");
+                continue;
+            }
+            System.out.println("    " + motor.name + ": power error rms " + String.format("%.4f", motor.getRootMeanSquaredError())
+                    + ", max " + String.format("%.4f", motor.getMaxError()));
+        }
+        final Vector2D finalPosition = positionReader.getRobotPosition2D();
+        System.out.println("    final position: (" + String.format("%.3f", finalPosition.getX()) + ", " + String.format("%.3f", finalPosition.getY()) + ")"
+                + ", rotation: " + String.format("%.1f", Math.toDegrees(positionReader.getRobotRotation())) + "deg");
+    }
+
+    private double getLogDuration() {
+        final int currentFrame = log.getCurrentFrame();
+        log.setCurrentFrame(log.getFramesCount() - 1);
+        final double endTime = log.getTime();
+        log.setCurrentFrame(0);
+        final double duration = endTime - log.getTime();
+        log.setCurrentFrame(currentFrame);
+        return duration;
+    }
+
+    /**
+     * replays the logs one by one and prints the reports
+     * a log that can not be read or replayed is reported and skipped, the others are still replayed
+     * @param args the log files, or directories of them, and optionally "--tolerance=" followed by the largest power error allowed
+     * */
+    public static void main(String[] args) {
+        double powerErrorTolerance = defaultPowerErrorTolerance;
+        final List<File> logFiles = new ArrayList<>();
+        for (String arg:args) {
+            if (arg.startsWith(toleranceArgumentPrefix)) {
+                powerErrorTolerance = Double.parseDouble(arg.substring(toleranceArgumentPrefix.length()));
+                continue;
+            }
+            final File file = new File(arg);
+            if (!file.isDirectory()) {
+                logFiles.add(file);
+                continue;
+            }
+            final File[] filesInDirectory = file.listFiles((directory, name) -> name.endsWith(FlightDataRecorder.logFileSuffix));
+            if (filesInDirectory == null)
+                continue;
+            Arrays.sort(filesInDirectory);
+            logFiles.addAll(Arrays.asList(filesInDirectory));
+        }
+
+        int logsFailed = 0, logsDiverged = 0;
+        for (File logFile:logFiles) {
+            final LogReplay replay;
+            try {
+                replay = new LogReplay(FlightDataLog.read(logFile));
+                replay.run();
+            } catch (IOException e) {
+                System.out.println("<-- Log Replay | cannot read " + logFile + ": " + e.getMessage() + " -->");
+                logsFailed++;
+                continue;
+            } catch (BufferUnderflowException e) {
+                System.out.println("<-- Log Replay | " + logFile + " is truncated or corrupted -->");
+                logsFailed++;
+                continue;
+            } catch (IllegalArgumentException e) {
+                System.out.println("<-- Log Replay | cannot replay " + logFile + ": " + e.getMessage() + " -->");
+                logsFailed++;
+                continue;
+            } catch (RuntimeException e) {
+                System.out.println("<-- Log Replay | error while replaying " + logFile + ": " + e + " -->");
+                e.printStackTrace();
+                logsFailed++;
+                continue;
+            }
+            replay.printReport();
+            final double maxPowerError = replay.getMaxPowerError();
+            if (maxPowerError > powerErrorTolerance) {
+                System.out.println("<-- Log Replay | " + logFile + " diverges from the log, power error " + String.format("%.4f", maxPowerError)
+                        + " is above the tolerance " + powerErrorTolerance + " -->");
+                logsDiverged++;
+            }
+        }
+
+        System.out.println("<-- Log Replay | " + logFiles.size() + " logs, " + logsFailed + " failed, " + logsDiverged + " diverged -->");
+        if (logsFailed > 0 || logsDiverged > 0)
+            System.exit(1);
+    }
+}
@@ -0,0 +1,77 @@
+package frc.robot.Utils.Replay;
+
+import frc.robot.Drivers.Visions.RawObjectDetectionCamera;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * a camera that gives the targets recorded in the log
+ * the list of targets is only made again when the recorded results are new, so the trackers see the same results object as they did on the robot, until the next frame of the camera
+ * */
+public class ReplayCamera implements RawObjectDetectionCamera {
+    private final FlightDataLog log;
+    private final int resultsTimestampChannel, targetsCountChannel;
+    private final int[] idChannels, xChannels, yChannels, areaChannels;
+    private double resultsTimestamp = Double.NaN;
+    private List<ObjectTargetRaw> targets = Collections.emptyList();
+
+    /**
+     * @param name the name of the camera in the log, such as "april tag camera"
+     * @throws IllegalArgumentException if the camera is not recorded in the log
+     * */
+    public ReplayCamera(FlightDataLog log, String name) {
+        this.log = log;
+        this.resultsTimestampChannel = log.getChannel(name + "/results timestamp");
+        this.targetsCountChannel = log.getChannel(name + "/targets count");
+        int maxTargets = 0;
+        while (log.hasChannel(name + "/target " + maxTargets + "/id"))
+            maxTargets++;
+        idChannels = new int[maxTargets];
+        xChannels = new int[maxTargets];
+        yChannels = new int[maxTargets];
+        areaChannels = new int[maxTargets];
+        for (int i = 0; i < maxTargets; i++) {
+            final String targetName = name + "/target " + i;
+            idChannels[i] = log.getChannel(targetName + "/id");
+            xChannels[i] = log.getChannel(targetName + "/x");
+            yChannels[i] = log.getChannel(targetName + "/y");
+            areaChannels[i] = log.getChannel(targetName + "/area");
+        }
+    }
+
+    @Override
+    public void startRecognizing() {}
+
+    @Override
+    public void stopRecognizing() {}
+
+    @Override
+    public void update() {
+        final double recordedResultsTimestamp = log.getValue(resultsTimestampChannel);
+        if (recordedResultsTimestamp == resultsTimestamp)
+            return;
+        resultsTimestamp = recordedResultsTimestamp;
+        final int targetsCount = Math.min((int) log.getValue(targetsCountChannel), idChannels.length);
+        final List<ObjectTargetRaw> newTargets = new ArrayList<>(targetsCount);
+        for (int i = 0; i < targetsCount; i++)
+            newTargets.add(new ObjectTargetRaw(
+                    (int) log.getValue(idChannels[i]),
+                    log.getValue(xChannels[i]),
+                    log.getValue(yChannels[i]),
+                    log.getValue(areaChannels[i])
+            ));
+        targets = Collections.unmodifiableList(newTargets);
+    }
+
+    @Override
+    public List<ObjectTargetRaw> getRawTargets() {
+        return targets;
+    }
+
+    @Override
+    public double getResultsTimestamp() {
+        return resultsTimestamp;
+    }
+}
@@ -0,0 +1,26 @@
+package frc.robot.Utils.Replay;
+
+import frc.robot.Drivers.DistanceSensors.DistanceSensor;
+
+/**
+ * a distance sensor that reads from the log
+ * */
+public class ReplayDistanceSensor implements DistanceSensor {
+    private final FlightDataLog log;
+    private final int distanceChannel;
+
+    /**
+     * @param name the name of the sensor in the log, such as "Intake/distance sensor"
+     * @throws IllegalArgumentException if the sensor is not recorded in the log
+     * */
+    public ReplayDistanceSensor(FlightDataLog log, String name) {
+        this.log = log;
+        this.distanceChannel = log.getChannel(name + "/distance (cm)");
+    }
+
+    @Override
+    public double getDistanceCM(double defaultValue) {
+        final double distance = log.getValue(distanceChannel);
+        return distance < 0 ? defaultValue : distance; // invalid readings are recorded as -1
+    }
+}
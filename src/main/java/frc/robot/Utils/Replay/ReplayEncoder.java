@@ -0,0 +1,57 @@
+package frc.robot.Utils.Replay;
+
+import frc.robot.Drivers.Encoders.Encoder;
+
+/**
+ * an encoder that reads from the log
+ * the recorded position is already calibrated by the robot, so the zero position set by the replayed module is only used for the logs that don't record the position
+ * */
+public class ReplayEncoder implements Encoder {
+    private final FlightDataLog log;
+    /** the position channel is -1 if it's not in the log */
+    private final int positionChannel, rawReadingChannel, velocityChannel;
+    private double zeroPosition = 0;
+
+    /**
+     * @param name the name of the encoder in the log, such as "swerve module 1/steer encoder"
+     * @throws IllegalArgumentException if the encoder is not recorded in the log
+     * */
+    public ReplayEncoder(FlightDataLog log, String name) {
+        this.log = log;
+        this.positionChannel = log.hasChannel(name + "/position") ? log.getChannel(name + "/position") : -1;
+        this.rawReadingChannel = log.getChannel(name + "/raw reading");
+        this.velocityChannel = log.getChannel(name + "/velocity");
+    }
+
+    @Override
+    public void setZeroPosition(double zeroPosition) {
+        this.zeroPosition = zeroPosition;
+    }
+
+    @Override
+    public int getPortID() {
+        return -1;
+    }
+
+    @Override
+    public double getEncoderPosition() {
+        if (positionChannel < 0)
+            return getRawEncoderReading() - zeroPosition;
+        return log.getValue(positionChannel);
+    }
+
+    @Override
+    public double getEncoderVelocity() {
+        return log.getValue(velocityChannel);
+    }
+
+    @Override
+    public double getRawEncoderReading() {
+        return log.getValue(rawReadingChannel);
+    }
+
+    @Override
+    public double getEncoderReadingTimestamp() {
+        return log.getTimestamp();
+    }
+}
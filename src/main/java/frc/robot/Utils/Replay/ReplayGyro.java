@@ -0,0 +1,42 @@
+package frc.robot.Utils.Replay;
+
+import frc.robot.Drivers.IMUs.RawGyro;
+
+/**
+ * a gyro that reads the yaw from the log, the pitch and roll are not recorded so they are always zero
+ * */
+public class ReplayGyro implements RawGyro {
+    private final FlightDataLog log;
+    private final int yawChannel, yawVelocityChannel;
+    private final double[] yawPitchRoll = new double[3], yawPitchRollVelocity = new double[3];
+
+    /**
+     * @param name the name of the gyro in the log, "gyro" on the robot
+     * @throws IllegalArgumentException if the gyro is not recorded in the log
+     * */
+    public ReplayGyro(FlightDataLog log, String name) {
+        this.log = log;
+        this.yawChannel = log.getChannel(name + "/yaw");
+        this.yawVelocityChannel = log.getChannel(name + "/yaw velocity");
+    }
+
+    @Override
+    public void update() {}
+
+    @Override
+    public double[] getRawYawPitchRollAngle() {
+        yawPitchRoll[0] = log.getValue(yawChannel);
+        return yawPitchRoll;
+    }
+
+    @Override
+    public double[] getYawYawPitchRollVelocity() {
+        yawPitchRollVelocity[0] = log.getValue(yawVelocityChannel);
+        return yawPitchRollVelocity;
+    }
+
+    @Override
+    public double getYawTimestamp() {
+        return log.getTimestamp();
+    }
+}
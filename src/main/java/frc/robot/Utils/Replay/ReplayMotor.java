@@ -0,0 +1,91 @@
+package frc.robot.Utils.Replay;
+
+import frc.robot.Drivers.Motors.Motor;
+import frc.robot.Drivers.RobotDriverBase;
+import frc.robot.Modules.RobotModuleBase;
+
+/**
+ * a motor that moves nothing, it keeps the power that the replayed module asks for, so that it can be compared with the power recorded in the log
+ * */
+public class ReplayMotor extends RobotDriverBase implements Motor {
+    public final String name;
+    private final FlightDataLog log;
+    /** the channel of the recorded power, -1 if it's not in the log */
+    private final int powerChannel;
+    private double commandedPower = 0;
+
+    /* the difference between the commanded and the recorded powers, over the frames compared */
+    private double errorSquaredSum = 0, maxError = 0;
+    private int framesCompared = 0;
+
+    /**
+     * @param name the name of the motor in the log, such as "swerve module 1/motor 0" (the recorded power is "name/power")
+     * */
+    public ReplayMotor(FlightDataLog log, String name) {
+        this.name = name;
+        this.log = log;
+        this.powerChannel = log.hasChannel(name + "/power") ? log.getChannel(name + "/power") : -1;
+    }
+
+    @Override
+    public int getPortID() {
+        return -1;
+    }
+
+    @Override
+    public void setPower(double power, RobotModuleBase operatorModule) {
+        if (!isOwner(operatorModule))
+            return;
+        this.commandedPower = power;
+    }
+
+    @Override
+    public double getCurrentPower() {
+        return commandedPower;
+    }
+
+    /** @return the power recorded in the current frame of the log, NaN if it's not recorded */
+    public double getRecordedPower() {
+        return powerChannel < 0 ? Double.NaN : log.getValue(powerChannel);
+    }
+
+    @Override
+    public void onDestroy() {}
+
+    @Override
+    public void setMotorZeroPowerBehavior(ZeroPowerBehavior behavior, RobotModuleBase operatorModule) {}
+
+    @Override
+    public void disableMotor(RobotModuleBase operatorModule) {
+        setPower(0, operatorModule);
+    }
+
+    @Override
+    public void lockMotor(RobotModuleBase operatorModule) {
+        setPower(0, operatorModule);
+    }
+
+    /** compares the power commanded during the current frame with the recorded one, called after the modules are updated */
+    public void compareWithRecord() {
+        final double recordedPower = getRecordedPower();
+        if (Double.isNaN(recordedPower))
+            return;
+        final double error = Math.abs(commandedPower - recordedPower);
+        errorSquaredSum += error * error;
+        maxError = Math.max(maxError, error);
+        framesCompared++;
+    }
+
+    /** @return the root mean square of the difference between the commanded and recorded powers, NaN if nothing is compared */
+    public double getRootMeanSquaredError() {
+        return framesCompared == 0 ? Double.NaN : Math.sqrt(errorSquaredSum / framesCompared);
+    }
+
+    public double getMaxError() {
+        return maxError;
+    }
+
+    public int getFramesCompared() {
+        return framesCompared;
+    }
+}
@@ -1,47 +1,97 @@
 package frc.robot.Utils;
 
-import javax.management.StandardEmitterMBean;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-import javax.xml.xpath.*;
-
-import java.awt.*;
-import java.io.File;
-import java.io.IOException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-
-import javax.xml.parsers.DocumentBuilder;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
 
 import edu.wpi.first.wpilibj.Filesystem;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.Node;
-import org.xml.sax.SAXException;
 
+/**
+ * reads the configs of the robot from the xml files in the deploy directory
+ *
+ * the configs are stored as primitive doubles in an array, each config has an index (its handle) in that array
+ * modules that reads configs every cycle should get the handles once, and read the values through them
+ * every time a config is changed (by tuning from the dashboard), the version of the reader goes up
+ * so the modules only need to reload their configs when the version changes (see RobotModuleBase)
+ * each domain and each config also has its own version, so a module only reloads when one of the configs it uses is changed
+ *
+ * the xml files are read in a single streaming pass
+ * on the roboRIO, the configs read from each file are also saved in a binary cache, together with the hash of the file
+ * the next time the robot starts, the cache is used instead of the xml file, as long as the file is not changed
+ * */
 public class RobotConfigReader {
+    /** the sum of the versions of all the readers, increases whenever any config of any reader changes */
+    private static final AtomicLong globalVersion = new AtomicLong(0);
 
-    /** the hashmap that stores all the configs */
-    private Map<String, Map<String, Double>> robotConfigs= new HashMap(1);
+    /** the values of the configs, the index of a config is its handle */
+    private double[] configValues = new double[64];
+    private int configsCount = 0;
+    /** the index of each config, in the form of domainName -> constantName -> index */
+    private final Map<String, Map<String, Integer>> configIndexes = new HashMap<>();
+    /** the index of each config, in the form of "domainName/constantName" -> index, to avoid splitting the path */
+    private final Map<String, Integer> configPathIndexes = new HashMap<>();
+    /** increases whenever any config of this reader changes */
+    private long version = 0;
+    /** the index of each domain, in the form of domainName -> index */
+    private final Map<String, Integer> domainIndexes = new HashMap<>();
+    /** the domain index of each config, in the same order as configValues */
+    private int[] configDomainIndexes = new int[64];
+    /** the version of each domain, increases whenever any config of that domain changes */
+    private long[] domainVersions = new long[8];
+    /** the version of each config, in the same order as configValues, increases whenever that config changes */
+    private long[] configVersions = new long[64];
 
     /** the configurations to tune, in the form of configDomain/configName */
     private final List<String> configsToTune = new ArrayList(1);
+    /** the handles of the configs to tune, in the same order as configsToTune */
+    private final List<ConfigHandle> configsToTuneHandles = new ArrayList<>(1);
+
+    /** the cache of the configs, next to the deploy directory (so it's not erased when deploying) */
+    private static final String cacheDirectoryName = "config-cache";
+    private static final int cacheFileMagicNumber = 0x52434647, cacheFileFormatVersion = 1;
+
+    /**
+     * a handle to a config, reading from it is an array access without any string operations
+     * */
+    public static final class ConfigHandle {
+        private final RobotConfigReader reader;
+        private final int index;
+        /** the path of the config, in the form of "domainName/constantName" */
+        public final String path;
 
-    private File xmlFile;
-    private Document doc;
-    XPathFactory xPathFactory;
-    XPath xPath;
+        private ConfigHandle(RobotConfigReader reader, int index, String path) {
+            this.reader = reader;
+            this.index = index;
+            this.path = path;
+        }
 
+        /** @return the current value of the config */
+        public double get() {
+            return reader.configValues[index];
+        }
+
+        /** @return the version of the config, which goes up whenever its value is changed */
+        public long getVersion() {
+            return reader.configVersions[index];
+        }
+    }
 
     public RobotConfigReader() {
         try {
@@ -62,64 +112,181 @@ public class RobotConfigReader {
         }
     }
 
-    private void readConfigs(String configName) throws IOException, SAXException, ParserConfigurationException, XPathExpressionException {
+    private void readConfigs(String configName) throws IOException, XMLStreamException {
         /* read xml file from filesystem */
-        xmlFile = new File(Filesystem.getDeployDirectory(),configName+ ".xml");
-        DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-        doc = dBuilder.parse(xmlFile);
-        doc.getDocumentElement().normalize();
+        final File xmlFile = new File(Filesystem.getDeployDirectory(),configName+ ".xml");
+        final byte[] xmlFileContent = Files.readAllBytes(xmlFile.toPath());
+        final String xmlFileHash = getHash(xmlFileContent);
+        final File cacheFile = RobotBase.isReal() ?
+                new File(new File(Filesystem.getDeployDirectory().getParentFile(), cacheDirectoryName), configName + ".bin")
+                : null; // only use cache on the robot, so nothing is written to the project during simulation
 
-        /* add xpath finder */
-        xPathFactory = XPathFactory.newInstance();
-        xPath = xPathFactory.newXPath();
+        List<ConfigEntry> configEntries = cacheFile == null ? null : readCache(cacheFile, xmlFileHash);
+        if (configEntries == null) {
+            configEntries = parseXml(new ByteArrayInputStream(xmlFileContent));
+            if (cacheFile != null)
+                writeCache(cacheFile, xmlFileHash, configEntries);
+        }
+        else System.out.println("<-- Robot Config Reader | " + configName + " unchanged, using cache -->");
 
-        /* Get all configuration elements (e.g., hardwareConfig, chassisConfig) */
-        XPathExpression expr = xPath.compile("/robotConfig/*");
-        NodeList configDomains = (NodeList) expr.evaluate(doc, XPathConstants.NODESET);
+        for (ConfigEntry configEntry:configEntries)
+            putConfig(configEntry.domainName, configEntry.constantName, configEntry.value);
+    }
 
-        for (int i = 0; i < configDomains.getLength(); i++) {
-            Node configNode = configDomains.item(i);
-            String domainName = configNode.getNodeName();
-            readDomain(domainName);
+    /** a config read from a file */
+    private static final class ConfigEntry {
+        public final String domainName, constantName;
+        public final double value;
+
+        public ConfigEntry(String domainName, String constantName, double value) {
+            this.domainName = domainName;
+            this.constantName = constantName;
+            this.value = value;
         }
     }
 
-    private void readDomain(String domainName) throws XPathExpressionException {
-        /* read the configurations for hardware */
-        XPathExpression expr = xPath.compile("/robotConfig/" + domainName + "/*");
-        NodeList nodes = (NodeList) expr.evaluate(doc, XPathConstants.NODESET);
+    /**
+     * reads all the configs in a xml file with a single pass, the structure is robotConfig/domainName/constantName
+     * only reads double and int, for boolean, just do int and then do param != 0 to judge true or false
+     * if a constant appears twice in the same domain, the first one is used
+     * @return the configs, in the order of the file
+     * */
+    private static List<ConfigEntry> parseXml(InputStream xmlFileContent) throws XMLStreamException {
+        final List<ConfigEntry> configEntries = new ArrayList<>();
+        final Set<String> configsRead = new HashSet<>();
+        final XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(xmlFileContent);
+        try {
+            int depth = 0;
+            boolean inRobotConfig = false;
+            String domainName = null;
+            while (reader.hasNext()) {
+                final int event = reader.next();
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    depth--;
+                    continue;
+                }
+                if (event != XMLStreamConstants.START_ELEMENT)
+                    continue;
+                depth++;
+                if (depth == 1)
+                    inRobotConfig = reader.getLocalName().equals("robotConfig");
+                else if (depth == 2)
+                    domainName = reader.getLocalName();
+                else if (depth == 3 && inRobotConfig) {
+                    final String constantName = reader.getLocalName(),
+                            value = reader.getElementText(); // moves to the end of the constant
+                    depth--;
+                    if (configsRead.add(domainName + "/" + constantName))
+                        configEntries.add(new ConfigEntry(domainName, constantName, Double.parseDouble(value)));
+                    // System.out.println("reading " + domainName + " constant: " + constantName + ", value: " + value);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return configEntries;
+    }
 
-        Map<String, Double> domainConfigs = robotConfigs.containsKey(domainName) ? // keep original configs if there already is
-                robotConfigs.get(domainName) : new HashMap();
-        for (int i = 0; i < nodes.getLength(); i++) {
-            String constantName = nodes.item(i).getNodeName();
-            readConstant(domainName, constantName, domainConfigs);
+    private static String getHash(byte[] content) {
+        try {
+            final StringBuilder hash = new StringBuilder();
+            for (byte b:MessageDigest.getInstance("SHA-256").digest(content))
+                hash.append(String.format("%02x", b));
+            return hash.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * reads the configs from the cache
+     * @return the configs in the cache, or null if there is no cache, or the cache is made from a different version of the xml file
+     * */
+    private static List<ConfigEntry> readCache(File cacheFile, String xmlFileHash) {
+        if (!cacheFile.exists())
+            return null;
+        try (DataInputStream cache = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)))) {
+            if (cache.readInt() != cacheFileMagicNumber
+                    || cache.readInt() != cacheFileFormatVersion
+                    || !cache.readUTF().equals(xmlFileHash))
+                return null;
+            final int configsCount = cache.readInt();
+            final List<ConfigEntry> configEntries = new ArrayList<>(configsCount);
+            for (int i = 0; i < configsCount; i++)
+                configEntries.add(new ConfigEntry(cache.readUTF(), cache.readUTF(), cache.readDouble()));
+            return configEntries;
+        } catch (IOException e) {
+            System.out.println("<-- Robot Config Reader | cannot read config cache " + cacheFile + ", reading xml instead: " + e + " -->");
+            return null;
         }
+    }
 
-        robotConfigs.put(domainName, domainConfigs);
+    /** writes the configs to the cache, the cache is written to a temporary file first, so it is never half-written */
+    private static void writeCache(File cacheFile, String xmlFileHash, List<ConfigEntry> configEntries) {
+        try {
+            Files.createDirectories(cacheFile.getParentFile().toPath());
+            final File temporaryFile = new File(cacheFile.getParentFile(), cacheFile.getName() + ".tmp");
+            try (DataOutputStream cache = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFile)))) {
+                cache.writeInt(cacheFileMagicNumber);
+                cache.writeInt(cacheFileFormatVersion);
+                cache.writeUTF(xmlFileHash);
+                cache.writeInt(configEntries.size());
+                for (ConfigEntry configEntry:configEntries) {
+                    cache.writeUTF(configEntry.domainName);
+                    cache.writeUTF(configEntry.constantName);
+                    cache.writeDouble(configEntry.value);
+                }
+            }
+            Files.move(temporaryFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.out.println("<-- Robot Config Reader | cannot write config cache " + cacheFile + ": " + e + " -->");
+        }
     }
 
     /**
-     * read a specific constant from the xml file
-     * @param domainName the name of the domain that the constant belongs to
-     * @param constantName the name of that constant
-     * @param domainConfigs the current map of the configurations inside the domain that this constant belongs to
-     *  */
-    private void readConstant(String domainName, String constantName, Map<String, Double> domainConfigs) throws XPathExpressionException {
-        /* only reads double and int, for boolean, just do int and then do param != 0 to judge true or false */
-
-        // XPathExpression expr = xPath.compile("/robotConfig/hardware/" + constantName + "/text()");
-        XPathExpression expr = xPath.compile("/robotConfig/" + domainName + "/" + constantName);
-        Node node = (Node) expr.evaluate(doc, XPathConstants.NODE);
-
-        if (node == null) {
-            System.out.println("warning, constant: " + constantName + " not found in xml file, skipping");
+     * sets the value of a config, the config is added if there isn't one (configs that are already read are overwritten)
+     * the version goes up if the value is changed
+     * */
+    private void putConfig(String domainName, String constantName, double value) {
+        final Integer index = configIndexes.containsKey(domainName) ? configIndexes.get(domainName).get(constantName) : null;
+        if (index != null) {
+            setConfigValue(index, value);
             return;
         }
 
-        domainConfigs.put(constantName, Double.parseDouble(node.getTextContent()));
-        // System.out.println("reading " + domainName + " constant: " + constantName + ", value: " + node.getTextContent());
+        Integer domainIndex = domainIndexes.get(domainName);
+        if (domainIndex == null) {
+            domainIndex = domainIndexes.size();
+            domainIndexes.put(domainName, domainIndex);
+            if (domainIndex == domainVersions.length)
+                domainVersions = Arrays.copyOf(domainVersions, domainVersions.length * 2);
+        }
+        if (configsCount == configValues.length) {
+            configValues = Arrays.copyOf(configValues, configValues.length * 2);
+            configDomainIndexes = Arrays.copyOf(configDomainIndexes, configDomainIndexes.length * 2);
+            configVersions = Arrays.copyOf(configVersions, configVersions.length * 2);
+        }
+        configValues[configsCount] = value;
+        configDomainIndexes[configsCount] = domainIndex;
+        configIndexes.computeIfAbsent(domainName, domain -> new HashMap<>()).put(constantName, configsCount);
+        configPathIndexes.put(domainName + "/" + constantName, configsCount);
+        configsCount++;
+        increaseVersion(configsCount-1);
+    }
+
+    private void setConfigValue(int index, double value) {
+        if (Double.compare(configValues[index], value) == 0)
+            return;
+        configValues[index] = value;
+        increaseVersion(index);
+    }
+
+    /** increases the versions after a config is changed */
+    private void increaseVersion(int changedConfigIndex) {
+        configVersions[changedConfigIndex]++;
+        domainVersions[configDomainIndexes[changedConfigIndex]]++;
+        version++;
+        globalVersion.incrementAndGet();
     }
 
     /**
@@ -128,13 +295,7 @@ public class RobotConfigReader {
      * @return the value of the constant
      */
     public double getConfig(String configPath) {
-        try {
-            String domainName = configPath.split("/")[0];
-            String constantName = configPath.split("/")[1];
-            return getConfig(domainName, constantName);
-        } catch (ArrayIndexOutOfBoundsException e) {
-            throw new IllegalArgumentException("invalid path: " + configPath);
-        }
+        return configValues[getConfigIndex(configPath)];
     }
 
     /**
@@ -144,12 +305,61 @@ public class RobotConfigReader {
      * @return the value of the constant
      */
     public double getConfig(String domainName, String constantName) {
-        try {
-            return robotConfigs.get(domainName).get(constantName);
-        } catch (NullPointerException e) {
+        return configValues[getConfigIndex(domainName, constantName)];
+    }
+
+    /** @return whether there is such a config */
+    public boolean hasConfig(String domainName, String constantName) {
+        return configIndexes.containsKey(domainName) && configIndexes.get(domainName).containsKey(constantName);
+    }
+
+    /**
+     * gets a handle to a config, so that the config can be read every cycle without looking it up
+     * @param configPath in domainName/constantName
+     * */
+    public ConfigHandle getConfigHandle(String configPath) {
+        return new ConfigHandle(this, getConfigIndex(configPath), configPath);
+    }
+
+    public ConfigHandle getConfigHandle(String domainName, String constantName) {
+        return new ConfigHandle(this, getConfigIndex(domainName, constantName), domainName + "/" + constantName);
+    }
+
+    private int getConfigIndex(String configPath) {
+        final Integer index = configPathIndexes.get(configPath);
+        if (index != null)
+            return index;
+        if (configPath.indexOf('/') == -1)
+            throw new IllegalArgumentException("invalid path: " + configPath);
+        throw new NullPointerException("config not found: " + configPath);
+    }
+
+    private int getConfigIndex(String domainName, String constantName) {
+        final Map<String, Integer> domainIndexes = configIndexes.get(domainName);
+        final Integer index = domainIndexes == null ? null : domainIndexes.get(constantName);
+        if (index == null)
             throw new NullPointerException("config not found: " + domainName + "/" + constantName);
-        }
+        return index;
+    }
+
+    /** @return the version of the configs of this reader, which goes up whenever any of them changes */
+    public long getVersion() {
+        return version;
+    }
 
+    /**
+     * gets the version of a domain, modules can reload their configs only when this changes
+     * @param domainName the name of the domain
+     * @return the version of the configs in the domain, which goes up whenever any of them changes, or 0 if there is no such domain
+     * */
+    public long getDomainVersion(String domainName) {
+        final Integer domainIndex = domainIndexes.get(domainName);
+        return domainIndex == null ? 0 : domainVersions[domainIndex];
+    }
+
+    /** @return the sum of the versions of all the readers, which goes up whenever any config of any reader changes */
+    public static long getGlobalVersion() {
+        return globalVersion.get();
     }
 
     /** start to tune a configuration on the dashboard (shuffleboard suggested) */
@@ -158,19 +368,19 @@ public class RobotConfigReader {
     }
 
     public void startTuningConfig(String configPath) {
-        if (!configsToTune.contains(configPath))
+        final ConfigHandle handle = getConfigHandle(configPath);
+        if (!configsToTune.contains(configPath)) {
             configsToTune.add(configPath);
-        SmartDashboard.putNumber(configPath, getConfig(configPath));
+            configsToTuneHandles.add(handle);
+        }
+        SmartDashboard.putNumber(configPath, handle.get());
     }
 
 
     public void updateTuningConfigsFromDashboard() {
-        for (String configToTune: configsToTune) {
-            String domainName = configToTune.split("/")[0];
-            String constantName = configToTune.split("/")[1];
-            Map<String, Double> domainConfig = robotConfigs.get(domainName);
-            domainConfig.put(constantName, SmartDashboard.getNumber(configToTune, domainConfig.get(constantName)));
-            robotConfigs.put(domainName, domainConfig);
+        for (int i = 0; i < configsToTuneHandles.size(); i++) {
+            final ConfigHandle handle = configsToTuneHandles.get(i);
+            setConfigValue(handle.index, SmartDashboard.getNumber(handle.path, handle.get()));
         }
     }
 }
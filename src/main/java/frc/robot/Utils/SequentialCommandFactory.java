@@ -1,7 +1,5 @@
 package frc.robot.Utils;
 
-import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.Timer;
 import frc.robot.AutoStagePrograms.FieldPositions;
 import frc.robot.Modules.PositionReader.PositionEstimator;
@@ -11,13 +9,7 @@ import frc.robot.Utils.MathUtils.BezierCurve;
 import frc.robot.Utils.MathUtils.Rotation2D;
 import frc.robot.Utils.MathUtils.SpeedCurves;
 import frc.robot.Utils.MathUtils.Vector2D;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
-import org.json.simple.parser.ParseException;
 
-import java.io.*;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -252,27 +244,7 @@ public class SequentialCommandFactory {
     }
 
     public static Vector2D getRobotStartingPosition(String firstPathName) {
-        try (BufferedReader br = new BufferedReader(new FileReader(new File(
-                Filesystem.getDeployDirectory(), "pathplanner/paths/" + firstPathName + ".path")))) {
-            StringBuilder fileContentBuilder = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) {
-                fileContentBuilder.append(line);
-            }
-            String fileContent = fileContentBuilder.toString();
-            JSONObject pathJson = (JSONObject) new JSONParser().parse(fileContent);
-            JSONArray waypointsJson = (JSONArray) pathJson.get("waypoints");
-
-            JSONObject firstPoint = (JSONObject) waypointsJson.get(0);
-
-            return pointFromJson((JSONObject) firstPoint.get("anchor"));
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("Cannot Find Path File: " + firstPathName + " From Deploy Directory: " + Filesystem.getDeployDirectory());
-        } catch (IOException e) {
-            throw new RuntimeException("IO Error While Reading File: " + firstPathName);
-        } catch (ParseException e) {
-            throw new RuntimeException("Error Occurred While Processing JSON Path File: " + firstPathName);
-        }
+        return PathPlannerPathsCache.getStartingPosition(firstPathName);
     }
 
     public SequentialCommandSegment followSingleCurve(String pathName, int index, Rotation2D facingRotation) {
@@ -364,57 +336,11 @@ public class SequentialCommandFactory {
         return commandSegments;
     }
 
-    public static List<BezierCurve> getBezierCurvesFromPathFile(String pathName) {
-        try (BufferedReader br = new BufferedReader(new FileReader(new File(
-                Filesystem.getDeployDirectory(), "pathplanner/paths/" + pathName + ".path")))) {
-            StringBuilder fileContentBuilder = new StringBuilder();
-            String line;
-            while ((line = br.readLine()) != null) fileContentBuilder.append(line);
-
-            String fileContent = fileContentBuilder.toString();
-            JSONObject pathJson = (JSONObject) new JSONParser().parse(fileContent);
-            JSONArray waypointsJson = (JSONArray) pathJson.get("waypoints");
-
-            List<BezierCurve> curves = new ArrayList<>();
-            for (int i = 0; i < waypointsJson.size() - 1; i++) {
-                JSONObject point = (JSONObject) waypointsJson.get(i),
-                        nextPoint = (JSONObject) waypointsJson.get(i+1);
-                curves.add(new BezierCurve(
-                        pointFromJson((JSONObject) point.get("anchor")),
-                        pointFromJson((JSONObject) point.get("nextControl")),
-                        pointFromJson((JSONObject) nextPoint.get("prevControl")),
-                        pointFromJson((JSONObject) nextPoint.get("anchor"))
-                ));
-            }
-            return curves;
-        } catch (FileNotFoundException e) {
-            throw new RuntimeException("Cannot Find Path File: " + pathName + " From Deploy Directory: " + Filesystem.getDeployDirectory());
-        } catch (IOException e) {
-            throw new RuntimeException("IO Error While Reading File: " + pathName);
-        } catch (ParseException e) {
-            throw new RuntimeException("Error Occurred While Processing JSON Path File: " + pathName);
-        }
-    }
-
     /**
-     * converts a point from pathplanner to vector2D
-     * pathplanner is always in red alliance
-     * converts to red / blue alliance according to driver-station, defaults to red
+     * gets the curves of a path drawn in pathplanner, in the coordinates of the current alliance
+     * the files are only read once, see PathPlannerPathsCache
      * */
-    private static Vector2D pointFromJson(JSONObject pointJson) {
-        final double x = ((Number) pointJson.get("x")).doubleValue();
-        final double y = ((Number) pointJson.get("y")).doubleValue();
-
-        DriverStation.Alliance alliance = DriverStation.getAlliance().orElse(DriverStation.Alliance.Red);
-
-        final double fieldHeight = 8.21, fieldWidth = 16.54;
-//        return switch (alliance) {
-//            case Red -> new Vector2D(new double[]{y - fieldHeight / 2, fieldWidth - x});
-//            case Blue -> new Vector2D(new double[]{fieldHeight / 2 - y, x});
-//        };
-        return new Vector2D(new double[] {
-                (alliance == DriverStation.Alliance.Blue ? -1:1) * (y - fieldHeight / 2),
-                fieldWidth - x
-        });
+    public static List<BezierCurve> getBezierCurvesFromPathFile(String pathName) {
+        return PathPlannerPathsCache.getBezierCurves(pathName);
     }
 }
@@ -0,0 +1,159 @@
+package frc.robot.Utils;
+
+import edu.wpi.first.networktables.GenericEntry;
+import frc.robot.RobotShell;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * publishes numbers to the dashboard from a thread of its own, so that the control loop does not wait for the network tables
+ * the code in the loop only writes the numbers into their slots, which are created in advance
+ * the publisher thread sends the numbers that changed, each at the rate of its own slot
+ * the widgets of the slots are created by the main thread (see createEntries()), as shuffleboard is not thread-safe, the publisher thread only sets the numbers of the entries
+ *
+ * usage:
+ *   NumberSlot slot = TelemetryPublisher.register("chassis", "position x", TelemetryPublisher.debugDataRateHZ); // once, during initialization
+ *   slot.set(positionX); // every cycle
+ *   TelemetryPublisher.createEntries(); // every cycle, by the main loop
+ * */
+public final class TelemetryPublisher {
+    /** the rate of the numbers that the drivers look at during the match */
+    public static final double driverDataRateHZ = 50;
+    /** the rate of the numbers for debugging and tuning */
+    public static final double debugDataRateHZ = 10;
+    /** the frequency that the publisher thread wakes up at, slots faster than this are published at this rate */
+    private static final double publisherFrequencyHZ = 50;
+
+    /** a number on the dashboard, written by the robot code and read by the publisher thread */
+    public static final class NumberSlot {
+        public final String tab, title;
+        private final long publishPeriodNano;
+        /** NaN until it's set, slots that are never set are not published so they do not make empty widgets */
+        private volatile double value = Double.NaN;
+
+        /* used by the publisher thread only */
+        private long nextPublishTimeNano = 0;
+        private long publishedValueBits = Double.doubleToLongBits(Double.NaN);
+        /** the entry of the widget, created by the main thread once the slot is set, and only then published by the publisher thread */
+        private volatile GenericEntry entry = null;
+        /* used by the main thread only, true if the widget can not be created, so we don't try again every cycle */
+        private boolean entryFailed = false;
+
+        private NumberSlot(String tab, String title, double rateHZ) {
+            this.tab = tab;
+            this.title = title;
+            this.publishPeriodNano = (long) (1_000_000_000 / rateHZ);
+        }
+
+        /** sets the number, it's sent to the dashboard the next time this slot is published */
+        public void set(double value) {
+            this.value = value;
+        }
+
+        public double get() {
+            return value;
+        }
+    }
+
+    private static final Map<String, NumberSlot> slotsByName = new HashMap<>();
+    /** all the slots, replaced as a whole when a slot is added, so the publisher thread reads it without locking */
+    private static volatile NumberSlot[] slots = new NumberSlot[0];
+    private static volatile Thread publisherThread = null;
+    /** the amount of slots at the front of the slots array that all have their entries (or failed to), used by the main thread only */
+    private static int slotsWithEntries = 0;
+
+    /**
+     * registers a number to be published
+     * call this during initialization, not in the loop
+     * registering the same number twice gives the same slot, with the rate of the first registration
+     * @param tab the tab of shuffleboard that the number is in
+     * @param title the title of the number
+     * @param rateHZ how many times per second the number is sent if it keeps changing, see driverDataRateHZ and debugDataRateHZ
+     * @return the slot to write the number into
+     * */
+    public static synchronized NumberSlot register(String tab, String title, double rateHZ) {
+        if (!(rateHZ > 0))
+            throw new IllegalArgumentException("publishing rate must be positive");
+        final String name = tab + "/" + title;
+        NumberSlot slot = slotsByName.get(name);
+        if (slot != null)
+            return slot;
+        slot = new NumberSlot(tab, title, rateHZ);
+        slotsByName.put(name, slot);
+        final NumberSlot[] newSlots = Arrays.copyOf(slots, slots.length + 1);
+        newSlots[slots.length] = slot;
+        slots = newSlots;
+        return slot;
+    }
+
+    /** registers a number for debugging, see register(String, String, double) */
+    public static NumberSlot register(String tab, String title) {
+        return register(tab, title, debugDataRateHZ);
+    }
+
+    /** starts the publisher thread, does nothing if it's already started or during formal competitions */
+    public static synchronized void start() {
+        if (RobotShell.isFormalCompetition || publisherThread != null)
+            return;
+        publisherThread = new Thread(TelemetryPublisher::publishContinuously, "telemetry-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.setPriority(Thread.MIN_PRIORITY);
+        publisherThread.start();
+        System.out.println("<-- Telemetry Publisher | publisher thread started -->");
+    }
+
+    /**
+     * creates the widgets of the slots that are set for the first time
+     * shuffleboard is not thread-safe, so this must be called by the main thread, once every cycle of the main loop
+     * does nothing if the publisher thread is not started
+     * */
+    public static void createEntries() {
+        if (publisherThread == null)
+            return;
+        final NumberSlot[] slots = TelemetryPublisher.slots;
+        boolean allPreviousSlotsDone = true;
+        for (int i = slotsWithEntries; i < slots.length; i++) {
+            final NumberSlot slot = slots[i];
+            if (slot.entry == null && !slot.entryFailed) {
+                final double value = slot.value;
+                if (Double.isNaN(value)) {
+                    allPreviousSlotsDone = false;
+                    continue; // not set yet, no empty widgets
+                }
+                final GenericEntry entry = EasyShuffleBoard.getEntry(slot.tab, slot.title, value);
+                if (entry == null)
+                    slot.entryFailed = true;
+                else
+                    slot.entry = entry;
+            }
+            if (allPreviousSlotsDone)
+                slotsWithEntries = i + 1;
+        }
+    }
+
+    private static void publishContinuously() {
+        final long periodNano = (long) (1_000_000_000 / publisherFrequencyHZ);
+        while (true) {
+            final long startTimeNano = System.nanoTime();
+            for (NumberSlot slot:slots)
+                publishIfNeeded(slot, startTimeNano);
+            LockSupport.parkNanos(periodNano - (System.nanoTime() - startTimeNano));
+        }
+    }
+
+    private static void publishIfNeeded(NumberSlot slot, long timeNano) {
+        final GenericEntry entry = slot.entry;
+        if (entry == null || timeNano - slot.nextPublishTimeNano < 0)
+            return; // the widget is not created yet, or it's not time yet
+        final double value = slot.value;
+        final long valueBits = Double.doubleToLongBits(value);
+        if (valueBits == slot.publishedValueBits)
+            return; // not changed, no need to send it again
+        slot.nextPublishTimeNano = timeNano + slot.publishPeriodNano;
+        entry.setDouble(value);
+        slot.publishedValueBits = valueBits;
+    }
+}
@@ -0,0 +1,78 @@
+package frc.robot.Utils;
+
+import java.util.Arrays;
+
+/**
+ * a histogram of time intervals, in nanoseconds, in the style of HDR histograms
+ * the buckets are log-linear: every power of two is split into 16 equal buckets, so the error of the percentiles is within 6.25%
+ * recording is a few integer operations on a pre-allocated array, with no allocation
+ * note that this is not thread-safe, only one thread should record at a time
+ * */
+public class TimingHistogram {
+    private static final int subBucketBits = 4, subBucketsCount = 1 << subBucketBits;
+    /** the largest power of two that can be recorded (about 1100 seconds), larger values are clamped */
+    private static final int maxMagnitude = 40;
+    private static final int bucketsCount = subBucketsCount + (maxMagnitude - subBucketBits + 1) * subBucketsCount;
+    private static final long maxRecordableValue = (1L << (maxMagnitude + 1)) - 1;
+
+    private final long[] counts = new long[bucketsCount];
+    private long totalCount = 0, maxValue = 0;
+
+    /** @param timeNano the time interval to record, in nanoseconds */
+    public void record(long timeNano) {
+        timeNano = Math.max(0, Math.min(timeNano, maxRecordableValue));
+        counts[getBucketIndex(timeNano)]++;
+        totalCount++;
+        maxValue = Math.max(maxValue, timeNano);
+    }
+
+    private static int getBucketIndex(long value) {
+        if (value < subBucketsCount)
+            return (int) value;
+        final int magnitude = 63 - Long.numberOfLeadingZeros(value),
+                shift = magnitude - subBucketBits;
+        final int subBucket = (int) (value >>> shift) - subBucketsCount;
+        return subBucketsCount + shift * subBucketsCount + subBucket;
+    }
+
+    /** @return the largest value that falls into the given bucket */
+    private static long getBucketHighestValue(int bucketIndex) {
+        if (bucketIndex < subBucketsCount)
+            return bucketIndex;
+        final int shift = (bucketIndex - subBucketsCount) / subBucketsCount,
+                subBucket = (bucketIndex - subBucketsCount) % subBucketsCount;
+        return ((long) (subBucketsCount + subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * gets the value at a given percentile
+     * @param percentile the percentile, from 0 to 1 (0.5 for median)
+     * @return the value, in nanoseconds, that the given portion of the recorded values are smaller than or equal to; 0 if nothing is recorded
+     * */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0)
+            return 0;
+        final long countToReach = Math.max(1, (long) Math.ceil(percentile * totalCount));
+        long count = 0;
+        for (int bucketIndex = 0; bucketIndex < bucketsCount; bucketIndex++) {
+            count += counts[bucketIndex];
+            if (count >= countToReach)
+                return Math.min(getBucketHighestValue(bucketIndex), maxValue);
+        }
+        return maxValue;
+    }
+
+    public long getMaxValue() {
+        return maxValue;
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    /** clears all the recorded values */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = maxValue = 0;
+    }
+}
@@ -0,0 +1,358 @@
+package frc.robot.Drivers.Visions;
+
+import edu.wpi.first.hal.HAL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * tests the jetson client against a stand-in server
+ * the server either streams numbered frames as fast as it can, or sends the response in jetson-results-response.http (in the test resources)
+ * every numbered frame has its own number, and all the targets of a frame carry that number, so a torn frame (half of one frame, half of another) can be told
+ * the parser is also checked against String.split() and Double.parseDouble(), which the client used before
+ * */
+public class JetsonDetectionAppClientTest {
+    private static final double[] cameraResolution = new double[] {640, 480};
+    private static final long readingTimeMillis = 1000, stopTimeoutMillis = 3000;
+
+    private static final String recordedResponseName = "jetson-results-response.http";
+
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+    private volatile boolean serverRunning;
+    /* <-- used by the server thread, and read by the tests --> */
+    private int nextFrame = 0;
+    private volatile Socket currentConnection;
+    /** the number of the first frame sent on each connection */
+    private final List<Integer> connectionsFirstFrames = new CopyOnWriteArrayList<>();
+    /* each test has its own client name, so the threads of the previous test (which may still be stopping) are not counted */
+    private static int clientsCount = 0;
+    private String clientName;
+    private JetsonDetectionAppClient client = null;
+
+    /** sends the response on a connection, after the request is received */
+    private interface ResponseSender {
+        void send(OutputStream outputStream) throws IOException;
+    }
+
+    @BeforeAll
+    public static void initializeHAL() {
+        assertTrue(HAL.initialize(500, 0));
+    }
+
+    private void startServerAndClient(ResponseSender responseSender) throws IOException {
+        serverSocket = new ServerSocket(0);
+        serverRunning = true;
+        serverThread = new Thread(() -> acceptConnections(responseSender), "JetsonStandInServer");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        clientName = "ClientTest" + clientsCount++;
+        client = new JetsonDetectionAppClient(clientName, "localhost", serverSocket.getLocalPort(), cameraResolution);
+        client.startRecognizing();
+    }
+
+    @AfterEach
+    public void stopServerAndClient() throws IOException {
+        if (client == null)
+            return;
+        client.stopRecognizing();
+        serverRunning = false;
+        serverSocket.close();
+    }
+
+    /** frame k has (k % 5 + 1) targets, target i of it is "k i k%1000 i+1" */
+    private static String frameLine(int frame) {
+        final StringBuilder line = new StringBuilder();
+        for (int i = 0; i < frame % 5 + 1; i++)
+            line.append(frame).append(' ').append(i).append(' ').append(frame % 1000).append(' ').append(i + 1).append('/');
+        return line.append('\n').toString();
+    }
+
+    private void acceptConnections(ResponseSender responseSender) {
+        while (serverRunning) {
+            try (Socket socket = serverSocket.accept()) {
+                currentConnection = socket;
+                connectionsFirstFrames.add(nextFrame);
+                socket.getInputStream().read(new byte[1024]); // the request, not checked
+                responseSender.send(socket.getOutputStream());
+            } catch (IOException ignored) {
+                // the client disconnected, the connection is dropped by the test, or the server is closed
+            }
+        }
+    }
+
+    private void streamFrames(OutputStream outputStream) throws IOException {
+        outputStream.write("HTTP/1.0 200 OK\r\nContent-Type: text/plain\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+        while (serverRunning)
+            outputStream.write(frameLine(nextFrame++).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /** sends the whole response, and then keeps the connection open like the detection app does */
+    private void sendResponse(OutputStream outputStream, byte[] response) throws IOException {
+        outputStream.write(response);
+        outputStream.flush();
+        while (serverRunning)
+            try {Thread.sleep(10);} catch (InterruptedException ignored) {}
+    }
+
+    /** @return the number of the frame, after checking that the targets are exactly that whole frame */
+    private static int checkWholeFrame(int targetsCount, int[] ids, double[] x, double[] y, double[] areas) {
+        if (targetsCount <= 0)
+            fail("a frame always has targets, but " + targetsCount + " targets are read");
+        final int frame = ids[0];
+        boolean wholeFrame = targetsCount == frame % 5 + 1;
+        for (int i = 0; i < targetsCount; i++)
+            wholeFrame &= ids[i] == frame
+                    && x[i] == i - cameraResolution[0] / 2
+                    && y[i] == frame % 1000 - cameraResolution[0] / 2
+                    && areas[i] == i + 1;
+        if (!wholeFrame)
+            fail("torn frame: " + describe(targetsCount, ids, x, y, areas) + ", expected frame " + frame + " with " + (frame % 5 + 1) + " targets");
+        return frame;
+    }
+
+    private static String describe(int targetsCount, int[] ids, double[] x, double[] y, double[] areas) {
+        final StringBuilder description = new StringBuilder();
+        for (int i = 0; i < targetsCount; i++)
+            description.append('[').append(ids[i]).append(' ').append(x[i]).append(' ').append(y[i]).append(' ').append(areas[i]).append(']');
+        return description.toString();
+    }
+
+    private int waitForFrame() throws InterruptedException {
+        final int[] ids = new int[JetsonDetectionAppClient.maxTargetsCount];
+        final double[] x = new double[ids.length], y = new double[ids.length], areas = new double[ids.length];
+        final long deadline = System.currentTimeMillis() + stopTimeoutMillis;
+        int targetsCount;
+        while ((targetsCount = client.getRawTargets(ids, x, y, areas)) <= 0) {
+            client.update();
+            assertTrue(System.currentTimeMillis() < deadline, "no results received");
+            Thread.sleep(1);
+        }
+        return checkWholeFrame(targetsCount, ids, x, y, areas);
+    }
+
+    @Test
+    public void everySnapshotIsOneWholeFrame() throws IOException, InterruptedException {
+        startServerAndClient(this::streamFrames);
+        waitForFrame();
+
+        final int[] ids = new int[JetsonDetectionAppClient.maxTargetsCount];
+        final double[] x = new double[ids.length], y = new double[ids.length], areas = new double[ids.length];
+        final long endTime = System.currentTimeMillis() + readingTimeMillis;
+        int previousFrame = -1, framesSeen = 0;
+        while (System.currentTimeMillis() < endTime) {
+            final int frame = checkWholeFrame(client.getRawTargets(ids, x, y, areas), ids, x, y, areas);
+            assertTrue(frame >= previousFrame, "frame " + frame + " seen after frame " + previousFrame);
+            if (frame != previousFrame) framesSeen++;
+            previousFrame = frame;
+
+            /* the list is made from a snapshot too */
+            final List<RawObjectDetectionCamera.ObjectTargetRaw> targets = client.getRawTargets();
+            final int listFrame = targets.get(0).id;
+            boolean wholeFrame = targets.size() == listFrame % 5 + 1;
+            for (int i = 0; i < targets.size(); i++)
+                wholeFrame &= targets.get(i).id == listFrame && targets.get(i).areaReflected == i + 1;
+            if (!wholeFrame)
+                fail("torn frame in the targets list, expected frame " + listFrame);
+        }
+        assertTrue(framesSeen > 10, "only " + framesSeen + " frames seen");
+    }
+
+    @Test
+    public void stoppedThreadClearsResults() throws IOException, InterruptedException {
+        startServerAndClient(this::streamFrames);
+        waitForFrame();
+        client.stopRecognizing();
+
+        final long deadline = System.currentTimeMillis() + stopTimeoutMillis;
+        while (client.getCommunicationThreadState() != Thread.State.TERMINATED) {
+            assertTrue(System.currentTimeMillis() < deadline, "communication thread not stopped");
+            Thread.sleep(1);
+        }
+        assertTrue(client.getRawTargets().isEmpty());
+    }
+
+    @Test
+    public void restartWaitsForPreviousThread() throws IOException, InterruptedException {
+        startServerAndClient(this::streamFrames);
+        waitForFrame();
+        final List<Thread> previousThreads = getCommunicationThreads();
+        assertEquals(1, previousThreads.size());
+        client.stopRecognizing();
+        client.startRecognizing();
+
+        final long deadline = System.currentTimeMillis() + stopTimeoutMillis;
+        List<Thread> threads;
+        while ((threads = getCommunicationThreads()).isEmpty() || threads.get(0) == previousThreads.get(0)) {
+            assertTrue(threads.size() <= 1, "two communication threads alive");
+            assertTrue(System.currentTimeMillis() < deadline, "communication not restarted");
+            client.update();
+            Thread.sleep(1);
+        }
+        assertEquals(1, threads.size(), "two communication threads alive");
+        waitForFrame();
+    }
+
+    @Test
+    public void reconnectsAfterServerDropsConnection() throws IOException, InterruptedException {
+        startServerAndClient(this::streamFrames);
+        waitForFrame();
+        final List<Thread> threadsBeforeDrop = getCommunicationThreads();
+        currentConnection.close();
+
+        /* the client connects again by itself, within its longest reconnect delay */
+        final long deadline = System.currentTimeMillis() + stopTimeoutMillis;
+        while (connectionsFirstFrames.size() < 2) {
+            assertTrue(System.currentTimeMillis() < deadline, "not reconnected after the connection is dropped");
+            Thread.sleep(1);
+        }
+        final int firstFrameAfterDrop = connectionsFirstFrames.get(1);
+        int frame;
+        while ((frame = waitForFrame()) < firstFrameAfterDrop) {
+            assertTrue(System.currentTimeMillis() < deadline, "no results after reconnecting, last frame seen: " + frame);
+            Thread.sleep(1);
+        }
+        assertEquals(threadsBeforeDrop, getCommunicationThreads(), "the same communication thread should reconnect");
+    }
+
+    @Test
+    public void readsRecordedResponse() throws IOException, InterruptedException {
+        final byte[] response = readRecordedResponse();
+        startServerAndClient(outputStream -> sendResponse(outputStream, response));
+        final List<String> resultLines = getResultLines(response);
+        final List<double[]> expectedTargets = parseWithSplit(resultLines.get(resultLines.size() - 1));
+
+        /* the client ends up with the targets of the last line */
+        final long deadline = System.currentTimeMillis() + stopTimeoutMillis;
+        List<RawObjectDetectionCamera.ObjectTargetRaw> targets;
+        while (!sameTargets(expectedTargets, targets = client.getRawTargets())) {
+            assertTrue(System.currentTimeMillis() < deadline, "targets of the last line not received, last targets read: " + targets);
+            Thread.sleep(1);
+        }
+    }
+
+    @Test
+    public void parsesRecordedLinesLikeSplit() throws IOException {
+        final int[] ids = new int[JetsonDetectionAppClient.maxTargetsCount];
+        final double[] x = new double[ids.length], y = new double[ids.length], areas = new double[ids.length];
+        for (String line:getResultLines(readRecordedResponse())) {
+            final byte[] lineBytes = line.getBytes(StandardCharsets.US_ASCII);
+            final int targetsCount = JetsonDetectionAppClient.parseTargets(lineBytes, 0, lineBytes.length, cameraResolution, ids, x, y, areas);
+            final List<double[]> expectedTargets = parseWithSplit(line);
+            assertEquals(expectedTargets.size(), targetsCount, "targets count of line \"" + line + "\"");
+            for (int i = 0; i < targetsCount; i++) {
+                final double[] expected = expectedTargets.get(i);
+                assertEquals(expected[0], ids[i], "id of target " + i + " in line \"" + line + "\"");
+                assertEquals(expected[1], x[i], "x of target " + i + " in line \"" + line + "\"");
+                assertEquals(expected[2], y[i], "y of target " + i + " in line \"" + line + "\"");
+                assertEquals(expected[3], areas[i], "area of target " + i + " in line \"" + line + "\"");
+            }
+        }
+    }
+
+    @Test
+    public void parsesNumbersLikeParseDouble() {
+        final String[] numbers = {
+                "0", "-0", "+0", "-0.0", "7", "-7", "+7", "12.5", "-12.5", "0.1", "-0.1", ".5", "-.5", "5.", "318.4671630859375",
+                "99.99999999999999", "123456789012345", "1234567890123456789012", "0.000000000000000000001",
+                "1e5", "1E5", "2.5e-05", "-2.5E+3", "1e22", "1e23", "1e-22", "1e-23", "4.9e-324", "1e-400", "1.7976931348623157e308", "1e309",
+                "NaN", "Infinity", "-Infinity", "1f", "1d",
+                "", "-", "+", ".", "-.", "e5", "1e", "1e+", "1e-", "1e5.5", "1.2.3", "--1", "+-1", "1-", "abc", "12a", "0x10", "1 2"
+        };
+        for (String number:numbers)
+            checkParseNumber(number);
+
+        final Random random = new Random(5516);
+        for (int i = 0; i < 100_000; i++) {
+            final StringBuilder number = new StringBuilder();
+            if (random.nextInt(3) == 0) number.append('-');
+            number.append(random.nextInt(1 << random.nextInt(31)));
+            if (random.nextBoolean()) {
+                number.append('.');
+                for (int digit = random.nextInt(12); digit > 0; digit--)
+                    number.append(random.nextInt(10));
+            }
+            if (random.nextInt(4) == 0)
+                number.append('e').append(random.nextInt(61) - 30);
+            checkParseNumber(number.toString());
+        }
+    }
+
+    private static void checkParseNumber(String number) {
+        double expected;
+        try {
+            expected = Double.parseDouble(number);
+        } catch (NumberFormatException e) {
+            expected = Double.NaN;
+        }
+        final byte[] bytes = ("[" + number + "]").getBytes(StandardCharsets.US_ASCII);
+        final double parsed = JetsonDetectionAppClient.parseNumber(bytes, 1, bytes.length - 1);
+        /* compares the bits, so that 0 and -0 are told apart */
+        assertEquals(Double.doubleToLongBits(expected), Double.doubleToLongBits(parsed), "parsing \"" + number + "\" gives " + parsed + ", expected " + expected);
+    }
+
+    private static byte[] readRecordedResponse() throws IOException {
+        try (InputStream inputStream = JetsonDetectionAppClientTest.class.getResourceAsStream(recordedResponseName)) {
+            assertNotNull(inputStream, recordedResponseName + " not found");
+            return inputStream.readAllBytes();
+        }
+    }
+
+    /** @return the lines of results in the response, after the headers */
+    private static List<String> getResultLines(byte[] response) {
+        final String responseText = new String(response, StandardCharsets.US_ASCII);
+        final int headersEnd = responseText.indexOf("\r\n\r\n");
+        assertTrue(headersEnd > 0, "the headers of the response do not end");
+        final String body = responseText.substring(headersEnd + 4);
+        assertTrue(body.endsWith("\n"), "the last line of the response does not end");
+        return List.of(body.substring(0, body.length() - 1).split("\n", -1));
+    }
+
+    /** parses a line of results the way the client did before, each target is {id, x, y, area} */
+    private static List<double[]> parseWithSplit(String line) {
+        final List<double[]> targets = new ArrayList<>();
+        for (String target:line.split("/")) {
+            final String[] s = target.split(" ");
+            if (s.length != 4)
+                continue;
+            targets.add(new double[] {
+                    Integer.parseInt(s[0]),
+                    Double.parseDouble(s[1]) - cameraResolution[0] / 2,
+                    Double.parseDouble(s[2]) - cameraResolution[0] / 2,
+                    Double.parseDouble(s[3])
+            });
+        }
+        return targets;
+    }
+
+    private static boolean sameTargets(List<double[]> expected, List<RawObjectDetectionCamera.ObjectTargetRaw> targets) {
+        if (targets == null || targets.size() != expected.size())
+            return false;
+        for (int i = 0; i < targets.size(); i++) {
+            final RawObjectDetectionCamera.ObjectTargetRaw target = targets.get(i);
+            if (target.id != expected.get(i)[0] || target.x != expected.get(i)[1] || target.y != expected.get(i)[2] || target.areaReflected != expected.get(i)[3])
+                return false;
+        }
+        return true;
+    }
+
+    private List<Thread> getCommunicationThreads() {
+        return Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.isAlive() && thread.getName().equals(clientName + "-CommunicationThread"))
+                .toList();
+    }
+}
@@ -0,0 +1,296 @@
+package frc.robot.Modules.PositionReader;
+
+import frc.robot.Drivers.Visions.TargetFieldPositionTracker;
+import frc.robot.Utils.MathUtils.AngleUtils;
+import frc.robot.Utils.MathUtils.Rotation2D;
+import frc.robot.Utils.MathUtils.Vector2D;
+import frc.robot.Utils.PoseHistory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * runs the position estimator on simulated odometry and april tag results, the same way RobotCore feeds it
+ * the tracker places the tag with the pose of the estimator at the capture time, and the estimator takes the known position of the tag to measure the robot
+ * */
+public class KalmanFilterPositionEstimatorTest {
+    private static final double dt = 0.02, visionLatency = 0.1;
+    private static final int aprilTagID = 4;
+    private static final Vector2D aprilTagFieldPosition = new Vector2D(new double[] {1.45, 0});
+
+    private SimulatedOdometry odometry;
+    private SimulatedAprilTagTracker aprilTagTracker;
+    private KalmanFilterPositionEstimator positionEstimator;
+    private double time;
+
+    @BeforeEach
+    public void setUp() {
+        odometry = new SimulatedOdometry();
+        aprilTagTracker = new SimulatedAprilTagTracker();
+        positionEstimator = new KalmanFilterPositionEstimator(odometry, aprilTagTracker, () -> Map.of(aprilTagID, aprilTagFieldPosition));
+        time = 0;
+    }
+
+    /** the robot stands still, the pose starts 0.3 meter off, the april tags should bring it back (slowly, as the pose is taken as calibrated at the start) */
+    @Test
+    public void convergesToAprilTagsFromWrongStart() {
+        final double actualX = 1.45, actualY = 3;
+        odometry.set(time, actualX + 0.3, actualY - 0.2, 0);
+        startInFieldCoordinates();
+        final Random random = new Random(1);
+        for (int cycle = 0; cycle < 2500; cycle++) {
+            time += dt;
+            odometry.set(time, actualX + 0.3, actualY - 0.2, 0);
+            if (cycle % 5 == 0)
+                seeAprilTag(time - visionLatency, actualX + random.nextGaussian() * 0.05, actualY + random.nextGaussian() * 0.05, 0);
+            positionEstimator.periodic(dt);
+        }
+
+        final Vector2D position = positionEstimator.getRobotPosition2D();
+        assertEquals(actualX, position.getX(), 0.05);
+        assertEquals(actualY, position.getY(), 0.05);
+        assertTrue(positionEstimator.isResultReliable());
+    }
+
+    /** the robot drives in circles, the odometry is 5% off in scale, slips to one side and is noisy, the april tags are late and noisy */
+    @Test
+    public void staysCloseWhileOdometryDrifts() {
+        final Random random = new Random(2);
+        final PoseHistory actualHistory = new PoseHistory(128);
+        double actualX = 1.45, actualY = 3, odometryX = actualX, odometryY = actualY, movingDirection = 0;
+        odometry.set(time, odometryX, odometryY, 0);
+        actualHistory.record(time, actualX, actualY, 0);
+        startInFieldCoordinates();
+
+        final double[] actualPoseAtCapture = new double[3];
+        double filterErrorSquaredSum = 0, odometryErrorSquaredSum = 0;
+        int samplesCount = 0;
+        for (int cycle = 0; cycle < 1500; cycle++) {
+            time += dt;
+            movingDirection += 0.8 * dt;
+            final double dx = Math.cos(movingDirection) * 1.5 * dt, dy = Math.sin(movingDirection) * 1.5 * dt;
+            actualX += dx;
+            actualY += dy;
+            odometryX += dx * 1.05 + 0.0005 + random.nextGaussian() * 0.002;
+            odometryY += dy * 1.05 + random.nextGaussian() * 0.002;
+            actualHistory.record(time, actualX, actualY, 0);
+            odometry.set(time, odometryX, odometryY, 0);
+
+            if (cycle % 5 == 0 && actualHistory.getPoseAt(time - visionLatency, actualPoseAtCapture))
+                seeAprilTag(time - visionLatency, actualPoseAtCapture[0] + random.nextGaussian() * 0.05, actualPoseAtCapture[1] + random.nextGaussian() * 0.05, 0);
+            positionEstimator.periodic(dt);
+
+            final Vector2D position = positionEstimator.getRobotPosition2D();
+            filterErrorSquaredSum += square(position.getX() - actualX) + square(position.getY() - actualY);
+            odometryErrorSquaredSum += square(odometryX - actualX) + square(odometryY - actualY);
+            samplesCount++;
+        }
+
+        final double filterError = Math.sqrt(filterErrorSquaredSum / samplesCount), odometryError = Math.sqrt(odometryErrorSquaredSum / samplesCount);
+        assertTrue(filterError < 0.15, "rms error of the filter: " + filterError);
+        assertTrue(filterError < odometryError / 3, "rms error of the filter: " + filterError + ", of the odometry alone: " + odometryError);
+        assertTrue(positionEstimator.isResultReliable());
+    }
+
+    /** an april tag result two meters away from where the robot surely is should be rejected, and the good ones after it accepted */
+    @Test
+    public void gatesOutliers() {
+        final double actualX = 1.45, actualY = 3;
+        odometry.set(time, actualX, actualY, 0);
+        startInFieldCoordinates();
+        for (int cycle = 0; cycle < 50; cycle++) {
+            time += dt;
+            odometry.set(time, actualX, actualY, 0);
+            if (cycle % 5 == 0)
+                seeAprilTag(time - visionLatency, actualX, actualY, 0);
+            positionEstimator.periodic(dt);
+        }
+
+        time += dt;
+        odometry.set(time, actualX, actualY, 0);
+        seeAprilTag(time - visionLatency, actualX + 2, actualY, 0);
+        positionEstimator.periodic(dt);
+        assertEquals(actualX, positionEstimator.getRobotPosition2D().getX(), 0.01);
+        assertEquals(actualY, positionEstimator.getRobotPosition2D().getY(), 0.01);
+
+        time += dt;
+        odometry.set(time, actualX, actualY, 0);
+        seeAprilTag(time - visionLatency, actualX + 0.1, actualY, 0);
+        positionEstimator.periodic(dt);
+        assertTrue(positionEstimator.getRobotPosition2D().getX() > actualX + 0.001, "a result close enough should be taken");
+    }
+
+    /** the same results of the tracker are only taken once, and tags that are not on the map are not taken */
+    @Test
+    public void takesEachResultOnceAndOnlyKnownTags() {
+        final double actualX = 1.45, actualY = 3;
+        odometry.set(time, actualX, actualY, 0);
+        startInFieldCoordinates();
+
+        time += dt;
+        odometry.set(time, actualX, actualY, 0);
+        seeAprilTag(time - visionLatency, actualX, actualY, 0);
+        positionEstimator.periodic(dt);
+        final double standardDeviationAfterResult = positionEstimator.getPositionStandardDeviation();
+        for (int cycle = 0; cycle < 10; cycle++) {
+            time += dt;
+            odometry.set(time, actualX, actualY, 0);
+            positionEstimator.periodic(dt);
+        }
+        assertEquals(standardDeviationAfterResult, positionEstimator.getPositionStandardDeviation(), 1e-12);
+
+        time += dt;
+        odometry.set(time, actualX, actualY, 0);
+        aprilTagTracker.see(aprilTagID + 1, new Vector2D(new double[] {actualX + 1, actualY + 1}), new Vector2D(new double[] {actualX, actualY}), time - visionLatency);
+        positionEstimator.periodic(dt);
+        assertEquals(standardDeviationAfterResult, positionEstimator.getPositionStandardDeviation(), 1e-12);
+    }
+
+    /** before the position is set on the field (teleop without auto, or after a reset), the odometry is not in the coordinates of the field and the april tags are ignored */
+    @Test
+    public void ignoresAprilTagsUntilPositionIsSetOnField() {
+        final double actualX = 1.45, actualY = 3;
+        odometry.set(time, actualX + 0.3, actualY, 0);
+        positionEstimator.init();
+        assertFalse(positionEstimator.isPositionInFieldCoordinates());
+        for (int cycle = 0; cycle < 50; cycle++) {
+            time += dt;
+            odometry.set(time, actualX + 0.3, actualY, 0);
+            if (cycle % 5 == 0)
+                seeAprilTag(time - visionLatency, actualX, actualY, 0);
+            positionEstimator.periodic(dt);
+        }
+        assertEquals(actualX + 0.3, positionEstimator.getRobotPosition2D().getX(), 1e-9);
+
+        positionEstimator.setRobotPosition(new Vector2D(new double[] {actualX + 0.3, actualY}));
+        assertTrue(positionEstimator.isPositionInFieldCoordinates());
+        time += dt;
+        odometry.set(time, actualX + 0.3, actualY, 0);
+        seeAprilTag(time - visionLatency, actualX, actualY, 0);
+        positionEstimator.periodic(dt);
+        assertTrue(positionEstimator.getRobotPosition2D().getX() < actualX + 0.3 - 0.001, "the april tags should be taken once the position is set");
+
+        positionEstimator.reset();
+        assertFalse(positionEstimator.isPositionInFieldCoordinates());
+    }
+
+    /** the auto stage sets the position on the field (see SequentialCommandFactory.calibratePositionEstimator()), the simulated odometry is already there */
+    private void startInFieldCoordinates() {
+        positionEstimator.init();
+        positionEstimator.setRobotPosition(odometry.getRobotPosition2D());
+    }
+
+    /**
+     * the april tag camera sees the tag from where the robot actually was, and the tracker places it with the pose that the estimator had at that moment
+     * */
+    private void seeAprilTag(double captureTimestamp, double actualX, double actualY, double actualRotation) {
+        final double[] estimatedPoseAtCapture = new double[3];
+        positionEstimator.getPoseAt(captureTimestamp, estimatedPoseAtCapture);
+        /* the rotation is exact in these tests, so the displacement to the tag is the actual one */
+        final Vector2D estimatedPositionAtCapture = new Vector2D(new double[] {estimatedPoseAtCapture[0], estimatedPoseAtCapture[1]}),
+                displacementToTag = new Vector2D(new double[] {aprilTagFieldPosition.getX() - actualX, aprilTagFieldPosition.getY() - actualY});
+        assertEquals(0, AngleUtils.getActualDifference(actualRotation, estimatedPoseAtCapture[2]), 1e-3);
+        aprilTagTracker.see(aprilTagID, estimatedPositionAtCapture.addBy(displacementToTag), estimatedPositionAtCapture, captureTimestamp);
+    }
+
+    private static double square(double x) {
+        return x * x;
+    }
+
+    /** odometry that is set by the test, with a history for the capture times */
+    private static final class SimulatedOdometry implements PositionEstimator {
+        private final PoseHistory history = new PoseHistory(128);
+        private double x, y, rotation;
+
+        void set(double time, double x, double y, double rotation) {
+            this.x = x;
+            this.y = y;
+            this.rotation = rotation;
+            history.record(time, x, y, rotation);
+        }
+
+        @Override
+        public boolean getPoseAt(double timestamp, double[] poseOutput) {
+            return history.getPoseAt(timestamp, poseOutput) || PositionEstimator.super.getPoseAt(timestamp, poseOutput);
+        }
+
+        @Override
+        public Vector2D getRobotVelocity2D() {
+            return new Vector2D();
+        }
+
+        @Override
+        public double getRobotRotationalVelocity() {
+            return 0;
+        }
+
+        @Override
+        public Vector2D getRobotPosition2D() {
+            return new Vector2D(new double[] {x, y});
+        }
+
+        @Override
+        public Vector2D getRobotAcceleration2D() {
+            return new Vector2D();
+        }
+
+        @Override
+        public double getRobotRotation() {
+            return rotation;
+        }
+
+        @Override
+        public void resetRobotPosition() {}
+
+        @Override
+        public void resetRobotRotation() {}
+
+        @Override
+        public void setRobotPosition(Vector2D robotPosition) {}
+
+        @Override
+        public void setRobotRotation(double rotation) {}
+
+        @Override
+        public boolean isResultReliable() {
+            return true;
+        }
+
+        @Override
+        public void reset() {}
+    }
+
+    /** a tracker that sees one target at a time, given by the test */
+    private static final class SimulatedAprilTagTracker implements TargetFieldPositionTracker {
+        private List<TargetOnField> visibleTargets = List.of();
+        private long generation = 0;
+
+        void see(int id, Vector2D fieldPosition, Vector2D robotPositionAtCapture, double captureTimestamp) {
+            generation++;
+            visibleTargets = List.of(new TargetOnField(id, fieldPosition, generation, robotPositionAtCapture, captureTimestamp));
+        }
+
+        @Override
+        public List<TargetOnField> getAllTargets() {
+            return visibleTargets;
+        }
+
+        @Override
+        public List<TargetOnField> getVisibleTargets() {
+            return visibleTargets;
+        }
+
+        @Override
+        public void update(Vector2D robotPositionInField2D, Rotation2D robotRotation) {}
+
+        @Override
+        public long getGeneration() {
+            return generation;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package frc.robot.Utils.MathUtils;
+
+import frc.robot.Utils.MechanismControllers.EnhancedPIDController;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * checks the angle wrapping against the versions before it was made branch-free, which are copied below unmodified
+ * the results are compared as positions on the loop, so that 0 and a full loop count as the same position
+ * */
+public class AngleUtilsTest {
+    private static final int samplesCount = 1_000_000;
+    private static final double fullCircle = Math.PI * 2;
+    private static final double[] loopLengths = new double[] {Math.PI * 2, 360, 2048, 0.37};
+
+    @Test
+    public void simplifyAngleAtWrapBoundaries() {
+        final double[] boundaries = new double[] {
+                0, -0.0, Double.MIN_VALUE, -Double.MIN_VALUE,
+                Math.PI, -Math.PI, Math.nextUp(Math.PI), Math.nextDown(-Math.PI),
+                fullCircle, -fullCircle, Math.nextUp(fullCircle), Math.nextDown(fullCircle), Math.nextUp(-fullCircle), Math.nextDown(-fullCircle),
+                1e-300, -1e-300, 1e8, -1e8
+        };
+        for (double radian:boundaries)
+            checkSimplifyAngle(radian);
+        for (int turns = -1000; turns <= 1000; turns++) {
+            checkSimplifyAngle(turns * fullCircle);
+            checkSimplifyAngle(Math.nextUp(turns * fullCircle));
+            checkSimplifyAngle(Math.nextDown(turns * fullCircle));
+        }
+    }
+
+    @Test
+    public void simplifyAngleOfRandomAngles() {
+        final Random random = new Random(5516);
+        for (int i = 0; i < samplesCount; i++) {
+            /* angles from a fraction of a turn to the largest allowed */
+            final double magnitude = Math.pow(10, random.nextInt(9));
+            checkSimplifyAngle((random.nextDouble() * 2 - 1) * magnitude);
+        }
+    }
+
+    @Test
+    public void simplifyAngleRejectsNonFiniteAndTooLargeAngles() {
+        for (double radian:new double[] {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Math.nextUp(1e8), -Math.nextUp(1e8), 1e300, Double.MAX_VALUE}) {
+            assertThrows(IllegalArgumentException.class, () -> baselineSimplifyAngle(radian));
+            assertThrows(IllegalArgumentException.class, () -> AngleUtils.simplifyAngle(radian));
+            assertThrows(IllegalArgumentException.class, () -> AngleUtils.getActualDifference(radian, 0));
+        }
+    }
+
+    @Test
+    public void wrapPassesNonFinitePositionsAsNaN() {
+        assertTrue(Double.isNaN(AngleUtils.wrap(Double.NaN, 1)));
+        assertTrue(Double.isNaN(AngleUtils.wrap(Double.POSITIVE_INFINITY, 1)));
+        assertTrue(Double.isNaN(AngleUtils.wrap(Double.NEGATIVE_INFINITY, 1)));
+    }
+
+    @Test
+    public void actualDifferenceOfRandomAngles() {
+        final Random random = new Random(5517);
+        for (int i = 0; i < samplesCount; i++) {
+            final double magnitude = Math.pow(10, random.nextInt(9)),
+                    current = (random.nextDouble() * 2 - 1) * magnitude,
+                    targeted = (random.nextDouble() * 2 - 1) * magnitude,
+                    difference = AngleUtils.getActualDifference(current, targeted);
+            assertTrue(Math.abs(difference) <= Math.PI, "difference out of range: " + difference);
+            assertSamePosition(baselineGetActualDifference(current, targeted), difference, fullCircle, tolerance(magnitude, fullCircle),
+                    "difference from " + current + " to " + targeted);
+        }
+    }
+
+    /**
+     * the loops of the baseline take a step per loop, so the positions are kept within a few thousand loops
+     * every step of the baseline also rounds, so its error grows with the amount of loops
+     * */
+    @Test
+    public void wrapAndDifferenceOnLoopsOfRandomLengths() {
+        final Random random = new Random(5518);
+        for (int i = 0; i < samplesCount; i++) {
+            final double loopLength = loopLengths[random.nextInt(loopLengths.length)],
+                    magnitude = loopLength * Math.pow(10, random.nextInt(4)),
+                    current = (random.nextDouble() * 2 - 1) * magnitude,
+                    targeted = (random.nextDouble() * 2 - 1) * magnitude,
+                    tolerance = tolerance(magnitude, loopLength) * (magnitude / loopLength + 1);
+
+            final double wrapped = AngleUtils.wrap(current, loopLength);
+            assertTrue(wrapped >= 0 && wrapped < loopLength, "wrap out of range: " + wrapped + " on loop " + loopLength);
+            assertSamePosition(baselineSimplifyPosition(current, loopLength), wrapped, loopLength, tolerance, "wrap of " + current);
+
+            final double difference = EnhancedPIDController.getActualDifference(current, targeted, loopLength);
+            assertTrue(Math.abs(difference) <= loopLength / 2, "difference out of range: " + difference + " on loop " + loopLength);
+            assertSamePosition(baselineGetActualDifference(current, targeted, loopLength), difference, loopLength, tolerance,
+                    "difference from " + current + " to " + targeted);
+        }
+    }
+
+    private static void checkSimplifyAngle(double radian) {
+        final double simplified = AngleUtils.simplifyAngle(radian);
+        assertTrue(simplified >= 0 && simplified < fullCircle, "simplified angle out of range: " + simplified + " from " + radian);
+        assertSamePosition(baselineSimplifyAngle(radian), simplified, fullCircle, tolerance(Math.abs(radian), fullCircle), "simplify angle " + radian);
+    }
+
+    /** the rounding errors of the floor-based wrapping grow with the size of the position */
+    private static double tolerance(double magnitude, double loopLength) {
+        return (Math.ulp(magnitude) + Math.ulp(loopLength)) * 8;
+    }
+
+    private static void assertSamePosition(double expected, double actual, double loopLength, double tolerance, String message) {
+        final double distance = Math.abs(expected - actual) % loopLength;
+        if (!(Math.min(distance, loopLength - distance) <= tolerance))
+            fail(message + ": expected " + expected + " but was " + actual + " (loop length " + loopLength + ")");
+    }
+
+    /* <-- the baseline versions, as a reference --> */
+    /** AngleUtils.simplifyAngle() */
+    private static double baselineSimplifyAngle(double radian) {
+        if (Double.isNaN(radian) || Double.isInfinite(radian) || Math.abs(radian) > 10e7)
+            throw new IllegalArgumentException("invalid radian: " + radian);
+        radian = Math.copySign(radian % (Math.PI*2), radian);
+        if (radian < 0)
+            radian += Math.PI * 2;
+        return radian;
+    }
+
+    /** AngleUtils.getActualDifference() */
+    private static double baselineGetActualDifference(double currentRotation, double targetedRotation) {
+        final double loopLength = Math.PI * 2;
+        currentRotation = baselineSimplifyAngle(currentRotation);
+        targetedRotation = baselineSimplifyAngle(targetedRotation);
+        double difference = targetedRotation - currentRotation;
+        if (difference > loopLength / 2)
+            return -(loopLength - difference); // go the other way around
+        if (difference < -loopLength / 2)
+            return loopLength + difference; // go the other way around
+        return difference;
+    }
+
+    /** EnhancedPIDController.getActualDifference() */
+    private static double baselineGetActualDifference(double currentPosition, double targetedPosition, double loopLength) {
+        if (loopLength == Double.POSITIVE_INFINITY)
+            return targetedPosition - currentPosition;
+        currentPosition = baselineSimplifyPosition(currentPosition, loopLength);
+        targetedPosition = baselineSimplifyPosition(targetedPosition, loopLength);
+        double difference = targetedPosition - currentPosition;
+        if (difference > loopLength / 2)
+            return -(loopLength - difference); // go the other way around
+        if (difference < -loopLength / 2)
+            return loopLength + difference; // go the other way around
+        return difference;
+    }
+
+    /** EnhancedPIDController.simplifyPosition() */
+    private static double baselineSimplifyPosition(double position, double loopLength) {
+        while (position > loopLength)
+            position -= loopLength;
+        while (position < 0)
+            position += loopLength;
+        return position;
+    }
+}
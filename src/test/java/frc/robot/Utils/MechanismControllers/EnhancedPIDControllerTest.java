@@ -0,0 +1,74 @@
+package frc.robot.Utils.MechanismControllers;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * checks that streaming the setpoints with updateTask() gives the same powers as starting a new task every cycle, which is how the modules used to do it
+ * the profiles are the static ones used by the modules, all with zero integral coefficient (so keeping the integration makes no difference)
+ * */
+public class EnhancedPIDControllerTest {
+    private static final int cyclesCount = 200_000;
+
+    /** the steer wheels, with the default chassis configs */
+    @Test
+    public void steerWheelProfile() {
+        checkStreamingSameAsNewTasks(new EnhancedPIDController.StaticPIDProfile(
+                Math.PI * 2, 0.85, 0.03, Math.toRadians(60), Math.toRadians(1), 0, 0, 0
+        ), Math.PI * 2, 1);
+    }
+
+    /** the rotation controller of the chassis, with the default chassis configs */
+    @Test
+    public void chassisRotationProfile() {
+        checkStreamingSameAsNewTasks(new EnhancedPIDController.StaticPIDProfile(
+                Math.PI * 2, 0.6, 0, Math.toRadians(60), 0, 0.4, 0, 0
+        ), Math.PI * 2, 2);
+    }
+
+    /** the holding controller of the intake, which is not looped, with the powers it was tuned with (they are zero in the intake now, which would make the powers all zero) */
+    @Test
+    public void intakeHoldingProfile() {
+        final double intakeMotorEncoderTicksPerSecondAtNormalPower = 74000;
+        checkStreamingSameAsNewTasks(new EnhancedPIDController.StaticPIDProfile(
+                Double.POSITIVE_INFINITY, 0.12, 0.02,
+                intakeMotorEncoderTicksPerSecondAtNormalPower * 0.15,
+                intakeMotorEncoderTicksPerSecondAtNormalPower * 0.01,
+                0.04, 0, 0
+        ), intakeMotorEncoderTicksPerSecondAtNormalPower, 3);
+    }
+
+    /**
+     * runs the two controllers side by side on the same random inputs
+     * @param range the range of the targets and positions
+     * */
+    private static void checkStreamingSameAsNewTasks(EnhancedPIDController.PIDProfile profile, double range, long seed) {
+        final EnhancedPIDController taskBasedController = new EnhancedPIDController(profile),
+                streamingController = new EnhancedPIDController(profile);
+        final Random random = new Random(seed);
+
+        double target = 0, position = 0;
+        for (int cycle = 0; cycle < cyclesCount; cycle++) {
+            /* the target mostly moves a little every cycle, sometimes stays, and sometimes jumps */
+            final double targetChoice = random.nextDouble();
+            if (targetChoice < 0.1)
+                target = (random.nextDouble() * 2 - 1) * range;
+            else if (targetChoice < 0.8)
+                target += random.nextGaussian() * range * 0.01;
+            position += random.nextGaussian() * range * 0.02;
+            final double velocity = random.nextGaussian() * range,
+                    dt = random.nextDouble() < 0.05 ? 0 : 0.005 + random.nextDouble() * 0.025;
+
+            taskBasedController.startNewTask(new EnhancedPIDController.Task(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, target));
+            streamingController.updateTask(EnhancedPIDController.Task.TaskType.GO_TO_POSITION, target);
+            final double expectedPower = taskBasedController.getMotorPower(position, velocity, dt),
+                    streamedPower = streamingController.getMotorPower(position, velocity, dt);
+            if (Double.compare(expectedPower, streamedPower) != 0)
+                fail("cycle " + cycle + ": power " + streamedPower + " with streaming, but " + expectedPower + " with new tasks"
+                        + " (target " + target + ", position " + position + ", velocity " + velocity + ", dt " + dt + ")");
+        }
+    }
+}